@@ -22,11 +22,10 @@
 
 package com.uber.sdk.core.auth;
 
-import com.squareup.moshi.Moshi;
 import com.uber.sdk.core.auth.internal.OAuth2Service;
-import com.uber.sdk.core.auth.internal.OAuthScopesAdapter;
 import com.uber.sdk.core.client.SessionConfiguration;
 import com.uber.sdk.core.client.internal.ApiInterceptor;
+import com.uber.sdk.core.client.internal.JsonRegistry;
 
 import java.io.IOException;
 
@@ -135,11 +134,9 @@ public class AccessTokenAuthenticator extends
     }
 
     static OAuth2Service createOAuthService(String baseUrl) {
-        final Moshi moshi = new Moshi.Builder().add(new OAuthScopesAdapter()).build();
-
         return new Retrofit.Builder()
                 .baseUrl(baseUrl)
-                .addConverterFactory(MoshiConverterFactory.create(moshi))
+                .addConverterFactory(MoshiConverterFactory.create(JsonRegistry.getMoshi()))
                 .build()
                 .create(OAuth2Service.class);
     }
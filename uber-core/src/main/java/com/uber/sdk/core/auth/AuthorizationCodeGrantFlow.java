@@ -1,10 +1,9 @@
 package com.uber.sdk.core.auth;
 
-import com.squareup.moshi.Moshi;
 import com.uber.sdk.core.auth.internal.OAuth2Service;
-import com.uber.sdk.core.auth.internal.OAuthScopesAdapter;
 import com.uber.sdk.core.auth.internal.TokenRequestFlow;
 import com.uber.sdk.core.client.SessionConfiguration;
+import com.uber.sdk.core.client.internal.JsonRegistry;
 
 import retrofit2.Call;
 import retrofit2.Callback;
@@ -86,10 +85,9 @@ public class AuthorizationCodeGrantFlow implements TokenRequestFlow {
     }
 
     private static OAuth2Service createOAuthService(String baseUrl) {
-        final Moshi moshi = new Moshi.Builder().add(new OAuthScopesAdapter()).build();
         return new Retrofit.Builder()
                 .baseUrl(baseUrl)
-                .addConverterFactory(MoshiConverterFactory.create(moshi))
+                .addConverterFactory(MoshiConverterFactory.create(JsonRegistry.getMoshi()))
                 .build()
                 .create(OAuth2Service.class);
     }
@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2016 Uber Technologies, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.uber.sdk.core.auth;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import static com.uber.sdk.core.client.utils.Preconditions.checkNotNull;
+
+/**
+ * {@link AccessTokenStorage} that delegates to another storage and notifies registered
+ * {@link Listener}s whenever the stored token is replaced or removed.
+ */
+public class ObservableAccessTokenStorage implements AccessTokenStorage {
+
+    private final AccessTokenStorage delegate;
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * @param delegate the storage that actually holds the {@link AccessToken}.
+     */
+    public ObservableAccessTokenStorage(@Nonnull AccessTokenStorage delegate) {
+        this.delegate = checkNotNull(delegate, "Delegate storage must not be null.");
+    }
+
+    @Nullable
+    @Override
+    public AccessToken getAccessToken() {
+        return delegate.getAccessToken();
+    }
+
+    @Override
+    public void setAccessToken(@Nonnull AccessToken token) {
+        AccessToken previous = delegate.getAccessToken();
+        delegate.setAccessToken(token);
+        notifyListeners(previous, token);
+    }
+
+    @Override
+    public void removeAccessToken() {
+        AccessToken previous = delegate.getAccessToken();
+        delegate.removeAccessToken();
+        notifyListeners(previous, null);
+    }
+
+    /**
+     * Registers a {@link Listener} to be called after every token change.
+     *
+     * @param listener the listener to add.
+     */
+    public void addListener(@Nonnull Listener listener) {
+        listeners.add(checkNotNull(listener, "Listener must not be null."));
+    }
+
+    /**
+     * Unregisters a previously added {@link Listener}.
+     *
+     * @param listener the listener to remove.
+     */
+    public void removeListener(@Nonnull Listener listener) {
+        listeners.remove(listener);
+    }
+
+    private void notifyListeners(@Nullable AccessToken previous, @Nullable AccessToken current) {
+        for (Listener listener : listeners) {
+            listener.onAccessTokenChanged(previous, current);
+        }
+    }
+
+    /**
+     * Receives changes made through an {@link ObservableAccessTokenStorage}.
+     */
+    public interface Listener {
+
+        /**
+         * Called after the stored token has been replaced or removed.
+         *
+         * @param previous the token stored before the change, or {@code null} if there was none.
+         * @param current the token stored after the change, or {@code null} if it was removed.
+         */
+        void onAccessTokenChanged(@Nullable AccessToken previous, @Nullable AccessToken current);
+    }
+}
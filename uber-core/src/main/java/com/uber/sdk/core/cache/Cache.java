@@ -0,0 +1,150 @@
+/*
+ * Copyright (c) 2016 Uber Technologies, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.uber.sdk.core.cache;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * A key-value cache that SDK components keep API responses in. Implementations must be thread safe.
+ * <p>
+ * {@link CacheBuilder} creates the default implementation; any other implementation, for example one that stores
+ * values outside of the heap, can be passed wherever a {@link Cache} is accepted.
+ *
+ * @param <K> the type of keys.
+ * @param <V> the type of values.
+ */
+public interface Cache<K, V> {
+
+    /**
+     * Gets the value cached for a key.
+     *
+     * @param key the key to look up.
+     * @return the value, or {@code null} if the key is absent or has expired.
+     */
+    @Nullable
+    V getIfPresent(@Nonnull K key);
+
+    /**
+     * Tells whether a value is cached for a key, without recording a hit or a miss or counting as a use of the
+     * entry.
+     *
+     * @param key the key to look up.
+     * @return whether a value that has not expired is cached for the key.
+     */
+    boolean containsKey(@Nonnull K key);
+
+    /**
+     * Gets the value cached for a key, loading and caching it if it is absent.
+     *
+     * @param key the key to look up.
+     * @param loader the loader to call on a miss.
+     * @return the value, or {@code null} if the loader returned {@code null}, in which case nothing is cached.
+     * @throws IOException if the loader failed.
+     */
+    @Nullable
+    V get(@Nonnull K key, @Nonnull CacheLoader<? super K, ? extends V> loader) throws IOException;
+
+    /**
+     * Gets the value cached for a key, loading it if it is absent and caching it with its own time to live.
+     *
+     * @param key the key to look up.
+     * @param loader the loader to call on a miss.
+     * @param ttl how long a loaded value may be returned for.
+     * @param unit the unit of {@code ttl}.
+     * @return the value, or {@code null} if the loader returned {@code null}, in which case nothing is cached.
+     * @throws IOException if the loader failed.
+     */
+    @Nullable
+    V get(@Nonnull K key, @Nonnull CacheLoader<? super K, ? extends V> loader, long ttl, @Nonnull TimeUnit unit)
+            throws IOException;
+
+    /**
+     * Caches a value, replacing any previous value. It expires according to the cache's configuration.
+     *
+     * @param key the key to cache the value for.
+     * @param value the value to cache.
+     */
+    void put(@Nonnull K key, @Nonnull V value);
+
+    /**
+     * Caches a value with its own time to live, replacing any previous value.
+     *
+     * @param key the key to cache the value for.
+     * @param value the value to cache.
+     * @param ttl how long the value may be returned for.
+     * @param unit the unit of {@code ttl}.
+     */
+    void put(@Nonnull K key, @Nonnull V value, long ttl, @Nonnull TimeUnit unit);
+
+    /**
+     * Removes the value cached for a key, if any.
+     *
+     * @param key the key to remove.
+     */
+    void invalidate(@Nonnull K key);
+
+    /**
+     * Removes every entry.
+     */
+    void invalidateAll();
+
+    /**
+     * @return the number of entries, which may include expired entries that have not been removed yet.
+     */
+    long size();
+
+    /**
+     * Visits every entry that has not expired. Entries written or removed during the visit may or may not be
+     * visited, and the visitor must not modify the cache.
+     *
+     * @param visitor the visitor to call for each entry.
+     */
+    void forEachEntry(@Nonnull EntryVisitor<? super K, ? super V> visitor);
+
+    /**
+     * @return a snapshot of the statistics recorded so far.
+     */
+    @Nonnull
+    CacheStats stats();
+
+    /**
+     * Receives the entries of a cache.
+     *
+     * @param <K> the type of keys.
+     * @param <V> the type of values.
+     */
+    interface EntryVisitor<K, V> {
+
+        /**
+         * @param key the key of the entry.
+         * @param value the value of the entry.
+         * @param expiresAtMillis the wall clock time at which the entry expires, in milliseconds since the epoch,
+         *                        or {@link Long#MAX_VALUE} if it never expires.
+         */
+        void visit(@Nonnull K key, @Nonnull V value, long expiresAtMillis);
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright (c) 2016 Uber Technologies, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.uber.sdk.core.cache;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nonnull;
+
+import static com.uber.sdk.core.client.utils.Preconditions.checkNotNull;
+import static com.uber.sdk.core.client.utils.Preconditions.checkState;
+
+/**
+ * Builds in-memory {@link Cache}s that evict with the W-TinyLFU policy, which keeps frequently requested entries
+ * through bursts of one-off requests.
+ * <p>
+ * Example:
+ * <pre>
+ * Cache&lt;String, Product&gt; cache = new CacheBuilder&lt;String, Product&gt;()
+ *         .setMaximumSize(1000)
+ *         .setExpireAfterWrite(5, TimeUnit.MINUTES)
+ *         .build();
+ * </pre>
+ *
+ * @param <K> the type of keys.
+ * @param <V> the type of values.
+ */
+public final class CacheBuilder<K, V> {
+
+    private long maximum = Long.MAX_VALUE;
+    private Weigher<? super K, ? super V> weigher;
+    private Expiry<? super K, ? super V> expiry;
+    private long refreshAfterWriteNanos = Long.MAX_VALUE;
+    private Executor executor;
+    private Ticker ticker;
+
+    /**
+     * Sets the maximum number of entries. Cannot be combined with {@link #setMaximumWeight(long, Weigher)}.
+     *
+     * @param maximumSize the maximum number of entries.
+     * @return this builder.
+     */
+    public CacheBuilder<K, V> setMaximumSize(long maximumSize) {
+        checkState(weigher == null, "Maximum weight was already set.");
+        checkState(maximumSize >= 0, "Maximum size must not be negative.");
+        this.maximum = maximumSize;
+        return this;
+    }
+
+    /**
+     * Sets the maximum total weight of the entries, for caches whose entries differ in cost, such as size in
+     * bytes. Cannot be combined with {@link #setMaximumSize(long)}.
+     *
+     * @param maximumWeight the maximum total weight.
+     * @param weigher computes the weight of each entry when it is written.
+     * @return this builder.
+     */
+    public CacheBuilder<K, V> setMaximumWeight(long maximumWeight, @Nonnull Weigher<? super K, ? super V> weigher) {
+        checkState(maximum == Long.MAX_VALUE || this.weigher != null, "Maximum size was already set.");
+        checkState(maximumWeight >= 0, "Maximum weight must not be negative.");
+        this.maximum = maximumWeight;
+        this.weigher = checkNotNull(weigher, "Weigher must not be null.");
+        return this;
+    }
+
+    /**
+     * Sets how long entries may be returned for after they are written. Cannot be combined with
+     * {@link #setExpiry(Expiry)}.
+     *
+     * @param duration the time to live.
+     * @param unit the unit of {@code duration}.
+     * @return this builder.
+     */
+    public CacheBuilder<K, V> setExpireAfterWrite(long duration, @Nonnull TimeUnit unit) {
+        checkState(duration >= 0, "Duration must not be negative.");
+        final long nanos = unit.toNanos(duration);
+        return setExpiry((key, value) -> nanos);
+    }
+
+    /**
+     * Sets how long each entry may be returned for after it is written.
+     *
+     * @param expiry computes the time to live of each entry.
+     * @return this builder.
+     */
+    public CacheBuilder<K, V> setExpiry(@Nonnull Expiry<? super K, ? super V> expiry) {
+        checkState(this.expiry == null, "Expiry was already set.");
+        this.expiry = checkNotNull(expiry, "Expiry must not be null.");
+        return this;
+    }
+
+    /**
+     * Sets how long after being written an entry is reloaded in the background the next time it is read. The
+     * current value keeps being returned until the new one is loaded. Only applies to caches built with a
+     * {@link CacheLoader}.
+     *
+     * @param duration the time after which entries are refreshed.
+     * @param unit the unit of {@code duration}.
+     * @return this builder.
+     */
+    public CacheBuilder<K, V> setRefreshAfterWrite(long duration, @Nonnull TimeUnit unit) {
+        checkState(duration > 0, "Duration must be positive.");
+        this.refreshAfterWriteNanos = unit.toNanos(duration);
+        return this;
+    }
+
+    /**
+     * Sets the {@link Executor} that asynchronous loads and refreshes run on. Defaults to
+     * {@link ForkJoinPool#commonPool()}.
+     *
+     * @param executor the executor to load values on.
+     * @return this builder.
+     */
+    public CacheBuilder<K, V> setExecutor(@Nonnull Executor executor) {
+        this.executor = checkNotNull(executor, "Executor must not be null.");
+        return this;
+    }
+
+    CacheBuilder<K, V> setTicker(@Nonnull Ticker ticker) {
+        this.ticker = checkNotNull(ticker, "Ticker must not be null.");
+        return this;
+    }
+
+    /**
+     * @return a new {@link Cache} with this builder's configuration.
+     */
+    @Nonnull
+    public Cache<K, V> build() {
+        return create(null);
+    }
+
+    /**
+     * @param loader loads values that are missing or due for refresh.
+     * @return a new {@link LoadingCache} with this builder's configuration.
+     */
+    @Nonnull
+    public LoadingCache<K, V> build(@Nonnull CacheLoader<? super K, ? extends V> loader) {
+        return create(checkNotNull(loader, "Loader must not be null."));
+    }
+
+    private TinyLfuCache<K, V> create(CacheLoader<? super K, ? extends V> loader) {
+        return new TinyLfuCache<>(maximum,
+                weigher != null ? weigher : (key, value) -> 1,
+                expiry != null ? expiry : (key, value) -> Long.MAX_VALUE,
+                refreshAfterWriteNanos,
+                executor != null ? executor : ForkJoinPool.commonPool(),
+                ticker != null ? ticker : Ticker.SYSTEM,
+                loader);
+    }
+}
@@ -0,0 +1,423 @@
+/*
+ * Copyright (c) 2016 Uber Technologies, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.uber.sdk.core.cache;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import static com.uber.sdk.core.client.utils.Preconditions.checkNotNull;
+import static com.uber.sdk.core.client.utils.Preconditions.checkState;
+
+/**
+ * Saves caches to a file and restores them on startup, so that a restarted process serves cache hits right away.
+ * <p>
+ * Caches are registered under a name before calling {@link #restore()}. The file holds one section per cache,
+ * with each entry written as its expiry time, its key and its value encoded by the cache's {@link Codec}. It is
+ * written to a temporary file that then replaces the previous snapshot, and read through a memory map, skipping
+ * entries that expired in the meantime and sections of caches that are no longer registered. A section whose values
+ * its codec fails to decode, for instance after the type of its values changed, is skipped as a whole and reported
+ * to the {@link Listener}, as are failed periodic snapshots.
+ * <pre>
+ * CacheSnapshotter snapshotter = new CacheSnapshotter(new File("caches.bin"))
+ *         .register("products", productCache, productCodec);
+ * snapshotter.restore();
+ * snapshotter.start(5, TimeUnit.MINUTES);
+ * </pre>
+ */
+public class CacheSnapshotter implements Closeable {
+
+    /**
+     * Notified of the failures that {@link CacheSnapshotter} recovers from instead of throwing.
+     */
+    public interface Listener {
+
+        /**
+         * Called when a section of the snapshot was skipped because its codec failed to decode a value.
+         *
+         * @param name the name of the section.
+         * @param error the failure of the codec.
+         */
+        void onSectionSkipped(@Nonnull String name, @Nonnull RuntimeException error);
+
+        /**
+         * Called when a periodic or shutdown snapshot failed, in which case the previous snapshot is kept.
+         *
+         * @param error the failure.
+         */
+        void onSnapshotFailed(@Nonnull Exception error);
+    }
+
+    private static final int MAGIC = 0x55434348;
+    private static final int VERSION = 1;
+    private static final byte ENTRY = 1;
+    private static final byte END_OF_SECTION = 0;
+    private static final int INITIAL_SCRATCH_SIZE = 4096;
+
+    private final File file;
+    private final Map<String, Section<?>> sections = new LinkedHashMap<>();
+
+    @Nullable private ScheduledExecutorService scheduler;
+    @Nullable private Thread shutdownHook;
+    @Nullable private Listener listener;
+    private ByteBuffer scratch = ByteBuffer.allocate(INITIAL_SCRATCH_SIZE);
+
+    /**
+     * @param file the snapshot file.
+     */
+    public CacheSnapshotter(@Nonnull File file) {
+        this.file = checkNotNull(file, "File must not be null.");
+    }
+
+    /**
+     * Registers a cache keyed by strings.
+     *
+     * @param name the name of the cache's section in the file, unique among registered caches.
+     * @param cache the cache to save and restore.
+     * @param codec the codec used to write and read values.
+     * @return this snapshotter.
+     */
+    @Nonnull
+    public <V> CacheSnapshotter register(@Nonnull String name, @Nonnull Cache<String, V> cache,
+                                         @Nonnull Codec<V> codec) {
+        return register(name, new CacheSource<>(checkNotNull(cache, "Cache must not be null.")), codec);
+    }
+
+    /**
+     * Registers other cached state.
+     *
+     * @param name the name of the source's section in the file, unique among registered sources.
+     * @param source the state to save and restore.
+     * @param codec the codec used to write and read values.
+     * @return this snapshotter.
+     */
+    @Nonnull
+    public synchronized <V> CacheSnapshotter register(@Nonnull String name, @Nonnull SnapshotSource<V> source,
+                                                      @Nonnull Codec<V> codec) {
+        checkNotNull(name, "Name must not be null.");
+        checkState(!sections.containsKey(name), "A cache is already registered as " + name + ".");
+        sections.put(name, new Section<>(checkNotNull(source, "Source must not be null."),
+                checkNotNull(codec, "Codec must not be null.")));
+        return this;
+    }
+
+    /**
+     * Sets the listener notified of skipped sections and failed background snapshots. Optional and defaults to none.
+     *
+     * @param listener the listener, or {@code null} for none.
+     * @return this snapshotter.
+     */
+    @Nonnull
+    public synchronized CacheSnapshotter setListener(@Nullable Listener listener) {
+        this.listener = listener;
+        return this;
+    }
+
+    /**
+     * Restores the registered caches from the snapshot file, if there is one.
+     *
+     * @return the number of entries restored.
+     * @throws IOException if the file could not be read or is not a snapshot.
+     */
+    public synchronized int restore() throws IOException {
+        if (!file.exists()) {
+            return 0;
+        }
+
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        try {
+            if (buffer.getInt() != MAGIC) {
+                throw new IOException("Not a cache snapshot: " + file);
+            }
+            if (buffer.getInt() != VERSION) {
+                throw new IOException("Unsupported cache snapshot version: " + file);
+            }
+
+            long now = System.currentTimeMillis();
+            int restored = 0;
+            int sectionCount = buffer.getInt();
+            for (int i = 0; i < sectionCount; i++) {
+                String name = readString(buffer);
+                restored += restoreSection(buffer, name, sections.get(name), now);
+            }
+            return restored;
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            throw new IOException("Corrupt cache snapshot: " + file, e);
+        }
+    }
+
+    /**
+     * Writes the registered caches to the snapshot file, replacing the previous snapshot.
+     *
+     * @throws IOException if the file could not be written.
+     */
+    public synchronized void snapshot() throws IOException {
+        File temporary = new File(file.getPath() + ".tmp");
+        try (DataOutputStream output = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(temporary)))) {
+            output.writeInt(MAGIC);
+            output.writeInt(VERSION);
+            output.writeInt(sections.size());
+            for (Map.Entry<String, Section<?>> section : sections.entrySet()) {
+                writeString(output, section.getKey());
+                writeSection(output, section.getValue());
+                output.writeByte(END_OF_SECTION);
+            }
+        }
+
+        try {
+            Files.move(temporary.toPath(), file.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Writes a snapshot periodically on a background thread, and once more when the JVM shuts down. Failed
+     * periodic snapshots are retried at the next period.
+     *
+     * @param period the time between snapshots.
+     * @param unit the unit of {@code period}.
+     */
+    public synchronized void start(long period, @Nonnull TimeUnit unit) {
+        checkState(scheduler == null, "Snapshotter was already started.");
+        checkState(period > 0, "Period must be positive.");
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "UberCacheSnapshotter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::snapshotQuietly, period, period, unit);
+
+        shutdownHook = new Thread(this::snapshotQuietly, "UberCacheSnapshotterShutdown");
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+    }
+
+    /**
+     * Stops periodic snapshots and writes a final one.
+     *
+     * @throws IOException if the final snapshot could not be written.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+        if (shutdownHook != null) {
+            try {
+                Runtime.getRuntime().removeShutdownHook(shutdownHook);
+            } catch (IllegalStateException e) {
+                // Already shutting down, the hook writes the snapshot.
+                return;
+            }
+            shutdownHook = null;
+        }
+        snapshot();
+    }
+
+    private void snapshotQuietly() {
+        try {
+            snapshot();
+        } catch (IOException | RuntimeException e) {
+            // Keep the previous snapshot.
+            Listener listener;
+            synchronized (this) {
+                listener = this.listener;
+            }
+            if (listener != null) {
+                listener.onSnapshotFailed(e);
+            }
+        }
+    }
+
+    private <V> void writeSection(DataOutputStream output, Section<V> section) throws IOException {
+        // Sources may hold a lock while visiting, such as the read lock of an OffHeapCache, so entries are copied
+        // out first and written once the visit is over.
+        final long now = System.currentTimeMillis();
+        final List<Entry<V>> entries = new ArrayList<>();
+        section.source.forEachEntry((key, value, expiresAtMillis) -> {
+            if (expiresAtMillis > now) {
+                entries.add(new Entry<>(key, value, expiresAtMillis));
+            }
+        });
+
+        for (Entry<V> entry : entries) {
+            ByteBuffer encoded = encode(section.codec, entry.value);
+            output.writeByte(ENTRY);
+            output.writeLong(entry.expiresAtMillis);
+            writeString(output, entry.key);
+            output.writeInt(encoded.remaining());
+            output.write(encoded.array(), encoded.arrayOffset() + encoded.position(), encoded.remaining());
+        }
+    }
+
+    private <V> ByteBuffer encode(Codec<V> codec, V value) {
+        while (true) {
+            scratch.clear();
+            try {
+                codec.encode(value, scratch);
+                scratch.flip();
+                return scratch;
+            } catch (BufferOverflowException e) {
+                scratch = ByteBuffer.allocate(scratch.capacity() * 2);
+            }
+        }
+    }
+
+    private <V> int restoreSection(ByteBuffer buffer, String name, @Nullable Section<V> section, long now) {
+        // Values are all decoded before any is restored, so that a section the codec fails on is skipped as a whole.
+        List<Entry<V>> entries = new ArrayList<>();
+        RuntimeException decodeError = null;
+        while (buffer.get() == ENTRY) {
+            long expiresAtMillis = buffer.getLong();
+            String key = readString(buffer);
+            int length = buffer.getInt();
+            if (length < 0 || length > buffer.remaining()) {
+                throw new BufferUnderflowException();
+            }
+
+            if (section != null && decodeError == null && expiresAtMillis > now) {
+                ByteBuffer value = buffer.slice();
+                value.limit(length);
+                try {
+                    entries.add(new Entry<>(key, section.codec.decode(value), expiresAtMillis));
+                } catch (RuntimeException e) {
+                    decodeError = e;
+                }
+            }
+            buffer.position(buffer.position() + length);
+        }
+
+        if (decodeError != null) {
+            if (listener != null) {
+                listener.onSectionSkipped(name, decodeError);
+            }
+            return 0;
+        }
+        for (Entry<V> entry : entries) {
+            section.source.restore(entry.key, entry.value, entry.expiresAtMillis);
+        }
+        return entries.size();
+    }
+
+    private static void writeString(DataOutputStream output, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0 || length > buffer.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static final class Entry<V> {
+
+        final String key;
+        final V value;
+        final long expiresAtMillis;
+
+        Entry(String key, V value, long expiresAtMillis) {
+            this.key = key;
+            this.value = value;
+            this.expiresAtMillis = expiresAtMillis;
+        }
+    }
+
+    private static final class Section<V> {
+
+        final SnapshotSource<V> source;
+        final Codec<V> codec;
+
+        Section(SnapshotSource<V> source, Codec<V> codec) {
+            this.source = source;
+            this.codec = codec;
+        }
+    }
+
+    /**
+     * Saves and restores a {@link Cache}, keeping entries cached since startup.
+     */
+    private static final class CacheSource<V> implements SnapshotSource<V> {
+
+        private final Cache<String, V> cache;
+
+        CacheSource(Cache<String, V> cache) {
+            this.cache = cache;
+        }
+
+        @Override
+        public void forEachEntry(@Nonnull Cache.EntryVisitor<String, ? super V> visitor) {
+            cache.forEachEntry(visitor);
+        }
+
+        @Override
+        public void restore(@Nonnull String key, @Nonnull V value, long expiresAtMillis) {
+            // Unlike getIfPresent, this records no misses for the keys restored.
+            if (cache.containsKey(key)) {
+                return;
+            }
+
+            if (expiresAtMillis == Long.MAX_VALUE) {
+                cache.put(key, value);
+            } else {
+                cache.put(key, value, expiresAtMillis - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+}
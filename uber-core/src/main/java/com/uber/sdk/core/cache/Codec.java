@@ -0,0 +1,56 @@
+/*
+ * Copyright (c) 2016 Uber Technologies, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.uber.sdk.core.cache;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Converts values to and from a compact binary form, for caches that store values outside of the heap and for
+ * {@link CacheSnapshotter} files.
+ *
+ * @param <V> the type of the values.
+ */
+public interface Codec<V> {
+
+    /**
+     * Writes a value at the position of a buffer. If the buffer is too small the write is retried with a
+     * larger one.
+     *
+     * @param value the value to write.
+     * @param target the buffer to write to.
+     * @throws BufferOverflowException if {@code target} has too little room left.
+     */
+    void encode(@Nonnull V value, @Nonnull ByteBuffer target);
+
+    /**
+     * Reads a value written by {@link #encode(Object, ByteBuffer)}.
+     *
+     * @param source a buffer positioned at the start of the value and limited to its end.
+     * @return the decoded value.
+     */
+    @Nonnull
+    V decode(@Nonnull ByteBuffer source);
+}
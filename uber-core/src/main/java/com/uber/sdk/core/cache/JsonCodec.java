@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2016 Uber Technologies, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.uber.sdk.core.cache;
+
+import com.squareup.moshi.JsonAdapter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+
+import javax.annotation.Nonnull;
+
+import okio.Buffer;
+
+import static com.uber.sdk.core.client.utils.Preconditions.checkNotNull;
+
+/**
+ * A {@link Codec} that stores values as UTF-8 JSON, for models that have no dedicated binary codec.
+ *
+ * @param <V> the type of the values.
+ */
+public final class JsonCodec<V> implements Codec<V> {
+
+    private final JsonAdapter<V> adapter;
+
+    /**
+     * @param adapter the adapter used to write and read values.
+     */
+    public JsonCodec(@Nonnull JsonAdapter<V> adapter) {
+        this.adapter = checkNotNull(adapter, "Adapter must not be null.");
+    }
+
+    @Override
+    public void encode(@Nonnull V value, @Nonnull ByteBuffer target) {
+        Buffer buffer = new Buffer();
+        try {
+            adapter.toJson(buffer, value);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        target.put(buffer.readByteArray());
+    }
+
+    @Nonnull
+    @Override
+    public V decode(@Nonnull ByteBuffer source) {
+        byte[] bytes = new byte[source.remaining()];
+        source.get(bytes);
+        try {
+            V value = adapter.fromJson(new Buffer().write(bytes));
+            if (value == null) {
+                throw new IllegalStateException("Decoded a null value.");
+            }
+            return value;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2016 Uber Technologies, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.uber.sdk.core.cache;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * A {@link Cache} that loads missing values with the {@link CacheLoader} it was built with.
+ *
+ * @param <K> the type of keys.
+ * @param <V> the type of values.
+ */
+public interface LoadingCache<K, V> extends Cache<K, V> {
+
+    /**
+     * Gets the value cached for a key, loading it on the calling thread if it is absent. Concurrent calls for the
+     * same key share a single load.
+     *
+     * @param key the key to look up.
+     * @return the value, or {@code null} if the loader returned {@code null}.
+     * @throws IOException if the loader failed.
+     */
+    @Nullable
+    V get(@Nonnull K key) throws IOException;
+
+    /**
+     * Gets the value cached for a key, loading it on the cache's executor if it is absent.
+     *
+     * @param key the key to look up.
+     * @return a future completed with the value, or completed exceptionally if the loader failed.
+     */
+    @Nonnull
+    CompletableFuture<V> getAsync(@Nonnull K key);
+
+    /**
+     * Reloads the value of a key on the cache's executor. The current value, if any, keeps being returned until
+     * the new one is loaded, and is kept if loading fails.
+     *
+     * @param key the key to reload.
+     */
+    void refresh(@Nonnull K key);
+}
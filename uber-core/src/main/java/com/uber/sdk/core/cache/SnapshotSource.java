@@ -0,0 +1,52 @@
+/*
+ * Copyright (c) 2016 Uber Technologies, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.uber.sdk.core.cache;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Cached state that a {@link CacheSnapshotter} can save and restore, for caches that are not a {@link Cache} keyed
+ * by strings.
+ *
+ * @param <V> the type of values.
+ */
+public interface SnapshotSource<V> {
+
+    /**
+     * Visits every entry to save.
+     *
+     * @param visitor the visitor to call for each entry.
+     */
+    void forEachEntry(@Nonnull Cache.EntryVisitor<String, ? super V> visitor);
+
+    /**
+     * Restores an entry that was saved and has not expired yet. Entries that were cached since startup should be
+     * kept rather than overwritten.
+     *
+     * @param key the key of the entry.
+     * @param value the value of the entry.
+     * @param expiresAtMillis the wall clock time at which the entry expires, in milliseconds since the epoch, or
+     *                        {@link Long#MAX_VALUE} if it never expires.
+     */
+    void restore(@Nonnull String key, @Nonnull V value, long expiresAtMillis);
+}
@@ -0,0 +1,705 @@
+/*
+ * Copyright (c) 2016 Uber Technologies, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.uber.sdk.core.cache;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import static com.uber.sdk.core.client.utils.Preconditions.checkNotNull;
+import static com.uber.sdk.core.client.utils.Preconditions.checkState;
+
+/**
+ * A bounded in-memory cache that evicts with the W-TinyLFU policy.
+ * <p>
+ * New entries are kept in a small LRU window. When the window overflows, its oldest entry is only admitted into
+ * the main space if it has been requested more often recently than the entry it would evict, as estimated by a
+ * {@link FrequencySketch}. The main space is a segmented LRU, so entries that are requested again move from the
+ * probation segment to the protected one. This keeps frequently requested keys cached through bursts of one-off
+ * requests that would flush an LRU cache.
+ * <p>
+ * Entries are held in a {@link ConcurrentHashMap}. Reads are recorded in a lossy buffer and replayed against the
+ * eviction policy in batches, so they never block; writes update the policy under a lock. Expired entries are
+ * removed in write order, and otherwise when they are read or evicted.
+ * <p>
+ * Created by {@link CacheBuilder}.
+ */
+final class TinyLfuCache<K, V> implements LoadingCache<K, V> {
+
+    private static final int READ_BUFFER_SIZE = 128;
+    private static final int READ_BUFFER_MASK = READ_BUFFER_SIZE - 1;
+    private static final int READ_DRAIN_THRESHOLD_MASK = 31;
+    private static final int WINDOW_PERCENT = 1;
+
+    private final ConcurrentHashMap<K, Node<K, V>> data = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<K, CompletableFuture<V>> loads = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<K, Boolean> refreshes = new ConcurrentHashMap<>();
+    private final AtomicReferenceArray<Node<K, V>> readBuffer = new AtomicReferenceArray<>(READ_BUFFER_SIZE);
+    private final AtomicLong readCount = new AtomicLong();
+    private final ReentrantLock evictionLock = new ReentrantLock();
+    private final StatsCounter statsCounter = new StatsCounter();
+
+    private final long maximum;
+    private final Weigher<? super K, ? super V> weigher;
+    private final Expiry<? super K, ? super V> expiry;
+    private final long refreshAfterWriteNanos;
+    private final Executor executor;
+    private final Ticker ticker;
+    @Nullable private final CacheLoader<? super K, ? extends V> loader;
+
+    // Guarded by evictionLock.
+    private final FrequencySketch sketch;
+    private final AccessOrderQueue<K, V> window = new AccessOrderQueue<>();
+    private final AccessOrderQueue<K, V> probation = new AccessOrderQueue<>();
+    private final AccessOrderQueue<K, V> protectedQueue = new AccessOrderQueue<>();
+    private final long maximumWindowWeight;
+    private final long maximumProtectedWeight;
+    private long windowWeight;
+    private long protectedWeight;
+    private long totalWeight;
+    private Node<K, V> writeOrderHead;
+    private Node<K, V> writeOrderTail;
+
+    TinyLfuCache(long maximum,
+            @Nonnull Weigher<? super K, ? super V> weigher,
+            @Nonnull Expiry<? super K, ? super V> expiry,
+            long refreshAfterWriteNanos,
+            @Nonnull Executor executor,
+            @Nonnull Ticker ticker,
+            @Nullable CacheLoader<? super K, ? extends V> loader) {
+        this.maximum = maximum;
+        this.weigher = weigher;
+        this.expiry = expiry;
+        this.refreshAfterWriteNanos = refreshAfterWriteNanos;
+        this.executor = executor;
+        this.ticker = ticker;
+        this.loader = loader;
+
+        maximumWindowWeight = maximum == Long.MAX_VALUE ? maximum : Math.max(1, maximum / 100 * WINDOW_PERCENT);
+        long mainWeight = maximum - maximumWindowWeight;
+        maximumProtectedWeight = maximum == Long.MAX_VALUE ? maximum : mainWeight - mainWeight / 5;
+        sketch = new FrequencySketch(Math.min(maximum, 256));
+    }
+
+    @Nullable
+    @Override
+    public V getIfPresent(@Nonnull K key) {
+        checkNotNull(key, "Key must not be null.");
+
+        long now = ticker.read();
+        Node<K, V> node = data.get(key);
+        if (node == null) {
+            statsCounter.recordMiss();
+            return null;
+        }
+
+        if (node.isExpired(now)) {
+            statsCounter.recordMiss();
+            removeExpired(node, now);
+            return null;
+        }
+
+        V value = node.value;
+        statsCounter.recordHit();
+        afterRead(node);
+        if (loader != null && now - node.writeTime >= refreshAfterWriteNanos) {
+            refresh(key);
+        }
+        return value;
+    }
+
+    @Override
+    public boolean containsKey(@Nonnull K key) {
+        checkNotNull(key, "Key must not be null.");
+
+        Node<K, V> node = data.get(key);
+        return node != null && !node.isExpired(ticker.read());
+    }
+
+    @Nullable
+    @Override
+    public V get(@Nonnull K key) throws IOException {
+        checkState(loader != null, "Cache was built without a CacheLoader.");
+        return get(key, loader);
+    }
+
+    @Nullable
+    @Override
+    public V get(@Nonnull K key, @Nonnull CacheLoader<? super K, ? extends V> loader) throws IOException {
+        return get(key, loader, expiry);
+    }
+
+    @Nullable
+    @Override
+    public V get(@Nonnull K key,
+                 @Nonnull CacheLoader<? super K, ? extends V> loader,
+                 long ttl,
+                 @Nonnull TimeUnit unit) throws IOException {
+        final long ttlNanos = unit.toNanos(ttl);
+        return get(key, loader, (k, v) -> ttlNanos);
+    }
+
+    @Nullable
+    private V get(K key, CacheLoader<? super K, ? extends V> loader, Expiry<? super K, ? super V> expiry)
+            throws IOException {
+        checkNotNull(loader, "Loader must not be null.");
+
+        V value = getIfPresent(key);
+        if (value != null) {
+            return value;
+        }
+
+        CompletableFuture<V> future = new CompletableFuture<>();
+        CompletableFuture<V> pending = loads.putIfAbsent(key, future);
+        if (pending != null) {
+            return await(pending);
+        }
+
+        try {
+            return load(key, loader, expiry, future);
+        } finally {
+            loads.remove(key, future);
+        }
+    }
+
+    @Nonnull
+    @Override
+    public CompletableFuture<V> getAsync(@Nonnull K key) {
+        checkState(loader != null, "Cache was built without a CacheLoader.");
+
+        V value = getIfPresent(key);
+        if (value != null) {
+            return CompletableFuture.completedFuture(value);
+        }
+
+        final CompletableFuture<V> future = new CompletableFuture<>();
+        CompletableFuture<V> pending = loads.putIfAbsent(key, future);
+        if (pending != null) {
+            return pending;
+        }
+
+        executor.execute(() -> {
+            try {
+                load(key, loader, expiry, future);
+            } catch (IOException | RuntimeException ignored) {
+                // Already reported through the future.
+            } finally {
+                loads.remove(key, future);
+            }
+        });
+        return future;
+    }
+
+    @Override
+    public void refresh(@Nonnull K key) {
+        checkState(loader != null, "Cache was built without a CacheLoader.");
+        checkNotNull(key, "Key must not be null.");
+
+        if (refreshes.putIfAbsent(key, Boolean.TRUE) != null) {
+            return;
+        }
+
+        executor.execute(() -> {
+            long start = ticker.read();
+            try {
+                V value = loader.load(key);
+                statsCounter.recordLoadSuccess(ticker.read() - start);
+                if (value != null) {
+                    put(key, value);
+                }
+            } catch (IOException | RuntimeException e) {
+                statsCounter.recordLoadFailure(ticker.read() - start);
+            } finally {
+                refreshes.remove(key);
+            }
+        });
+    }
+
+    @Override
+    public void put(@Nonnull K key, @Nonnull V value) {
+        checkNotNull(key, "Key must not be null.");
+        checkNotNull(value, "Value must not be null.");
+
+        put(key, value, expiry.expireAfterWriteNanos(key, value));
+    }
+
+    @Override
+    public void put(@Nonnull K key, @Nonnull V value, long ttl, @Nonnull TimeUnit unit) {
+        checkNotNull(key, "Key must not be null.");
+        checkNotNull(value, "Value must not be null.");
+
+        put(key, value, unit.toNanos(ttl));
+    }
+
+    @Override
+    public void invalidate(@Nonnull K key) {
+        checkNotNull(key, "Key must not be null.");
+
+        final Node<K, V> removed = retire(key, null);
+        if (removed != null) {
+            afterWrite(() -> onRemove(removed));
+        }
+    }
+
+    @Override
+    public void invalidateAll() {
+        for (K key : data.keySet()) {
+            invalidate(key);
+        }
+    }
+
+    @Override
+    public long size() {
+        return data.mappingCount();
+    }
+
+    @Override
+    public void forEachEntry(@Nonnull EntryVisitor<? super K, ? super V> visitor) {
+        long now = ticker.read();
+        long nowMillis = System.currentTimeMillis();
+        for (Node<K, V> node : data.values()) {
+            V value = node.value;
+            long expiresAt = node.expiresAt;
+            if (expiresAt == Long.MAX_VALUE) {
+                visitor.visit(node.key, value, Long.MAX_VALUE);
+            } else if (expiresAt - now > 0) {
+                visitor.visit(node.key, value, nowMillis + TimeUnit.NANOSECONDS.toMillis(expiresAt - now));
+            }
+        }
+    }
+
+    @Nonnull
+    @Override
+    public CacheStats stats() {
+        return statsCounter.snapshot();
+    }
+
+    /**
+     * Applies pending reads to the eviction policy and removes expired entries.
+     */
+    void cleanUp() {
+        afterWrite(() -> { });
+    }
+
+    private void put(K key, V value, long ttlNanos) {
+        final long now = ticker.read();
+        final long expiresAt = ttlNanos >= Long.MAX_VALUE - now ? Long.MAX_VALUE : now + Math.max(ttlNanos, 0);
+        final int weight = weigher.weigh(key, value);
+        checkState(weight >= 0, "Weight must not be negative.");
+
+        final boolean[] added = new boolean[1];
+        final Node<K, V> node = data.compute(key, (k, existing) -> {
+            if (existing == null) {
+                added[0] = true;
+                return new Node<>(k, value, weight, now, expiresAt);
+            }
+            existing.update(value, weight, now, expiresAt);
+            return existing;
+        });
+
+        afterWrite(() -> {
+            if (added[0]) {
+                onAdd(node);
+            } else {
+                onUpdate(node);
+            }
+        });
+    }
+
+    @Nullable
+    private V load(K key,
+                   CacheLoader<? super K, ? extends V> loader,
+                   Expiry<? super K, ? super V> expiry,
+                   CompletableFuture<V> future) throws IOException {
+        Node<K, V> node = data.get(key);
+        if (node != null && !node.isExpired(ticker.read())) {
+            future.complete(node.value);
+            return node.value;
+        }
+
+        long start = ticker.read();
+        try {
+            V value = loader.load(key);
+            statsCounter.recordLoadSuccess(ticker.read() - start);
+            if (value != null) {
+                put(key, value, expiry.expireAfterWriteNanos(key, value));
+            }
+            future.complete(value);
+            return value;
+        } catch (IOException | RuntimeException e) {
+            statsCounter.recordLoadFailure(ticker.read() - start);
+            future.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    @Nullable
+    private static <V> V await(CompletableFuture<V> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for value to load.");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    /**
+     * Removes a node from the map and marks it as retired, so that pending policy updates skip it.
+     *
+     * @param key the key to remove.
+     * @param expected the node to remove, or {@code null} to remove whichever node is mapped.
+     * @return the removed node, or {@code null} if none was.
+     */
+    @Nullable
+    private Node<K, V> retire(K key, @Nullable final Node<K, V> expected) {
+        final Object[] removed = new Object[1];
+        data.computeIfPresent(key, (k, node) -> {
+            if (expected != null && node != expected) {
+                return node;
+            }
+            node.retired = true;
+            removed[0] = node;
+            return null;
+        });
+
+        @SuppressWarnings("unchecked")
+        Node<K, V> node = (Node<K, V>) removed[0];
+        return node;
+    }
+
+    private void removeExpired(final Node<K, V> node, long now) {
+        if (node.isExpired(now) && retire(node.key, node) != null) {
+            afterWrite(() -> {
+                onRemove(node);
+                statsCounter.recordEviction(node.policyWeight);
+            });
+        }
+    }
+
+    private void afterRead(Node<K, V> node) {
+        long count = readCount.getAndIncrement();
+        readBuffer.lazySet((int) count & READ_BUFFER_MASK, node);
+        if ((count & READ_DRAIN_THRESHOLD_MASK) == READ_DRAIN_THRESHOLD_MASK && evictionLock.tryLock()) {
+            try {
+                drainReadBuffer();
+            } finally {
+                evictionLock.unlock();
+            }
+        }
+    }
+
+    private void afterWrite(Runnable task) {
+        evictionLock.lock();
+        try {
+            drainReadBuffer();
+            task.run();
+            expire();
+            evict();
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    private void drainReadBuffer() {
+        for (int i = 0; i < READ_BUFFER_SIZE; i++) {
+            Node<K, V> node = readBuffer.getAndSet(i, null);
+            if (node != null) {
+                onAccess(node);
+            }
+        }
+    }
+
+    private void onAdd(Node<K, V> node) {
+        if (node.retired) {
+            return;
+        }
+
+        sketch.ensureCapacity(data.mappingCount());
+        sketch.increment(node.key);
+        node.policyWeight = node.weight;
+        node.queue = window;
+        window.addLast(node);
+        windowWeight += node.policyWeight;
+        totalWeight += node.policyWeight;
+        linkWriteOrder(node);
+    }
+
+    private void onUpdate(Node<K, V> node) {
+        if (node.retired || node.queue == null) {
+            return;
+        }
+
+        int delta = node.weight - node.policyWeight;
+        node.policyWeight = node.weight;
+        totalWeight += delta;
+        if (node.queue == window) {
+            windowWeight += delta;
+        } else if (node.queue == protectedQueue) {
+            protectedWeight += delta;
+        }
+
+        unlinkWriteOrder(node);
+        linkWriteOrder(node);
+        onAccess(node);
+    }
+
+    private void onAccess(Node<K, V> node) {
+        if (node.retired || node.queue == null) {
+            return;
+        }
+
+        sketch.increment(node.key);
+        if (node.queue == probation) {
+            probation.remove(node);
+            node.queue = protectedQueue;
+            protectedQueue.addLast(node);
+            protectedWeight += node.policyWeight;
+            demoteFromProtected();
+        } else {
+            node.queue.moveToBack(node);
+        }
+    }
+
+    private void onRemove(Node<K, V> node) {
+        if (node.queue == null) {
+            return;
+        }
+
+        if (node.queue == window) {
+            windowWeight -= node.policyWeight;
+        } else if (node.queue == protectedQueue) {
+            protectedWeight -= node.policyWeight;
+        }
+        totalWeight -= node.policyWeight;
+        node.queue.remove(node);
+        node.queue = null;
+        unlinkWriteOrder(node);
+    }
+
+    private void demoteFromProtected() {
+        while (protectedWeight > maximumProtectedWeight) {
+            Node<K, V> demoted = protectedQueue.pollFirst();
+            protectedWeight -= demoted.policyWeight;
+            demoted.queue = probation;
+            probation.addLast(demoted);
+        }
+    }
+
+    private void expire() {
+        long now = ticker.read();
+        while (writeOrderHead != null && writeOrderHead.isExpired(now)) {
+            evictNode(writeOrderHead);
+        }
+    }
+
+    private void evict() {
+        // Entries that overflow the window move to the back of probation, where they compete for admission with
+        // the entries at its front.
+        int candidates = 0;
+        while (windowWeight > maximumWindowWeight) {
+            Node<K, V> node = window.pollFirst();
+            windowWeight -= node.policyWeight;
+            node.queue = probation;
+            probation.addLast(node);
+            candidates++;
+        }
+
+        while (totalWeight > maximum) {
+            Node<K, V> victim = probation.peekFirst();
+            if (victim == null) {
+                victim = protectedQueue.peekFirst() != null ? protectedQueue.peekFirst() : window.peekFirst();
+                evictNode(victim);
+                continue;
+            }
+
+            Node<K, V> candidate = candidates > 0 ? probation.peekLast() : null;
+            if (candidate == null || candidate == victim) {
+                candidates = Math.max(candidates - 1, 0);
+                evictNode(victim);
+            } else if (admit(candidate, victim)) {
+                evictNode(victim);
+            } else {
+                candidates--;
+                evictNode(candidate);
+            }
+        }
+    }
+
+    private boolean admit(Node<K, V> candidate, Node<K, V> victim) {
+        if (candidate.policyWeight > maximum) {
+            return false;
+        }
+        return sketch.frequency(candidate.key) > sketch.frequency(victim.key);
+    }
+
+    private void evictNode(Node<K, V> node) {
+        retire(node.key, node);
+        node.retired = true;
+        onRemove(node);
+        statsCounter.recordEviction(node.policyWeight);
+    }
+
+    private void linkWriteOrder(Node<K, V> node) {
+        node.writePrevious = writeOrderTail;
+        node.writeNext = null;
+        if (writeOrderTail == null) {
+            writeOrderHead = node;
+        } else {
+            writeOrderTail.writeNext = node;
+        }
+        writeOrderTail = node;
+    }
+
+    private void unlinkWriteOrder(Node<K, V> node) {
+        if (node.writePrevious == null) {
+            writeOrderHead = node.writeNext;
+        } else {
+            node.writePrevious.writeNext = node.writeNext;
+        }
+        if (node.writeNext == null) {
+            writeOrderTail = node.writePrevious;
+        } else {
+            node.writeNext.writePrevious = node.writePrevious;
+        }
+        node.writePrevious = null;
+        node.writeNext = null;
+    }
+
+    /**
+     * A cache entry. The value and timestamps are written under the map's lock for the key; the links and the
+     * policy fields are guarded by the eviction lock.
+     */
+    private static final class Node<K, V> {
+
+        final K key;
+        volatile V value;
+        volatile int weight;
+        volatile long writeTime;
+        volatile long expiresAt;
+        volatile boolean retired;
+
+        int policyWeight;
+        AccessOrderQueue<K, V> queue;
+        Node<K, V> previous;
+        Node<K, V> next;
+        Node<K, V> writePrevious;
+        Node<K, V> writeNext;
+
+        Node(K key, V value, int weight, long writeTime, long expiresAt) {
+            this.key = key;
+            this.value = value;
+            this.weight = weight;
+            this.writeTime = writeTime;
+            this.expiresAt = expiresAt;
+        }
+
+        void update(V value, int weight, long writeTime, long expiresAt) {
+            this.value = value;
+            this.weight = weight;
+            this.writeTime = writeTime;
+            this.expiresAt = expiresAt;
+        }
+
+        boolean isExpired(long now) {
+            return expiresAt != Long.MAX_VALUE && now - expiresAt >= 0;
+        }
+    }
+
+    /**
+     * An intrusive doubly linked list of nodes, least recently used first.
+     */
+    private static final class AccessOrderQueue<K, V> {
+
+        private Node<K, V> first;
+        private Node<K, V> last;
+
+        @Nullable
+        Node<K, V> peekFirst() {
+            return first;
+        }
+
+        @Nullable
+        Node<K, V> peekLast() {
+            return last;
+        }
+
+        Node<K, V> pollFirst() {
+            Node<K, V> node = first;
+            remove(node);
+            return node;
+        }
+
+        void addLast(Node<K, V> node) {
+            node.previous = last;
+            node.next = null;
+            if (last == null) {
+                first = node;
+            } else {
+                last.next = node;
+            }
+            last = node;
+        }
+
+        void moveToBack(Node<K, V> node) {
+            if (node != last) {
+                remove(node);
+                addLast(node);
+            }
+        }
+
+        void remove(Node<K, V> node) {
+            if (node.previous == null) {
+                first = node.next;
+            } else {
+                node.previous.next = node.next;
+            }
+            if (node.next == null) {
+                last = node.previous;
+            } else {
+                node.next.previous = node.previous;
+            }
+            node.previous = null;
+            node.next = null;
+        }
+    }
+}
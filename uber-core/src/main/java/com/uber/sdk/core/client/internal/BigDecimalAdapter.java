@@ -23,25 +23,41 @@
 package com.uber.sdk.core.client.internal;
 
 import com.squareup.moshi.FromJson;
+import com.squareup.moshi.JsonDataException;
+import com.squareup.moshi.JsonReader;
+import com.squareup.moshi.JsonWriter;
 import com.squareup.moshi.ToJson;
 
+import java.io.IOException;
 import java.math.BigDecimal;
 
-import javax.annotation.Nullable;
-
 
 /**
- * Adapter used to adapt floats to {@link java.math.BigDecimal}.
+ * Adapter used to adapt JSON numbers to {@link java.math.BigDecimal}. The number is read from its literal text and
+ * written back the same way, so no precision is lost to an intermediate {@code float} or {@code double}.
  */
 public class BigDecimalAdapter {
 
     @ToJson
-    public float toJson(BigDecimal bigDecimal) {
-        return bigDecimal.floatValue();
+    public void toJson(JsonWriter writer, BigDecimal bigDecimal) throws IOException {
+        if (bigDecimal == null) {
+            writer.nullValue();
+        } else {
+            writer.value(bigDecimal);
+        }
     }
 
     @FromJson
-    public BigDecimal bigDecimalFromString(@Nullable Float value) {
-        return value != null ? new BigDecimal(value.toString()) : null;
+    public BigDecimal fromJson(JsonReader reader) throws IOException {
+        if (reader.peek() == JsonReader.Token.NULL) {
+            return reader.nextNull();
+        }
+
+        String value = reader.nextString();
+        try {
+            return new BigDecimal(value);
+        } catch (NumberFormatException e) {
+            throw new JsonDataException("Expected a number but was " + value + " at path " + reader.getPath());
+        }
     }
 }
@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2016 Uber Technologies, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.uber.sdk.core.client.internal;
+
+import com.squareup.moshi.JsonAdapter;
+import com.squareup.moshi.Moshi;
+import com.uber.sdk.core.auth.internal.OAuthScopesAdapter;
+import com.uber.sdk.core.client.utils.StringCanonicalizer;
+
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import javax.annotation.Nonnull;
+
+import static com.uber.sdk.core.client.utils.Preconditions.checkNotNull;
+
+/**
+ * The {@link Moshi} shared by the services and parsers of the SDK, so that each JSON adapter is built once per
+ * process instead of once per service. It holds {@link BigDecimalAdapter} and {@link OAuthScopesAdapter}, and other
+ * modules register the adapters of their models before they first get it.
+ */
+public final class JsonRegistry {
+
+    private static final Set<Object> ADAPTERS =
+            new LinkedHashSet<>(Arrays.asList(new BigDecimalAdapter(), new OAuthScopesAdapter()));
+
+    private static Moshi moshi;
+
+    private JsonRegistry() {}
+
+    /**
+     * Registers adapters with the shared {@link Moshi}. Registering an adapter again has no effect, so modules can
+     * register their adapters each time they get the {@link Moshi}; anything else rebuilds it, which instances
+     * already handed out do not see.
+     *
+     * @param adapters each a {@link JsonAdapter.Factory} or an object with {@code @FromJson} and {@code @ToJson}
+     *                 methods, as taken by {@link Moshi.Builder#add(Object)}.
+     */
+    public static synchronized void register(@Nonnull Object... adapters) {
+        boolean added = false;
+        for (Object adapter : adapters) {
+            added |= ADAPTERS.add(checkNotNull(adapter, "Must supply an adapter."));
+        }
+        if (added) {
+            moshi = null;
+        }
+    }
+
+    /**
+     * Gets the shared {@link Moshi}, with every adapter registered so far.
+     */
+    @Nonnull
+    public static synchronized Moshi getMoshi() {
+        if (moshi == null) {
+            moshi = newBuilder().build();
+        }
+        return moshi;
+    }
+
+    /**
+     * Starts a {@link Moshi.Builder} with every adapter registered so far, for a {@link Moshi} of its own that adds
+     * adapters to them, such as one with a {@link StringCanonicalizer}. Its adapters are built separately from those
+     * of the shared {@link Moshi}.
+     */
+    @Nonnull
+    public static synchronized Moshi.Builder newBuilder() {
+        Moshi.Builder builder = new Moshi.Builder();
+        for (Object adapter : ADAPTERS) {
+            if (adapter instanceof JsonAdapter.Factory) {
+                builder.add((JsonAdapter.Factory) adapter);
+            } else {
+                builder.add(adapter);
+            }
+        }
+        return builder;
+    }
+}
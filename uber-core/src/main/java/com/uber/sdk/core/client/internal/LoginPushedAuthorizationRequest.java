@@ -53,7 +53,7 @@ public class LoginPushedAuthorizationRequest {
         this.clientId = clientId;
         this.responseType = responseType.toLowerCase(Locale.US);
         this.callback = callback;
-        this.moshi = new Moshi.Builder().build();
+        this.moshi = JsonRegistry.getMoshi();
     }
 
     public void execute() {
@@ -89,7 +89,7 @@ public class LoginPushedAuthorizationRequest {
     static OAuth2Service createOAuthService(String baseUrl) {
         return new Retrofit.Builder()
                 .baseUrl(baseUrl)
-                .addConverterFactory(MoshiConverterFactory.create())
+                .addConverterFactory(MoshiConverterFactory.create(JsonRegistry.getMoshi()))
                 .build()
                 .create(OAuth2Service.class);
     }
@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2016 Uber Technologies, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.uber.sdk.core.client.utils;
+
+import com.squareup.moshi.JsonAdapter;
+import com.squareup.moshi.JsonReader;
+import com.squareup.moshi.JsonWriter;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import static com.uber.sdk.core.client.utils.Preconditions.checkState;
+
+/**
+ * Replaces strings with an equal instance seen before, so that values repeated across responses, such as product
+ * IDs, display names and currency codes, share one instance while they are held in caches and history.
+ * <p>
+ * The table has a fixed number of slots, each holding the last string that hashed to it, so it never grows and a
+ * string is at worst not deduplicated. It is safe for concurrent use without locking. Strings longer than
+ * {@link #MAXIMUM_LENGTH} are not kept, since they are rarely repeated.
+ */
+public final class StringCanonicalizer {
+
+    /**
+     * The length of the longest string that is deduplicated, which fits a UUID.
+     */
+    public static final int MAXIMUM_LENGTH = 64;
+
+    private final AtomicReferenceArray<String> table;
+    private final int mask;
+
+    /**
+     * Creates a {@link StringCanonicalizer}.
+     *
+     * @param capacity the number of slots, rounded up to a power of two.
+     */
+    public StringCanonicalizer(int capacity) {
+        checkState(capacity > 0 && capacity <= 1 << 30, "Capacity must be between 1 and 2^30.");
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        }
+        table = new AtomicReferenceArray<>(size);
+        mask = size - 1;
+    }
+
+    /**
+     * Gets the instance of a string kept in the table, keeping this one if none is.
+     *
+     * @param value the string.
+     * @return an equal string, which is the same instance for every caller until its slot is taken by another string.
+     */
+    @Nullable
+    public String canonicalize(@Nullable String value) {
+        if (value == null || value.length() > MAXIMUM_LENGTH) {
+            return value;
+        }
+
+        int hash = value.hashCode();
+        int index = (hash ^ (hash >>> 16)) & mask;
+        String canonical = table.get(index);
+        if (value.equals(canonical)) {
+            return canonical;
+        }
+        table.lazySet(index, value);
+        return value;
+    }
+
+    /**
+     * Gets an adapter for {@link String}s that canonicalizes each string it reads. Add it to a
+     * {@link com.squareup.moshi.Moshi.Builder} with {@code add(String.class, adapter)}.
+     */
+    @Nonnull
+    public JsonAdapter<String> adapter() {
+        return new JsonAdapter<String>() {
+            @Override
+            public String fromJson(JsonReader reader) throws IOException {
+                if (reader.peek() == JsonReader.Token.NULL) {
+                    return reader.nextNull();
+                }
+                return canonicalize(reader.nextString());
+            }
+
+            @Override
+            public void toJson(JsonWriter writer, String value) throws IOException {
+                writer.value(value);
+            }
+
+            @Override
+            public String toString() {
+                return "JsonAdapter(String).canonical()";
+            }
+        };
+    }
+}
@@ -0,0 +1,526 @@
+/*
+ * Copyright (c) 2016 Uber Technologies, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.uber.sdk.core.ringbuffer;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+import javax.annotation.Nonnull;
+
+import static com.uber.sdk.core.client.utils.Preconditions.checkNotNull;
+import static com.uber.sdk.core.client.utils.Preconditions.checkState;
+
+/**
+ * Delivers events from one or more producers to several handlers, each on its own thread, without locks or per-event
+ * allocation.
+ * <p>
+ * Events live in slots that are allocated once, when the ring buffer is built. The producer claims the next slot with
+ * {@link #next()}, fills in the event returned by {@link #get(long)} and makes it visible with
+ * {@link #publish(long)}. Every handler then sees every event, in order, in batches of whatever was published while it
+ * was busy. A slot is reused only once every handler is done with it, so a producer that gets a full buffer ahead of
+ * the slowest handler waits for it. {@link #getLag(String)} tells how far behind each handler is.
+ * <pre>{@code
+ * RingBuffer<RideSlot> ring = RingBuffer.with(RideSlot::new)
+ *         .addHandler("map", mapHandler)
+ *         .addHandler("notifications", notificationHandler)
+ *         .build();
+ * ring.start();
+ * ring.publishEvent((slot, ride) -> slot.ride = ride, ride);
+ * }</pre>
+ * By default there must be a single producer, as {@link #next()}, {@link #tryNext()} and {@link #publish(long)} are
+ * then not thread safe. Producers on several threads rather build the ring buffer with
+ * {@link Builder#setMultiProducer(boolean)}, which claims slots with a compare-and-set on the claimed sequence. As
+ * they may then publish out of order, each slot is marked published and handlers only see it once every slot before
+ * it was published too.
+ *
+ * @param <E> the type of the events in the slots.
+ */
+public class RingBuffer<E> implements Closeable {
+
+    /**
+     * Handles the events of a {@link RingBuffer}, on a thread of its own.
+     *
+     * @param <E> the type of the events.
+     */
+    public interface EventHandler<E> {
+
+        /**
+         * @param event the event, which must not be kept once this method returns, as its slot is reused.
+         * @param sequence the sequence of the event.
+         * @param endOfBatch whether this is the last event available for now.
+         */
+        void onEvent(@Nonnull E event, long sequence, boolean endOfBatch);
+    }
+
+    /**
+     * Fills in a slot from a value.
+     *
+     * @param <E> the type of the events.
+     * @param <A> the type of the value.
+     */
+    public interface EventTranslator<E, A> {
+
+        /**
+         * @param event the slot to fill in.
+         * @param value the value to fill it with.
+         */
+        void translateTo(@Nonnull E event, A value);
+    }
+
+    private final Object[] entries;
+    private final int mask;
+    private final WaitStrategy waitStrategy;
+    private final ThreadFactory threadFactory;
+    private final Sequence cursor = new Sequence(-1);
+    private final boolean multiProducer;
+    private final List<Processor> processors;
+    private volatile boolean running = true;
+    private volatile boolean started;
+
+    // Only accessed by the producer, when there is a single one.
+    private long nextSequence = -1;
+    private long cachedMinimumSequence = -1;
+
+    // Only used when there are several producers.
+    private final Sequence claimed = new Sequence(-1);
+    private final Sequence cachedGatingSequence = new Sequence(-1);
+    private final AtomicIntegerArray published;
+    private final int indexShift;
+
+    RingBuffer(@Nonnull Supplier<? extends E> factory,
+               int bufferSize,
+               @Nonnull WaitStrategy waitStrategy,
+               @Nonnull ThreadFactory threadFactory,
+               @Nonnull Map<String, EventHandler<? super E>> handlers,
+               boolean multiProducer) {
+        this.entries = new Object[bufferSize];
+        for (int i = 0; i < bufferSize; i++) {
+            entries[i] = factory.get();
+        }
+        this.mask = bufferSize - 1;
+        this.waitStrategy = waitStrategy;
+        this.threadFactory = threadFactory;
+        this.multiProducer = multiProducer;
+        this.indexShift = Integer.numberOfTrailingZeros(bufferSize);
+        if (multiProducer) {
+            this.published = new AtomicIntegerArray(bufferSize);
+            for (int i = 0; i < bufferSize; i++) {
+                published.set(i, -1);
+            }
+        } else {
+            this.published = null;
+        }
+
+        List<Processor> processors = new ArrayList<>(handlers.size());
+        for (Map.Entry<String, EventHandler<? super E>> handler : handlers.entrySet()) {
+            processors.add(new Processor(handler.getKey(), handler.getValue()));
+        }
+        this.processors = Collections.unmodifiableList(processors);
+    }
+
+    /**
+     * @param factory creates the events that fill the slots.
+     * @param <E> the type of the events.
+     * @return a builder for a {@link RingBuffer}.
+     */
+    @Nonnull
+    public static <E> Builder<E> with(@Nonnull Supplier<? extends E> factory) {
+        return new Builder<>(checkNotNull(factory, "Factory must not be null."));
+    }
+
+    /**
+     * Starts a thread for each handler. Events published before are handled once the threads start.
+     */
+    public synchronized void start() {
+        checkState(!started, "Ring buffer was already started.");
+        checkState(running, "Ring buffer was closed.");
+        started = true;
+        for (Processor processor : processors) {
+            processor.thread = threadFactory.newThread(processor);
+            processor.thread.start();
+        }
+    }
+
+    /**
+     * Claims the next slot, waiting for the slowest handler if the buffer is full.
+     *
+     * @return the sequence of the slot.
+     * @throws IllegalStateException if the ring buffer was closed.
+     */
+    public long next() {
+        checkState(running, "Ring buffer was closed.");
+
+        if (multiProducer) {
+            long sequence;
+            while ((sequence = claim()) < 0) {
+                checkState(running, "Ring buffer was closed.");
+                LockSupport.parkNanos(1);
+            }
+            return sequence;
+        }
+
+        long next = nextSequence + 1;
+        long wrapPoint = next - entries.length;
+        if (wrapPoint > cachedMinimumSequence) {
+            long minimum;
+            while (wrapPoint > (minimum = minimumSequence(nextSequence))) {
+                checkState(running, "Ring buffer was closed.");
+                LockSupport.parkNanos(1);
+            }
+            cachedMinimumSequence = minimum;
+        }
+        nextSequence = next;
+        return next;
+    }
+
+    /**
+     * Claims the next slot if the buffer is not full, without waiting for the slowest handler.
+     *
+     * @return the sequence of the slot, or -1 if the buffer is full.
+     * @throws IllegalStateException if the ring buffer was closed.
+     */
+    public long tryNext() {
+        checkState(running, "Ring buffer was closed.");
+
+        if (multiProducer) {
+            return claim();
+        }
+
+        long next = nextSequence + 1;
+        long wrapPoint = next - entries.length;
+        if (wrapPoint > cachedMinimumSequence) {
+            cachedMinimumSequence = minimumSequence(nextSequence);
+            if (wrapPoint > cachedMinimumSequence) {
+                return -1;
+            }
+        }
+        nextSequence = next;
+        return next;
+    }
+
+    /**
+     * @param sequence the sequence of a claimed or published slot.
+     * @return the event in the slot.
+     */
+    @Nonnull
+    @SuppressWarnings("unchecked")
+    public E get(long sequence) {
+        return (E) entries[(int) sequence & mask];
+    }
+
+    /**
+     * Makes a claimed slot, and every slot claimed before it, visible to the handlers.
+     *
+     * @param sequence the sequence of the slot.
+     */
+    public void publish(long sequence) {
+        if (multiProducer) {
+            published.set((int) sequence & mask, (int) (sequence >>> indexShift));
+            advanceCursor();
+        } else {
+            cursor.set(sequence);
+        }
+        waitStrategy.signalAll();
+    }
+
+    /**
+     * Claims the next slot, fills it in and publishes it.
+     *
+     * @param translator fills in the slot.
+     * @param value the value to fill it with.
+     * @param <A> the type of the value.
+     */
+    public <A> void publishEvent(@Nonnull EventTranslator<? super E, A> translator, A value) {
+        long sequence = next();
+        try {
+            translator.translateTo(get(sequence), value);
+        } finally {
+            publish(sequence);
+        }
+    }
+
+    /**
+     * @return the number of slots.
+     */
+    public int getBufferSize() {
+        return entries.length;
+    }
+
+    /**
+     * @return the sequence of the last event visible to the handlers, or -1 if none was published.
+     */
+    public long getCursor() {
+        return cursor.get();
+    }
+
+    /**
+     * @param handlerName the name of a handler.
+     * @return the number of published events the handler has yet to handle.
+     * @throws IllegalArgumentException if there is no handler with that name.
+     */
+    public long getLag(@Nonnull String handlerName) {
+        for (Processor processor : processors) {
+            if (processor.name.equals(handlerName)) {
+                return Math.max(cursor.get() - processor.sequence.get(), 0);
+            }
+        }
+        throw new IllegalArgumentException("No handler named " + handlerName + ".");
+    }
+
+    /**
+     * @return the number of published events each handler has yet to handle, by handler name.
+     */
+    @Nonnull
+    public Map<String, Long> getLags() {
+        long published = cursor.get();
+        Map<String, Long> lags = new LinkedHashMap<>();
+        for (Processor processor : processors) {
+            lags.put(processor.name, Math.max(published - processor.sequence.get(), 0));
+        }
+        return lags;
+    }
+
+    /**
+     * Stops accepting events and waits for the handlers to handle the events already published.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (!running) {
+                return;
+            }
+            running = false;
+        }
+        waitStrategy.signalAll();
+
+        boolean interrupted = false;
+        for (Processor processor : processors) {
+            Thread thread = processor.thread;
+            while (thread != null && thread != Thread.currentThread()) {
+                try {
+                    thread.join();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Claims the next slot for one of several producers.
+     *
+     * @return the sequence of the slot, or -1 if the buffer is full.
+     */
+    private long claim() {
+        while (true) {
+            long current = claimed.get();
+            long next = current + 1;
+            long wrapPoint = next - entries.length;
+            long gatingSequence = cachedGatingSequence.get();
+            if (wrapPoint > gatingSequence) {
+                gatingSequence = minimumSequence(current);
+                cachedGatingSequence.set(gatingSequence);
+                if (wrapPoint > gatingSequence) {
+                    return -1;
+                }
+            } else if (claimed.compareAndSet(current, next)) {
+                return next;
+            }
+        }
+    }
+
+    /**
+     * Moves the cursor over every slot published right after it. Whichever producer publishes the slot that follows
+     * the cursor moves it, so handlers never see a slot that was claimed earlier but not published yet.
+     */
+    private void advanceCursor() {
+        long current = cursor.get();
+        while (isPublished(current + 1)) {
+            if (cursor.compareAndSet(current, current + 1)) {
+                current++;
+            } else {
+                current = cursor.get();
+            }
+        }
+    }
+
+    private boolean isPublished(long sequence) {
+        return published.get((int) sequence & mask) == (int) (sequence >>> indexShift);
+    }
+
+    private long minimumSequence(long defaultValue) {
+        long minimum = defaultValue;
+        for (Processor processor : processors) {
+            minimum = Math.min(minimum, processor.sequence.get());
+        }
+        return minimum;
+    }
+
+    private boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Runs a handler over the published events.
+     */
+    private final class Processor implements Runnable {
+
+        final String name;
+        final EventHandler<? super E> handler;
+        final Sequence sequence = new Sequence(-1);
+        volatile Thread thread;
+
+        Processor(String name, EventHandler<? super E> handler) {
+            this.name = name;
+            this.handler = handler;
+        }
+
+        @Override
+        public void run() {
+            long next = sequence.get() + 1;
+            while (true) {
+                long available;
+                try {
+                    available = waitStrategy.waitFor(next, cursor, RingBuffer.this::isRunning);
+                } catch (InterruptedException e) {
+                    if (!running) {
+                        return;
+                    }
+                    continue;
+                }
+                if (available == WaitStrategy.HALTED) {
+                    return;
+                }
+
+                for (; next <= available; next++) {
+                    try {
+                        handler.onEvent(get(next), next, next == available);
+                    } catch (RuntimeException ignored) {
+                        // Handler failures must not stop delivery.
+                    }
+                }
+                sequence.set(available);
+            }
+        }
+    }
+
+    /**
+     * Builder for {@link RingBuffer}.
+     *
+     * @param <E> the type of the events.
+     */
+    public static class Builder<E> {
+
+        private final Supplier<? extends E> factory;
+        private final Map<String, EventHandler<? super E>> handlers = new LinkedHashMap<>();
+        private int bufferSize = 1024;
+        private WaitStrategy waitStrategy = WaitStrategy.blocking();
+        private ThreadFactory threadFactory;
+        private boolean multiProducer;
+
+        Builder(@Nonnull Supplier<? extends E> factory) {
+            this.factory = factory;
+        }
+
+        /**
+         * Sets the number of slots, a power of two. Optional and defaults to 1024.
+         */
+        public Builder<E> setBufferSize(int bufferSize) {
+            checkState(bufferSize > 0 && Integer.bitCount(bufferSize) == 1, "Buffer size must be a power of two.");
+            this.bufferSize = bufferSize;
+            return this;
+        }
+
+        /**
+         * Sets how handlers wait for events. Optional and defaults to {@link WaitStrategy#blocking()}.
+         */
+        public Builder<E> setWaitStrategy(@Nonnull WaitStrategy waitStrategy) {
+            this.waitStrategy = checkNotNull(waitStrategy, "Wait strategy must not be null.");
+            return this;
+        }
+
+        /**
+         * Sets the factory of the handler threads. Optional and defaults to daemon threads.
+         */
+        public Builder<E> setThreadFactory(@Nonnull ThreadFactory threadFactory) {
+            this.threadFactory = checkNotNull(threadFactory, "Thread factory must not be null.");
+            return this;
+        }
+
+        /**
+         * Sets whether producers on several threads may claim and publish slots concurrently. Optional and defaults
+         * to false, a single producer.
+         */
+        public Builder<E> setMultiProducer(boolean multiProducer) {
+            this.multiProducer = multiProducer;
+            return this;
+        }
+
+        /**
+         * Adds a handler that is sent every event.
+         *
+         * @param name the name of the handler, which its lag is reported under.
+         * @param handler the handler.
+         */
+        public Builder<E> addHandler(@Nonnull String name, @Nonnull EventHandler<? super E> handler) {
+            checkNotNull(name, "Name must not be null.");
+            checkNotNull(handler, "Handler must not be null.");
+            checkState(!handlers.containsKey(name), "Handler " + name + " was already added.");
+            handlers.put(name, handler);
+            return this;
+        }
+
+        public RingBuffer<E> build() {
+            ThreadFactory threadFactory = this.threadFactory;
+            if (threadFactory == null) {
+                threadFactory = new HandlerThreadFactory();
+            }
+            return new RingBuffer<E>(factory, bufferSize, waitStrategy, threadFactory,
+                    new LinkedHashMap<>(handlers), multiProducer);
+        }
+    }
+
+    private static final class HandlerThreadFactory implements ThreadFactory {
+
+        private int count;
+
+        @Override
+        public synchronized Thread newThread(@Nonnull Runnable runnable) {
+            Thread thread = new Thread(runnable, "UberRingBufferHandler-" + ++count);
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,212 @@
+/*
+ * Copyright (c) 2016 Uber Technologies, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.uber.sdk.core.ringbuffer;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
+
+/**
+ * How handlers of a {@link RingBuffer} wait for events, trading latency for CPU use.
+ */
+public abstract class WaitStrategy {
+
+    /**
+     * Returned by {@link #waitFor(long, Sequence, BooleanSupplier)} once the ring buffer is closed.
+     */
+    static final long HALTED = Long.MIN_VALUE;
+
+    WaitStrategy() {}
+
+    /**
+     * Spins on the published sequence. Lowest latency, but each handler keeps a core busy.
+     */
+    public static WaitStrategy busySpin() {
+        return new BusySpin();
+    }
+
+    /**
+     * Spins briefly, then yields the thread between checks. Low latency while leaving cores to other threads.
+     */
+    public static WaitStrategy yielding() {
+        return new Yielding();
+    }
+
+    /**
+     * Spins, yields, then parks the thread for a short time between checks. Moderate latency and little CPU use.
+     */
+    public static WaitStrategy sleeping() {
+        return new Sleeping(TimeUnit.MICROSECONDS.toNanos(100));
+    }
+
+    /**
+     * Blocks on a lock until a producer signals. Highest latency and no CPU use while idle. Producers only take the
+     * lock when a handler is blocked.
+     */
+    public static WaitStrategy blocking() {
+        return new Blocking();
+    }
+
+    /**
+     * @param sequence the sequence to wait for.
+     * @param cursor the highest published sequence.
+     * @param running tells whether the ring buffer is still open.
+     * @return the highest published sequence, at least {@code sequence}, or {@link #HALTED} if the ring buffer was
+     * closed and nothing more was published.
+     */
+    abstract long waitFor(long sequence, Sequence cursor, BooleanSupplier running) throws InterruptedException;
+
+    /**
+     * Wakes up handlers after a sequence was published or the ring buffer closed.
+     */
+    void signalAll() {
+    }
+
+    /**
+     * Reads the cursor again once the ring buffer is seen closed, as events published just before closing may not
+     * have been visible when it was last read.
+     */
+    static long halted(long sequence, Sequence cursor) {
+        long available = cursor.get();
+        return available >= sequence ? available : HALTED;
+    }
+
+    private static final class BusySpin extends WaitStrategy {
+
+        @Override
+        long waitFor(long sequence, Sequence cursor, BooleanSupplier running) {
+            long available;
+            while ((available = cursor.get()) < sequence) {
+                if (!running.getAsBoolean()) {
+                    return halted(sequence, cursor);
+                }
+            }
+            return available;
+        }
+    }
+
+    private static final class Yielding extends WaitStrategy {
+
+        private static final int SPIN_TRIES = 100;
+
+        @Override
+        long waitFor(long sequence, Sequence cursor, BooleanSupplier running) {
+            int counter = SPIN_TRIES;
+            long available;
+            while ((available = cursor.get()) < sequence) {
+                if (!running.getAsBoolean()) {
+                    return halted(sequence, cursor);
+                }
+                if (counter > 0) {
+                    counter--;
+                } else {
+                    Thread.yield();
+                }
+            }
+            return available;
+        }
+    }
+
+    private static final class Sleeping extends WaitStrategy {
+
+        private static final int SPIN_TRIES = 100;
+        private static final int YIELD_TRIES = 100;
+
+        private final long sleepNanos;
+
+        Sleeping(long sleepNanos) {
+            this.sleepNanos = sleepNanos;
+        }
+
+        @Override
+        long waitFor(long sequence, Sequence cursor, BooleanSupplier running) throws InterruptedException {
+            int counter = SPIN_TRIES + YIELD_TRIES;
+            long available;
+            while ((available = cursor.get()) < sequence) {
+                if (!running.getAsBoolean()) {
+                    return halted(sequence, cursor);
+                }
+                if (counter > YIELD_TRIES) {
+                    counter--;
+                } else if (counter > 0) {
+                    counter--;
+                    Thread.yield();
+                } else {
+                    LockSupport.parkNanos(sleepNanos);
+                    if (Thread.interrupted()) {
+                        throw new InterruptedException();
+                    }
+                }
+            }
+            return available;
+        }
+    }
+
+    private static final class Blocking extends WaitStrategy {
+
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition published = lock.newCondition();
+        private final AtomicBoolean signalNeeded = new AtomicBoolean();
+
+        @Override
+        long waitFor(long sequence, Sequence cursor, BooleanSupplier running) throws InterruptedException {
+            long available = cursor.get();
+            if (available >= sequence) {
+                return available;
+            }
+
+            lock.lock();
+            try {
+                while (true) {
+                    // Set before reading the cursor, so that a producer publishing after the read sees it and signals.
+                    signalNeeded.set(true);
+                    if ((available = cursor.get()) >= sequence) {
+                        return available;
+                    }
+                    if (!running.getAsBoolean()) {
+                        return halted(sequence, cursor);
+                    }
+                    published.await();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        void signalAll() {
+            if (!signalNeeded.getAndSet(false)) {
+                return;
+            }
+            lock.lock();
+            try {
+                published.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
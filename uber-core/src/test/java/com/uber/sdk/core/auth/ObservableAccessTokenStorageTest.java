@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2016 Uber Technologies, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.uber.sdk.core.auth;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ObservableAccessTokenStorageTest {
+
+    @Mock
+    AccessTokenStorage delegate;
+
+    @Mock
+    ObservableAccessTokenStorage.Listener listener;
+
+    @Mock
+    AccessToken oldToken;
+
+    @Mock
+    AccessToken newToken;
+
+    ObservableAccessTokenStorage storage;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        storage = new ObservableAccessTokenStorage(delegate);
+        storage.addListener(listener);
+    }
+
+    @Test
+    public void setAccessToken_shouldStoreAndNotifyWithPreviousToken() {
+        when(delegate.getAccessToken()).thenReturn(oldToken);
+
+        storage.setAccessToken(newToken);
+
+        verify(delegate).setAccessToken(newToken);
+        verify(listener).onAccessTokenChanged(oldToken, newToken);
+    }
+
+    @Test
+    public void removeAccessToken_shouldRemoveAndNotify() {
+        when(delegate.getAccessToken()).thenReturn(oldToken);
+
+        storage.removeAccessToken();
+
+        verify(delegate).removeAccessToken();
+        verify(listener).onAccessTokenChanged(oldToken, null);
+    }
+
+    @Test
+    public void removeListener_shouldStopNotifications() {
+        storage.removeListener(listener);
+
+        storage.setAccessToken(newToken);
+
+        verify(listener, never()).onAccessTokenChanged(any(AccessToken.class), any(AccessToken.class));
+    }
+}
@@ -0,0 +1,300 @@
+/*
+ * Copyright (c) 2016 Uber Technologies, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.uber.sdk.core.cache;
+
+import com.squareup.moshi.Moshi;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nonnull;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CacheSnapshotterTest {
+
+    private static final Codec<String> STRING_CODEC = new Codec<String>() {
+        @Override
+        public void encode(@Nonnull String value, @Nonnull ByteBuffer target) {
+            target.put(value.getBytes(StandardCharsets.UTF_8));
+        }
+
+        @Nonnull
+        @Override
+        public String decode(@Nonnull ByteBuffer source) {
+            byte[] bytes = new byte[source.remaining()];
+            source.get(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    };
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    File file;
+
+    @Before
+    public void setUp() {
+        file = new File(folder.getRoot(), "caches.bin");
+    }
+
+    @Test
+    public void restore_whenSnapshotted_shouldRestoreEntriesWithRemainingTtl() throws IOException {
+        Cache<String, String> cache = new CacheBuilder<String, String>().build();
+        cache.put("forever", "1");
+        cache.put("expiring", "2", 1, TimeUnit.HOURS);
+        new CacheSnapshotter(file).register("strings", cache, STRING_CODEC).snapshot();
+
+        Cache<String, String> restored = new CacheBuilder<String, String>().build();
+        int count = new CacheSnapshotter(file).register("strings", restored, STRING_CODEC).restore();
+
+        assertThat(count).isEqualTo(2);
+        assertThat(restored.getIfPresent("forever")).isEqualTo("1");
+        assertThat(restored.getIfPresent("expiring")).isEqualTo("2");
+        final long[] expiresAt = new long[1];
+        restored.forEachEntry((key, value, expiresAtMillis) -> {
+            if (key.equals("expiring")) {
+                expiresAt[0] = expiresAtMillis;
+            }
+        });
+        assertThat(expiresAt[0] - System.currentTimeMillis())
+                .isGreaterThan(TimeUnit.MINUTES.toMillis(59))
+                .isLessThanOrEqualTo(TimeUnit.HOURS.toMillis(1));
+    }
+
+    @Test
+    public void restore_shouldNotRecordMisses() throws IOException {
+        Cache<String, String> cache = new CacheBuilder<String, String>().build();
+        cache.put("a", "1");
+        cache.put("b", "2");
+        new CacheSnapshotter(file).register("strings", cache, STRING_CODEC).snapshot();
+
+        Cache<String, String> restored = new CacheBuilder<String, String>().build();
+        restored.put("a", "3");
+        new CacheSnapshotter(file).register("strings", restored, STRING_CODEC).restore();
+
+        assertThat(restored.stats().getMissCount()).isEqualTo(0);
+        assertThat(restored.stats().getHitCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void restore_whenEntryExpiredSinceSnapshot_shouldSkipIt() throws IOException {
+        final Cache<String, String> cache = new CacheBuilder<String, String>().build();
+        SnapshotSource<String> source = new SnapshotSource<String>() {
+            @Override
+            public void forEachEntry(@Nonnull Cache.EntryVisitor<String, ? super String> visitor) {
+                visitor.visit("fresh", "1", System.currentTimeMillis() + 60000);
+                visitor.visit("stale", "2", System.currentTimeMillis() + 50);
+            }
+
+            @Override
+            public void restore(@Nonnull String key, @Nonnull String value, long expiresAtMillis) {
+                cache.put(key, value);
+            }
+        };
+        new CacheSnapshotter(file).register("strings", source, STRING_CODEC).snapshot();
+        sleep(100);
+
+        int count = new CacheSnapshotter(file).register("strings", source, STRING_CODEC).restore();
+
+        assertThat(count).isEqualTo(1);
+        assertThat(cache.getIfPresent("fresh")).isEqualTo("1");
+        assertThat(cache.getIfPresent("stale")).isNull();
+    }
+
+    @Test
+    public void restore_whenSectionNotRegistered_shouldSkipIt() throws IOException {
+        Cache<String, String> first = new CacheBuilder<String, String>().build();
+        Cache<String, String> second = new CacheBuilder<String, String>().build();
+        first.put("a", "1");
+        second.put("b", "2");
+        new CacheSnapshotter(file)
+                .register("first", first, STRING_CODEC)
+                .register("second", second, STRING_CODEC)
+                .snapshot();
+
+        Cache<String, String> restored = new CacheBuilder<String, String>().build();
+        int count = new CacheSnapshotter(file).register("second", restored, STRING_CODEC).restore();
+
+        assertThat(count).isEqualTo(1);
+        assertThat(restored.getIfPresent("b")).isEqualTo("2");
+    }
+
+    @Test
+    public void restore_whenEntryCachedSinceStartup_shouldKeepIt() throws IOException {
+        Cache<String, String> cache = new CacheBuilder<String, String>().build();
+        cache.put("a", "old");
+        new CacheSnapshotter(file).register("strings", cache, STRING_CODEC).snapshot();
+
+        Cache<String, String> restored = new CacheBuilder<String, String>().build();
+        restored.put("a", "new");
+        new CacheSnapshotter(file).register("strings", restored, STRING_CODEC).restore();
+
+        assertThat(restored.getIfPresent("a")).isEqualTo("new");
+    }
+
+    @Test
+    public void restore_whenNoFile_shouldRestoreNothing() throws IOException {
+        Cache<String, String> cache = new CacheBuilder<String, String>().build();
+
+        assertThat(new CacheSnapshotter(file).register("strings", cache, STRING_CODEC).restore()).isEqualTo(0);
+    }
+
+    @Test(expected = IOException.class)
+    public void restore_whenTruncated_shouldThrow() throws IOException {
+        Cache<String, String> cache = new CacheBuilder<String, String>().build();
+        cache.put("a", "1");
+        new CacheSnapshotter(file).register("strings", cache, STRING_CODEC).snapshot();
+        byte[] bytes = Files.readAllBytes(file.toPath());
+        Files.write(file.toPath(), Arrays.copyOf(bytes, bytes.length - 3));
+
+        new CacheSnapshotter(file).register("strings", cache, STRING_CODEC).restore();
+    }
+
+    @Test
+    public void restore_whenCodecFails_shouldSkipSectionAndNotifyListener() throws IOException {
+        Cache<String, String> broken = new CacheBuilder<String, String>().build();
+        Cache<String, String> healthy = new CacheBuilder<String, String>().build();
+        broken.put("a", "1");
+        broken.put("b", "not a number");
+        healthy.put("c", "3");
+        new CacheSnapshotter(file)
+                .register("broken", broken, STRING_CODEC)
+                .register("healthy", healthy, STRING_CODEC)
+                .snapshot();
+
+        Codec<Integer> integerCodec = new Codec<Integer>() {
+            @Override
+            public void encode(@Nonnull Integer value, @Nonnull ByteBuffer target) {
+                STRING_CODEC.encode(value.toString(), target);
+            }
+
+            @Nonnull
+            @Override
+            public Integer decode(@Nonnull ByteBuffer source) {
+                return Integer.valueOf(STRING_CODEC.decode(source));
+            }
+        };
+        final List<String> skipped = new ArrayList<>();
+        Cache<String, Integer> restoredBroken = new CacheBuilder<String, Integer>().build();
+        Cache<String, String> restoredHealthy = new CacheBuilder<String, String>().build();
+        int count = new CacheSnapshotter(file)
+                .register("broken", restoredBroken, integerCodec)
+                .register("healthy", restoredHealthy, STRING_CODEC)
+                .setListener(new CacheSnapshotter.Listener() {
+                    @Override
+                    public void onSectionSkipped(@Nonnull String name, @Nonnull RuntimeException error) {
+                        skipped.add(name);
+                    }
+
+                    @Override
+                    public void onSnapshotFailed(@Nonnull Exception error) {
+                    }
+                })
+                .restore();
+
+        assertThat(count).isEqualTo(1);
+        assertThat(skipped).containsExactly("broken");
+        assertThat(restoredBroken.getIfPresent("a")).isNull();
+        assertThat(restoredHealthy.getIfPresent("c")).isEqualTo("3");
+    }
+
+    @Test
+    public void start_whenSnapshotFails_shouldNotifyListener() throws InterruptedException {
+        Cache<String, String> cache = new CacheBuilder<String, String>().build();
+        final CountDownLatch failed = new CountDownLatch(1);
+        CacheSnapshotter snapshotter = new CacheSnapshotter(new File(file, "missing/caches.bin"))
+                .register("strings", cache, STRING_CODEC)
+                .setListener(new CacheSnapshotter.Listener() {
+                    @Override
+                    public void onSectionSkipped(@Nonnull String name, @Nonnull RuntimeException error) {
+                    }
+
+                    @Override
+                    public void onSnapshotFailed(@Nonnull Exception error) {
+                        failed.countDown();
+                    }
+                });
+
+        snapshotter.start(10, TimeUnit.MILLISECONDS);
+        try {
+            assertThat(failed.await(5, TimeUnit.SECONDS)).isTrue();
+        } finally {
+            try {
+                snapshotter.close();
+            } catch (IOException expected) {
+                // The final snapshot fails too.
+            }
+        }
+    }
+
+    @Test
+    public void close_shouldWriteFinalSnapshot() throws IOException {
+        Cache<String, String> cache = new CacheBuilder<String, String>().build();
+        CacheSnapshotter snapshotter = new CacheSnapshotter(file).register("strings", cache, STRING_CODEC);
+        snapshotter.start(1, TimeUnit.HOURS);
+        cache.put("a", "1");
+
+        snapshotter.close();
+
+        assertThat(file.exists()).isTrue();
+    }
+
+    @Test
+    public void jsonCodec_shouldRoundTrip() {
+        JsonCodec<Holder> codec = new JsonCodec<>(new Moshi.Builder().build().adapter(Holder.class));
+        Holder holder = new Holder();
+        holder.name = "home";
+        ByteBuffer buffer = ByteBuffer.allocate(64);
+
+        codec.encode(holder, buffer);
+        buffer.flip();
+
+        assertThat(codec.decode(buffer).name).isEqualTo("home");
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    static class Holder {
+        String name;
+    }
+}
@@ -0,0 +1,371 @@
+/*
+ * Copyright (c) 2016 Uber Technologies, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.uber.sdk.core.cache;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
+
+public class TinyLfuCacheTest {
+
+    FakeTicker ticker;
+
+    @Before
+    public void setUp() {
+        ticker = new FakeTicker();
+    }
+
+    @Test
+    public void getIfPresent_whenPut_shouldReturnValueAndRecordHit() {
+        Cache<String, String> cache = newBuilder().build();
+
+        cache.put("a", "1");
+
+        assertThat(cache.getIfPresent("a")).isEqualTo("1");
+        assertThat(cache.getIfPresent("b")).isNull();
+        assertThat(cache.stats().getHitCount()).isEqualTo(1);
+        assertThat(cache.stats().getMissCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void put_whenOverMaximumSize_shouldEvict() {
+        TinyLfuCache<Integer, Integer> cache = (TinyLfuCache<Integer, Integer>) newIntegerBuilder()
+                .setMaximumSize(100)
+                .build();
+
+        for (int i = 0; i < 1000; i++) {
+            cache.put(i, i);
+        }
+        cache.cleanUp();
+
+        assertThat(cache.size()).isEqualTo(100);
+        assertThat(cache.stats().getEvictionCount()).isEqualTo(900);
+    }
+
+    @Test
+    public void put_whenScanOfOneOffKeys_shouldKeepFrequentlyReadKeys() {
+        TinyLfuCache<Integer, Integer> cache = (TinyLfuCache<Integer, Integer>) newIntegerBuilder()
+                .setMaximumSize(100)
+                .build();
+        for (int i = 0; i < 50; i++) {
+            cache.put(i, i);
+        }
+        for (int round = 0; round < 5; round++) {
+            for (int i = 0; i < 50; i++) {
+                cache.getIfPresent(i);
+            }
+        }
+        cache.cleanUp();
+
+        for (int i = 1000; i < 2000; i++) {
+            cache.put(i, i);
+        }
+        cache.cleanUp();
+
+        for (int i = 0; i < 50; i++) {
+            assertThat(cache.getIfPresent(i)).isEqualTo(i);
+        }
+    }
+
+    @Test
+    public void put_whenOverMaximumWeight_shouldEvictByWeight() {
+        TinyLfuCache<String, String> cache = (TinyLfuCache<String, String>) newBuilder()
+                .setMaximumWeight(10, (key, value) -> value.length())
+                .build();
+
+        cache.put("a", "12345");
+        cache.put("b", "12345");
+        cache.put("c", "12345");
+        cache.cleanUp();
+
+        assertThat(cache.size()).isEqualTo(2);
+        assertThat(cache.stats().getEvictionWeight()).isEqualTo(5);
+    }
+
+    @Test
+    public void put_whenHeavierThanMaximumWeight_shouldNotBeCached() {
+        Cache<String, String> cache = newBuilder()
+                .setMaximumWeight(4, (key, value) -> value.length())
+                .build();
+
+        cache.put("a", "12345");
+
+        assertThat(cache.getIfPresent("a")).isNull();
+    }
+
+    @Test
+    public void containsKey_shouldNotRecordStatsOrExpiredEntries() {
+        Cache<String, String> cache = newBuilder()
+                .setExpireAfterWrite(1, TimeUnit.MINUTES)
+                .build();
+        cache.put("a", "1");
+
+        assertThat(cache.containsKey("a")).isTrue();
+        assertThat(cache.containsKey("b")).isFalse();
+        ticker.advance(1, TimeUnit.MINUTES);
+        assertThat(cache.containsKey("a")).isFalse();
+        assertThat(cache.stats().getHitCount()).isEqualTo(0);
+        assertThat(cache.stats().getMissCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void getIfPresent_whenExpiredAfterWrite_shouldReturnNull() {
+        Cache<String, String> cache = newBuilder()
+                .setExpireAfterWrite(1, TimeUnit.MINUTES)
+                .build();
+        cache.put("a", "1");
+
+        ticker.advance(59, TimeUnit.SECONDS);
+        assertThat(cache.getIfPresent("a")).isEqualTo("1");
+
+        ticker.advance(1, TimeUnit.SECONDS);
+        assertThat(cache.getIfPresent("a")).isNull();
+        assertThat(cache.size()).isEqualTo(0);
+    }
+
+    @Test
+    public void getIfPresent_whenPutWithTtl_shouldExpireEntryOnly() {
+        Cache<String, String> cache = newBuilder().build();
+        cache.put("a", "1", 10, TimeUnit.SECONDS);
+        cache.put("b", "2");
+
+        ticker.advance(10, TimeUnit.SECONDS);
+
+        assertThat(cache.getIfPresent("a")).isNull();
+        assertThat(cache.getIfPresent("b")).isEqualTo("2");
+    }
+
+    @Test
+    public void getIfPresent_whenExpiry_shouldUsePerEntryTtl() {
+        Cache<String, String> cache = newBuilder()
+                .setExpiry((key, value) -> TimeUnit.SECONDS.toNanos(value.length()))
+                .build();
+        cache.put("short", "1");
+        cache.put("long", "123");
+
+        ticker.advance(2, TimeUnit.SECONDS);
+
+        assertThat(cache.getIfPresent("short")).isNull();
+        assertThat(cache.getIfPresent("long")).isEqualTo("123");
+    }
+
+    @Test
+    public void put_whenExpiredEntriesPending_shouldRemoveThemInWriteOrder() {
+        Cache<String, String> cache = newBuilder()
+                .setExpireAfterWrite(1, TimeUnit.MINUTES)
+                .build();
+        cache.put("a", "1");
+        cache.put("b", "2");
+
+        ticker.advance(2, TimeUnit.MINUTES);
+        cache.put("c", "3");
+
+        assertThat(cache.size()).isEqualTo(1);
+    }
+
+    @Test
+    public void get_whenAbsent_shouldLoadOnceAndCache() throws IOException {
+        CountingLoader loader = new CountingLoader();
+        LoadingCache<String, String> cache = newBuilder().build(loader);
+
+        assertThat(cache.get("a")).isEqualTo("a!");
+        assertThat(cache.get("a")).isEqualTo("a!");
+
+        assertThat(loader.count.get()).isEqualTo(1);
+        assertThat(cache.stats().getLoadSuccessCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void get_whenLoaderReturnsNull_shouldNotCache() throws IOException {
+        Cache<String, String> cache = newBuilder().build();
+
+        assertThat(cache.get("a", key -> null)).isNull();
+        assertThat(cache.size()).isEqualTo(0);
+    }
+
+    @Test
+    public void get_whenLoaderFails_shouldThrowAndRecordFailure() {
+        Cache<String, String> cache = newBuilder().build();
+
+        try {
+            cache.get("a", key -> {
+                throw new IOException("Failed");
+            });
+            fail("Expected IOException");
+        } catch (IOException e) {
+            assertThat(e).hasMessage("Failed");
+        }
+        assertThat(cache.stats().getLoadFailureCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void get_whenLoadedWithTtl_shouldExpireLoadedValueOnly() throws IOException {
+        Cache<String, String> cache = newBuilder().build();
+
+        assertThat(cache.get("a", key -> "1", 1, TimeUnit.MINUTES)).isEqualTo("1");
+        assertThat(cache.get("b", key -> "2")).isEqualTo("2");
+        ticker.advance(1, TimeUnit.MINUTES);
+
+        assertThat(cache.getIfPresent("a")).isNull();
+        assertThat(cache.getIfPresent("b")).isEqualTo("2");
+    }
+
+    @Test
+    public void get_whenConcurrentMisses_shouldShareSingleLoad() throws Exception {
+        final CountDownLatch loading = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicInteger loads = new AtomicInteger();
+        final Cache<String, String> cache = newBuilder().build();
+        final CacheLoader<String, String> loader = key -> {
+            loads.incrementAndGet();
+            loading.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                throw new IOException(e);
+            }
+            return "value";
+        };
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<String> first = executor.submit(() -> cache.get("a", loader));
+            loading.await();
+            Future<String> second = executor.submit(() -> cache.get("a", loader));
+            Thread.sleep(50);
+            release.countDown();
+
+            assertThat(first.get()).isEqualTo("value");
+            assertThat(second.get()).isEqualTo("value");
+            assertThat(loads.get()).isEqualTo(1);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void getAsync_whenAbsent_shouldLoadOnExecutor() throws Exception {
+        CountingLoader loader = new CountingLoader();
+        LoadingCache<String, String> cache = newBuilder().build(loader);
+
+        CompletableFuture<String> future = cache.getAsync("a");
+
+        assertThat(future.get()).isEqualTo("a!");
+        assertThat(cache.getIfPresent("a")).isEqualTo("a!");
+    }
+
+    @Test
+    public void getIfPresent_whenDueForRefresh_shouldReturnCurrentValueAndReload() {
+        CountingLoader loader = new CountingLoader();
+        LoadingCache<String, String> cache = newBuilder()
+                .setRefreshAfterWrite(1, TimeUnit.MINUTES)
+                .build(loader);
+        cache.put("a", "old");
+
+        ticker.advance(1, TimeUnit.MINUTES);
+
+        assertThat(cache.getIfPresent("a")).isEqualTo("old");
+        assertThat(cache.getIfPresent("a")).isEqualTo("a!");
+        assertThat(loader.count.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void refresh_whenLoaderFails_shouldKeepCurrentValue() {
+        LoadingCache<String, String> cache = newBuilder().build(key -> {
+            throw new IOException("Failed");
+        });
+        cache.put("a", "old");
+
+        cache.refresh("a");
+
+        assertThat(cache.getIfPresent("a")).isEqualTo("old");
+        assertThat(cache.stats().getLoadFailureCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void invalidate_shouldRemoveEntry() {
+        Cache<String, String> cache = newBuilder().build();
+        cache.put("a", "1");
+        cache.put("b", "2");
+
+        cache.invalidate("a");
+        assertThat(cache.getIfPresent("a")).isNull();
+        assertThat(cache.size()).isEqualTo(1);
+
+        cache.invalidateAll();
+        assertThat(cache.size()).isEqualTo(0);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void setMaximumWeight_whenMaximumSizeSet_shouldThrow() {
+        newBuilder().setMaximumSize(10).setMaximumWeight(10, (key, value) -> 1);
+    }
+
+    private CacheBuilder<String, String> newBuilder() {
+        return new CacheBuilder<String, String>()
+                .setExecutor(Runnable::run)
+                .setTicker(ticker);
+    }
+
+    private CacheBuilder<Integer, Integer> newIntegerBuilder() {
+        return new CacheBuilder<Integer, Integer>()
+                .setExecutor(Runnable::run)
+                .setTicker(ticker);
+    }
+
+    private static class CountingLoader implements CacheLoader<String, String> {
+
+        final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public String load(String key) {
+            count.incrementAndGet();
+            return key + "!";
+        }
+    }
+
+    private static class FakeTicker implements Ticker {
+
+        long nanos;
+
+        void advance(long duration, TimeUnit unit) {
+            nanos += unit.toNanos(duration);
+        }
+
+        @Override
+        public long read() {
+            return nanos;
+        }
+    }
+}
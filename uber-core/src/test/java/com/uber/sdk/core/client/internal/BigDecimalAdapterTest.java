@@ -23,6 +23,7 @@
 package com.uber.sdk.core.client.internal;
 
 import com.squareup.moshi.JsonAdapter;
+import com.squareup.moshi.JsonDataException;
 import com.squareup.moshi.Moshi;
 
 import org.junit.Test;
@@ -55,6 +56,32 @@ public class BigDecimalAdapterTest {
         assertThat(model.presentDecimal).isEqualTo(new BigDecimal("1.23"));
     }
 
+    @Test
+    public void fromJson_whenMoreDigitsThanFloat_shouldKeepPrecision() throws IOException {
+        Moshi moshi = new Moshi.Builder().add(new BigDecimalAdapter()).build();
+
+        JsonAdapter<BigDecimalModel> adapter = moshi.adapter(BigDecimalModel.class);
+        BigDecimalModel model = adapter.fromJson("{\"presentDecimal\":123456789.015}");
+        assertThat(model.presentDecimal).isEqualTo(new BigDecimal("123456789.015"));
+        assertThat(adapter.toJson(model)).isEqualTo("{\"presentDecimal\":123456789.015}");
+    }
+
+    @Test
+    public void fromJson_whenInteger_shouldKeepScale() throws IOException {
+        Moshi moshi = new Moshi.Builder().add(new BigDecimalAdapter()).build();
+
+        JsonAdapter<BigDecimalModel> adapter = moshi.adapter(BigDecimalModel.class);
+        BigDecimalModel model = adapter.fromJson("{\"presentDecimal\":10}");
+        assertThat(model.presentDecimal).isEqualTo(new BigDecimal("10"));
+    }
+
+    @Test(expected = JsonDataException.class)
+    public void fromJson_whenNotANumber_shouldThrowException() throws IOException {
+        Moshi moshi = new Moshi.Builder().add(new BigDecimalAdapter()).build();
+
+        moshi.adapter(BigDecimalModel.class).fromJson("{\"presentDecimal\":\"ten\"}");
+    }
+
     private static class BigDecimalModel {
 
         private BigDecimal absentDecimal;
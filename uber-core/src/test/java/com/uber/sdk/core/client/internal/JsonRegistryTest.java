@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2016 Uber Technologies, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.uber.sdk.core.client.internal;
+
+import com.squareup.moshi.JsonAdapter;
+import com.squareup.moshi.JsonReader;
+import com.squareup.moshi.JsonWriter;
+import com.squareup.moshi.Moshi;
+import com.uber.sdk.core.auth.AccessToken;
+import com.uber.sdk.core.auth.Scope;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.math.BigDecimal;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class JsonRegistryTest {
+
+    private static final JsonAdapter.Factory MARKER_FACTORY = new JsonAdapter.Factory() {
+        @Override
+        public JsonAdapter<?> create(Type type, Set<? extends Annotation> annotations, Moshi moshi) {
+            return type == Marker.class ? new MarkerJsonAdapter() : null;
+        }
+    };
+
+    @Test
+    public void getMoshi_shouldReturnSameInstance() {
+        assertThat(JsonRegistry.getMoshi()).isSameAs(JsonRegistry.getMoshi());
+    }
+
+    @Test
+    public void getMoshi_shouldHoldCoreAdapters() throws IOException {
+        Moshi moshi = JsonRegistry.getMoshi();
+
+        assertThat(moshi.adapter(BigDecimal.class).fromJson("12.345")).isEqualTo(new BigDecimal("12.345"));
+        AccessToken accessToken = moshi.adapter(AccessToken.class)
+                .fromJson("{\"access_token\":\"token\",\"scope\":\"profile history\"}");
+        assertThat(accessToken.getScopes()).containsOnly(Scope.PROFILE, Scope.HISTORY);
+    }
+
+    @Test
+    public void register_whenNewAdapter_shouldRebuildMoshiWithIt() throws IOException {
+        JsonRegistry.register(MARKER_FACTORY);
+        Moshi moshi = JsonRegistry.getMoshi();
+
+        assertThat(moshi.adapter(Marker.class).fromJson("1")).isSameAs(Marker.INSTANCE);
+
+        JsonRegistry.register(MARKER_FACTORY);
+        assertThat(JsonRegistry.getMoshi()).isSameAs(moshi);
+    }
+
+    private enum Marker {
+        INSTANCE
+    }
+
+    private static final class MarkerJsonAdapter extends JsonAdapter<Marker> {
+
+        @Override
+        public Marker fromJson(JsonReader reader) throws IOException {
+            reader.skipValue();
+            return Marker.INSTANCE;
+        }
+
+        @Override
+        public void toJson(JsonWriter writer, Marker value) throws IOException {
+            writer.value(1);
+        }
+    }
+}
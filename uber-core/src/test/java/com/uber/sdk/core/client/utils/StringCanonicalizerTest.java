@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2016 Uber Technologies, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.uber.sdk.core.client.utils;
+
+import com.squareup.moshi.JsonAdapter;
+import com.squareup.moshi.Moshi;
+import com.squareup.moshi.Types;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class StringCanonicalizerTest {
+
+    @Test
+    public void canonicalize_whenEqualStrings_shouldReturnFirstInstance() {
+        StringCanonicalizer canonicalizer = new StringCanonicalizer(16);
+        String first = new String("USD");
+        String second = new String("USD");
+
+        assertThat(canonicalizer.canonicalize(first)).isSameAs(first);
+        assertThat(canonicalizer.canonicalize(second)).isSameAs(first);
+    }
+
+    @Test
+    public void canonicalize_whenLongerThanMaximum_shouldReturnSameString() {
+        StringCanonicalizer canonicalizer = new StringCanonicalizer(16);
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i <= StringCanonicalizer.MAXIMUM_LENGTH; i++) {
+            builder.append('a');
+        }
+        String first = builder.toString();
+        String second = builder.toString();
+
+        canonicalizer.canonicalize(first);
+        assertThat(canonicalizer.canonicalize(second)).isSameAs(second);
+    }
+
+    @Test
+    public void canonicalize_whenSlotTaken_shouldKeepLatestString() {
+        StringCanonicalizer canonicalizer = new StringCanonicalizer(1);
+        String uberX = new String("uberX");
+        String pool = new String("POOL");
+
+        canonicalizer.canonicalize(uberX);
+        assertThat(canonicalizer.canonicalize(pool)).isSameAs(pool);
+        assertThat(canonicalizer.canonicalize(new String("POOL"))).isSameAs(pool);
+        assertThat(canonicalizer.canonicalize(new String("uberX"))).isNotSameAs(uberX).isEqualTo("uberX");
+    }
+
+    @Test
+    public void canonicalize_whenNull_shouldReturnNull() {
+        assertThat(new StringCanonicalizer(16).canonicalize(null)).isNull();
+    }
+
+    @Test
+    public void adapter_shouldDecodeEqualStringsToOneInstance() throws IOException {
+        StringCanonicalizer canonicalizer = new StringCanonicalizer(16);
+        Moshi moshi = new Moshi.Builder().add(String.class, canonicalizer.adapter()).build();
+        JsonAdapter<List<String>> adapter = moshi.adapter(Types.newParameterizedType(List.class, String.class));
+
+        List<String> values = adapter.fromJson("[\"USD\",null,\"USD\"]");
+
+        assertThat(values).containsExactly("USD", null, "USD");
+        assertThat(values.get(2)).isSameAs(values.get(0));
+        assertThat(adapter.toJson(values)).isEqualTo("[\"USD\",null,\"USD\"]");
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void constructor_whenCapacityNotPositive_shouldThrowException() {
+        new StringCanonicalizer(0);
+    }
+}
@@ -0,0 +1,287 @@
+/*
+ * Copyright (c) 2016 Uber Technologies, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.uber.sdk.core.ringbuffer;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RingBufferTest {
+
+    private static final RingBuffer.EventTranslator<LongEvent, Long> TRANSLATOR =
+            (event, value) -> event.value = value;
+
+    @Test
+    public void publishEvent_shouldDeliverEveryEventInOrderToEveryHandler() {
+        for (WaitStrategy waitStrategy : new WaitStrategy[] {
+                WaitStrategy.busySpin(), WaitStrategy.yielding(), WaitStrategy.sleeping(), WaitStrategy.blocking() }) {
+            RecordingHandler first = new RecordingHandler();
+            RecordingHandler second = new RecordingHandler();
+            RingBuffer<LongEvent> ring = RingBuffer.with(LongEvent::new)
+                    .setBufferSize(8)
+                    .setWaitStrategy(waitStrategy)
+                    .addHandler("first", first)
+                    .addHandler("second", second)
+                    .build();
+            ring.start();
+
+            for (long i = 0; i < 1000; i++) {
+                ring.publishEvent(TRANSLATOR, i);
+            }
+            ring.close();
+
+            assertThat(first.values).hasSize(1000);
+            assertThat(second.values).isEqualTo(first.values);
+            for (int i = 0; i < 1000; i++) {
+                assertThat(first.values.get(i)).isEqualTo(i);
+            }
+        }
+    }
+
+    @Test
+    public void publishEvent_whenSeveralProducers_shouldDeliverEveryEventInProducerOrder()
+            throws InterruptedException {
+        for (WaitStrategy waitStrategy : new WaitStrategy[] { WaitStrategy.busySpin(), WaitStrategy.blocking() }) {
+            RecordingHandler handler = new RecordingHandler();
+            RingBuffer<LongEvent> ring = RingBuffer.with(LongEvent::new)
+                    .setBufferSize(8)
+                    .setMultiProducer(true)
+                    .setWaitStrategy(waitStrategy)
+                    .addHandler("recording", handler)
+                    .build();
+            ring.start();
+
+            Thread[] producers = new Thread[4];
+            for (int p = 0; p < producers.length; p++) {
+                long first = p * 1000L;
+                producers[p] = new Thread(() -> {
+                    for (long i = first; i < first + 1000; i++) {
+                        ring.publishEvent(TRANSLATOR, i);
+                    }
+                });
+                producers[p].start();
+            }
+            for (Thread producer : producers) {
+                producer.join(5000);
+            }
+            ring.close();
+
+            assertThat(handler.values).hasSize(4000);
+            long[] last = { -1, -1, -1, -1 };
+            for (long value : handler.values) {
+                int producer = (int) (value / 1000);
+                assertThat(value).isGreaterThan(last[producer]);
+                last[producer] = value;
+            }
+        }
+    }
+
+    @Test
+    public void publish_whenSeveralProducersAndEarlierSlotNotPublished_shouldHoldBackLaterSlots()
+            throws InterruptedException {
+        RecordingHandler handler = new RecordingHandler();
+        RingBuffer<LongEvent> ring = RingBuffer.with(LongEvent::new)
+                .setBufferSize(4)
+                .setMultiProducer(true)
+                .addHandler("recording", handler)
+                .build();
+        ring.start();
+        long first = ring.next();
+        long second = ring.next();
+        ring.get(first).value = 1;
+        ring.get(second).value = 2;
+
+        ring.publish(second);
+        Thread.sleep(50);
+        assertThat(handler.values).isEmpty();
+        assertThat(ring.getCursor()).isEqualTo(-1);
+
+        ring.publish(first);
+        waitUntil(() -> handler.values.size() == 2);
+        assertThat(handler.values).containsExactly(1L, 2L);
+        assertThat(ring.getCursor()).isEqualTo(second);
+        ring.close();
+    }
+
+    @Test
+    public void get_shouldReuseSlots() {
+        RingBuffer<LongEvent> ring = RingBuffer.with(LongEvent::new).setBufferSize(4).build();
+
+        LongEvent first = ring.get(ring.next());
+        for (int i = 0; i < 3; i++) {
+            ring.get(ring.next());
+        }
+
+        assertThat(ring.get(ring.next())).isSameAs(first);
+    }
+
+    @Test
+    public void getLag_shouldReportEventsNotHandledYet() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        RecordingHandler fast = new RecordingHandler();
+        RingBuffer<LongEvent> ring = RingBuffer.with(LongEvent::new)
+                .setBufferSize(8)
+                .addHandler("slow", (event, sequence, endOfBatch) -> await(release))
+                .addHandler("fast", fast)
+                .build();
+        ring.start();
+
+        for (long i = 0; i < 5; i++) {
+            ring.publishEvent(TRANSLATOR, i);
+        }
+        waitUntil(() -> fast.values.size() == 5);
+
+        assertThat(ring.getLag("slow")).isEqualTo(5);
+        assertThat(ring.getLag("fast")).isEqualTo(0);
+        assertThat(ring.getLags()).containsEntry("slow", 5L).containsEntry("fast", 0L);
+
+        release.countDown();
+        ring.close();
+        assertThat(ring.getLag("slow")).isEqualTo(0);
+    }
+
+    @Test
+    public void next_whenBufferIsFull_shouldWaitForSlowestHandler() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        RingBuffer<LongEvent> ring = RingBuffer.with(LongEvent::new)
+                .setBufferSize(4)
+                .addHandler("slow", (event, sequence, endOfBatch) -> await(release))
+                .build();
+        ring.start();
+        for (long i = 0; i < 4; i++) {
+            ring.publishEvent(TRANSLATOR, i);
+        }
+
+        AtomicBoolean published = new AtomicBoolean();
+        Thread producer = new Thread(() -> {
+            ring.publishEvent(TRANSLATOR, 4L);
+            published.set(true);
+        });
+        producer.start();
+        Thread.sleep(100);
+        assertThat(published.get()).isFalse();
+
+        release.countDown();
+        producer.join(5000);
+        assertThat(published.get()).isTrue();
+        ring.close();
+    }
+
+    @Test
+    public void tryNext_whenBufferIsFull_shouldNotWait() {
+        CountDownLatch release = new CountDownLatch(1);
+        RingBuffer<LongEvent> ring = RingBuffer.with(LongEvent::new)
+                .setBufferSize(4)
+                .addHandler("slow", (event, sequence, endOfBatch) -> await(release))
+                .build();
+        ring.start();
+        for (long i = 0; i < 4; i++) {
+            ring.publish(ring.tryNext());
+        }
+
+        assertThat(ring.tryNext()).isEqualTo(-1);
+
+        release.countDown();
+        ring.close();
+    }
+
+    @Test
+    public void tryNext_whenHandlersCaughtUp_shouldClaimNextSlot() throws InterruptedException {
+        RecordingHandler handler = new RecordingHandler();
+        RingBuffer<LongEvent> ring = RingBuffer.with(LongEvent::new)
+                .setBufferSize(4)
+                .addHandler("recording", handler)
+                .build();
+        ring.start();
+        for (long i = 0; i < 4; i++) {
+            ring.publishEvent(TRANSLATOR, i);
+        }
+        waitUntil(() -> handler.values.size() == 4);
+
+        assertThat(ring.tryNext()).isEqualTo(4);
+        ring.close();
+    }
+
+    @Test
+    public void onEvent_whenHandlerThrows_shouldKeepDelivering() {
+        RecordingHandler handler = new RecordingHandler();
+        RingBuffer<LongEvent> ring = RingBuffer.with(LongEvent::new)
+                .addHandler("failing", (event, sequence, endOfBatch) -> {
+                    throw new IllegalStateException();
+                })
+                .addHandler("recording", handler)
+                .build();
+        ring.start();
+
+        ring.publishEvent(TRANSLATOR, 1L);
+        ring.publishEvent(TRANSLATOR, 2L);
+        ring.close();
+
+        assertThat(handler.values).containsExactly(1L, 2L);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void next_whenClosed_shouldThrow() {
+        RingBuffer<LongEvent> ring = RingBuffer.with(LongEvent::new).build();
+        ring.close();
+
+        ring.next();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void waitUntil(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean() && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+    }
+
+    private static class LongEvent {
+
+        long value;
+    }
+
+    private static class RecordingHandler implements RingBuffer.EventHandler<LongEvent> {
+
+        final List<Long> values = new CopyOnWriteArrayList<>();
+
+        @Override
+        public void onEvent(LongEvent event, long sequence, boolean endOfBatch) {
+            values.add(event.value);
+        }
+    }
+}
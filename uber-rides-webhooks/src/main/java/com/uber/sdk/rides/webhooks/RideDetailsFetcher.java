@@ -0,0 +1,197 @@
+/*
+ * Copyright (c) 2016 Uber Technologies, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.uber.sdk.rides.webhooks;
+
+import com.uber.sdk.rides.client.error.ErrorParser;
+import com.uber.sdk.rides.client.model.Ride;
+import com.uber.sdk.rides.client.services.RidesService;
+import com.uber.sdk.rides.client.tracking.RideTracker;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+
+import static com.uber.sdk.core.client.utils.Preconditions.checkNotNull;
+import static com.uber.sdk.core.client.utils.Preconditions.checkState;
+
+/**
+ * Fetches a ride's details only when a webhook says its status changed, and passes them to a
+ * {@link RideTracker.Listener} as if the ride had been polled. Other events are ignored, as are events about a ride
+ * that are older than, or repeat the status of, the latest event fetched for it. An event whose fetch fails does not
+ * count, so its redelivery is fetched again.
+ * <p>
+ * Rides are fetched with the {@link RidesService} of the user in the event's {@code meta.user_id}, since each
+ * service is authorized for one user only. The latest events of at most {@code maximumSize} rides are kept, evicting
+ * the least recently seen ride first.
+ * <p>
+ * The listener is called on the HTTP client's callback thread. Once a fetched ride has ended,
+ * {@link RideTracker.Listener#onTrackingStopped(String, Ride)} is called too.
+ */
+public class RideDetailsFetcher implements WebhookReceiver.Listener {
+
+    static final int DEFAULT_MAXIMUM_SIZE = 10000;
+
+    private final Function<String, RidesService> services;
+    private final boolean allTrips;
+    private final RideTracker.Listener listener;
+    private final Map<String, WebhookEvent> latestEvents;
+
+    /**
+     * Creates a fetcher for the rides of a single user, those requested through their {@link RidesService}. Only
+     * {@code requests.status_changed} events are handled: {@code all_trips.status_changed} events are sent for
+     * every user who authorized the app, whose rides this service cannot fetch.
+     *
+     * @param service the service used to fetch rides.
+     * @param listener notified of each fetched ride.
+     */
+    public RideDetailsFetcher(@Nonnull RidesService service, @Nonnull RideTracker.Listener listener) {
+        this(singleUser(service), false, listener, DEFAULT_MAXIMUM_SIZE);
+    }
+
+    /**
+     * Creates a fetcher for the rides of any user, handling both {@code requests.status_changed} and
+     * {@code all_trips.status_changed} events.
+     *
+     * @param services resolves the service of the user ID of an event, or {@code null} to ignore the event.
+     * @param listener notified of each fetched ride.
+     * @param maximumSize the maximum number of rides to keep the latest event of.
+     */
+    public RideDetailsFetcher(@Nonnull Function<String, RidesService> services,
+                              @Nonnull RideTracker.Listener listener,
+                              int maximumSize) {
+        this(services, true, listener, maximumSize);
+    }
+
+    private RideDetailsFetcher(@Nonnull Function<String, RidesService> services,
+                               boolean allTrips,
+                               @Nonnull RideTracker.Listener listener,
+                               final int maximumSize) {
+        checkState(maximumSize > 0, "Maximum size must be positive.");
+        this.services = checkNotNull(services, "Services must not be null.");
+        this.allTrips = allTrips;
+        this.listener = checkNotNull(listener, "Listener must not be null.");
+        this.latestEvents = new LinkedHashMap<String, WebhookEvent>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, WebhookEvent> eldest) {
+                return size() > maximumSize;
+            }
+        };
+    }
+
+    @Override
+    public void onEvent(@Nonnull final WebhookEvent event) {
+        if (!WebhookEvent.REQUESTS_STATUS_CHANGED.equals(event.getEventType())
+                && !(allTrips && WebhookEvent.ALL_TRIPS_STATUS_CHANGED.equals(event.getEventType()))) {
+            return;
+        }
+        WebhookEvent.Meta meta = event.getMeta();
+        if (meta == null || meta.getResourceId() == null) {
+            return;
+        }
+        RidesService service = services.apply(meta.getUserId());
+        if (service == null) {
+            return;
+        }
+
+        final String rideId = meta.getResourceId();
+        final WebhookEvent previous;
+        synchronized (latestEvents) {
+            previous = latestEvents.get(rideId);
+            if (previous != null && !isNewer(event, previous)) {
+                return;
+            }
+            latestEvents.put(rideId, event);
+        }
+
+        service.getRideDetails(rideId).enqueue(new Callback<Ride>() {
+            @Override
+            public void onResponse(Call<Ride> call, Response<Ride> response) {
+                if (response.isSuccessful() && response.body() != null) {
+                    onRideFetched(rideId, response.body());
+                } else {
+                    restore(rideId, event, previous);
+                    listener.onPollFailed(rideId, ErrorParser.parseError(response), null);
+                }
+            }
+
+            @Override
+            public void onFailure(Call<Ride> call, Throwable t) {
+                restore(rideId, event, previous);
+                listener.onPollFailed(rideId, null, t);
+            }
+        });
+    }
+
+    private static Function<String, RidesService> singleUser(@Nonnull final RidesService service) {
+        checkNotNull(service, "Service must not be null.");
+        return userId -> service;
+    }
+
+    /**
+     * Puts back the event seen before one whose fetch failed, unless a later event has replaced it since.
+     */
+    private void restore(@Nonnull String rideId, @Nonnull WebhookEvent event, @Nullable WebhookEvent previous) {
+        synchronized (latestEvents) {
+            if (latestEvents.get(rideId) != event) {
+                return;
+            }
+            if (previous != null) {
+                latestEvents.put(rideId, previous);
+            } else {
+                latestEvents.remove(rideId);
+            }
+        }
+    }
+
+    private void onRideFetched(String rideId, Ride ride) {
+        listener.onRideUpdated(ride);
+        if (isEnded(ride.getStatus())) {
+            synchronized (latestEvents) {
+                latestEvents.remove(rideId);
+            }
+            listener.onTrackingStopped(rideId, ride);
+        }
+    }
+
+    private static boolean isNewer(WebhookEvent event, WebhookEvent previous) {
+        if (event.getEventTime() < previous.getEventTime()) {
+            return false;
+        }
+        String status = event.getMeta().getStatus();
+        return status == null || !status.equals(previous.getMeta().getStatus());
+    }
+
+    private static boolean isEnded(Ride.Status status) {
+        return status == Ride.Status.COMPLETED
+                || status == Ride.Status.RIDER_CANCELED
+                || status == Ride.Status.DRIVER_CANCELED
+                || status == Ride.Status.NO_DRIVERS_AVAILABLE;
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2016 Uber Technologies, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.uber.sdk.rides.webhooks;
+
+import javax.annotation.Nullable;
+
+/**
+ * A webhook event pushed by Uber. See
+ * <a href="https://developer.uber.com/docs/riders/guides/webhooks">Webhooks</a>
+ * for more information.
+ */
+public class WebhookEvent {
+
+    /**
+     * The type of events sent when the status of a ride requested by the application changes.
+     */
+    public static final String REQUESTS_STATUS_CHANGED = "requests.status_changed";
+
+    /**
+     * The type of events sent when the status of any ride of a user who authorized the application changes.
+     */
+    public static final String ALL_TRIPS_STATUS_CHANGED = "all_trips.status_changed";
+
+    /**
+     * The type of events sent once the receipt of a ride is available.
+     */
+    public static final String REQUESTS_RECEIPT_READY = "requests.receipt_ready";
+
+    private String event_id;
+    private long event_time;
+    private String event_type;
+    @Nullable
+    private Meta meta;
+    @Nullable
+    private String resource_href;
+
+    /**
+     * The unique ID of the event, which is the same for every delivery of the event.
+     */
+    public String getEventId() {
+        return event_id;
+    }
+
+    /**
+     * The time the event happened, in seconds since the epoch.
+     */
+    public long getEventTime() {
+        return event_time;
+    }
+
+    /**
+     * The type of the event, such as {@link #REQUESTS_STATUS_CHANGED}.
+     */
+    public String getEventType() {
+        return event_type;
+    }
+
+    /**
+     * Details about the resource the event is about.
+     */
+    @Nullable
+    public Meta getMeta() {
+        return meta;
+    }
+
+    /**
+     * The URL of the resource the event is about.
+     */
+    @Nullable
+    public String getResourceHref() {
+        return resource_href;
+    }
+
+    /**
+     * Details about the resource a {@link WebhookEvent} is about.
+     */
+    public static class Meta {
+
+        @Nullable
+        private String user_id;
+        @Nullable
+        private String resource_id;
+        @Nullable
+        private String resource_type;
+        @Nullable
+        private String status;
+
+        /**
+         * The ID of the user the resource belongs to.
+         */
+        @Nullable
+        public String getUserId() {
+            return user_id;
+        }
+
+        /**
+         * The ID of the resource, such as the ride ID for a {@code request}.
+         */
+        @Nullable
+        public String getResourceId() {
+            return resource_id;
+        }
+
+        /**
+         * The type of the resource, such as {@code request}.
+         */
+        @Nullable
+        public String getResourceType() {
+            return resource_type;
+        }
+
+        /**
+         * The status of the resource, for status change events.
+         */
+        @Nullable
+        public String getStatus() {
+            return status;
+        }
+    }
+}
@@ -0,0 +1,324 @@
+/*
+ * Copyright (c) 2016 Uber Technologies, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.uber.sdk.rides.webhooks;
+
+import com.squareup.moshi.JsonAdapter;
+import com.squareup.moshi.JsonDataException;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import com.uber.sdk.rides.client.model.ModelAdapters;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.Nonnull;
+
+import okio.Buffer;
+
+import static com.uber.sdk.core.client.utils.Preconditions.checkNotNull;
+import static com.uber.sdk.core.client.utils.Preconditions.checkState;
+
+/**
+ * Receives Uber webhooks over HTTP with the JDK's built-in server, so that applications can react to ride changes
+ * instead of polling.
+ * <pre>{@code
+ * WebhookReceiver receiver = WebhookReceiver.with(clientSecret, listener)
+ *         .setAddress(new InetSocketAddress(8080))
+ *         .build();
+ * receiver.start();
+ * }</pre>
+ * Each webhook is acknowledged as soon as its signature is verified and its body parsed; the listener is then called
+ * on a separate pool of threads, so that a slow listener never delays acknowledgments. Webhooks with a missing or
+ * wrong {@value WebhookSignature#HEADER} are rejected with {@code 401}, and events that were already received are
+ * acknowledged without calling the listener again.
+ * <p>
+ * To follow rides from webhooks the same way a {@link com.uber.sdk.rides.client.tracking.RideTracker} does from
+ * polls, use a {@link RideDetailsFetcher} as listener.
+ */
+public class WebhookReceiver implements Closeable {
+
+    /**
+     * Notified of each webhook event, once, on a listener thread.
+     */
+    public interface Listener {
+
+        /**
+         * @param event the event, which has a signature that was verified and an event ID.
+         */
+        void onEvent(@Nonnull WebhookEvent event);
+    }
+
+    private static final JsonAdapter<WebhookEvent> ADAPTER = ModelAdapters.moshi().adapter(WebhookEvent.class);
+
+    private final String clientSecret;
+    private final Listener listener;
+    private final InetSocketAddress address;
+    private final String path;
+    private final int maximumBodyBytes;
+    private final EventDeduplicator deduplicator;
+    private final ThreadPoolExecutor listenerExecutor;
+    private HttpServer server;
+    private ExecutorService serverExecutor;
+
+    WebhookReceiver(@Nonnull String clientSecret,
+                    @Nonnull Listener listener,
+                    @Nonnull InetSocketAddress address,
+                    @Nonnull String path,
+                    int maximumBodyBytes,
+                    int deduplicationCapacity,
+                    int listenerThreads,
+                    int maxQueuedEvents) {
+        this.clientSecret = clientSecret;
+        this.listener = listener;
+        this.address = address;
+        this.path = path;
+        this.maximumBodyBytes = maximumBodyBytes;
+        this.deduplicator = new EventDeduplicator(deduplicationCapacity);
+        this.listenerExecutor = new ThreadPoolExecutor(listenerThreads, listenerThreads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<Runnable>(maxQueuedEvents), new ReceiverThreadFactory("UberWebhookListener"));
+    }
+
+    /**
+     * @param clientSecret the client secret of the application, which webhooks are signed with.
+     * @param listener notified of each event.
+     * @return a builder for a {@link WebhookReceiver}.
+     */
+    @Nonnull
+    public static Builder with(@Nonnull String clientSecret, @Nonnull Listener listener) {
+        return new Builder(checkNotNull(clientSecret, "Client secret must not be null."),
+                checkNotNull(listener, "Listener must not be null."));
+    }
+
+    /**
+     * Starts accepting webhooks.
+     *
+     * @throws IOException if the address could not be bound.
+     */
+    public synchronized void start() throws IOException {
+        checkState(server == null, "Receiver was already started.");
+        checkState(!listenerExecutor.isShutdown(), "Receiver was closed.");
+
+        server = HttpServer.create(address, 0);
+        serverExecutor = Executors.newFixedThreadPool(2, new ReceiverThreadFactory("UberWebhookServer"));
+        server.setExecutor(serverExecutor);
+        server.createContext(path, this::handle);
+        server.start();
+    }
+
+    /**
+     * @return the port the receiver listens on, which is chosen by the system if it was set to 0.
+     */
+    public synchronized int getPort() {
+        checkState(server != null, "Receiver was not started.");
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Stops accepting webhooks. Events that were already acknowledged are still passed to the listener.
+     */
+    @Override
+    public synchronized void close() {
+        if (server != null) {
+            server.stop(0);
+            serverExecutor.shutdown();
+        }
+        listenerExecutor.shutdown();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                exchange.getResponseHeaders().set("Allow", "POST");
+                respond(exchange, 405);
+                return;
+            }
+
+            byte[] body = readBody(exchange.getRequestBody());
+            if (body == null) {
+                respond(exchange, 413);
+                return;
+            }
+            if (!WebhookSignature.verify(clientSecret, body,
+                    exchange.getRequestHeaders().getFirst(WebhookSignature.HEADER))) {
+                respond(exchange, 401);
+                return;
+            }
+
+            final WebhookEvent event;
+            try {
+                event = ADAPTER.fromJson(new Buffer().write(body));
+            } catch (IOException | JsonDataException e) {
+                respond(exchange, 400);
+                return;
+            }
+            if (event == null || event.getEventId() == null) {
+                respond(exchange, 400);
+                return;
+            }
+
+            if (deduplicator.markSeen(event.getEventId())) {
+                try {
+                    listenerExecutor.execute(() -> notifyListener(event));
+                } catch (RejectedExecutionException e) {
+                    // Let Uber deliver the event again later.
+                    deduplicator.forget(event.getEventId());
+                    respond(exchange, 503);
+                    return;
+                }
+            }
+            respond(exchange, 200);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void notifyListener(WebhookEvent event) {
+        try {
+            listener.onEvent(event);
+        } catch (RuntimeException ignored) {
+            // Listener failures must not stop the receiver.
+        }
+    }
+
+    /**
+     * @return the body, or {@code null} if it is larger than the maximum.
+     */
+    private byte[] readBody(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] chunk = new byte[4096];
+        int read;
+        while ((read = in.read(chunk)) != -1) {
+            if (out.size() + read > maximumBodyBytes) {
+                return null;
+            }
+            out.write(chunk, 0, read);
+        }
+        return out.toByteArray();
+    }
+
+    private static void respond(HttpExchange exchange, int status) throws IOException {
+        exchange.sendResponseHeaders(status, -1);
+    }
+
+    private static final class ReceiverThreadFactory implements ThreadFactory {
+
+        private final String name;
+        private final AtomicInteger count = new AtomicInteger();
+
+        ReceiverThreadFactory(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public Thread newThread(@Nonnull Runnable runnable) {
+            Thread thread = new Thread(runnable, name + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+
+    /**
+     * Builder for {@link WebhookReceiver}.
+     */
+    public static class Builder {
+
+        private final String clientSecret;
+        private final Listener listener;
+        private InetSocketAddress address = new InetSocketAddress(8080);
+        private String path = "/webhooks";
+        private int maximumBodyBytes = 64 * 1024;
+        private int deduplicationCapacity = 10000;
+        private int listenerThreads = 4;
+        private int maxQueuedEvents = 1000;
+
+        Builder(@Nonnull String clientSecret, @Nonnull Listener listener) {
+            this.clientSecret = clientSecret;
+            this.listener = listener;
+        }
+
+        /**
+         * Sets the address to listen on. Optional and defaults to port 8080 on every interface.
+         */
+        public Builder setAddress(@Nonnull InetSocketAddress address) {
+            this.address = checkNotNull(address, "Address must not be null.");
+            return this;
+        }
+
+        /**
+         * Sets the path webhooks are posted to. Optional and defaults to {@code /webhooks}.
+         */
+        public Builder setPath(@Nonnull String path) {
+            checkState(path != null && path.startsWith("/"), "Path must start with '/'.");
+            this.path = path;
+            return this;
+        }
+
+        /**
+         * Sets the largest body accepted, in bytes. Optional and defaults to 64 KiB.
+         */
+        public Builder setMaximumBodySize(int bytes) {
+            checkState(bytes > 0, "Maximum body size must be positive.");
+            this.maximumBodyBytes = bytes;
+            return this;
+        }
+
+        /**
+         * Sets how many of the latest event IDs are remembered to ignore redeliveries. Optional and defaults to
+         * 10000.
+         */
+        public Builder setDeduplicationCapacity(int capacity) {
+            checkState(capacity > 0, "Deduplication capacity must be positive.");
+            this.deduplicationCapacity = capacity;
+            return this;
+        }
+
+        /**
+         * Sets the number of threads that call the listener, and the number of events that may wait for one. Once
+         * full, webhooks are answered with {@code 503} so that Uber delivers them again later. Optional and defaults
+         * to 4 threads and 1000 events.
+         */
+        public Builder setListenerThreads(int listenerThreads, int maxQueuedEvents) {
+            checkState(listenerThreads > 0, "Listener threads must be positive.");
+            checkState(maxQueuedEvents > 0, "Max queued events must be positive.");
+            this.listenerThreads = listenerThreads;
+            this.maxQueuedEvents = maxQueuedEvents;
+            return this;
+        }
+
+        public WebhookReceiver build() {
+            return new WebhookReceiver(clientSecret, listener, address, path, maximumBodyBytes,
+                    deduplicationCapacity, listenerThreads, maxQueuedEvents);
+        }
+    }
+}
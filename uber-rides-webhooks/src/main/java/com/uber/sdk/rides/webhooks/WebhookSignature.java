@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2016 Uber Technologies, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.uber.sdk.rides.webhooks;
+
+import java.nio.charset.StandardCharsets;
+import java.security.InvalidKeyException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Signs and verifies webhook bodies. Uber signs each webhook with an HMAC-SHA256 of its body keyed with the
+ * application's client secret, hex encoded in the {@value #HEADER} header.
+ */
+public final class WebhookSignature {
+
+    /**
+     * The header that carries the signature.
+     */
+    public static final String HEADER = "X-Uber-Signature";
+
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private WebhookSignature() {}
+
+    /**
+     * @param clientSecret the client secret of the application.
+     * @param body the body of the webhook.
+     * @return the lowercase hex signature of the body.
+     */
+    @Nonnull
+    public static String sign(@Nonnull String clientSecret, @Nonnull byte[] body) {
+        byte[] digest = mac(clientSecret).doFinal(body);
+        char[] hex = new char[digest.length * 2];
+        for (int i = 0; i < digest.length; i++) {
+            hex[i * 2] = HEX[(digest[i] >> 4) & 0xf];
+            hex[i * 2 + 1] = HEX[digest[i] & 0xf];
+        }
+        return new String(hex);
+    }
+
+    /**
+     * Compares signatures in constant time, so that the comparison does not reveal how much of a guess was right.
+     *
+     * @param clientSecret the client secret of the application.
+     * @param body the body of the webhook.
+     * @param signature the signature sent with the webhook, in any case.
+     * @return whether the signature matches the body.
+     */
+    public static boolean verify(@Nonnull String clientSecret, @Nonnull byte[] body, @Nullable String signature) {
+        if (signature == null) {
+            return false;
+        }
+        byte[] expected = sign(clientSecret, body).getBytes(StandardCharsets.US_ASCII);
+        byte[] actual = signature.trim().toLowerCase().getBytes(StandardCharsets.US_ASCII);
+        return MessageDigest.isEqual(expected, actual);
+    }
+
+    private static Mac mac(String clientSecret) {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(new SecretKeySpec(clientSecret.getBytes(StandardCharsets.UTF_8), ALGORITHM));
+            return mac;
+        } catch (NoSuchAlgorithmException | InvalidKeyException e) {
+            throw new IllegalStateException("Unable to create " + ALGORITHM + ".", e);
+        }
+    }
+}
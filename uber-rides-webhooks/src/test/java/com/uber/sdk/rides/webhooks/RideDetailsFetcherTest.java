@@ -0,0 +1,244 @@
+/*
+ * Copyright (c) 2016 Uber Technologies, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.uber.sdk.rides.webhooks;
+
+import com.squareup.moshi.Moshi;
+import com.uber.sdk.rides.client.error.ApiError;
+import com.uber.sdk.rides.client.model.Ride;
+import com.uber.sdk.rides.client.services.RidesService;
+import com.uber.sdk.rides.client.tracking.RideTracker;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.io.IOException;
+
+import okhttp3.MediaType;
+import okhttp3.ResponseBody;
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Matchers.isNull;
+import static org.mockito.Matchers.same;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class RideDetailsFetcherTest {
+
+    @Mock RidesService service;
+    @Mock RideTracker.Listener listener;
+
+    private RideDetailsFetcher fetcher;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        fetcher = new RideDetailsFetcher(service, listener);
+    }
+
+    @Test
+    public void onEvent_whenStatusChanged_shouldFetchRide() throws IOException {
+        Ride ride = ride(Ride.Status.ACCEPTED);
+        Call<Ride> call = successCall(ride);
+        when(service.getRideDetails("ride")).thenReturn(call);
+
+        fetcher.onEvent(event(WebhookEvent.REQUESTS_STATUS_CHANGED, 10, "accepted"));
+
+        verify(listener).onRideUpdated(same(ride));
+        verify(listener, never()).onTrackingStopped(any(String.class), any(Ride.class));
+    }
+
+    @Test
+    public void onEvent_whenStatusRepeatsOrIsOlder_shouldNotFetch() throws IOException {
+        when(service.getRideDetails("ride")).thenAnswer(invocation -> successCall(ride(Ride.Status.ARRIVING)));
+
+        fetcher.onEvent(event(WebhookEvent.REQUESTS_STATUS_CHANGED, 10, "arriving"));
+        fetcher.onEvent(event(WebhookEvent.REQUESTS_STATUS_CHANGED, 11, "arriving"));
+        fetcher.onEvent(event(WebhookEvent.REQUESTS_STATUS_CHANGED, 5, "accepted"));
+
+        verify(service, times(1)).getRideDetails("ride");
+    }
+
+    @Test
+    public void onEvent_whenNotStatusChange_shouldNotFetch() throws IOException {
+        fetcher.onEvent(event(WebhookEvent.REQUESTS_RECEIPT_READY, 10, null));
+
+        verify(service, never()).getRideDetails(any(String.class));
+    }
+
+    @Test
+    public void onEvent_whenRideEnded_shouldStopTracking() throws IOException {
+        Ride ride = ride(Ride.Status.COMPLETED);
+        Call<Ride> call = successCall(ride);
+        when(service.getRideDetails("ride")).thenReturn(call);
+
+        fetcher.onEvent(event(WebhookEvent.REQUESTS_STATUS_CHANGED, 10, "completed"));
+
+        verify(listener).onRideUpdated(same(ride));
+        verify(listener).onTrackingStopped(eq("ride"), same(ride));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void onEvent_whenFetchFails_shouldNotifyFailure() throws IOException {
+        final IOException failure = new IOException();
+        Call<Ride> call = mockCall();
+        doAnswer(invocation -> {
+            ((Callback<Ride>) invocation.getArguments()[0]).onFailure(call, failure);
+            return null;
+        }).when(call).enqueue(any(Callback.class));
+        when(service.getRideDetails("ride")).thenReturn(call);
+
+        fetcher.onEvent(event(WebhookEvent.REQUESTS_STATUS_CHANGED, 10, "accepted"));
+
+        verify(listener).onPollFailed(eq("ride"), isNull(ApiError.class), same(failure));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void onEvent_whenFetchFailed_shouldFetchRedelivery() throws IOException {
+        Call<Ride> failedCall = mockCall();
+        doAnswer(invocation -> {
+            ((Callback<Ride>) invocation.getArguments()[0]).onFailure(failedCall, new IOException());
+            return null;
+        }).when(failedCall).enqueue(any(Callback.class));
+        Ride ride = ride(Ride.Status.ACCEPTED);
+        Call<Ride> call = successCall(ride);
+        when(service.getRideDetails("ride")).thenReturn(failedCall, call);
+
+        fetcher.onEvent(event(WebhookEvent.REQUESTS_STATUS_CHANGED, 10, "accepted"));
+        fetcher.onEvent(event(WebhookEvent.REQUESTS_STATUS_CHANGED, 10, "accepted"));
+
+        verify(service, times(2)).getRideDetails("ride");
+        verify(listener).onRideUpdated(same(ride));
+    }
+
+    @Test
+    public void onEvent_whenResponseUnsuccessful_shouldFetchLaterEventWithSameStatus() throws IOException {
+        Call<Ride> failedCall = errorCall();
+        Ride ride = ride(Ride.Status.ARRIVING);
+        Call<Ride> call = successCall(ride);
+        when(service.getRideDetails("ride")).thenReturn(failedCall, call);
+
+        fetcher.onEvent(event(WebhookEvent.REQUESTS_STATUS_CHANGED, 10, "arriving"));
+        fetcher.onEvent(event(WebhookEvent.REQUESTS_STATUS_CHANGED, 11, "arriving"));
+
+        verify(listener).onPollFailed(eq("ride"), any(ApiError.class), isNull(Throwable.class));
+        verify(listener).onRideUpdated(same(ride));
+    }
+
+    @Test
+    public void onEvent_whenAllTripsEventWithSingleService_shouldNotFetch() throws IOException {
+        fetcher.onEvent(event(WebhookEvent.ALL_TRIPS_STATUS_CHANGED, 10, "accepted"));
+
+        verify(service, never()).getRideDetails(any(String.class));
+    }
+
+    @Test
+    public void onEvent_whenServicePerUser_shouldFetchWithServiceOfEventUser() throws IOException {
+        RidesService otherService = mock(RidesService.class);
+        Ride ride = ride(Ride.Status.ACCEPTED);
+        Call<Ride> call = successCall(ride);
+        when(otherService.getRideDetails("ride")).thenReturn(call);
+        fetcher = new RideDetailsFetcher(userId -> "other".equals(userId) ? otherService : null, listener, 10);
+
+        fetcher.onEvent(event(WebhookEvent.ALL_TRIPS_STATUS_CHANGED, 10, "accepted", "other"));
+        fetcher.onEvent(event(WebhookEvent.ALL_TRIPS_STATUS_CHANGED, 11, "arriving", "unknown"));
+
+        verify(otherService).getRideDetails("ride");
+        verify(listener).onRideUpdated(same(ride));
+        verify(service, never()).getRideDetails(any(String.class));
+    }
+
+    @Test
+    public void onEvent_whenMoreRidesThanMaximumSize_shouldForgetLeastRecentRide() throws IOException {
+        when(service.getRideDetails(any(String.class)))
+                .thenAnswer(invocation -> successCall(ride(Ride.Status.ACCEPTED)));
+        fetcher = new RideDetailsFetcher(userId -> service, listener, 1);
+
+        fetcher.onEvent(event(WebhookEvent.REQUESTS_STATUS_CHANGED, 10, "accepted", null, "ride"));
+        fetcher.onEvent(event(WebhookEvent.REQUESTS_STATUS_CHANGED, 10, "accepted", null, "other"));
+        fetcher.onEvent(event(WebhookEvent.REQUESTS_STATUS_CHANGED, 10, "accepted", null, "ride"));
+
+        verify(service, times(2)).getRideDetails("ride");
+    }
+
+    private static WebhookEvent event(String type, long time, String status) throws IOException {
+        return event(type, time, status, null);
+    }
+
+    private static WebhookEvent event(String type, long time, String status, String userId) throws IOException {
+        return event(type, time, status, userId, "ride");
+    }
+
+    private static WebhookEvent event(String type, long time, String status, String userId, String rideId)
+            throws IOException {
+        String json = "{\"event_id\":\"" + type + time + "\",\"event_time\":" + time + ",\"event_type\":\"" + type
+                + "\",\"meta\":{\"resource_id\":\"" + rideId + "\",\"resource_type\":\"request\""
+                + (userId != null ? ",\"user_id\":\"" + userId + "\"" : "")
+                + (status != null ? ",\"status\":\"" + status + "\"" : "") + "}}";
+        return new Moshi.Builder().build().adapter(WebhookEvent.class).fromJson(json);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Call<Ride> errorCall() {
+        final Call<Ride> call = mockCall();
+        doAnswer(invocation -> {
+            ((Callback<Ride>) invocation.getArguments()[0]).onResponse(call, Response.<Ride>error(404,
+                    ResponseBody.create(MediaType.parse("application/json"), "{}")));
+            return null;
+        }).when(call).enqueue(any(Callback.class));
+        return call;
+    }
+
+    private static Ride ride(Ride.Status status) {
+        Ride ride = mock(Ride.class);
+        when(ride.getRideId()).thenReturn("ride");
+        when(ride.getStatus()).thenReturn(status);
+        return ride;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Call<Ride> successCall(final Ride ride) {
+        final Call<Ride> call = mockCall();
+        doAnswer(invocation -> {
+            ((Callback<Ride>) invocation.getArguments()[0]).onResponse(call, Response.success(ride));
+            return null;
+        }).when(call).enqueue(any(Callback.class));
+        return call;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Call<Ride> mockCall() {
+        return mock(Call.class);
+    }
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright (c) 2016 Uber Technologies, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.uber.sdk.rides.webhooks;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nonnull;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class WebhookReceiverTest {
+
+    private static final String SECRET = "clientSecret";
+    private static final String EVENT = "{\"event_id\":\"3a3f3da4-14ac-4056-bbf2-d0b9cdcb0777\","
+            + "\"event_time\":1427343990,"
+            + "\"event_type\":\"requests.status_changed\","
+            + "\"meta\":{\"user_id\":\"user\",\"resource_id\":\"ride\",\"resource_type\":\"request\","
+            + "\"status\":\"accepted\"},"
+            + "\"resource_href\":\"https://api.uber.com/v1/requests/ride\"}";
+
+    private RecordingListener listener;
+    private WebhookReceiver receiver;
+
+    @Before
+    public void setUp() throws IOException {
+        listener = new RecordingListener();
+        receiver = WebhookReceiver.with(SECRET, listener)
+                .setAddress(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0))
+                .setMaximumBodySize(1024)
+                .build();
+        receiver.start();
+    }
+
+    @After
+    public void tearDown() {
+        receiver.close();
+    }
+
+    @Test
+    public void handle_whenSigned_shouldParseAndNotifyListener() throws Exception {
+        assertThat(send(EVENT, WebhookSignature.sign(SECRET, bytes(EVENT)))).isEqualTo(200);
+
+        assertThat(listener.received.await(5, TimeUnit.SECONDS)).isTrue();
+        WebhookEvent event = listener.events.get(0);
+        assertThat(event.getEventId()).isEqualTo("3a3f3da4-14ac-4056-bbf2-d0b9cdcb0777");
+        assertThat(event.getEventTime()).isEqualTo(1427343990L);
+        assertThat(event.getEventType()).isEqualTo(WebhookEvent.REQUESTS_STATUS_CHANGED);
+        assertThat(event.getMeta().getResourceId()).isEqualTo("ride");
+        assertThat(event.getMeta().getStatus()).isEqualTo("accepted");
+        assertThat(event.getResourceHref()).isEqualTo("https://api.uber.com/v1/requests/ride");
+    }
+
+    @Test
+    public void handle_whenRedelivered_shouldNotifyListenerOnce() throws Exception {
+        String signature = WebhookSignature.sign(SECRET, bytes(EVENT));
+
+        assertThat(send(EVENT, signature)).isEqualTo(200);
+        assertThat(send(EVENT, signature)).isEqualTo(200);
+        receiver.close();
+
+        assertThat(listener.received.await(5, TimeUnit.SECONDS)).isTrue();
+        Thread.sleep(100);
+        assertThat(listener.events).hasSize(1);
+    }
+
+    @Test
+    public void handle_whenSignatureIsWrong_shouldRejectWebhook() throws Exception {
+        assertThat(send(EVENT, WebhookSignature.sign("otherSecret", bytes(EVENT)))).isEqualTo(401);
+        assertThat(send(EVENT, null)).isEqualTo(401);
+
+        assertThat(listener.events).isEmpty();
+    }
+
+    @Test
+    public void handle_whenBodyIsInvalid_shouldRejectWebhook() throws Exception {
+        String missingId = "{\"event_type\":\"requests.status_changed\"}";
+
+        assertThat(send("not json", WebhookSignature.sign(SECRET, bytes("not json")))).isEqualTo(400);
+        assertThat(send(missingId, WebhookSignature.sign(SECRET, bytes(missingId)))).isEqualTo(400);
+        assertThat(listener.events).isEmpty();
+    }
+
+    @Test
+    public void handle_whenBodyIsTooLarge_shouldRejectWebhook() throws Exception {
+        StringBuilder large = new StringBuilder();
+        for (int i = 0; i < 2048; i++) {
+            large.append(' ');
+        }
+        large.append(EVENT);
+
+        assertThat(send(large.toString(), WebhookSignature.sign(SECRET, bytes(large.toString())))).isEqualTo(413);
+    }
+
+    @Test
+    public void verify_shouldIgnoreCaseOfSignature() {
+        String signature = WebhookSignature.sign(SECRET, bytes(EVENT));
+
+        assertThat(WebhookSignature.verify(SECRET, bytes(EVENT), signature.toUpperCase())).isTrue();
+        assertThat(WebhookSignature.verify(SECRET, bytes(EVENT + " "), signature)).isFalse();
+    }
+
+    /**
+     * Posts a webhook the way Uber does.
+     */
+    private int send(String body, String signature) throws IOException {
+        URL url = new URL("http://127.0.0.1:" + receiver.getPort() + "/webhooks");
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        try {
+            connection.setRequestMethod("POST");
+            connection.setDoOutput(true);
+            connection.setRequestProperty("Content-Type", "application/json");
+            if (signature != null) {
+                connection.setRequestProperty(WebhookSignature.HEADER, signature);
+            }
+            try (OutputStream out = connection.getOutputStream()) {
+                out.write(bytes(body));
+            }
+            return connection.getResponseCode();
+        } catch (IOException e) {
+            // The receiver may close the connection before reading a body that is too large.
+            return connection.getResponseCode();
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    private static byte[] bytes(String body) {
+        return body.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static class RecordingListener implements WebhookReceiver.Listener {
+
+        final List<WebhookEvent> events = new CopyOnWriteArrayList<>();
+        final CountDownLatch received = new CountDownLatch(1);
+
+        @Override
+        public void onEvent(@Nonnull WebhookEvent event) {
+            events.add(event);
+            received.countDown();
+        }
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2016 Uber Technologies, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.uber.sdk.rides.client.cache;
+
+import com.uber.sdk.core.cache.Cache;
+import com.uber.sdk.core.cache.CacheBuilder;
+import com.uber.sdk.rides.client.model.PriceEstimate;
+import com.uber.sdk.rides.client.model.PriceEstimatesResponse;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares reading and writing price estimates through an {@link OffHeapCache} with the on-heap {@link Cache}
+ * built by {@link CacheBuilder}.
+ * Run with {@code ./gradlew :uber-rides:jmh} and add {@code -prof gc} to the JMH arguments to see allocation rates;
+ * {@link EstimateCacheGcBenchmark} measures retained heap and GC pauses.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class EstimateCacheBenchmark {
+
+    @Param({"heap", "offHeap"})
+    String backend;
+
+    @Param({"100000"})
+    int entries;
+
+    Cache<String, PriceEstimatesResponse> cache;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        cache = createCache(backend, entries);
+        for (int i = 0; i < entries; i++) {
+            cache.put(key(i), createResponse(i));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        cache.invalidateAll();
+    }
+
+    @Benchmark
+    public PriceEstimatesResponse get() {
+        return cache.getIfPresent(key(ThreadLocalRandom.current().nextInt(entries)));
+    }
+
+    @Benchmark
+    public void put() {
+        int i = ThreadLocalRandom.current().nextInt(entries);
+        cache.put(key(i), createResponse(i));
+    }
+
+    static String key(int i) {
+        return EstimateCache.priceKey(37f + (i % 1000) / 1000f, -122f - (i / 1000) / 1000f, 37.78f, -122.40f);
+    }
+
+    static PriceEstimatesResponse createResponse(int seed) {
+        List<PriceEstimate> prices = new ArrayList<>(4);
+        String[] names = {"uberPOOL", "uberX", "uberXL", "UberBLACK"};
+        for (int i = 0; i < names.length; i++) {
+            int low = 5 + seed % 20 + i * 4;
+            prices.add(new PriceEstimate("26546650-e557-4a7b-86e7-6a394244524" + i,
+                    "USD",
+                    names[i],
+                    "$" + low + "-" + (low + 3),
+                    new BigDecimal(low + ".25"),
+                    new BigDecimal((low + 3) + ".75"),
+                    1.0f,
+                    1080 + i,
+                    5.34f));
+        }
+        return new PriceEstimatesResponse(prices);
+    }
+
+    static Cache<String, PriceEstimatesResponse> createCache(String backend, int entries) {
+        if ("offHeap".equals(backend)) {
+            int slabSize = 4 * 1024 * 1024;
+            int slabCount = (int) Math.max(2, (long) entries * 400 / slabSize + 2);
+            return new OffHeapCache<>(EstimateCodecs.PRICE_ESTIMATES, slabSize, slabCount);
+        }
+        return new CacheBuilder<String, PriceEstimatesResponse>().setMaximumSize(entries).build();
+    }
+}
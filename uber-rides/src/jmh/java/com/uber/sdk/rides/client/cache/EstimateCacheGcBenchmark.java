@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2016 Uber Technologies, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.uber.sdk.rides.client.cache;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+import com.uber.sdk.core.cache.Cache;
+import com.uber.sdk.rides.client.model.PriceEstimatesResponse;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+
+/**
+ * Fills an on-heap {@link Cache} and an {@link OffHeapCache} with the same price estimates, then reports the heap
+ * each one retains and the GC pauses observed while reading and replacing entries. Pauses are taken from the
+ * collectors' notifications, so concurrent phases are not counted.
+ * <p>
+ * Build the benchmark jar with {@code ./gradlew :uber-rides:jmhJar} and run, for example,
+ * {@code java -Xmx4g -XX:MaxDirectMemorySize=4g -cp uber-rides/build/libs/uber-rides-jmh.jar
+ * com.uber.sdk.rides.client.cache.EstimateCacheGcBenchmark 2000000 30}, where the arguments are the number of
+ * entries and the seconds of churn per backend.
+ */
+public final class EstimateCacheGcBenchmark {
+
+    private static final List<Long> pauses = Collections.synchronizedList(new ArrayList<Long>());
+
+    private EstimateCacheGcBenchmark() {}
+
+    public static void main(String[] args) throws Exception {
+        int entries = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+        long seconds = args.length > 1 ? Long.parseLong(args[1]) : 30;
+        recordPauses();
+
+        for (String backend : new String[] {"heap", "offHeap"}) {
+            long baseline = usedHeapAfterGc();
+            Cache<String, PriceEstimatesResponse> cache = EstimateCacheBenchmark.createCache(backend, entries);
+            for (int i = 0; i < entries; i++) {
+                cache.put(EstimateCacheBenchmark.key(i), EstimateCacheBenchmark.createResponse(i));
+            }
+            long retained = usedHeapAfterGc() - baseline;
+
+            pauses.clear();
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+            long operations = 0;
+            while (System.nanoTime() < deadline) {
+                int i = ThreadLocalRandom.current().nextInt(entries);
+                if ((operations & 7) == 0) {
+                    cache.put(EstimateCacheBenchmark.key(i), EstimateCacheBenchmark.createResponse(i));
+                } else {
+                    cache.getIfPresent(EstimateCacheBenchmark.key(i));
+                }
+                operations++;
+            }
+
+            List<Long> observed = new ArrayList<>(pauses);
+            Collections.sort(observed);
+            System.out.printf("%-8s entries=%d retainedHeapMb=%d operations=%d gcPauses=%d p50Ms=%d p99Ms=%d maxMs=%d%n",
+                    backend,
+                    entries,
+                    retained / (1024 * 1024),
+                    operations,
+                    observed.size(),
+                    percentile(observed, 0.50),
+                    percentile(observed, 0.99),
+                    observed.isEmpty() ? 0 : observed.get(observed.size() - 1));
+
+            cache.invalidateAll();
+        }
+    }
+
+    private static void recordPauses() {
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            ((NotificationEmitter) collector).addNotificationListener(new NotificationListener() {
+                @Override
+                public void handleNotification(Notification notification, Object handback) {
+                    if (GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION
+                            .equals(notification.getType())) {
+                        GarbageCollectionNotificationInfo info = GarbageCollectionNotificationInfo
+                                .from((CompositeData) notification.getUserData());
+                        pauses.add(info.getGcInfo().getDuration());
+                    }
+                }
+            }, null, null);
+        }
+    }
+
+    private static long usedHeapAfterGc() throws InterruptedException {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(100);
+        }
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+
+    private static long percentile(List<Long> sorted, double percentile) {
+        if (sorted.isEmpty()) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile * sorted.size()) - 1;
+        return sorted.get(Math.max(0, Math.min(index, sorted.size() - 1)));
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2016 Uber Technologies, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.uber.sdk.rides.client.error;
+
+import com.squareup.moshi.JsonAdapter;
+import com.squareup.moshi.JsonDataException;
+import com.squareup.moshi.Moshi;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares {@link ErrorParser} against parsing each error body twice with freshly built reflective adapters, as it
+ * used to. The bodies are those of {@code mockresponses/simple_error_body} and {@code mockresponses/surge_error_body},
+ * plus one the parser does not know. Run with {@code ./gradlew :uber-rides:jmh} and add {@code -prof gc} to the JMH
+ * arguments to see allocation rates.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ErrorParserBenchmark {
+
+    static final String COMPATIBILITY = "{\"message\":\"Unable to find product notAProductId\",\"code\":\"not_found\"}";
+    static final String SURGE = "{\"meta\":{\"surge_confirmation\":{\"href\":\"https:\\/\\/api.uber.com\\/v1\\/"
+            + "surge-confirmations\\/e100a670\",\"surge_confirmation_id\":\"e100a670\"}},\"errors\":[{\"status\": 409,"
+            + "\"code\": \"surge\",\"title\": \"Surge pricing is currently in effect for this product.\"}]}";
+    static final String UNKNOWN = "{\"error\":\"This is not a supported Error\",\"random\":\"random field\"}";
+
+    @Param({"compatibility", "surge", "unknown"})
+    String error;
+
+    String body;
+
+    @Setup
+    public void setUp() {
+        switch (error) {
+            case "compatibility":
+                body = COMPATIBILITY;
+                break;
+            case "surge":
+                body = SURGE;
+                break;
+            default:
+                body = UNKNOWN;
+        }
+    }
+
+    @Benchmark
+    public ApiError parse() {
+        return ErrorParser.parseError(body, 409, "Conflict");
+    }
+
+    @Benchmark
+    public ApiError parseTwice() {
+        Moshi moshi = new Moshi.Builder().build();
+        JsonAdapter<CompatibilityApiError> compatibilityAdapter =
+                moshi.adapter(CompatibilityApiError.class).failOnUnknown();
+        try {
+            return new ApiError(compatibilityAdapter.fromJson(body), 409);
+        } catch (IOException | JsonDataException exception) {
+            // Not a compatibility error, try the current schema.
+        }
+
+        JsonAdapter<ApiError> apiErrorAdapter = moshi.adapter(ApiError.class).failOnUnknown();
+        try {
+            return apiErrorAdapter.fromJson(body);
+        } catch (IOException | JsonDataException exception) {
+            return new ApiError(null, 409, "Unknown Error");
+        }
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2016 Uber Technologies, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.uber.sdk.rides.client.model;
+
+import com.squareup.moshi.FromJson;
+import com.squareup.moshi.JsonAdapter;
+import com.squareup.moshi.Moshi;
+import com.squareup.moshi.ToJson;
+import com.uber.sdk.core.client.internal.BigDecimalAdapter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nullable;
+
+/**
+ * Compares decoding a {@link PriceEstimatesResponse} with {@link BigDecimalAdapter} against the adapter it replaced,
+ * which read each amount as a {@code float} and converted it through its {@code String} form. Run with
+ * {@code ./gradlew :uber-rides:jmh} and add {@code -prof gc} to the JMH arguments to compare
+ * {@code gc.alloc.rate.norm}, the bytes allocated per decode.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class BigDecimalAdapterBenchmark {
+
+    @Param({"float", "exact"})
+    String decimals;
+
+    String prices;
+    JsonAdapter<PriceEstimatesResponse> pricesAdapter;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Object decimalAdapter = "exact".equals(decimals) ? new BigDecimalAdapter() : new FloatBigDecimalAdapter();
+        Moshi moshi = new Moshi.Builder().add(decimalAdapter).add(ModelAdapters.FACTORY).build();
+        pricesAdapter = moshi.adapter(PriceEstimatesResponse.class);
+        prices = ModelAdapterBenchmark.prices(8);
+    }
+
+    @Benchmark
+    public PriceEstimatesResponse decodePrices() throws IOException {
+        return pricesAdapter.fromJson(prices);
+    }
+
+    static final class FloatBigDecimalAdapter {
+
+        @ToJson
+        float toJson(BigDecimal bigDecimal) {
+            return bigDecimal.floatValue();
+        }
+
+        @FromJson
+        BigDecimal fromJson(@Nullable Float value) {
+            return value != null ? new BigDecimal(value.toString()) : null;
+        }
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2016 Uber Technologies, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.uber.sdk.rides.client.model;
+
+import com.squareup.moshi.JsonAdapter;
+import com.squareup.moshi.Moshi;
+import com.uber.sdk.core.client.internal.BigDecimalAdapter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import okio.Buffer;
+
+/**
+ * Compares polling a ride for its status and location with the eager adapter and with {@link LazyModelDecoder}.
+ * Run with {@code ./gradlew :uber-rides:jmh} and add {@code -prof gc} to the JMH arguments to see allocation rates.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class LazyModelDecoderBenchmark {
+
+    byte[] ride;
+    JsonAdapter<Ride> rideAdapter;
+    LazyModelDecoder decoder;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Moshi moshi = new Moshi.Builder().add(new BigDecimalAdapter()).add(ModelAdapters.FACTORY).build();
+        ride = ModelAdapterBenchmark.RIDE.getBytes(StandardCharsets.UTF_8);
+        rideAdapter = moshi.adapter(Ride.class);
+        decoder = LazyModelDecoder.create(moshi);
+    }
+
+    @Benchmark
+    public Location pollEager() throws IOException {
+        return poll(rideAdapter.fromJson(new Buffer().write(ride)));
+    }
+
+    @Benchmark
+    public Location pollLazy() throws IOException {
+        return poll(decoder.decodeRide(ride));
+    }
+
+    private static Location poll(Ride ride) {
+        return ride.getStatus() == Ride.Status.ACCEPTED ? ride.getLocation() : null;
+    }
+}
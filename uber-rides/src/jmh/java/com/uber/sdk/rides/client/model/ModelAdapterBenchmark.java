@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2016 Uber Technologies, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.uber.sdk.rides.client.model;
+
+import com.squareup.moshi.JsonAdapter;
+import com.squareup.moshi.Moshi;
+import com.uber.sdk.core.client.internal.JsonRegistry;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures decoding and encoding models with the adapters of the shared {@link Moshi} of {@link ModelAdapters}.
+ * {@link #firstDecode()} also builds the adapters, which is what each response cost when every service and parser
+ * built a {@link Moshi} of its own. Run with {@code ./gradlew :uber-rides:jmh} and add {@code -prof gc} to the JMH arguments to see allocation rates.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ModelAdapterBenchmark {
+
+    static final String RIDE = "{\"product_id\":\"17cb78a7-b672-4d34-a288-a6c6e44d5315\","
+            + "\"request_id\":\"a1111c8c-c720-46c3-8534-2fcdd730040d\",\"status\":\"accepted\","
+            + "\"surge_multiplier\":1.0,\"shared\":false,"
+            + "\"driver\":{\"phone_number\":\"(555)555-5555\",\"sms_number\":\"(555)555-5555\",\"rating\":5,"
+            + "\"picture_url\":\"https://d1w2poirtb3as9.cloudfront.net/img.jpeg\",\"name\":\"Bob\"},"
+            + "\"vehicle\":{\"make\":\"Bugatti\",\"model\":\"Veyron\",\"license_plate\":\"I<3Uber\","
+            + "\"picture_url\":\"https://d1w2poirtb3as9.cloudfront.net/car.jpeg\"},"
+            + "\"location\":{\"latitude\":37.3382129093,\"longitude\":-121.8863287568,\"bearing\":328},"
+            + "\"pickup\":{\"latitude\":37.3303463,\"longitude\":-121.8890484,\"eta\":5},"
+            + "\"destination\":{\"latitude\":37.6213129,\"longitude\":-122.3789554,\"eta\":19}}";
+
+    String prices;
+    String history;
+    JsonAdapter<Ride> rideAdapter;
+    JsonAdapter<PriceEstimatesResponse> pricesAdapter;
+    JsonAdapter<UserActivityPage> historyAdapter;
+    Ride ride;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        Moshi moshi = ModelAdapters.moshi();
+        rideAdapter = moshi.adapter(Ride.class);
+        pricesAdapter = moshi.adapter(PriceEstimatesResponse.class);
+        historyAdapter = moshi.adapter(UserActivityPage.class);
+        prices = prices(8);
+        history = history(50);
+        ride = rideAdapter.fromJson(RIDE);
+    }
+
+    @Benchmark
+    public Ride decodeRide() throws IOException {
+        return rideAdapter.fromJson(RIDE);
+    }
+
+    @Benchmark
+    public PriceEstimatesResponse decodePrices() throws IOException {
+        return pricesAdapter.fromJson(prices);
+    }
+
+    @Benchmark
+    public UserActivityPage decodeHistory() throws IOException {
+        return historyAdapter.fromJson(history);
+    }
+
+    @Benchmark
+    public String encodeRide() {
+        return rideAdapter.toJson(ride);
+    }
+
+    @Benchmark
+    public Ride firstDecode() throws IOException {
+        return JsonRegistry.newBuilder().build().adapter(Ride.class).fromJson(RIDE);
+    }
+
+    static String prices(int count) {
+        StringBuilder json = new StringBuilder("{\"prices\":[");
+        for (int i = 0; i < count; i++) {
+            json.append(i > 0 ? "," : "")
+                    .append("{\"product_id\":\"26546650-e557-4a7b-86e7-6a394244524").append(i).append("\",")
+                    .append("\"currency_code\":\"USD\",\"display_name\":\"uberX\",\"estimate\":\"$15-19\",")
+                    .append("\"low_estimate\":15.25,\"high_estimate\":19.75,\"surge_multiplier\":1.0,")
+                    .append("\"duration\":1080,\"distance\":5.34}");
+        }
+        return json.append("]}").toString();
+    }
+
+    static String history(int count) {
+        StringBuilder json = new StringBuilder("{\"offset\":0,\"limit\":").append(count)
+                .append(",\"count\":").append(count).append(",\"history\":[");
+        for (int i = 0; i < count; i++) {
+            json.append(i > 0 ? "," : "")
+                    .append("{\"status\":\"completed\",\"distance\":1.64691465,\"request_time\":1428876188,")
+                    .append("\"start_time\":1428876374,\"end_time\":1428876927,")
+                    .append("\"request_id\":\"37d57a99-2647-4114-9dd2-c43bccf4c30").append(i).append("\",")
+                    .append("\"product_id\":\"a1111c8c-c720-46c3-8534-2fcdd730040d\",")
+                    .append("\"start_city\":{\"latitude\":37.7749295,\"display_name\":\"San Francisco\",")
+                    .append("\"longitude\":-122.4194155},\"fare\":12.5,\"currency_code\":\"USD\"}");
+        }
+        return json.append("]}").toString();
+    }
+}
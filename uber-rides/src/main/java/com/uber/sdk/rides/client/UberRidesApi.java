@@ -25,9 +25,13 @@ package com.uber.sdk.rides.client;
 import com.squareup.moshi.Moshi;
 import com.uber.sdk.core.client.Session;
 import com.uber.sdk.core.client.internal.ApiInterceptor;
-import com.uber.sdk.core.client.internal.BigDecimalAdapter;
 import com.uber.sdk.core.client.internal.RefreshAuthenticator;
+import com.uber.sdk.core.client.utils.StringCanonicalizer;
+import com.uber.sdk.rides.client.model.ModelAdapters;
+import com.uber.sdk.rides.client.services.ElementStreamConverterFactory;
+import com.uber.sdk.rides.client.services.LazyModelConverterFactory;
 import com.uber.sdk.rides.client.services.RidesService;
+import com.uber.sdk.rides.client.services.RidesStreamingService;
 
 import okhttp3.OkHttpClient;
 import okhttp3.logging.HttpLoggingInterceptor;
@@ -48,6 +52,8 @@ public class UberRidesApi {
         HttpLoggingInterceptor.Level logLevel;
         HttpLoggingInterceptor.Logger logger;
         OkHttpClient client;
+        boolean lazyDecoding;
+        StringCanonicalizer stringCanonicalizer;
 
 
         Builder(@Nonnull Session session) {
@@ -86,6 +92,30 @@ public class UberRidesApi {
             return this;
         }
 
+        /**
+         * Sets whether rides and ride estimates decode their nested objects, such as the driver and vehicle of a
+         * ride, only when their getters are first called. This saves decoding them when polling a ride for its
+         * status and location. A {@code RideTracker} compares the JSON of nested objects before decoding them, so it
+         * only decodes those that changed, while listeners still decode those they read. Until then, each model
+         * keeps the JSON of its whole response. Optional and defaults to {@code false}.
+         */
+        @Nonnull
+        public Builder setLazyDecoding(boolean lazyDecoding) {
+            this.lazyDecoding = lazyDecoding;
+            return this;
+        }
+
+        /**
+         * Sets a {@link StringCanonicalizer} for the strings decoded from responses, so that values repeated across
+         * responses share one instance. The same canonicalizer can be set on several builders.
+         * Optional and defaults to none.
+         */
+        @Nonnull
+        public Builder setStringCanonicalizer(@Nonnull StringCanonicalizer stringCanonicalizer) {
+            this.stringCanonicalizer = stringCanonicalizer;
+            return this;
+        }
+
         /**
          * Create the {@link UberRidesApi} to be used.
          * @return {@link UberRidesApi}
@@ -129,9 +159,16 @@ public class UberRidesApi {
         }
 
         Retrofit createRetrofit(OkHttpClient client, Session session) {
-            Moshi moshi = new Moshi.Builder().add(new BigDecimalAdapter()).build();
-
-            return new Retrofit.Builder()
+            Moshi moshi = stringCanonicalizer != null
+                    ? ModelAdapters.moshi(stringCanonicalizer)
+                    : ModelAdapters.moshi();
+
+            Retrofit.Builder builder = new Retrofit.Builder()
+                    .addConverterFactory(ElementStreamConverterFactory.create(moshi));
+            if (lazyDecoding) {
+                builder.addConverterFactory(LazyModelConverterFactory.create(moshi));
+            }
+            return builder
                     .addConverterFactory(MoshiConverterFactory.create(moshi))
                     .baseUrl(session.getAuthenticator().getSessionConfiguration().getEndpointHost())
                     .client(client)
@@ -162,4 +199,14 @@ public class UberRidesApi {
     public RidesService createService() {
         return retrofit.create(RidesService.class);
     }
+
+    /**
+     * Get the {@link RidesStreamingService} to use with the Uber API for large lists.
+     * Consumers should cache and reuse this object.
+     *
+     * @return {@link RidesStreamingService}
+     */
+    public RidesStreamingService createStreamingService() {
+        return retrofit.create(RidesStreamingService.class);
+    }
 }
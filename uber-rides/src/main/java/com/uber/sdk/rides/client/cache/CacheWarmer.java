@@ -0,0 +1,277 @@
+/*
+ * Copyright (c) 2016 Uber Technologies, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.uber.sdk.rides.client.cache;
+
+import com.uber.sdk.rides.client.model.Location;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import retrofit2.Response;
+
+import static com.uber.sdk.core.client.utils.Preconditions.checkNotNull;
+import static com.uber.sdk.core.client.utils.Preconditions.checkState;
+
+/**
+ * Fills a {@link ProductCache} and an {@link EstimateCache} for a list of hot locations, so that an instance does
+ * not send its first minutes of traffic upstream after a deploy.
+ * <p>
+ * Locations are usually read from a manifest with {@link #readManifest(Reader)}. For each one the products and the
+ * pickup time estimates of all products are fetched unless already cached, on at most {@code parallelism} threads and
+ * at no more than {@code requestsPerSecond} requests per second. Warming runs in the background:
+ * <pre>{@code
+ * CacheWarmer warmer = new CacheWarmer(productCache, estimateCache, 8, 50);
+ * warmer.warmUp(CacheWarmer.readManifest(reader), null).join();
+ * // mark the instance ready
+ * }</pre>
+ */
+public class CacheWarmer {
+
+    private static final String GEOHASH_ALPHABET = "0123456789bcdefghjkmnpqrstuvwxyz";
+
+    /**
+     * Notified after each location is warmed, on the thread that warmed it.
+     */
+    public interface Listener {
+
+        /**
+         * @param completed the number of locations warmed so far, including failed ones.
+         * @param failed the number of locations for which a request failed.
+         * @param total the number of locations to warm.
+         */
+        void onProgress(int completed, int failed, int total);
+    }
+
+    /**
+     * The outcome of warming a list of locations.
+     */
+    public static final class Result {
+
+        private final int total;
+        private final int failed;
+
+        Result(int total, int failed) {
+            this.total = total;
+            this.failed = failed;
+        }
+
+        /**
+         * @return the number of locations that were warmed.
+         */
+        public int getTotal() {
+            return total;
+        }
+
+        /**
+         * @return the number of locations for which a request failed or was not successful.
+         */
+        public int getFailed() {
+            return failed;
+        }
+    }
+
+    private final ProductCache productCache;
+    private final EstimateCache estimateCache;
+    private final int parallelism;
+    private final double requestsPerSecond;
+
+    /**
+     * @param productCache the cache to fill with products.
+     * @param estimateCache the cache to fill with pickup time estimates.
+     * @param parallelism the maximum number of locations warmed at once.
+     * @param requestsPerSecond the maximum rate of requests sent to the API.
+     */
+    public CacheWarmer(@Nonnull ProductCache productCache,
+                       @Nonnull EstimateCache estimateCache,
+                       int parallelism,
+                       double requestsPerSecond) {
+        checkState(parallelism > 0, "Parallelism must be positive.");
+        checkState(requestsPerSecond > 0, "Requests per second must be positive.");
+        this.productCache = checkNotNull(productCache, "Product cache must not be null.");
+        this.estimateCache = checkNotNull(estimateCache, "Estimate cache must not be null.");
+        this.parallelism = parallelism;
+        this.requestsPerSecond = requestsPerSecond;
+    }
+
+    /**
+     * Starts warming the caches in the background. Cancelling the returned future stops the remaining requests.
+     *
+     * @param locations the locations to warm.
+     * @param listener notified of progress, or {@code null}.
+     * @return a future completed once every location has been warmed.
+     */
+    @Nonnull
+    public CompletableFuture<Result> warmUp(@Nonnull List<Location> locations, @Nullable final Listener listener) {
+        final int total = locations.size();
+        final AtomicInteger completed = new AtomicInteger();
+        final AtomicInteger failed = new AtomicInteger();
+        final RateLimiter rateLimiter = new RateLimiter(requestsPerSecond);
+        final ExecutorService executor = Executors.newFixedThreadPool(parallelism, new WarmerThreadFactory());
+
+        List<CompletableFuture<Void>> tasks = new ArrayList<>(total);
+        for (final Location location : locations) {
+            tasks.add(CompletableFuture.runAsync(() -> {
+                if (!warm(location, rateLimiter)) {
+                    failed.incrementAndGet();
+                }
+                int done = completed.incrementAndGet();
+                if (listener != null) {
+                    listener.onProgress(done, failed.get(), total);
+                }
+            }, executor));
+        }
+        executor.shutdown();
+
+        final CompletableFuture<Result> result = CompletableFuture.allOf(tasks.toArray(new CompletableFuture<?>[0]))
+                .thenApply(ignored -> new Result(total, failed.get()));
+        result.whenComplete((value, error) -> {
+            if (result.isCancelled()) {
+                executor.shutdownNow();
+            }
+        });
+        return result;
+    }
+
+    private boolean warm(Location location, RateLimiter rateLimiter) {
+        float latitude = location.getLatitude();
+        float longitude = location.getLongitude();
+        try {
+            // The caches only acquire a permit for the requests they send, so cached locations cost none.
+            Response<?> products = productCache.getProducts(latitude, longitude, rateLimiter);
+            Response<?> estimates = estimateCache.getPickupTimeEstimate(latitude, longitude, null, rateLimiter);
+            return products.isSuccessful() && estimates.isSuccessful();
+        } catch (IOException | RuntimeException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Reads a manifest of hot locations with one location per line, either as {@code latitude,longitude} in decimal
+     * notation or as a geohash, which is warmed at the center of its cell. Blank lines and lines starting with
+     * {@code #} are ignored.
+     *
+     * @param reader the manifest.
+     * @return the locations, in manifest order.
+     * @throws IOException if the manifest could not be read.
+     * @throws IllegalArgumentException if a line is neither a coordinate pair nor a geohash.
+     */
+    @Nonnull
+    public static List<Location> readManifest(@Nonnull Reader reader) throws IOException {
+        BufferedReader lines = new BufferedReader(reader);
+        List<Location> locations = new ArrayList<>();
+        String line;
+        int lineNumber = 0;
+        while ((line = lines.readLine()) != null) {
+            lineNumber++;
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+
+            try {
+                locations.add(parseLocation(line));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Invalid location on line " + lineNumber + ": " + line, e);
+            }
+        }
+        return locations;
+    }
+
+    private static Location parseLocation(String line) {
+        int comma = line.indexOf(',');
+        if (comma < 0) {
+            return decodeGeohash(line);
+        }
+
+        float latitude = Float.parseFloat(line.substring(0, comma).trim());
+        float longitude = Float.parseFloat(line.substring(comma + 1).trim());
+        if (Math.abs(latitude) > 90 || Math.abs(longitude) > 180) {
+            throw new IllegalArgumentException("Coordinates out of range.");
+        }
+        return new Location(latitude, longitude);
+    }
+
+    /**
+     * @param geohash a geohash of any precision.
+     * @return the center of the geohash cell.
+     */
+    @Nonnull
+    static Location decodeGeohash(@Nonnull String geohash) {
+        double minLatitude = -90;
+        double maxLatitude = 90;
+        double minLongitude = -180;
+        double maxLongitude = 180;
+        boolean longitudeBit = true;
+
+        for (int i = 0; i < geohash.length(); i++) {
+            int value = GEOHASH_ALPHABET.indexOf(Character.toLowerCase(geohash.charAt(i)));
+            if (value < 0) {
+                throw new IllegalArgumentException("Invalid geohash character: " + geohash.charAt(i));
+            }
+
+            for (int bit = 4; bit >= 0; bit--) {
+                boolean set = ((value >> bit) & 1) == 1;
+                if (longitudeBit) {
+                    double middle = (minLongitude + maxLongitude) / 2;
+                    if (set) {
+                        minLongitude = middle;
+                    } else {
+                        maxLongitude = middle;
+                    }
+                } else {
+                    double middle = (minLatitude + maxLatitude) / 2;
+                    if (set) {
+                        minLatitude = middle;
+                    } else {
+                        maxLatitude = middle;
+                    }
+                }
+                longitudeBit = !longitudeBit;
+            }
+        }
+        return new Location((float) ((minLatitude + maxLatitude) / 2), (float) ((minLongitude + maxLongitude) / 2));
+    }
+
+    private static class WarmerThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(@Nonnull Runnable runnable) {
+            Thread thread = new Thread(runnable, "UberCacheWarmer-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2016 Uber Technologies, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.uber.sdk.rides.client.cache;
+
+import com.uber.sdk.core.cache.Cache;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import retrofit2.Response;
+
+/**
+ * Serves API responses from a {@link Cache}, fetching missing keys through
+ * {@link Cache#get(Object, com.uber.sdk.core.cache.CacheLoader, long, TimeUnit)}, which shares one fetch between
+ * concurrent misses of the same key in the caches of the SDK.
+ */
+final class CachedFetch {
+
+    /**
+     * Sends the request of a cache miss.
+     *
+     * @param <T> the type of the response body.
+     */
+    interface Fetcher<T> {
+
+        @Nonnull
+        Response<T> fetch() throws IOException;
+    }
+
+    private CachedFetch() {
+    }
+
+    /**
+     * @param cache the cache to serve the response from.
+     * @param key the key of the response.
+     * @param ttlMillis how long a fetched response may be served from the cache.
+     * @param rateLimiter acquired before the request is sent, or {@code null}.
+     * @param fetcher sends the request on a miss.
+     * @return the cached body as a successful {@link Response}, or the response of the API, which is only cached if
+     * successful.
+     * @throws IOException if the request failed.
+     */
+    @Nonnull
+    static <T> Response<T> get(@Nonnull Cache<String, T> cache,
+                               @Nonnull String key,
+                               long ttlMillis,
+                               @Nullable RateLimiter rateLimiter,
+                               @Nonnull Fetcher<T> fetcher) throws IOException {
+        AtomicReference<Response<T>> fetched = new AtomicReference<>();
+        T value = cache.get(key, ignored -> {
+            Response<T> response = fetch(rateLimiter, fetcher);
+            fetched.set(response);
+            return response.isSuccessful() ? response.body() : null;
+        }, ttlMillis, TimeUnit.MILLISECONDS);
+
+        Response<T> response = fetched.get();
+        if (response != null) {
+            return response;
+        }
+        if (value != null) {
+            return Response.success(value);
+        }
+        // Another thread fetched the key, and its response was not successful.
+        return fetch(rateLimiter, fetcher);
+    }
+
+    private static <T> Response<T> fetch(@Nullable RateLimiter rateLimiter, Fetcher<T> fetcher) throws IOException {
+        if (rateLimiter != null) {
+            try {
+                rateLimiter.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting to send the request.");
+            }
+        }
+        return fetcher.fetch();
+    }
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright (c) 2016 Uber Technologies, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.uber.sdk.rides.client.cache;
+
+import com.uber.sdk.core.cache.Cache;
+import com.uber.sdk.core.cache.CacheBuilder;
+import com.uber.sdk.core.cache.CacheSnapshotter;
+import com.uber.sdk.rides.client.model.PriceEstimatesResponse;
+import com.uber.sdk.rides.client.model.TimeEstimatesResponse;
+import com.uber.sdk.rides.client.services.RidesService;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import retrofit2.Response;
+
+import static com.uber.sdk.core.client.utils.Preconditions.checkNotNull;
+import static com.uber.sdk.core.client.utils.Preconditions.checkState;
+
+/**
+ * Caches price and pickup time estimates by location for a fixed time to live.
+ * <p>
+ * By default estimates are kept on the heap, in {@link Cache}s bounded to {@value #DEFAULT_MAXIMUM_SIZE} entries
+ * each. To cache millions of them without adding to the heap, use {@link OffHeapCache}s built with
+ * {@link EstimateCodecs}:
+ * <pre>{@code
+ * EstimateCache cache = new EstimateCache(service,
+ *         new OffHeapCache<>(EstimateCodecs.PRICE_ESTIMATES, 4 * 1024 * 1024, 64),
+ *         new OffHeapCache<>(EstimateCodecs.TIME_ESTIMATES, 4 * 1024 * 1024, 16),
+ *         1, TimeUnit.MINUTES);
+ * }</pre>
+ * With the caches of {@link com.uber.sdk.core.cache.CacheBuilder} and with {@link OffHeapCache}, concurrent misses
+ * for the same key send a single request. Responses that are not successful are returned as is and never cached.
+ */
+public class EstimateCache {
+
+    static final int DEFAULT_MAXIMUM_SIZE = 10000;
+
+    private final RidesService service;
+    private final Cache<String, PriceEstimatesResponse> priceEstimates;
+    private final Cache<String, TimeEstimatesResponse> timeEstimates;
+    private final long ttlMillis;
+
+    /**
+     * @param service the service used to fetch estimates on a cache miss.
+     * @param ttl how long an estimate may be served from the cache.
+     * @param unit the unit of {@code ttl}.
+     */
+    public EstimateCache(@Nonnull RidesService service, long ttl, @Nonnull TimeUnit unit) {
+        this(service,
+                new CacheBuilder<String, PriceEstimatesResponse>().setMaximumSize(DEFAULT_MAXIMUM_SIZE).build(),
+                new CacheBuilder<String, TimeEstimatesResponse>().setMaximumSize(DEFAULT_MAXIMUM_SIZE).build(),
+                ttl,
+                unit);
+    }
+
+    /**
+     * @param service the service used to fetch estimates on a cache miss.
+     * @param priceEstimates the cache holding price estimates.
+     * @param timeEstimates the cache holding pickup time estimates.
+     * @param ttl how long an estimate may be served from the cache.
+     * @param unit the unit of {@code ttl}.
+     */
+    public EstimateCache(@Nonnull RidesService service,
+                         @Nonnull Cache<String, PriceEstimatesResponse> priceEstimates,
+                         @Nonnull Cache<String, TimeEstimatesResponse> timeEstimates,
+                         long ttl,
+                         @Nonnull TimeUnit unit) {
+        checkState(ttl > 0, "Time to live must be positive.");
+        this.service = checkNotNull(service, "Service must not be null.");
+        this.priceEstimates = checkNotNull(priceEstimates, "Price estimate cache must not be null.");
+        this.timeEstimates = checkNotNull(timeEstimates, "Time estimate cache must not be null.");
+        this.ttlMillis = unit.toMillis(ttl);
+    }
+
+    /**
+     * Gets price estimates, calling {@link RidesService#getPriceEstimates(float, float, float, float)} only if they
+     * are not cached.
+     *
+     * @param startLatitude Latitude component of start location.
+     * @param startLongitude Longitude component of start location.
+     * @param endLatitude Latitude component of end location.
+     * @param endLongitude Longitude component of end location.
+     * @return the cached estimates as a successful {@link Response}, or the response of the API.
+     * @throws IOException if the estimates had to be fetched and the request failed.
+     */
+    @Nonnull
+    public Response<PriceEstimatesResponse> getPriceEstimates(float startLatitude,
+                                                              float startLongitude,
+                                                              float endLatitude,
+                                                              float endLongitude) throws IOException {
+        return CachedFetch.get(priceEstimates,
+                priceKey(startLatitude, startLongitude, endLatitude, endLongitude),
+                ttlMillis,
+                null,
+                () -> service.getPriceEstimates(startLatitude, startLongitude, endLatitude, endLongitude).execute());
+    }
+
+    /**
+     * Gets pickup time estimates, calling {@link RidesService#getPickupTimeEstimate(float, float, String)} only if
+     * they are not cached.
+     *
+     * @param startLatitude Latitude component of start location.
+     * @param startLongitude Longitude component of start location.
+     * @param productId Unique identifier representing a specific product, or {@code null} for all products.
+     * @return the cached estimates as a successful {@link Response}, or the response of the API.
+     * @throws IOException if the estimates had to be fetched and the request failed.
+     */
+    @Nonnull
+    public Response<TimeEstimatesResponse> getPickupTimeEstimate(float startLatitude,
+                                                                 float startLongitude,
+                                                                 @Nullable String productId) throws IOException {
+        return getPickupTimeEstimate(startLatitude, startLongitude, productId, null);
+    }
+
+    /**
+     * @param rateLimiter acquired before the estimates are fetched, or {@code null}.
+     */
+    @Nonnull
+    Response<TimeEstimatesResponse> getPickupTimeEstimate(float startLatitude,
+                                                          float startLongitude,
+                                                          @Nullable String productId,
+                                                          @Nullable RateLimiter rateLimiter) throws IOException {
+        return CachedFetch.get(timeEstimates, timeKey(startLatitude, startLongitude, productId), ttlMillis, rateLimiter,
+                () -> service.getPickupTimeEstimate(startLatitude, startLongitude, productId).execute());
+    }
+
+    /**
+     * Registers the cached estimates with a {@link CacheSnapshotter}, so that they survive restarts.
+     *
+     * @param snapshotter the snapshotter to register with.
+     */
+    public void registerSnapshots(@Nonnull CacheSnapshotter snapshotter) {
+        snapshotter.register("priceEstimates", priceEstimates, EstimateCodecs.PRICE_ESTIMATES);
+        snapshotter.register("timeEstimates", timeEstimates, EstimateCodecs.TIME_ESTIMATES);
+    }
+
+    /**
+     * Drops every cached estimate.
+     */
+    public void invalidateAll() {
+        priceEstimates.invalidateAll();
+        timeEstimates.invalidateAll();
+    }
+
+    static String priceKey(float startLatitude, float startLongitude, float endLatitude, float endLongitude) {
+        return startLatitude + "," + startLongitude + "," + endLatitude + "," + endLongitude;
+    }
+
+    static String timeKey(float startLatitude, float startLongitude, @Nullable String productId) {
+        return startLatitude + "," + startLongitude + "," + (productId != null ? productId : "");
+    }
+}
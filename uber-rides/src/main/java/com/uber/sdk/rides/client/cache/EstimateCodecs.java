@@ -0,0 +1,227 @@
+/*
+ * Copyright (c) 2016 Uber Technologies, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.uber.sdk.rides.client.cache;
+
+import com.uber.sdk.core.cache.Codec;
+import com.uber.sdk.rides.client.model.PriceEstimate;
+import com.uber.sdk.rides.client.model.PriceEstimatesResponse;
+import com.uber.sdk.rides.client.model.TimeEstimate;
+import com.uber.sdk.rides.client.model.TimeEstimatesResponse;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * Compact binary {@link Codec}s for estimate responses. Nullable numbers are stored as primitives
+ * behind a presence bit, and prices as an unscaled {@code long} with its scale whenever they fit.
+ */
+public final class EstimateCodecs {
+
+    /**
+     * Codec for {@link PriceEstimatesResponse}.
+     */
+    public static final Codec<PriceEstimatesResponse> PRICE_ESTIMATES =
+            new Codec<PriceEstimatesResponse>() {
+                @Override
+                public void encode(@Nonnull PriceEstimatesResponse value, @Nonnull ByteBuffer target) {
+                    List<PriceEstimate> prices = value.getPrices();
+                    if (prices == null) {
+                        target.putInt(-1);
+                        return;
+                    }
+                    target.putInt(prices.size());
+                    for (PriceEstimate price : prices) {
+                        encodePrice(price, target);
+                    }
+                }
+
+                @Nonnull
+                @Override
+                public PriceEstimatesResponse decode(@Nonnull ByteBuffer source) {
+                    int count = source.getInt();
+                    if (count < 0) {
+                        return new PriceEstimatesResponse(null);
+                    }
+                    List<PriceEstimate> prices = new ArrayList<>(count);
+                    for (int i = 0; i < count; i++) {
+                        prices.add(decodePrice(source));
+                    }
+                    return new PriceEstimatesResponse(prices);
+                }
+            };
+
+    /**
+     * Codec for {@link TimeEstimatesResponse}.
+     */
+    public static final Codec<TimeEstimatesResponse> TIME_ESTIMATES =
+            new Codec<TimeEstimatesResponse>() {
+                @Override
+                public void encode(@Nonnull TimeEstimatesResponse value, @Nonnull ByteBuffer target) {
+                    List<TimeEstimate> times = value.getTimes();
+                    if (times == null) {
+                        target.putInt(-1);
+                        return;
+                    }
+                    target.putInt(times.size());
+                    for (TimeEstimate time : times) {
+                        putString(target, time.getProductId());
+                        putString(target, time.getDisplayName());
+                        Integer estimate = time.getEstimate();
+                        target.put(estimate != null ? PRESENT : ABSENT);
+                        target.putInt(estimate != null ? estimate : 0);
+                    }
+                }
+
+                @Nonnull
+                @Override
+                public TimeEstimatesResponse decode(@Nonnull ByteBuffer source) {
+                    int count = source.getInt();
+                    if (count < 0) {
+                        return new TimeEstimatesResponse(null);
+                    }
+                    List<TimeEstimate> times = new ArrayList<>(count);
+                    for (int i = 0; i < count; i++) {
+                        String productId = getString(source);
+                        String displayName = getString(source);
+                        boolean hasEstimate = source.get() == PRESENT;
+                        int estimate = source.getInt();
+                        times.add(new TimeEstimate(productId, displayName, hasEstimate ? estimate : null));
+                    }
+                    return new TimeEstimatesResponse(times);
+                }
+            };
+
+    private static final byte ABSENT = 0;
+    private static final byte PRESENT = 1;
+
+    private static final byte DECIMAL_NULL = 0;
+    private static final byte DECIMAL_COMPACT = 1;
+    private static final byte DECIMAL_STRING = 2;
+
+    private static final int HAS_SURGE_MULTIPLIER = 1;
+    private static final int HAS_DURATION = 1 << 1;
+    private static final int HAS_DISTANCE = 1 << 2;
+
+    private EstimateCodecs() {}
+
+    static void encodePrice(PriceEstimate price, ByteBuffer target) {
+        putString(target, price.getProductId());
+        putString(target, price.getCurrencyCode());
+        putString(target, price.getDisplayName());
+        putString(target, price.getEstimate());
+        putDecimal(target, price.getLowEstimate());
+        putDecimal(target, price.getHighEstimate());
+
+        Float surgeMultiplier = price.getSurgeMultiplier();
+        Integer duration = price.getDuration();
+        Float distance = price.getDistance();
+        int flags = (surgeMultiplier != null ? HAS_SURGE_MULTIPLIER : 0)
+                | (duration != null ? HAS_DURATION : 0)
+                | (distance != null ? HAS_DISTANCE : 0);
+        target.put((byte) flags);
+        target.putFloat(surgeMultiplier != null ? surgeMultiplier : 0f);
+        target.putInt(duration != null ? duration : 0);
+        target.putFloat(distance != null ? distance : 0f);
+    }
+
+    static PriceEstimate decodePrice(ByteBuffer source) {
+        String productId = getString(source);
+        String currencyCode = getString(source);
+        String displayName = getString(source);
+        String estimate = getString(source);
+        BigDecimal lowEstimate = getDecimal(source);
+        BigDecimal highEstimate = getDecimal(source);
+
+        int flags = source.get();
+        float surgeMultiplier = source.getFloat();
+        int duration = source.getInt();
+        float distance = source.getFloat();
+        return new PriceEstimate(productId,
+                currencyCode,
+                displayName,
+                estimate,
+                lowEstimate,
+                highEstimate,
+                (flags & HAS_SURGE_MULTIPLIER) != 0 ? surgeMultiplier : null,
+                (flags & HAS_DURATION) != 0 ? duration : null,
+                (flags & HAS_DISTANCE) != 0 ? distance : null);
+    }
+
+    static void putString(ByteBuffer target, @Nullable String value) {
+        if (value == null) {
+            target.putInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        target.putInt(bytes.length);
+        target.put(bytes);
+    }
+
+    @Nullable
+    static String getString(ByteBuffer source) {
+        int length = source.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        source.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    static void putDecimal(ByteBuffer target, @Nullable BigDecimal value) {
+        if (value == null) {
+            target.put(DECIMAL_NULL);
+            return;
+        }
+
+        BigInteger unscaled = value.unscaledValue();
+        if (unscaled.bitLength() < Long.SIZE && value.scale() == (byte) value.scale()) {
+            target.put(DECIMAL_COMPACT);
+            target.put((byte) value.scale());
+            target.putLong(unscaled.longValue());
+        } else {
+            target.put(DECIMAL_STRING);
+            putString(target, value.toString());
+        }
+    }
+
+    @Nullable
+    static BigDecimal getDecimal(ByteBuffer source) {
+        switch (source.get()) {
+            case DECIMAL_COMPACT:
+                int scale = source.get();
+                return BigDecimal.valueOf(source.getLong(), scale);
+            case DECIMAL_STRING:
+                return new BigDecimal(getString(source));
+            default:
+                return null;
+        }
+    }
+}
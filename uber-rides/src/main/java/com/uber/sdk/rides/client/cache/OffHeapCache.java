@@ -0,0 +1,543 @@
+/*
+ * Copyright (c) 2016 Uber Technologies, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.uber.sdk.rides.client.cache;
+
+import com.uber.sdk.core.cache.Cache;
+import com.uber.sdk.core.cache.CacheLoader;
+import com.uber.sdk.core.cache.CacheStats;
+import com.uber.sdk.core.cache.Codec;
+import com.uber.sdk.core.cache.StatsCounter;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import static com.uber.sdk.core.client.utils.Preconditions.checkNotNull;
+import static com.uber.sdk.core.client.utils.Preconditions.checkState;
+
+/**
+ * A cache that keeps its values encoded outside of the Java heap, in direct {@link ByteBuffer} slabs, so that very
+ * large numbers of entries neither grow the heap nor add objects for the garbage collector to trace.
+ * <p>
+ * Records are appended to the current slab. Once every slab is full the oldest slab is recycled and the entries
+ * written to it are evicted, which bounds memory to {@code slabSize * slabCount} bytes. Keys are located through an
+ * open-addressing index made of primitive arrays, and values are decoded by a {@link Codec} only when read.
+ * Expired entries stop being returned right away but keep their space until their slab is recycled.
+ * <p>
+ * Concurrent misses for the same key share a single call of the loader in {@link #get(String, CacheLoader)}.
+ *
+ * @param <V> the type of the cached values.
+ */
+public class OffHeapCache<V> implements Cache<String, V> {
+
+    /**
+     * Record layout: total length (int), key hash (long), expiry time in millis (long), key length in chars
+     * (short), key chars, encoded value.
+     */
+    private static final int LENGTH_OFFSET = 0;
+    private static final int HASH_OFFSET = 4;
+    private static final int EXPIRES_AT_OFFSET = 12;
+    private static final int KEY_LENGTH_OFFSET = 20;
+    private static final int HEADER_SIZE = 22;
+
+    private static final int INITIAL_INDEX_CAPACITY = 1024;
+    private static final int INITIAL_SCRATCH_SIZE = 512;
+
+    private final Codec<V> codec;
+    private final int slabSize;
+    private final ByteBuffer[] slabs;
+    private final int[] slabLimits;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final StatsCounter statsCounter = new StatsCounter();
+    private final ConcurrentHashMap<String, CompletableFuture<V>> loads = new ConcurrentHashMap<>();
+
+    private long[] hashes = new long[INITIAL_INDEX_CAPACITY];
+    private long[] addresses = new long[INITIAL_INDEX_CAPACITY];
+    private int size;
+    private int currentSlab;
+    private ByteBuffer scratch = ByteBuffer.allocate(INITIAL_SCRATCH_SIZE);
+
+    /**
+     * @param codec the {@link Codec} used to write and read values.
+     * @param slabSize the size in bytes of each direct buffer, which also bounds the size of a single entry.
+     * @param slabCount the number of slabs to allocate.
+     */
+    public OffHeapCache(@Nonnull Codec<V> codec, int slabSize, int slabCount) {
+        checkState(slabSize > HEADER_SIZE, "Slab size is too small.");
+        checkState(slabCount > 0, "Slab count must be positive.");
+        this.codec = checkNotNull(codec, "Codec must not be null.");
+        this.slabSize = slabSize;
+        this.slabs = new ByteBuffer[slabCount];
+        this.slabLimits = new int[slabCount];
+        for (int i = 0; i < slabCount; i++) {
+            slabs[i] = ByteBuffer.allocateDirect(slabSize);
+        }
+    }
+
+    @Nullable
+    @Override
+    public V getIfPresent(@Nonnull String key) {
+        long hash = hash(key);
+        lock.readLock().lock();
+        try {
+            int slot = find(hash, key);
+            if (slot < 0) {
+                statsCounter.recordMiss();
+                return null;
+            }
+
+            long address = addresses[slot];
+            ByteBuffer slab = slabs[slabOf(address)];
+            int offset = offsetOf(address);
+            if (slab.getLong(offset + EXPIRES_AT_OFFSET) <= System.currentTimeMillis()) {
+                statsCounter.recordMiss();
+                return null;
+            }
+
+            ByteBuffer value = slab.duplicate();
+            value.limit(offset + slab.getInt(offset + LENGTH_OFFSET));
+            value.position(offset + HEADER_SIZE + key.length() * 2);
+            statsCounter.recordHit();
+            return codec.decode(value);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean containsKey(@Nonnull String key) {
+        long hash = hash(key);
+        lock.readLock().lock();
+        try {
+            int slot = find(hash, key);
+            if (slot < 0) {
+                return false;
+            }
+
+            long address = addresses[slot];
+            return slabs[slabOf(address)].getLong(offsetOf(address) + EXPIRES_AT_OFFSET) > System.currentTimeMillis();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Nullable
+    @Override
+    public V get(@Nonnull String key, @Nonnull CacheLoader<? super String, ? extends V> loader) throws IOException {
+        return get(key, loader, Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+    }
+
+    @Nullable
+    @Override
+    public V get(@Nonnull String key,
+                 @Nonnull CacheLoader<? super String, ? extends V> loader,
+                 long ttl,
+                 @Nonnull TimeUnit unit) throws IOException {
+        checkNotNull(loader, "Loader must not be null.");
+
+        V value = getIfPresent(key);
+        if (value != null) {
+            return value;
+        }
+
+        CompletableFuture<V> future = new CompletableFuture<>();
+        CompletableFuture<V> pending = loads.putIfAbsent(key, future);
+        if (pending != null) {
+            return await(pending);
+        }
+
+        try {
+            long start = System.nanoTime();
+            try {
+                value = loader.load(key);
+            } catch (IOException | RuntimeException e) {
+                statsCounter.recordLoadFailure(System.nanoTime() - start);
+                future.completeExceptionally(e);
+                throw e;
+            }
+            statsCounter.recordLoadSuccess(System.nanoTime() - start);
+            if (value != null) {
+                put(key, value, ttl, unit);
+            }
+            future.complete(value);
+            return value;
+        } finally {
+            loads.remove(key, future);
+        }
+    }
+
+    /**
+     * Caches a value for a key that never expires, replacing any previous value. Values too large to fit in a slab
+     * are not cached.
+     *
+     * @param key the key to cache the value for.
+     * @param value the value to cache.
+     */
+    @Override
+    public void put(@Nonnull String key, @Nonnull V value) {
+        put(key, value, Long.MAX_VALUE);
+    }
+
+    /**
+     * Caches a value for a key, replacing any previous value. Values too large to fit in a slab are not cached.
+     *
+     * @param key the key to cache the value for.
+     * @param value the value to cache.
+     * @param ttl how long the value may be returned for.
+     * @param unit the unit of {@code ttl}.
+     */
+    @Override
+    public void put(@Nonnull String key, @Nonnull V value, long ttl, @Nonnull TimeUnit unit) {
+        long now = System.currentTimeMillis();
+        long ttlMillis = unit.toMillis(ttl);
+        put(key, value, ttlMillis >= Long.MAX_VALUE - now ? Long.MAX_VALUE : now + ttlMillis);
+    }
+
+    @Override
+    public void invalidate(@Nonnull String key) {
+        long hash = hash(key);
+        lock.writeLock().lock();
+        try {
+            int slot = find(hash, key);
+            if (slot >= 0) {
+                removeSlot(slot);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void invalidateAll() {
+        lock.writeLock().lock();
+        try {
+            Arrays.fill(hashes, 0L);
+            Arrays.fill(addresses, 0L);
+            Arrays.fill(slabLimits, 0);
+            size = 0;
+            currentSlab = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return the number of indexed entries, including expired ones whose space has not been reclaimed yet.
+     */
+    @Override
+    public long size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Visits every entry that has not expired, holding the read lock, so the visitor must not modify the cache.
+     *
+     * @param visitor the visitor to call for each entry.
+     */
+    @Override
+    public void forEachEntry(@Nonnull EntryVisitor<? super String, ? super V> visitor) {
+        lock.readLock().lock();
+        try {
+            long now = System.currentTimeMillis();
+            for (int slot = 0; slot < hashes.length; slot++) {
+                if (hashes[slot] == 0) {
+                    continue;
+                }
+
+                long address = addresses[slot];
+                ByteBuffer slab = slabs[slabOf(address)];
+                int offset = offsetOf(address);
+                long expiresAt = slab.getLong(offset + EXPIRES_AT_OFFSET);
+                if (expiresAt <= now) {
+                    continue;
+                }
+
+                int keyLength = slab.getShort(offset + KEY_LENGTH_OFFSET) & 0xffff;
+                char[] key = new char[keyLength];
+                int position = offset + HEADER_SIZE;
+                for (int i = 0; i < keyLength; i++, position += 2) {
+                    key[i] = slab.getChar(position);
+                }
+
+                ByteBuffer value = slab.duplicate();
+                value.limit(offset + slab.getInt(offset + LENGTH_OFFSET));
+                value.position(position);
+                visitor.visit(new String(key), codec.decode(value), expiresAt);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return the statistics recorded so far. Evictions are weighed by the size in bytes of their records.
+     */
+    @Nonnull
+    @Override
+    public CacheStats stats() {
+        return statsCounter.snapshot();
+    }
+
+    private void put(String key, V value, long expiresAt) {
+        long hash = hash(key);
+        lock.writeLock().lock();
+        try {
+            ByteBuffer encoded = encode(value);
+            int length = encoded != null ? HEADER_SIZE + key.length() * 2 + encoded.remaining() : Integer.MAX_VALUE;
+            if (length > slabSize || key.length() > Character.MAX_VALUE) {
+                int slot = find(hash, key);
+                if (slot >= 0) {
+                    removeSlot(slot);
+                }
+                return;
+            }
+
+            long address = allocate(length);
+            write(address, length, hash, expiresAt, key, encoded);
+
+            int slot = find(hash, key);
+            if (slot >= 0) {
+                addresses[slot] = address;
+            } else {
+                insert(hash, address);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Nullable
+    private ByteBuffer encode(V value) {
+        while (true) {
+            scratch.clear();
+            try {
+                codec.encode(value, scratch);
+                scratch.flip();
+                return scratch;
+            } catch (BufferOverflowException e) {
+                if (scratch.capacity() >= slabSize) {
+                    return null;
+                }
+                scratch = ByteBuffer.allocate((int) Math.min(2L * scratch.capacity(), slabSize));
+            }
+        }
+    }
+
+    private long allocate(int length) {
+        int offset = slabLimits[currentSlab];
+        if (offset + length > slabSize) {
+            currentSlab = (currentSlab + 1) % slabs.length;
+            evictSlab(currentSlab);
+            offset = 0;
+        }
+        slabLimits[currentSlab] = offset + length;
+        return ((long) currentSlab << 32) | offset;
+    }
+
+    private void write(long address, int length, long hash, long expiresAt, String key, ByteBuffer encoded) {
+        ByteBuffer slab = slabs[slabOf(address)];
+        int offset = offsetOf(address);
+        slab.putInt(offset + LENGTH_OFFSET, length);
+        slab.putLong(offset + HASH_OFFSET, hash);
+        slab.putLong(offset + EXPIRES_AT_OFFSET, expiresAt);
+        slab.putShort(offset + KEY_LENGTH_OFFSET, (short) key.length());
+
+        int position = offset + HEADER_SIZE;
+        for (int i = 0; i < key.length(); i++, position += 2) {
+            slab.putChar(position, key.charAt(i));
+        }
+
+        ByteBuffer target = slab.duplicate();
+        target.position(position);
+        target.put(encoded);
+    }
+
+    private void evictSlab(int slabIndex) {
+        ByteBuffer slab = slabs[slabIndex];
+        int limit = slabLimits[slabIndex];
+        int offset = 0;
+        while (offset < limit) {
+            long address = ((long) slabIndex << 32) | offset;
+            int slot = findAddress(slab.getLong(offset + HASH_OFFSET), address);
+            int length = slab.getInt(offset + LENGTH_OFFSET);
+            if (slot >= 0) {
+                removeSlot(slot);
+                statsCounter.recordEviction(length);
+            }
+            offset += length;
+        }
+        slabLimits[slabIndex] = 0;
+    }
+
+    private int find(long hash, String key) {
+        int mask = hashes.length - 1;
+        for (int slot = home(hash, mask); hashes[slot] != 0; slot = (slot + 1) & mask) {
+            if (hashes[slot] == hash && keyEquals(addresses[slot], key)) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    private int findAddress(long hash, long address) {
+        int mask = hashes.length - 1;
+        for (int slot = home(hash, mask); hashes[slot] != 0; slot = (slot + 1) & mask) {
+            if (addresses[slot] == address) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    private boolean keyEquals(long address, String key) {
+        ByteBuffer slab = slabs[slabOf(address)];
+        int offset = offsetOf(address);
+        if ((slab.getShort(offset + KEY_LENGTH_OFFSET) & 0xffff) != key.length()) {
+            return false;
+        }
+
+        int position = offset + HEADER_SIZE;
+        for (int i = 0; i < key.length(); i++, position += 2) {
+            if (slab.getChar(position) != key.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void insert(long hash, long address) {
+        if (2 * (size + 1) > hashes.length) {
+            resize(hashes.length * 2);
+        }
+        int mask = hashes.length - 1;
+        int slot = home(hash, mask);
+        while (hashes[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        hashes[slot] = hash;
+        addresses[slot] = address;
+        size++;
+    }
+
+    private void resize(int capacity) {
+        long[] oldHashes = hashes;
+        long[] oldAddresses = addresses;
+        hashes = new long[capacity];
+        addresses = new long[capacity];
+        int mask = capacity - 1;
+        for (int i = 0; i < oldHashes.length; i++) {
+            if (oldHashes[i] != 0) {
+                int slot = home(oldHashes[i], mask);
+                while (hashes[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                hashes[slot] = oldHashes[i];
+                addresses[slot] = oldAddresses[i];
+            }
+        }
+    }
+
+    /**
+     * Removes a slot by shifting back the entries of its probe sequence, so no tombstones are needed.
+     */
+    private void removeSlot(int slot) {
+        int mask = hashes.length - 1;
+        int hole = slot;
+        int next = slot;
+        while (true) {
+            next = (next + 1) & mask;
+            if (hashes[next] == 0) {
+                break;
+            }
+            int home = home(hashes[next], mask);
+            boolean stays = hole <= next ? hole < home && home <= next : hole < home || home <= next;
+            if (!stays) {
+                hashes[hole] = hashes[next];
+                addresses[hole] = addresses[next];
+                hole = next;
+            }
+        }
+        hashes[hole] = 0;
+        addresses[hole] = 0;
+        size--;
+    }
+
+    @Nullable
+    private static <V> V await(CompletableFuture<V> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for value to load.");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    private static int home(long hash, int mask) {
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    private static int slabOf(long address) {
+        return (int) (address >>> 32);
+    }
+
+    private static int offsetOf(long address) {
+        return (int) address;
+    }
+
+    /**
+     * 64-bit FNV-1a over the key's chars, never zero since zero marks an empty index slot.
+     */
+    private static long hash(String key) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            hash ^= key.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 29;
+        return hash != 0 ? hash : 1;
+    }
+}
@@ -0,0 +1,297 @@
+/*
+ * Copyright (c) 2016 Uber Technologies, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.uber.sdk.rides.client.cache;
+
+import com.uber.sdk.core.auth.AccessToken;
+import com.uber.sdk.core.auth.AccessTokenStorage;
+import com.uber.sdk.core.auth.ObservableAccessTokenStorage;
+import com.uber.sdk.core.cache.Cache;
+import com.uber.sdk.core.cache.CacheSnapshotter;
+import com.uber.sdk.core.cache.JsonCodec;
+import com.uber.sdk.core.cache.SnapshotSource;
+import com.uber.sdk.rides.client.model.ModelAdapters;
+import com.uber.sdk.rides.client.model.Place;
+import com.uber.sdk.rides.client.model.PlaceParameters;
+import com.uber.sdk.rides.client.services.RidesService;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import retrofit2.Response;
+
+import static com.uber.sdk.core.client.utils.Preconditions.checkNotNull;
+import static com.uber.sdk.core.client.utils.Preconditions.checkState;
+
+/**
+ * A write-through cache of the {@link Place}s of each authorized user, keyed by the identity of the access token
+ * currently held in an {@link AccessTokenStorage} and the place identifier.
+ * <p>
+ * A successful {@link #setPlace(String, PlaceParameters)} replaces the cached place with the one returned by the
+ * API. Calls to {@link #setPlace(String, PlaceParameters)} for the same place are serialized, so the last one to
+ * complete wins, while {@link #getPlace(String)} never waits for them: it returns the place cached before the write
+ * until the write completes. A fetch that started before a write never overwrites the written place.
+ * <p>
+ * Places are kept for at most {@code maximumSize} identities, evicting the least recently used one first. The places
+ * of an identity are dropped when its token is replaced or removed, or when the API rejects it with a 401. Register
+ * the cache with {@link ObservableAccessTokenStorage#addListener(ObservableAccessTokenStorage.Listener)} to be told
+ * about token changes. Responses that are not successful are returned as is and never cached.
+ */
+public class PlaceCache implements ObservableAccessTokenStorage.Listener, SnapshotSource<Place> {
+
+    static final int DEFAULT_MAXIMUM_SIZE = 1000;
+    static final int HTTP_UNAUTHORIZED = 401;
+    static final char KEY_SEPARATOR = '/';
+
+    private final RidesService service;
+    private final AccessTokenStorage tokenStorage;
+    private final Map<String, ConcurrentMap<String, PlaceEntry>> entries;
+
+    /**
+     * @param service the service used to fetch and update places.
+     * @param tokenStorage the storage holding the token requests are signed with.
+     */
+    public PlaceCache(@Nonnull RidesService service, @Nonnull AccessTokenStorage tokenStorage) {
+        this(service, tokenStorage, DEFAULT_MAXIMUM_SIZE);
+    }
+
+    /**
+     * @param service the service used to fetch and update places.
+     * @param tokenStorage the storage holding the token requests are signed with.
+     * @param maximumSize the maximum number of identities to keep places for.
+     */
+    public PlaceCache(@Nonnull RidesService service,
+                      @Nonnull AccessTokenStorage tokenStorage,
+                      final int maximumSize) {
+        checkState(maximumSize > 0, "Maximum size must be positive.");
+        this.service = checkNotNull(service, "Service must not be null.");
+        this.tokenStorage = checkNotNull(tokenStorage, "Token storage must not be null.");
+        this.entries = new LinkedHashMap<String, ConcurrentMap<String, PlaceEntry>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, ConcurrentMap<String, PlaceEntry>> eldest) {
+                return size() > maximumSize;
+            }
+        };
+    }
+
+    /**
+     * Gets a place of the current user, fetching it with {@link RidesService#getPlace(String)} only if it is not
+     * cached.
+     *
+     * @param placeId The identifier of a Place.
+     * @return the cached place as a successful {@link Response}, or the response of the API.
+     * @throws IOException if the place had to be fetched and the request failed.
+     */
+    @Nonnull
+    public Response<Place> getPlace(@Nonnull String placeId) throws IOException {
+        String identity = TokenIdentity.of(tokenStorage.getAccessToken());
+        if (identity == null) {
+            return service.getPlace(placeId).execute();
+        }
+
+        PlaceEntry entry = entryFor(identity, placeId);
+        Snapshot snapshot = entry.snapshot.get();
+        if (snapshot.place != null) {
+            return Response.success(snapshot.place);
+        }
+
+        Response<Place> response = service.getPlace(placeId).execute();
+        if (response.isSuccessful() && response.body() != null) {
+            entry.snapshot.compareAndSet(snapshot, new Snapshot(response.body(), snapshot.version));
+        } else if (response.code() == HTTP_UNAUTHORIZED) {
+            invalidate(identity);
+        }
+        return response;
+    }
+
+    /**
+     * Sets a place of the current user with {@link RidesService#setPlace(String, PlaceParameters)} and caches the
+     * place returned. If the update fails the cached place is dropped, since whether it was applied is unknown.
+     *
+     * @param placeId The identifier of a Place.
+     * @param placeParameters The place parameters.
+     * @return the response of the API.
+     * @throws IOException if the request failed.
+     */
+    @Nonnull
+    public Response<Place> setPlace(@Nonnull String placeId, @Nonnull PlaceParameters placeParameters)
+            throws IOException {
+        String identity = TokenIdentity.of(tokenStorage.getAccessToken());
+        if (identity == null) {
+            return service.setPlace(placeId, placeParameters).execute();
+        }
+
+        PlaceEntry entry = entryFor(identity, placeId);
+        synchronized (entry) {
+            Response<Place> response;
+            try {
+                response = service.setPlace(placeId, placeParameters).execute();
+            } catch (IOException | RuntimeException e) {
+                entry.replace(null);
+                throw e;
+            }
+
+            if (response.isSuccessful() && response.body() != null) {
+                entry.replace(response.body());
+            } else {
+                entry.replace(null);
+                if (response.code() == HTTP_UNAUTHORIZED) {
+                    invalidate(identity);
+                }
+            }
+            return response;
+        }
+    }
+
+    /**
+     * Drops the places cached for the current user.
+     */
+    public void invalidate() {
+        invalidate(TokenIdentity.of(tokenStorage.getAccessToken()));
+    }
+
+    /**
+     * Drops the places cached for every user.
+     */
+    public void invalidateAll() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    /**
+     * @return the number of identities places are currently cached for.
+     */
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    /**
+     * Registers the cached places with a {@link CacheSnapshotter}, so that they survive restarts. Places are saved
+     * under the identity of the token, never the token itself.
+     *
+     * @param snapshotter the snapshotter to register with.
+     */
+    public void registerSnapshots(@Nonnull CacheSnapshotter snapshotter) {
+        snapshotter.register("places", this, new JsonCodec<>(ModelAdapters.moshi().adapter(Place.class)));
+    }
+
+    @Override
+    public void forEachEntry(@Nonnull Cache.EntryVisitor<String, ? super Place> visitor) {
+        List<Map.Entry<String, ConcurrentMap<String, PlaceEntry>>> identities;
+        synchronized (entries) {
+            identities = new ArrayList<>(entries.entrySet());
+        }
+        for (Map.Entry<String, ConcurrentMap<String, PlaceEntry>> places : identities) {
+            for (Map.Entry<String, PlaceEntry> entry : places.getValue().entrySet()) {
+                Place place = entry.getValue().snapshot.get().place;
+                if (place != null) {
+                    visitor.visit(places.getKey() + KEY_SEPARATOR + entry.getKey(), place, Long.MAX_VALUE);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void restore(@Nonnull String key, @Nonnull final Place place, long expiresAtMillis) {
+        int separator = key.indexOf(KEY_SEPARATOR);
+        if (separator < 0) {
+            return;
+        }
+
+        entryFor(key.substring(0, separator), key.substring(separator + 1)).snapshot.compareAndSet(
+                Snapshot.EMPTY, new Snapshot(place, 0));
+    }
+
+    @Override
+    public void onAccessTokenChanged(@Nullable AccessToken previous, @Nullable AccessToken current) {
+        invalidate(TokenIdentity.of(previous));
+    }
+
+    private PlaceEntry entryFor(String identity, String placeId) {
+        ConcurrentMap<String, PlaceEntry> places;
+        synchronized (entries) {
+            places = entries.get(identity);
+            if (places == null) {
+                places = new ConcurrentHashMap<>();
+                entries.put(identity, places);
+            }
+        }
+
+        PlaceEntry entry = places.get(placeId);
+        if (entry == null) {
+            entry = new PlaceEntry();
+            PlaceEntry existing = places.putIfAbsent(placeId, entry);
+            if (existing != null) {
+                entry = existing;
+            }
+        }
+        return entry;
+    }
+
+    private void invalidate(@Nullable String identity) {
+        if (identity != null) {
+            synchronized (entries) {
+                entries.remove(identity);
+            }
+        }
+    }
+
+    /**
+     * The cached place, if any, and the number of writes that produced it.
+     */
+    private static final class Snapshot {
+
+        static final Snapshot EMPTY = new Snapshot(null, 0);
+
+        @Nullable final Place place;
+        final long version;
+
+        Snapshot(@Nullable Place place, long version) {
+            this.place = place;
+            this.version = version;
+        }
+    }
+
+    /**
+     * A place of one user. Writers synchronize on the entry; readers only read the snapshot.
+     */
+    private static final class PlaceEntry {
+
+        final AtomicReference<Snapshot> snapshot = new AtomicReference<>(Snapshot.EMPTY);
+
+        void replace(@Nullable final Place place) {
+            snapshot.getAndUpdate(current -> new Snapshot(place, current.version + 1));
+        }
+    }
+}
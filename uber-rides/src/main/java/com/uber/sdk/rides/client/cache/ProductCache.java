@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) 2016 Uber Technologies, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.uber.sdk.rides.client.cache;
+
+import com.uber.sdk.core.cache.Cache;
+import com.uber.sdk.core.cache.CacheBuilder;
+import com.uber.sdk.core.cache.CacheSnapshotter;
+import com.uber.sdk.core.cache.JsonCodec;
+import com.uber.sdk.rides.client.model.ModelAdapters;
+import com.uber.sdk.rides.client.model.ProductsResponse;
+import com.uber.sdk.rides.client.services.RidesService;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import retrofit2.Response;
+
+import static com.uber.sdk.core.client.utils.Preconditions.checkNotNull;
+import static com.uber.sdk.core.client.utils.Preconditions.checkState;
+
+/**
+ * Caches the products available at a location for a fixed time to live. With the caches of {@link CacheBuilder},
+ * concurrent misses for the same location send a single request.
+ * <p>
+ * Responses that are not successful are returned as is and never cached.
+ */
+public class ProductCache {
+
+    static final int DEFAULT_MAXIMUM_SIZE = 10000;
+
+    private final RidesService service;
+    private final Cache<String, ProductsResponse> products;
+    private final long ttlMillis;
+
+    /**
+     * @param service the service used to fetch products on a cache miss.
+     * @param ttl how long products may be served from the cache.
+     * @param unit the unit of {@code ttl}.
+     */
+    public ProductCache(@Nonnull RidesService service, long ttl, @Nonnull TimeUnit unit) {
+        this(service,
+                new CacheBuilder<String, ProductsResponse>().setMaximumSize(DEFAULT_MAXIMUM_SIZE).build(),
+                ttl,
+                unit);
+    }
+
+    /**
+     * @param service the service used to fetch products on a cache miss.
+     * @param products the cache holding products by location.
+     * @param ttl how long products may be served from the cache.
+     * @param unit the unit of {@code ttl}.
+     */
+    public ProductCache(@Nonnull RidesService service,
+                        @Nonnull Cache<String, ProductsResponse> products,
+                        long ttl,
+                        @Nonnull TimeUnit unit) {
+        checkState(ttl > 0, "Time to live must be positive.");
+        this.service = checkNotNull(service, "Service must not be null.");
+        this.products = checkNotNull(products, "Product cache must not be null.");
+        this.ttlMillis = unit.toMillis(ttl);
+    }
+
+    /**
+     * Gets the products available at a location, calling {@link RidesService#getProducts(float, float)} only if
+     * they are not cached.
+     *
+     * @param latitude Latitude component of location.
+     * @param longitude Longitude component of location.
+     * @return the cached products as a successful {@link Response}, or the response of the API.
+     * @throws IOException if the products had to be fetched and the request failed.
+     */
+    @Nonnull
+    public Response<ProductsResponse> getProducts(float latitude, float longitude) throws IOException {
+        return getProducts(latitude, longitude, null);
+    }
+
+    /**
+     * @param rateLimiter acquired before the products are fetched, or {@code null}.
+     */
+    @Nonnull
+    Response<ProductsResponse> getProducts(float latitude, float longitude, @Nullable RateLimiter rateLimiter)
+            throws IOException {
+        return CachedFetch.get(products, key(latitude, longitude), ttlMillis, rateLimiter,
+                () -> service.getProducts(latitude, longitude).execute());
+    }
+
+    /**
+     * Registers the cached products with a {@link CacheSnapshotter}, so that they survive restarts.
+     *
+     * @param snapshotter the snapshotter to register with.
+     */
+    public void registerSnapshots(@Nonnull CacheSnapshotter snapshotter) {
+        snapshotter.register("products", products,
+                new JsonCodec<>(ModelAdapters.moshi().adapter(ProductsResponse.class)));
+    }
+
+    /**
+     * Drops every cached product list.
+     */
+    public void invalidateAll() {
+        products.invalidateAll();
+    }
+
+    static String key(float latitude, float longitude) {
+        return latitude + "," + longitude;
+    }
+}
@@ -0,0 +1,220 @@
+/*
+ * Copyright (c) 2016 Uber Technologies, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.uber.sdk.rides.client.cache;
+
+import com.uber.sdk.core.auth.AccessToken;
+import com.uber.sdk.core.auth.AccessTokenStorage;
+import com.uber.sdk.core.auth.ObservableAccessTokenStorage;
+import com.uber.sdk.rides.client.model.PaymentMethodsResponse;
+import com.uber.sdk.rides.client.model.UserProfile;
+import com.uber.sdk.rides.client.services.RidesService;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import retrofit2.Call;
+import retrofit2.Response;
+
+import static com.uber.sdk.core.client.utils.Preconditions.checkNotNull;
+import static com.uber.sdk.core.client.utils.Preconditions.checkState;
+
+/**
+ * Caches the {@link UserProfile} and {@link PaymentMethodsResponse} of each authorized user, keyed by the
+ * identity of the access token currently held in an {@link AccessTokenStorage}.
+ * <p>
+ * At most {@code maximumSize} identities are kept, evicting the least recently used one first. The entry of an
+ * identity is dropped when its token is replaced or removed, or when the API rejects it with a 401. Register the
+ * cache with {@link ObservableAccessTokenStorage#addListener(ObservableAccessTokenStorage.Listener)} to be told
+ * about token changes.
+ * <p>
+ * Responses that are not successful are returned as is and never cached, so they can still be handed to
+ * {@link com.uber.sdk.rides.client.error.ErrorParser}.
+ */
+public class UserDataCache implements ObservableAccessTokenStorage.Listener {
+
+    static final int DEFAULT_MAXIMUM_SIZE = 1000;
+    static final int HTTP_UNAUTHORIZED = 401;
+
+    private final RidesService service;
+    private final AccessTokenStorage tokenStorage;
+    private final Map<String, UserData> entries;
+
+    /**
+     * @param service the service used to fetch data on a cache miss.
+     * @param tokenStorage the storage holding the token requests are signed with.
+     */
+    public UserDataCache(@Nonnull RidesService service, @Nonnull AccessTokenStorage tokenStorage) {
+        this(service, tokenStorage, DEFAULT_MAXIMUM_SIZE);
+    }
+
+    /**
+     * @param service the service used to fetch data on a cache miss.
+     * @param tokenStorage the storage holding the token requests are signed with.
+     * @param maximumSize the maximum number of identities to keep data for.
+     */
+    public UserDataCache(@Nonnull RidesService service,
+                         @Nonnull AccessTokenStorage tokenStorage,
+                         final int maximumSize) {
+        checkState(maximumSize > 0, "Maximum size must be positive.");
+        this.service = checkNotNull(service, "Service must not be null.");
+        this.tokenStorage = checkNotNull(tokenStorage, "Token storage must not be null.");
+        this.entries = new LinkedHashMap<String, UserData>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, UserData> eldest) {
+                return size() > maximumSize;
+            }
+        };
+    }
+
+    /**
+     * Gets the {@link UserProfile} of the current user, fetching it with {@link RidesService#getUserProfile()} only
+     * if it is not cached.
+     *
+     * @return the cached profile as a successful {@link Response}, or the response of the API.
+     * @throws IOException if the profile had to be fetched and the request failed.
+     */
+    @Nonnull
+    public Response<UserProfile> getUserProfile() throws IOException {
+        String identity = TokenIdentity.of(tokenStorage.getAccessToken());
+        if (identity == null) {
+            return service.getUserProfile().execute();
+        }
+        return get(identity, entryFor(identity).profile);
+    }
+
+    /**
+     * Gets the {@link PaymentMethodsResponse} of the current user, fetching it with
+     * {@link RidesService#getPaymentMethods()} only if it is not cached.
+     *
+     * @return the cached payment methods as a successful {@link Response}, or the response of the API.
+     * @throws IOException if the payment methods had to be fetched and the request failed.
+     */
+    @Nonnull
+    public Response<PaymentMethodsResponse> getPaymentMethods() throws IOException {
+        String identity = TokenIdentity.of(tokenStorage.getAccessToken());
+        if (identity == null) {
+            return service.getPaymentMethods().execute();
+        }
+        return get(identity, entryFor(identity).paymentMethods);
+    }
+
+    /**
+     * Drops the data cached for the current user.
+     */
+    public void invalidate() {
+        invalidate(TokenIdentity.of(tokenStorage.getAccessToken()));
+    }
+
+    /**
+     * Drops the data cached for every user.
+     */
+    public void invalidateAll() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    /**
+     * @return the number of identities data is currently cached for.
+     */
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    @Override
+    public void onAccessTokenChanged(@Nullable AccessToken previous, @Nullable AccessToken current) {
+        invalidate(TokenIdentity.of(previous));
+    }
+
+    private <T> Response<T> get(String identity, CachedValue<T> cached) throws IOException {
+        T value = cached.value;
+        if (value != null) {
+            return Response.success(value);
+        }
+
+        synchronized (cached) {
+            value = cached.value;
+            if (value != null) {
+                return Response.success(value);
+            }
+
+            Response<T> response = cached.newCall().execute();
+            if (response.isSuccessful() && response.body() != null) {
+                cached.value = response.body();
+            } else if (response.code() == HTTP_UNAUTHORIZED) {
+                invalidate(identity);
+            }
+            return response;
+        }
+    }
+
+    private UserData entryFor(String identity) {
+        synchronized (entries) {
+            UserData entry = entries.get(identity);
+            if (entry == null) {
+                entry = new UserData();
+                entries.put(identity, entry);
+            }
+            return entry;
+        }
+    }
+
+    private void invalidate(@Nullable String identity) {
+        if (identity == null) {
+            return;
+        }
+        synchronized (entries) {
+            entries.remove(identity);
+        }
+    }
+
+    private abstract static class CachedValue<T> {
+
+        volatile T value;
+
+        abstract Call<T> newCall();
+    }
+
+    private final class UserData {
+
+        final CachedValue<UserProfile> profile = new CachedValue<UserProfile>() {
+            @Override
+            Call<UserProfile> newCall() {
+                return service.getUserProfile();
+            }
+        };
+
+        final CachedValue<PaymentMethodsResponse> paymentMethods = new CachedValue<PaymentMethodsResponse>() {
+            @Override
+            Call<PaymentMethodsResponse> newCall() {
+                return service.getPaymentMethods();
+            }
+        };
+    }
+}
@@ -24,13 +24,20 @@ package com.uber.sdk.rides.client.error;
 
 import com.squareup.moshi.JsonAdapter;
 import com.squareup.moshi.JsonDataException;
+import com.squareup.moshi.JsonReader;
 import com.squareup.moshi.Moshi;
+import com.squareup.moshi.Types;
+import com.uber.sdk.rides.client.model.ModelAdapters;
 
 import java.io.IOException;
+import java.util.List;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import okio.BufferedSource;
 import retrofit2.Response;
 
 /**
@@ -38,6 +45,13 @@ import retrofit2.Response;
  */
 public final class ErrorParser {
 
+    private static final String UNKNOWN_ERROR = "Unknown Error";
+    private static final Moshi MOSHI = ModelAdapters.moshi();
+    private static final JsonAdapter<String> STRING_ADAPTER = MOSHI.adapter(String.class);
+    private static final JsonAdapter<Meta> META_ADAPTER = MOSHI.adapter(Meta.class);
+    private static final JsonAdapter<List<ClientError>> CLIENT_ERRORS_ADAPTER =
+            MOSHI.adapter(Types.newParameterizedType(List.class, ClientError.class));
+
     /**
      * Parses a {@link Response} into an {@link ApiError}.
      *
@@ -50,10 +64,14 @@ public final class ErrorParser {
             return null;
         }
 
+        ResponseBody errorBody = response.errorBody();
+        if (errorBody == null) {
+            return new ApiError(null, response.code(), response.message());
+        }
         try {
-            return parseError(response.errorBody().string(), response.code(), response.message());
-        } catch (IOException e) {
-            return new ApiError(null, response.code(), "Unknown Error");
+            return parseError(errorBody.source(), response.code());
+        } finally {
+            errorBody.close();
         }
     }
 
@@ -71,19 +89,61 @@ public final class ErrorParser {
             return new ApiError(null, statusCode, message);
         }
 
-        Moshi moshi = new Moshi.Builder().build();
-        JsonAdapter<CompatibilityApiError> oldApiErrorJsonAdapter = moshi.adapter(CompatibilityApiError.class).failOnUnknown();
+        return parseError(new Buffer().writeUtf8(errorBody), statusCode);
+    }
+
+    /**
+     * Reads an error body in one pass, telling the schema apart by its field names: {@code message} and
+     * {@code code} for the errors the API no longer sends, {@code meta} and {@code errors} for the current ones. A
+     * body with any other field, or with fields of both schemas, is an unknown error.
+     */
+    @Nonnull
+    private static ApiError parseError(@Nonnull BufferedSource errorBody, int statusCode) {
+        JsonReader reader = JsonReader.of(errorBody);
+        // Nested objects must not have unknown fields either.
+        reader.setFailOnUnknown(true);
+
+        String message = null;
+        String code = null;
+        boolean compatibility = false;
+        Meta meta = null;
+        List<ClientError> clientErrors = null;
+        boolean current = false;
         try {
-             return new ApiError(oldApiErrorJsonAdapter.fromJson(errorBody), statusCode);
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "message":
+                        message = STRING_ADAPTER.fromJson(reader);
+                        compatibility = true;
+                        break;
+                    case "code":
+                        code = STRING_ADAPTER.fromJson(reader);
+                        compatibility = true;
+                        break;
+                    case "meta":
+                        meta = META_ADAPTER.fromJson(reader);
+                        current = true;
+                        break;
+                    case "errors":
+                        clientErrors = CLIENT_ERRORS_ADAPTER.fromJson(reader);
+                        current = true;
+                        break;
+                    default:
+                        return new ApiError(null, statusCode, UNKNOWN_ERROR);
+                }
+                if (compatibility && current) {
+                    return new ApiError(null, statusCode, UNKNOWN_ERROR);
+                }
+            }
+            reader.endObject();
         } catch (IOException | JsonDataException exception) {
-            // Not old type of error, move on
+            return new ApiError(null, statusCode, UNKNOWN_ERROR);
         }
 
-        JsonAdapter<ApiError> apiErrorJsonAdapter = moshi.adapter(ApiError.class).failOnUnknown();
-        try {
-            return apiErrorJsonAdapter.fromJson(errorBody);
-        } catch (IOException | JsonDataException exception) {
-            return new ApiError(null, statusCode, "Unknown Error");
+        if (current) {
+            return new ApiError(meta, clientErrors);
         }
+        return new ApiError(new CompatibilityApiError(message, code), statusCode);
     }
 }
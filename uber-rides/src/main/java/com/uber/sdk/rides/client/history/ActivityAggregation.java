@@ -0,0 +1,164 @@
+/*
+ * Copyright (c) 2016 Uber Technologies, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.uber.sdk.rides.client.history;
+
+import java.time.YearMonth;
+import java.util.Collections;
+import java.util.List;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * The totals computed by an {@link ActivityAggregator}, one {@link Group} for each distinct combination of the
+ * grouped dimensions.
+ */
+public final class ActivityAggregation {
+
+    private final List<Group> groups;
+
+    ActivityAggregation(@Nonnull List<Group> groups) {
+        this.groups = Collections.unmodifiableList(groups);
+    }
+
+    /**
+     * @return the groups, in no particular order.
+     */
+    @Nonnull
+    public List<Group> getGroups() {
+        return groups;
+    }
+
+    /**
+     * @return the number of rides across every group.
+     */
+    public long getRideCount() {
+        long count = 0;
+        for (Group group : groups) {
+            count += group.getRideCount();
+        }
+        return count;
+    }
+
+    /**
+     * The totals of the rides sharing a combination of dimensions. A dimension that was not grouped by, or that a
+     * ride did not report, is {@code null}.
+     */
+    public static final class Group {
+
+        private final String city;
+        private final String productId;
+        private final String currencyCode;
+        private final YearMonth month;
+        private final long rideCount;
+        private final double distance;
+        private final double fare;
+        private final long fareCount;
+
+        Group(@Nullable String city,
+              @Nullable String productId,
+              @Nullable String currencyCode,
+              @Nullable YearMonth month,
+              long rideCount,
+              double distance,
+              double fare,
+              long fareCount) {
+            this.city = city;
+            this.productId = productId;
+            this.currencyCode = currencyCode;
+            this.month = month;
+            this.rideCount = rideCount;
+            this.distance = distance;
+            this.fare = fare;
+            this.fareCount = fareCount;
+        }
+
+        /**
+         * Gets the display name of the start city.
+         */
+        @Nullable
+        public String getCity() {
+            return city;
+        }
+
+        /**
+         * Gets the product ID.
+         */
+        @Nullable
+        public String getProductId() {
+            return productId;
+        }
+
+        /**
+         * Gets the currency of {@link #getFare()}.
+         */
+        @Nullable
+        public String getCurrencyCode() {
+            return currencyCode;
+        }
+
+        /**
+         * Gets the month of the request time, in UTC.
+         */
+        @Nullable
+        public YearMonth getMonth() {
+            return month;
+        }
+
+        /**
+         * Gets the number of rides.
+         */
+        public long getRideCount() {
+            return rideCount;
+        }
+
+        /**
+         * Gets the total distance, in miles.
+         */
+        public double getDistance() {
+            return distance;
+        }
+
+        /**
+         * Gets the total of the known fares. Fares in different currencies are only meaningful to add up when
+         * grouping by {@link ActivityAggregator.Dimension#CURRENCY}.
+         */
+        public double getFare() {
+            return fare;
+        }
+
+        /**
+         * Gets the number of rides with a known fare.
+         */
+        public long getFareCount() {
+            return fareCount;
+        }
+
+        @Override
+        public String toString() {
+            return "Group{city=" + city + ", productId=" + productId + ", currencyCode=" + currencyCode
+                    + ", month=" + month + ", rideCount=" + rideCount + ", distance=" + distance
+                    + ", fare=" + fare + ", fareCount=" + fareCount + "}";
+        }
+    }
+}
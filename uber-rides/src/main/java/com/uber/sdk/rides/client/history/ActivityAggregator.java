@@ -0,0 +1,346 @@
+/*
+ * Copyright (c) 2016 Uber Technologies, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.uber.sdk.rides.client.history;
+
+import com.uber.sdk.rides.client.model.UserActivity;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collector;
+import java.util.stream.IntStream;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import static com.uber.sdk.core.client.utils.Preconditions.checkNotNull;
+import static com.uber.sdk.core.client.utils.Preconditions.checkState;
+
+/**
+ * Totals ride count, distance and fare by city, product, currency and month, over a history stream or an
+ * {@link ActivityColumnStore}.
+ * <p>
+ * Each group is keyed by its dimensions packed into a long, with strings replaced by dictionary codes, and the
+ * totals accumulate in primitive arrays. Memory therefore grows with the number of groups, not the number of
+ * rides, and the only activities held at once are the pages the stream is reading. Streams may be parallel: each
+ * worker accumulates its own table and the tables are merged as the workers finish.
+ * <pre>{@code
+ * ActivityAggregator aggregator = new ActivityAggregator.Builder()
+ *         .setDimensions(Dimension.CITY, Dimension.MONTH)
+ *         .setStatus("completed")
+ *         .build();
+ * try (Stream<UserActivity> activities = history.stream()) {
+ *     ActivityAggregation aggregation = activities.parallel().collect(aggregator.toAggregation());
+ * }
+ * }</pre>
+ */
+public final class ActivityAggregator {
+
+    /**
+     * What rides can be grouped by.
+     */
+    public enum Dimension {
+        /**
+         * The display name of the start city.
+         */
+        CITY,
+        /**
+         * The product ID.
+         */
+        PRODUCT,
+        /**
+         * The currency of the fare.
+         */
+        CURRENCY,
+        /**
+         * The month of the request time, in UTC.
+         */
+        MONTH
+    }
+
+    private static final int FIELD_BITS = 16;
+    private static final int MAXIMUM_FIELD = (1 << FIELD_BITS) - 2;
+    private static final int CHUNK_ROWS = 1 << 16;
+    private static final long SECONDS_PER_DAY = 24 * 60 * 60;
+
+    private final Set<Dimension> dimensions;
+    private final String status;
+
+    ActivityAggregator(@Nonnull Set<Dimension> dimensions, @Nullable String status) {
+        this.dimensions = dimensions;
+        this.status = status;
+    }
+
+    /**
+     * @return a collector that totals the activities of a stream.
+     */
+    @Nonnull
+    public Collector<UserActivity, ?, ActivityAggregation> toAggregation() {
+        final Keys keys = new Keys();
+        return Collector.of(
+                AggregateTable::new,
+                (table, activity) -> add(keys, table, activity),
+                AggregateTable::merge,
+                keys::toAggregation,
+                Collector.Characteristics.UNORDERED);
+    }
+
+    /**
+     * Totals activities.
+     *
+     * @param activities the activities to total.
+     * @return the totals.
+     */
+    @Nonnull
+    public ActivityAggregation aggregate(@Nonnull Iterable<? extends UserActivity> activities) {
+        checkNotNull(activities, "Activities must not be null.");
+        Keys keys = new Keys();
+        AggregateTable table = new AggregateTable();
+        for (UserActivity activity : activities) {
+            add(keys, table, activity);
+        }
+        return keys.toAggregation(table);
+    }
+
+    /**
+     * Totals the rows of a column store without reading ride IDs or decoding a single string per row. Ranges of rows
+     * are scanned in parallel on the common fork-join pool.
+     *
+     * @param store the store to total.
+     * @return the totals.
+     */
+    @Nonnull
+    public ActivityAggregation aggregate(@Nonnull final ActivityColumnStore store) {
+        checkNotNull(store, "Store must not be null.");
+        final Keys keys = new Keys();
+        final int statusCode = status != null ? store.status().encode(status) : ActivityColumnStore.NO_VALUE;
+        if (status != null && statusCode == ActivityColumnStore.NO_VALUE) {
+            return keys.toAggregation(new AggregateTable());
+        }
+
+        // Translate the store's codes into key fields once, rather than once per row.
+        final int[] cities = fields(dimensions.contains(Dimension.CITY), keys.cities, store.city());
+        final int[] products = fields(dimensions.contains(Dimension.PRODUCT), keys.products, store.productId());
+        final int[] currencies = fields(dimensions.contains(Dimension.CURRENCY), keys.currencies,
+                store.currencyCode());
+
+        int chunks = (store.size() + CHUNK_ROWS - 1) / CHUNK_ROWS;
+        AggregateTable table = IntStream.range(0, chunks)
+                .parallel()
+                .mapToObj(chunk -> scan(store, statusCode, cities, products, currencies, chunk * CHUNK_ROWS,
+                        (int) Math.min(store.size(), (long) (chunk + 1) * CHUNK_ROWS)))
+                .reduce(AggregateTable::merge)
+                .orElseGet(AggregateTable::new);
+        return keys.toAggregation(table);
+    }
+
+    private void add(Keys keys, AggregateTable table, UserActivity activity) {
+        if (status != null && !status.equals(activity.getStatus())) {
+            return;
+        }
+        UserActivity.City city = activity.getStartCity();
+        long key = pack(
+                keys.cities.field(dimensions.contains(Dimension.CITY) && city != null ? city.getDisplayName() : null),
+                keys.products.field(dimensions.contains(Dimension.PRODUCT) ? activity.getProductId() : null),
+                keys.currencies.field(dimensions.contains(Dimension.CURRENCY) ? activity.getCurrencyCode() : null),
+                dimensions.contains(Dimension.MONTH) ? monthField(activity.getRequestTime()) : 0);
+        Float fare = activity.getFare();
+        table.add(key, activity.getDistance(), fare != null ? fare : Float.NaN);
+    }
+
+    private AggregateTable scan(ActivityColumnStore store, int statusCode, int[] cities, int[] products,
+                                int[] currencies, int from, int to) {
+        ActivityColumnStore.DictionaryColumn statuses = store.status();
+        ActivityColumnStore.DictionaryColumn cityCodes = store.city();
+        ActivityColumnStore.DictionaryColumn productCodes = store.productId();
+        ActivityColumnStore.DictionaryColumn currencyCodes = store.currencyCode();
+        ActivityColumnStore.LongColumn requestTimes = store.requestTime();
+        ActivityColumnStore.FloatColumn distances = store.distance();
+        ActivityColumnStore.FloatColumn fares = store.fare();
+        boolean byMonth = dimensions.contains(Dimension.MONTH);
+
+        AggregateTable table = new AggregateTable();
+        long lastDay = Long.MIN_VALUE;
+        int month = 0;
+        for (int row = from; row < to; row++) {
+            if (status != null && statuses.getCode(row) != statusCode) {
+                continue;
+            }
+            if (byMonth) {
+                // Histories are sorted by time, so consecutive rows are mostly on the same day.
+                long day = Math.floorDiv(requestTimes.get(row), SECONDS_PER_DAY);
+                if (day != lastDay) {
+                    month = monthField(day * SECONDS_PER_DAY);
+                    lastDay = day;
+                }
+            }
+            long key = pack(field(cities, cityCodes.getCode(row)), field(products, productCodes.getCode(row)),
+                    field(currencies, currencyCodes.getCode(row)), month);
+            table.add(key, distances.get(row), fares.get(row));
+        }
+        return table;
+    }
+
+    private static int[] fields(boolean enabled,
+                                KeyDictionary dictionary,
+                                ActivityColumnStore.DictionaryColumn column) {
+        int[] fields = new int[column.getDictionary().size()];
+        if (enabled) {
+            for (int code = 0; code < fields.length; code++) {
+                fields[code] = dictionary.field(column.getDictionary().get(code));
+            }
+        }
+        return fields;
+    }
+
+    private static int field(int[] fields, int code) {
+        return code >= 0 && code < fields.length ? fields[code] : 0;
+    }
+
+    private static long pack(int city, int product, int currency, int month) {
+        return (long) month << (3 * FIELD_BITS)
+                | (long) city << (2 * FIELD_BITS)
+                | (long) product << FIELD_BITS
+                | currency;
+    }
+
+    private static int unpack(long key, int index) {
+        return (int) (key >>> (index * FIELD_BITS)) & ((1 << FIELD_BITS) - 1);
+    }
+
+    private static int monthField(long epochSeconds) {
+        LocalDate date = LocalDate.ofEpochDay(Math.floorDiv(epochSeconds, SECONDS_PER_DAY));
+        int month = date.getYear() * 12 + date.getMonthValue();
+        checkState(month > 0 && month <= MAXIMUM_FIELD, "Request time out of range: " + epochSeconds);
+        return month;
+    }
+
+    /**
+     * The dictionaries of one aggregation, shared by all its workers so that their keys can be merged as they are.
+     */
+    private static final class Keys {
+
+        final KeyDictionary cities = new KeyDictionary();
+        final KeyDictionary products = new KeyDictionary();
+        final KeyDictionary currencies = new KeyDictionary();
+
+        ActivityAggregation toAggregation(AggregateTable table) {
+            List<ActivityAggregation.Group> groups = new ArrayList<>(table.size());
+            for (int slot = 0; slot < table.capacity(); slot++) {
+                long key = table.key(slot);
+                if (key == AggregateTable.EMPTY) {
+                    continue;
+                }
+                int month = unpack(key, 3);
+                groups.add(new ActivityAggregation.Group(
+                        cities.decode(unpack(key, 2)),
+                        products.decode(unpack(key, 1)),
+                        currencies.decode(unpack(key, 0)),
+                        month == 0 ? null : YearMonth.of((month - 1) / 12, (month - 1) % 12 + 1),
+                        table.rides(slot),
+                        table.distance(slot),
+                        table.fare(slot),
+                        table.fareCount(slot)));
+            }
+            return new ActivityAggregation(groups);
+        }
+    }
+
+    /**
+     * Assigns each distinct string a key field, starting at 1 so that 0 can stand for no value.
+     */
+    private static final class KeyDictionary {
+
+        private final Map<String, Integer> fields = new ConcurrentHashMap<>();
+        private String[] values = new String[16];
+        private int size;
+
+        int field(@Nullable String value) {
+            if (value == null) {
+                return 0;
+            }
+            Integer field = fields.get(value);
+            return field != null ? field : add(value);
+        }
+
+        @Nullable
+        synchronized String decode(int field) {
+            return field == 0 ? null : values[field - 1];
+        }
+
+        private synchronized int add(String value) {
+            Integer field = fields.get(value);
+            if (field != null) {
+                return field;
+            }
+            checkState(size < MAXIMUM_FIELD, "More than " + MAXIMUM_FIELD + " distinct values to group by.");
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+            fields.put(value, size);
+            return size;
+        }
+    }
+
+    /**
+     * Builder for {@link ActivityAggregator}.
+     */
+    public static class Builder {
+
+        private EnumSet<Dimension> dimensions = EnumSet.noneOf(Dimension.class);
+        private String status;
+
+        /**
+         * Sets what rides are grouped by. Optional, and without any dimension every ride is totaled in one group.
+         */
+        public Builder setDimensions(@Nonnull Dimension... dimensions) {
+            checkNotNull(dimensions, "Dimensions must not be null.");
+            EnumSet<Dimension> set = EnumSet.noneOf(Dimension.class);
+            for (Dimension dimension : dimensions) {
+                set.add(checkNotNull(dimension, "Dimension must not be null."));
+            }
+            this.dimensions = set;
+            return this;
+        }
+
+        /**
+         * Sets the status of the rides to total, such as {@code "completed"}. Optional, and by default every ride is
+         * totaled.
+         */
+        public Builder setStatus(@Nullable String status) {
+            this.status = status;
+            return this;
+        }
+
+        public ActivityAggregator build() {
+            return new ActivityAggregator(EnumSet.copyOf(dimensions), status);
+        }
+    }
+}
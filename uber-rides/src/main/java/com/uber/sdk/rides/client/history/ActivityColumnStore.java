@@ -0,0 +1,439 @@
+/*
+ * Copyright (c) 2016 Uber Technologies, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.uber.sdk.rides.client.history;
+
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import static com.uber.sdk.core.client.utils.Preconditions.checkNotNull;
+
+/**
+ * A read-only view of user activities stored column by column in memory-mapped files, written by an
+ * {@link ActivityColumnWriter}.
+ * <p>
+ * Numbers are kept as primitive arrays and strings that repeat, such as statuses, products, currencies and city
+ * names, as codes into a dictionary. Scanning a column therefore reads a contiguous run of the file, which the
+ * operating system pages in and caches, without creating a {@link com.uber.sdk.rides.client.model.UserActivity} or
+ * even a string per row.
+ * <pre>{@code
+ * try (ActivityColumnStore store = ActivityColumnStore.open(directory)) {
+ *     ActivityColumnStore.FloatColumn distances = store.distance();
+ *     double total = 0;
+ *     for (int row = 0; row < store.size(); row++) {
+ *         total += distances.get(row);
+ *     }
+ * }
+ * }</pre>
+ * Each column file is mapped whole, which limits a store to about 268 million rows.
+ */
+public class ActivityColumnStore implements Closeable {
+
+    static final String ROWS = "rows";
+    static final String RIDE_ID_OFFSETS = "ride_id.offsets";
+    static final String RIDE_ID_DATA = "ride_id.data";
+    static final String REQUEST_TIME = "request_time.i64";
+    static final String START_TIME = "start_time.i64";
+    static final String END_TIME = "end_time.i64";
+    static final String DISTANCE = "distance.f32";
+    static final String FARE = "fare.f32";
+    static final String STATUS = "status";
+    static final String PRODUCT_ID = "product_id";
+    static final String CURRENCY_CODE = "currency_code";
+    static final String CITY = "city";
+    static final String CODES = ".codes";
+    static final String DICTIONARY = ".dict";
+
+    /**
+     * The code of a missing value in a {@link DictionaryColumn}.
+     */
+    public static final int NO_VALUE = -1;
+
+    private final int size;
+    private final StringColumn rideId;
+    private final LongColumn requestTime;
+    private final LongColumn startTime;
+    private final LongColumn endTime;
+    private final FloatColumn distance;
+    private final FloatColumn fare;
+    private final DictionaryColumn status;
+    private final DictionaryColumn productId;
+    private final DictionaryColumn currencyCode;
+    private final DictionaryColumn city;
+
+    private ActivityColumnStore(Path directory, int size) throws IOException {
+        this.size = size;
+        this.rideId = new StringColumn(map(directory.resolve(RIDE_ID_OFFSETS), size * 8L),
+                map(directory.resolve(RIDE_ID_DATA), -1), size);
+        this.requestTime = new LongColumn(map(directory.resolve(REQUEST_TIME), size * 8L), size);
+        this.startTime = new LongColumn(map(directory.resolve(START_TIME), size * 8L), size);
+        this.endTime = new LongColumn(map(directory.resolve(END_TIME), size * 8L), size);
+        this.distance = new FloatColumn(map(directory.resolve(DISTANCE), size * 4L), size);
+        this.fare = new FloatColumn(map(directory.resolve(FARE), size * 4L), size);
+        this.status = dictionaryColumn(directory, STATUS, size);
+        this.productId = dictionaryColumn(directory, PRODUCT_ID, size);
+        this.currencyCode = dictionaryColumn(directory, CURRENCY_CODE, size);
+        this.city = dictionaryColumn(directory, CITY, size);
+    }
+
+    /**
+     * Opens the rows committed to a store so far.
+     *
+     * @param directory the directory of the store.
+     * @return the store, which is empty if the directory has none.
+     * @throws IOException if the store could not be read.
+     */
+    @Nonnull
+    public static ActivityColumnStore open(@Nonnull Path directory) throws IOException {
+        checkNotNull(directory, "Directory must not be null.");
+        return new ActivityColumnStore(directory, readRows(directory));
+    }
+
+    /**
+     * @return the number of rows.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Gets the ride IDs.
+     */
+    @Nonnull
+    public StringColumn rideId() {
+        return rideId;
+    }
+
+    /**
+     * Gets the request times, in seconds since the epoch.
+     */
+    @Nonnull
+    public LongColumn requestTime() {
+        return requestTime;
+    }
+
+    /**
+     * Gets the start times, in seconds since the epoch.
+     */
+    @Nonnull
+    public LongColumn startTime() {
+        return startTime;
+    }
+
+    /**
+     * Gets the end times, in seconds since the epoch.
+     */
+    @Nonnull
+    public LongColumn endTime() {
+        return endTime;
+    }
+
+    /**
+     * Gets the distances, in miles.
+     */
+    @Nonnull
+    public FloatColumn distance() {
+        return distance;
+    }
+
+    /**
+     * Gets the fares, which are {@link Float#NaN} when unknown.
+     */
+    @Nonnull
+    public FloatColumn fare() {
+        return fare;
+    }
+
+    /**
+     * Gets the statuses.
+     */
+    @Nonnull
+    public DictionaryColumn status() {
+        return status;
+    }
+
+    /**
+     * Gets the product IDs.
+     */
+    @Nonnull
+    public DictionaryColumn productId() {
+        return productId;
+    }
+
+    /**
+     * Gets the currency codes.
+     */
+    @Nonnull
+    public DictionaryColumn currencyCode() {
+        return currencyCode;
+    }
+
+    /**
+     * Gets the display names of the start cities.
+     */
+    @Nonnull
+    public DictionaryColumn city() {
+        return city;
+    }
+
+    /**
+     * Releases the store. The mappings themselves are released once they are no longer referenced.
+     */
+    @Override
+    public void close() {
+    }
+
+    /**
+     * @return the number of rows committed, or 0 if there is no store in the directory.
+     */
+    static int readRows(Path directory) throws IOException {
+        Path rows = directory.resolve(ROWS);
+        if (!Files.exists(rows)) {
+            return 0;
+        }
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(rows))) {
+            return in.readInt();
+        } catch (EOFException e) {
+            throw new IOException("Corrupt column store: " + directory, e);
+        }
+    }
+
+    /**
+     * @return the strings of a dictionary, in code order.
+     */
+    static List<String> readDictionary(Path file) throws IOException {
+        if (!Files.exists(file)) {
+            return new ArrayList<>();
+        }
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(file))) {
+            int count = in.readInt();
+            List<String> values = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                values.add(in.readUTF());
+            }
+            return values;
+        } catch (EOFException e) {
+            throw new IOException("Corrupt dictionary: " + file, e);
+        }
+    }
+
+    private static DictionaryColumn dictionaryColumn(Path directory, String name, int size) throws IOException {
+        return new DictionaryColumn(map(directory.resolve(name + CODES), size * 4L),
+                readDictionary(directory.resolve(name + DICTIONARY)), size);
+    }
+
+    /**
+     * @param length the number of bytes to map, or -1 for the whole file.
+     */
+    private static ByteBuffer map(Path file, long length) throws IOException {
+        if (length == 0 || !Files.exists(file)) {
+            if (length > 0) {
+                throw new IOException("Missing column: " + file);
+            }
+            return ByteBuffer.allocate(0);
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long mapped = length < 0 ? channel.size() : length;
+            if (channel.size() < mapped) {
+                throw new IOException("Truncated column: " + file);
+            }
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, mapped);
+        }
+    }
+
+    /**
+     * A column of longs.
+     */
+    public static final class LongColumn {
+
+        private final ByteBuffer buffer;
+        private final int size;
+
+        LongColumn(ByteBuffer buffer, int size) {
+            this.buffer = buffer;
+            this.size = size;
+        }
+
+        /**
+         * @return the value of a row.
+         */
+        public long get(int row) {
+            return buffer.getLong(row << 3);
+        }
+
+        /**
+         * @return the number of rows.
+         */
+        public int size() {
+            return size;
+        }
+    }
+
+    /**
+     * A column of floats.
+     */
+    public static final class FloatColumn {
+
+        private final ByteBuffer buffer;
+        private final int size;
+
+        FloatColumn(ByteBuffer buffer, int size) {
+            this.buffer = buffer;
+            this.size = size;
+        }
+
+        /**
+         * @return the value of a row.
+         */
+        public float get(int row) {
+            return buffer.getFloat(row << 2);
+        }
+
+        /**
+         * @return the number of rows.
+         */
+        public int size() {
+            return size;
+        }
+    }
+
+    /**
+     * A column of strings stored as codes into a dictionary of the distinct values.
+     */
+    public static final class DictionaryColumn {
+
+        private final ByteBuffer codes;
+        private final List<String> dictionary;
+        private final Map<String, Integer> lookup;
+        private final int size;
+
+        DictionaryColumn(ByteBuffer codes, List<String> dictionary, int size) {
+            this.codes = codes;
+            this.dictionary = Collections.unmodifiableList(dictionary);
+            this.lookup = new HashMap<>();
+            for (int i = 0; i < dictionary.size(); i++) {
+                lookup.put(dictionary.get(i), i);
+            }
+            this.size = size;
+        }
+
+        /**
+         * @return the code of a row's value, or {@link #NO_VALUE}.
+         */
+        public int getCode(int row) {
+            return codes.getInt(row << 2);
+        }
+
+        /**
+         * @return the value of a row, or {@code null}.
+         */
+        @Nullable
+        public String get(int row) {
+            return decode(getCode(row));
+        }
+
+        /**
+         * @return the value of a code, or {@code null} for {@link #NO_VALUE}.
+         */
+        @Nullable
+        public String decode(int code) {
+            return code >= 0 && code < dictionary.size() ? dictionary.get(code) : null;
+        }
+
+        /**
+         * @return the code of a value, or {@link #NO_VALUE} if no row has it, so that rows can be filtered by
+         * comparing codes.
+         */
+        public int encode(@Nullable String value) {
+            Integer code = value != null ? lookup.get(value) : null;
+            return code != null ? code : NO_VALUE;
+        }
+
+        /**
+         * @return the distinct values, indexed by code.
+         */
+        @Nonnull
+        public List<String> getDictionary() {
+            return dictionary;
+        }
+
+        /**
+         * @return the number of rows.
+         */
+        public int size() {
+            return size;
+        }
+    }
+
+    /**
+     * A column of distinct strings, stored one after the other.
+     */
+    public static final class StringColumn {
+
+        private final ByteBuffer offsets;
+        private final ByteBuffer data;
+        private final int size;
+
+        StringColumn(ByteBuffer offsets, ByteBuffer data, int size) {
+            this.offsets = offsets;
+            this.data = data;
+            this.size = size;
+        }
+
+        /**
+         * @return the value of a row.
+         */
+        @Nonnull
+        public String get(int row) {
+            int start = row == 0 ? 0 : (int) offsets.getLong((row - 1) << 3);
+            int end = (int) offsets.getLong(row << 3);
+            byte[] bytes = new byte[end - start];
+            ByteBuffer view = data.duplicate();
+            view.position(start);
+            view.get(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        /**
+         * @return the number of rows.
+         */
+        public int size() {
+            return size;
+        }
+    }
+}
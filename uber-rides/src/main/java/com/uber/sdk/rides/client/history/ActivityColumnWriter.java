@@ -0,0 +1,330 @@
+/*
+ * Copyright (c) 2016 Uber Technologies, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.uber.sdk.rides.client.history;
+
+import com.uber.sdk.rides.client.model.UserActivity;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import static com.uber.sdk.core.client.utils.Preconditions.checkNotNull;
+import static com.uber.sdk.core.client.utils.Preconditions.checkState;
+import static com.uber.sdk.rides.client.history.ActivityColumnStore.CITY;
+import static com.uber.sdk.rides.client.history.ActivityColumnStore.CODES;
+import static com.uber.sdk.rides.client.history.ActivityColumnStore.CURRENCY_CODE;
+import static com.uber.sdk.rides.client.history.ActivityColumnStore.DICTIONARY;
+import static com.uber.sdk.rides.client.history.ActivityColumnStore.DISTANCE;
+import static com.uber.sdk.rides.client.history.ActivityColumnStore.END_TIME;
+import static com.uber.sdk.rides.client.history.ActivityColumnStore.FARE;
+import static com.uber.sdk.rides.client.history.ActivityColumnStore.NO_VALUE;
+import static com.uber.sdk.rides.client.history.ActivityColumnStore.PRODUCT_ID;
+import static com.uber.sdk.rides.client.history.ActivityColumnStore.REQUEST_TIME;
+import static com.uber.sdk.rides.client.history.ActivityColumnStore.RIDE_ID_DATA;
+import static com.uber.sdk.rides.client.history.ActivityColumnStore.RIDE_ID_OFFSETS;
+import static com.uber.sdk.rides.client.history.ActivityColumnStore.ROWS;
+import static com.uber.sdk.rides.client.history.ActivityColumnStore.START_TIME;
+import static com.uber.sdk.rides.client.history.ActivityColumnStore.STATUS;
+
+/**
+ * Appends user activities to an {@link ActivityColumnStore}, for example as the consumer of a
+ * {@link HistorySync}.
+ * <p>
+ * Rows become visible to {@link ActivityColumnStore#open(Path)} only when {@link #commit()} or {@link #close()}
+ * records the new row count, so readers never see a partial row. The columns are forced to the storage device before
+ * the row count is recorded, so neither does a store reopened after a crash or power loss. Rows added after the last
+ * commit are discarded the next time the store is opened for writing. A store must have at most one writer at a time.
+ */
+public class ActivityColumnWriter implements Consumer<UserActivity>, Closeable {
+
+    /**
+     * The most rows a store can hold, so that every column can be mapped in one buffer.
+     */
+    public static final int MAXIMUM_ROWS = Integer.MAX_VALUE / 8;
+
+    private final Path directory;
+    private final List<FileChannel> channels = new ArrayList<>();
+    private final DataOutputStream rideIdOffsets;
+    private final DataOutputStream rideIdData;
+    private final DataOutputStream requestTime;
+    private final DataOutputStream startTime;
+    private final DataOutputStream endTime;
+    private final DataOutputStream distance;
+    private final DataOutputStream fare;
+    private final Dictionary status;
+    private final Dictionary productId;
+    private final Dictionary currencyCode;
+    private final Dictionary city;
+
+    private int rows;
+    private long rideIdLength;
+    private boolean closed;
+
+    private ActivityColumnWriter(Path directory, int rows) throws IOException {
+        this.directory = directory;
+        this.rows = rows;
+        this.rideIdLength = rows == 0 ? 0 : readLong(directory.resolve(RIDE_ID_OFFSETS), rows - 1);
+        this.rideIdOffsets = append(RIDE_ID_OFFSETS, rows * 8L);
+        this.rideIdData = append(RIDE_ID_DATA, rideIdLength);
+        this.requestTime = append(REQUEST_TIME, rows * 8L);
+        this.startTime = append(START_TIME, rows * 8L);
+        this.endTime = append(END_TIME, rows * 8L);
+        this.distance = append(DISTANCE, rows * 4L);
+        this.fare = append(FARE, rows * 4L);
+        this.status = new Dictionary(STATUS);
+        this.productId = new Dictionary(PRODUCT_ID);
+        this.currencyCode = new Dictionary(CURRENCY_CODE);
+        this.city = new Dictionary(CITY);
+    }
+
+    /**
+     * Opens a store for appending, creating it if the directory has none.
+     *
+     * @param directory the directory of the store.
+     * @return the writer.
+     * @throws IOException if the store could not be opened.
+     */
+    @Nonnull
+    public static ActivityColumnWriter open(@Nonnull Path directory) throws IOException {
+        checkNotNull(directory, "Directory must not be null.");
+        Files.createDirectories(directory);
+        return new ActivityColumnWriter(directory, ActivityColumnStore.readRows(directory));
+    }
+
+    /**
+     * Appends an activity.
+     *
+     * @param activity the activity to append.
+     * @throws IOException if the activity could not be written.
+     */
+    public void add(@Nonnull UserActivity activity) throws IOException {
+        checkNotNull(activity, "Activity must not be null.");
+        checkState(!closed, "Writer is closed.");
+        if (rows == MAXIMUM_ROWS) {
+            throw new IOException("Column store is full: " + directory);
+        }
+        byte[] rideId = activity.getRideId() != null
+                ? activity.getRideId().getBytes(StandardCharsets.UTF_8)
+                : new byte[0];
+        if (rideIdLength + rideId.length > Integer.MAX_VALUE) {
+            throw new IOException("Column store is full: " + directory);
+        }
+
+        rideIdData.write(rideId);
+        rideIdLength += rideId.length;
+        rideIdOffsets.writeLong(rideIdLength);
+        requestTime.writeLong(activity.getRequestTime());
+        startTime.writeLong(activity.getStartTime());
+        endTime.writeLong(activity.getEndTime());
+        distance.writeFloat(activity.getDistance());
+        Float activityFare = activity.getFare();
+        fare.writeFloat(activityFare != null ? activityFare : Float.NaN);
+        status.write(activity.getStatus());
+        productId.write(activity.getProductId());
+        currencyCode.write(activity.getCurrencyCode());
+        city.write(activity.getStartCity() != null ? activity.getStartCity().getDisplayName() : null);
+        rows++;
+    }
+
+    /**
+     * Appends an activity, rethrowing a write failure as an {@link UncheckedIOException}.
+     */
+    @Override
+    public void accept(@Nonnull UserActivity activity) {
+        try {
+            add(activity);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @return the number of rows, including those not committed yet.
+     */
+    public int size() {
+        return rows;
+    }
+
+    /**
+     * Forces the rows added so far to the storage device and makes them visible to readers.
+     *
+     * @throws IOException if the rows could not be written.
+     */
+    public void commit() throws IOException {
+        checkState(!closed, "Writer is closed.");
+        for (DataOutputStream column : new DataOutputStream[] {
+                rideIdOffsets, rideIdData, requestTime, startTime, endTime, distance, fare }) {
+            column.flush();
+        }
+        for (Dictionary dictionary : new Dictionary[] { status, productId, currencyCode, city }) {
+            dictionary.commit();
+        }
+        for (FileChannel channel : channels) {
+            channel.force(false);
+        }
+        // The row count goes last: until it is replaced, readers keep seeing the previous rows only.
+        replace(ROWS, out -> out.writeInt(rows));
+    }
+
+    /**
+     * Commits the rows added so far and closes the column files.
+     *
+     * @throws IOException if the rows could not be written.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        try {
+            commit();
+        } finally {
+            closed = true;
+            for (Closeable column : new Closeable[] {
+                    rideIdOffsets, rideIdData, requestTime, startTime, endTime, distance, fare,
+                    status.codes, productId.codes, currencyCode.codes, city.codes }) {
+                column.close();
+            }
+        }
+    }
+
+    /**
+     * Opens a column for appending after its committed rows, dropping whatever an interrupted writer left behind.
+     */
+    private DataOutputStream append(String name, long committedLength) throws IOException {
+        Path file = directory.resolve(name);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            if (channel.size() < committedLength) {
+                throw new IOException("Truncated column: " + file);
+            }
+            channel.truncate(committedLength);
+        }
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        channels.add(channel);
+        return new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+    }
+
+    private void replace(String name, Content content) throws IOException {
+        Path file = directory.resolve(name);
+        Path temp = directory.resolve(name + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+            content.write(out);
+            out.flush();
+            channel.force(false);
+        }
+        try {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static long readLong(Path file, int index) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(8);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, index * 8L + buffer.position()) < 0) {
+                    throw new IOException("Truncated column: " + file);
+                }
+            }
+            return buffer.getLong(0);
+        }
+    }
+
+    private interface Content {
+
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    /**
+     * A dictionary-encoded column and the strings seen so far.
+     */
+    private final class Dictionary {
+
+        private final String name;
+        private final DataOutputStream codes;
+        private final List<String> values;
+        private final Map<String, Integer> lookup = new HashMap<>();
+        private int committed;
+
+        Dictionary(String name) throws IOException {
+            this.name = name;
+            this.codes = append(name + CODES, rows * 4L);
+            this.values = ActivityColumnStore.readDictionary(directory.resolve(name + DICTIONARY));
+            this.committed = values.size();
+            for (int i = 0; i < values.size(); i++) {
+                lookup.put(values.get(i), i);
+            }
+        }
+
+        void write(@Nullable String value) throws IOException {
+            int code = NO_VALUE;
+            if (value != null) {
+                Integer known = lookup.get(value);
+                if (known == null) {
+                    known = values.size();
+                    values.add(value);
+                    lookup.put(value, known);
+                }
+                code = known;
+            }
+            codes.writeInt(code);
+        }
+
+        void commit() throws IOException {
+            codes.flush();
+            if (committed == values.size()) {
+                return;
+            }
+            final List<String> snapshot = new ArrayList<>(values);
+            replace(name + DICTIONARY, out -> {
+                out.writeInt(snapshot.size());
+                for (String value : snapshot) {
+                    out.writeUTF(value);
+                }
+            });
+            committed = snapshot.size();
+        }
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright (c) 2016 Uber Technologies, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.uber.sdk.rides.client.history;
+
+import java.util.Arrays;
+
+/**
+ * An open-addressing hash table from packed group keys to ride count, distance and fare totals, kept in parallel
+ * primitive arrays so that accumulating a ride neither boxes nor allocates.
+ */
+final class AggregateTable {
+
+    /**
+     * The key of an unused slot, which {@link ActivityAggregator} never produces.
+     */
+    static final long EMPTY = -1L;
+
+    private long[] keys;
+    private long[] rides;
+    private double[] distances;
+    private double[] fares;
+    private long[] fareCounts;
+    private int size;
+
+    AggregateTable() {
+        allocate(16);
+    }
+
+    /**
+     * Adds a ride to its group.
+     *
+     * @param fare the fare, or {@link Float#NaN} if unknown.
+     */
+    void add(long key, double distance, float fare) {
+        int slot = slot(key);
+        rides[slot]++;
+        distances[slot] += distance;
+        if (!Float.isNaN(fare)) {
+            fares[slot] += fare;
+            fareCounts[slot]++;
+        }
+    }
+
+    /**
+     * Adds the totals of another table into this one.
+     *
+     * @return this table.
+     */
+    AggregateTable merge(AggregateTable other) {
+        for (int i = 0; i < other.keys.length; i++) {
+            if (other.keys[i] != EMPTY) {
+                int slot = slot(other.keys[i]);
+                rides[slot] += other.rides[i];
+                distances[slot] += other.distances[i];
+                fares[slot] += other.fares[i];
+                fareCounts[slot] += other.fareCounts[i];
+            }
+        }
+        return this;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return the number of slots, some of which are {@link #EMPTY}.
+     */
+    int capacity() {
+        return keys.length;
+    }
+
+    long key(int slot) {
+        return keys[slot];
+    }
+
+    long rides(int slot) {
+        return rides[slot];
+    }
+
+    double distance(int slot) {
+        return distances[slot];
+    }
+
+    double fare(int slot) {
+        return fares[slot];
+    }
+
+    long fareCount(int slot) {
+        return fareCounts[slot];
+    }
+
+    /**
+     * @return the slot of a key, claiming one if the key is new.
+     */
+    private int slot(long key) {
+        int mask = keys.length - 1;
+        int slot = hash(key) & mask;
+        while (keys[slot] != key) {
+            if (keys[slot] == EMPTY) {
+                // Keep at most half the slots used, so that probe sequences stay short.
+                if (size + 1 > keys.length / 2) {
+                    grow();
+                    return slot(key);
+                }
+                keys[slot] = key;
+                size++;
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        long[] oldRides = rides;
+        double[] oldDistances = distances;
+        double[] oldFares = fares;
+        long[] oldFareCounts = fareCounts;
+        allocate(oldKeys.length * 2);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                int slot = slot(oldKeys[i]);
+                rides[slot] = oldRides[i];
+                distances[slot] = oldDistances[i];
+                fares[slot] = oldFares[i];
+                fareCounts[slot] = oldFareCounts[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        Arrays.fill(keys, EMPTY);
+        rides = new long[capacity];
+        distances = new double[capacity];
+        fares = new double[capacity];
+        fareCounts = new long[capacity];
+        size = 0;
+    }
+
+    private static int hash(long key) {
+        long mixed = key * 0x9E3779B97F4A7C15L;
+        return (int) (mixed ^ (mixed >>> 32));
+    }
+}
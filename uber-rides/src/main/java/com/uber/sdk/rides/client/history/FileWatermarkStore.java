@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2016 Uber Technologies, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.uber.sdk.rides.client.history;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Properties;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import static com.uber.sdk.core.client.utils.Preconditions.checkNotNull;
+
+/**
+ * A {@link WatermarkStore} that keeps every user's watermark in a properties file. The file is read once and
+ * replaced atomically on each update, so a crash never leaves it half written.
+ */
+public class FileWatermarkStore implements WatermarkStore {
+
+    private final Path file;
+    private Properties watermarks;
+
+    /**
+     * @param file the file to keep the watermarks in, which is created on the first update.
+     */
+    public FileWatermarkStore(@Nonnull Path file) {
+        this.file = checkNotNull(file, "File must not be null.");
+    }
+
+    @Nullable
+    @Override
+    public synchronized Watermark get(@Nonnull String userKey) throws IOException {
+        String value = load().getProperty(userKey);
+        if (value == null) {
+            return null;
+        }
+        int separator = value.indexOf(':');
+        if (separator < 0) {
+            throw new IOException("Corrupt watermark for " + userKey + " in " + file + ": " + value);
+        }
+        try {
+            return new Watermark(Long.parseLong(value.substring(0, separator)), value.substring(separator + 1));
+        } catch (NumberFormatException e) {
+            throw new IOException("Corrupt watermark for " + userKey + " in " + file + ": " + value, e);
+        }
+    }
+
+    @Override
+    public synchronized void put(@Nonnull String userKey, @Nonnull Watermark watermark) throws IOException {
+        Properties updated = new Properties();
+        updated.putAll(load());
+        updated.setProperty(userKey, watermark.getRequestTime() + ":" + watermark.getRideId());
+
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            updated.store(writer, null);
+        }
+        try {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+        watermarks = updated;
+    }
+
+    private Properties load() throws IOException {
+        if (watermarks == null) {
+            Properties loaded = new Properties();
+            if (Files.exists(file)) {
+                try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                    loaded.load(reader);
+                }
+            }
+            watermarks = loaded;
+        }
+        return watermarks;
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright (c) 2016 Uber Technologies, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.uber.sdk.rides.client.history;
+
+import com.uber.sdk.rides.client.error.ApiError;
+
+import javax.annotation.Nullable;
+
+/**
+ * Thrown when a page of a user's history, or the receipt of a ride in it, could not be fetched.
+ */
+public class HistoryException extends RuntimeException {
+
+    @Nullable
+    private final ApiError apiError;
+
+    /**
+     * @param message the detail message.
+     * @param apiError the error returned by the API, or {@code null} if the request failed.
+     * @param cause the cause of the failure if the request failed, otherwise {@code null}.
+     */
+    public HistoryException(String message, @Nullable ApiError apiError, @Nullable Throwable cause) {
+        super(message, cause);
+        this.apiError = apiError;
+    }
+
+    /**
+     * Gets the error returned by the API, or {@code null} if the request failed.
+     */
+    @Nullable
+    public ApiError getApiError() {
+        return apiError;
+    }
+}
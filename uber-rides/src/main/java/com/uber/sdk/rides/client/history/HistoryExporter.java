@@ -0,0 +1,454 @@
+/*
+ * Copyright (c) 2016 Uber Technologies, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.uber.sdk.rides.client.history;
+
+import com.uber.sdk.rides.client.model.RideReceipt;
+import com.uber.sdk.rides.client.model.UserActivity;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import static com.uber.sdk.core.client.utils.Preconditions.checkNotNull;
+import static com.uber.sdk.core.client.utils.Preconditions.checkState;
+
+/**
+ * Writes user activities, and optionally their receipts, as CSV or JSON lines.
+ * <p>
+ * Each record is formatted into a reused character buffer and encoded straight into a direct byte buffer that is
+ * written to the channel whenever it fills. Exporting a {@link UserActivityHistory} therefore holds only the pages
+ * being fetched and one buffer, whatever the length of the history.
+ * <pre>{@code
+ * try (FileChannel channel = FileChannel.open(path, CREATE, WRITE, TRUNCATE_EXISTING);
+ *      HistoryExporter exporter = HistoryExporter.to(channel).setFormat(Format.JSON_LINES).build()) {
+ *     exporter.export(UserActivityHistory.with(service).build());
+ * }
+ * }</pre>
+ * CSV files start with a header row and quote values as described in RFC 4180. JSON lines use the field names of
+ * the API. Charge adjustments of receipts are only written as JSON.
+ */
+public final class HistoryExporter implements Flushable, Closeable {
+
+    /**
+     * The formats an exporter writes.
+     */
+    public enum Format {
+        /**
+         * Comma-separated values, with nested fields flattened into columns.
+         */
+        CSV,
+        /**
+         * One JSON object per line.
+         */
+        JSON_LINES
+    }
+
+    private static final String[] ACTIVITY_COLUMNS = {
+            "request_id", "status", "distance", "request_time", "start_time", "end_time", "product_id",
+            "start_city_display_name", "start_city_latitude", "start_city_longitude", "fare", "currency_code" };
+    private static final String[] RECEIPT_COLUMNS = {
+            "receipt_subtotal", "receipt_total_charged", "receipt_total_owed", "receipt_currency_code",
+            "receipt_duration", "receipt_distance", "receipt_distance_label" };
+
+    private final WritableByteChannel channel;
+    private final Format format;
+    private final boolean includeReceipts;
+    private final ByteBuffer buffer;
+    private final StringBuilder record = new StringBuilder(512);
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder();
+    private boolean started;
+    private boolean closed;
+
+    HistoryExporter(@Nonnull WritableByteChannel channel, @Nonnull Format format, boolean includeReceipts,
+                    int bufferSize) {
+        this.channel = channel;
+        this.format = format;
+        this.includeReceipts = includeReceipts;
+        this.buffer = ByteBuffer.allocateDirect(bufferSize);
+    }
+
+    /**
+     * @param channel the channel to write to, such as a {@link java.nio.channels.FileChannel}, which the exporter
+     *                closes.
+     * @return a builder for a {@link HistoryExporter}.
+     */
+    @Nonnull
+    public static Builder to(@Nonnull WritableByteChannel channel) {
+        return new Builder(checkNotNull(channel, "Channel must not be null."));
+    }
+
+    /**
+     * @param out the stream to write to, which the exporter closes.
+     * @return a builder for a {@link HistoryExporter}.
+     */
+    @Nonnull
+    public static Builder to(@Nonnull OutputStream out) {
+        return new Builder(Channels.newChannel(checkNotNull(out, "Output stream must not be null.")));
+    }
+
+    /**
+     * Writes every activity, fetching the pages of a {@link UserActivityHistory} as it goes.
+     *
+     * @param activities the activities to write.
+     * @return the number of activities written.
+     * @throws IOException if the records could not be written.
+     * @throws HistoryException if a page of the history could not be fetched.
+     */
+    public long export(@Nonnull Iterable<? extends UserActivity> activities) throws IOException {
+        checkNotNull(activities, "Activities must not be null.");
+        long count = 0;
+        for (UserActivity activity : activities) {
+            write(activity, null);
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Writes an activity without a receipt.
+     *
+     * @param activity the activity to write.
+     * @throws IOException if the record could not be written.
+     */
+    public void write(@Nonnull UserActivity activity) throws IOException {
+        write(activity, null);
+    }
+
+    /**
+     * Writes an activity and its receipt.
+     *
+     * @param activity the activity to write.
+     * @param receipt the receipt of the ride, or {@code null} if it has none.
+     * @throws IOException if the record could not be written.
+     */
+    public void write(@Nonnull UserActivity activity, @Nullable RideReceipt receipt) throws IOException {
+        checkNotNull(activity, "Activity must not be null.");
+        checkState(receipt == null || includeReceipts, "Exporter was built without receipts.");
+        start();
+        if (format == Format.CSV) {
+            appendCsv(activity, receipt);
+        } else {
+            appendJson(activity, receipt);
+        }
+        emit();
+    }
+
+    /**
+     * Writes the buffered records to the channel.
+     *
+     * @throws IOException if the records could not be written.
+     */
+    @Override
+    public void flush() throws IOException {
+        checkState(!closed, "Exporter is closed.");
+        start();
+        drain();
+    }
+
+    /**
+     * Writes the buffered records and closes the channel.
+     *
+     * @throws IOException if the records could not be written.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        try {
+            flush();
+        } finally {
+            closed = true;
+            channel.close();
+        }
+    }
+
+    private void start() throws IOException {
+        checkState(!closed, "Exporter is closed.");
+        if (started) {
+            return;
+        }
+        started = true;
+        if (format == Format.CSV) {
+            appendHeader(ACTIVITY_COLUMNS);
+            if (includeReceipts) {
+                record.append(',');
+                appendHeader(RECEIPT_COLUMNS);
+            }
+            record.append('\n');
+            emit();
+        }
+    }
+
+    private void appendHeader(String[] columns) {
+        for (int i = 0; i < columns.length; i++) {
+            if (i > 0) {
+                record.append(',');
+            }
+            record.append(columns[i]);
+        }
+    }
+
+    private void appendCsv(UserActivity activity, @Nullable RideReceipt receipt) {
+        UserActivity.City city = activity.getStartCity();
+        csv(activity.getRideId()).append(',');
+        csv(activity.getStatus()).append(',');
+        record.append(activity.getDistance()).append(',');
+        record.append(activity.getRequestTime()).append(',');
+        record.append(activity.getStartTime()).append(',');
+        record.append(activity.getEndTime()).append(',');
+        csv(activity.getProductId()).append(',');
+        csv(city != null ? city.getDisplayName() : null).append(',');
+        csv(city != null ? city.getLatitude() : null).append(',');
+        csv(city != null ? city.getLongitude() : null).append(',');
+        csv(activity.getFare()).append(',');
+        csv(activity.getCurrencyCode());
+        if (includeReceipts) {
+            record.append(',');
+            csv(receipt != null ? receipt.getSubTotal() : null).append(',');
+            csv(receipt != null ? receipt.getTotalCharged() : null).append(',');
+            csv(receipt != null ? receipt.getTotalOwed() : null).append(',');
+            csv(receipt != null ? receipt.getCurrencyCode() : null).append(',');
+            csv(receipt != null ? receipt.getDuration() : null).append(',');
+            csv(receipt != null ? receipt.getDistance() : null).append(',');
+            csv(receipt != null ? receipt.getDistanceLabel() : null);
+        }
+        record.append('\n');
+    }
+
+    private StringBuilder csv(@Nullable Float value) {
+        return value != null ? record.append(value.floatValue()) : record;
+    }
+
+    private StringBuilder csv(@Nullable String value) {
+        if (value == null) {
+            return record;
+        }
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            return record.append(value);
+        }
+        record.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                record.append('"');
+            }
+            record.append(c);
+        }
+        return record.append('"');
+    }
+
+    private void appendJson(UserActivity activity, @Nullable RideReceipt receipt) {
+        UserActivity.City city = activity.getStartCity();
+        record.append('{');
+        json("request_id", activity.getRideId()).append(',');
+        json("status", activity.getStatus()).append(',');
+        json("distance", activity.getDistance()).append(',');
+        json("request_time", activity.getRequestTime()).append(',');
+        json("start_time", activity.getStartTime()).append(',');
+        json("end_time", activity.getEndTime()).append(',');
+        json("product_id", activity.getProductId()).append(',');
+        name("start_city");
+        if (city == null) {
+            record.append("null");
+        } else {
+            record.append('{');
+            json("display_name", city.getDisplayName()).append(',');
+            json("latitude", city.getLatitude()).append(',');
+            json("longitude", city.getLongitude()).append('}');
+        }
+        record.append(',');
+        json("fare", activity.getFare()).append(',');
+        json("currency_code", activity.getCurrencyCode());
+        if (includeReceipts) {
+            record.append(',');
+            name("receipt");
+            if (receipt == null) {
+                record.append("null");
+            } else {
+                appendJson(receipt);
+            }
+        }
+        record.append("}\n");
+    }
+
+    private void appendJson(RideReceipt receipt) {
+        record.append('{');
+        json("subtotal", receipt.getSubTotal()).append(',');
+        json("total_charged", receipt.getTotalCharged()).append(',');
+        json("total_owed", receipt.getTotalOwed()).append(',');
+        json("currency_code", receipt.getCurrencyCode()).append(',');
+        json("duration", receipt.getDuration()).append(',');
+        json("distance", receipt.getDistance()).append(',');
+        json("distance_label", receipt.getDistanceLabel()).append(',');
+        name("charge_adjustments");
+        List<RideReceipt.Charge> charges = receipt.getChargeAdjustments();
+        if (charges == null) {
+            record.append("null");
+        } else {
+            record.append('[');
+            for (int i = 0; i < charges.size(); i++) {
+                RideReceipt.Charge charge = charges.get(i);
+                if (i > 0) {
+                    record.append(',');
+                }
+                record.append('{');
+                json("name", charge.getName()).append(',');
+                json("amount", charge.getAmount()).append(',');
+                json("type", charge.getType()).append('}');
+            }
+            record.append(']');
+        }
+        record.append('}');
+    }
+
+    private StringBuilder json(String name, @Nullable String value) {
+        name(name);
+        return value != null ? string(value) : record.append("null");
+    }
+
+    private StringBuilder json(String name, @Nullable Float value) {
+        name(name);
+        return value != null && !value.isNaN() && !value.isInfinite()
+                ? record.append(value.floatValue())
+                : record.append("null");
+    }
+
+    private StringBuilder json(String name, long value) {
+        return name(name).append(value);
+    }
+
+    private StringBuilder name(String name) {
+        return string(name).append(':');
+    }
+
+    private StringBuilder string(String value) {
+        record.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                record.append('\\').append(c);
+            } else if (c == '\n') {
+                record.append("\\n");
+            } else if (c == '\r') {
+                record.append("\\r");
+            } else if (c == '\t') {
+                record.append("\\t");
+            } else if (c < 0x20 || c == '\u2028' || c == '\u2029') {
+                record.append(String.format("\\u%04x", (int) c));
+            } else {
+                record.append(c);
+            }
+        }
+        return record.append('"');
+    }
+
+    /**
+     * Encodes the record into the buffer, writing the buffer out each time it fills.
+     */
+    private void emit() throws IOException {
+        CharBuffer chars = CharBuffer.wrap(record);
+        while (true) {
+            CoderResult result = encoder.encode(chars, buffer, true);
+            if (result.isOverflow()) {
+                drain();
+            } else if (result.isUnderflow()) {
+                break;
+            } else {
+                result.throwException();
+            }
+        }
+        encoder.reset();
+        record.setLength(0);
+    }
+
+    private void drain() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Builder for {@link HistoryExporter}.
+     */
+    public static class Builder {
+
+        private final WritableByteChannel channel;
+        private Format format = Format.CSV;
+        private boolean includeReceipts;
+        private int bufferSize = 64 * 1024;
+
+        Builder(@Nonnull WritableByteChannel channel) {
+            this.channel = channel;
+        }
+
+        /**
+         * Sets the format of the records. Optional and defaults to {@link Format#CSV}.
+         */
+        public Builder setFormat(@Nonnull Format format) {
+            this.format = checkNotNull(format, "Format must not be null.");
+            return this;
+        }
+
+        /**
+         * Sets whether records have receipt fields, which {@link HistoryExporter#write(UserActivity, RideReceipt)}
+         * fills. Optional and defaults to {@code false}.
+         */
+        public Builder setIncludeReceipts(boolean includeReceipts) {
+            this.includeReceipts = includeReceipts;
+            return this;
+        }
+
+        /**
+         * Sets the number of bytes buffered before writing to the channel. Optional and defaults to 64KiB.
+         */
+        public Builder setBufferSize(int bufferSize) {
+            checkState(bufferSize >= 16, "Buffer size must be at least 16 bytes.");
+            this.bufferSize = bufferSize;
+            return this;
+        }
+
+        public HistoryExporter build() {
+            return new HistoryExporter(channel, format, includeReceipts, bufferSize);
+        }
+    }
+}
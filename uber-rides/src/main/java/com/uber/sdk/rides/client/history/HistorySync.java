@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2016 Uber Technologies, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.uber.sdk.rides.client.history;
+
+import com.uber.sdk.rides.client.model.UserActivity;
+import com.uber.sdk.rides.client.services.RidesService;
+
+import java.io.IOException;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
+
+import javax.annotation.Nonnull;
+
+import static com.uber.sdk.core.client.utils.Preconditions.checkNotNull;
+import static com.uber.sdk.core.client.utils.Preconditions.checkState;
+
+/**
+ * Reads only the part of a user's history that is new since the last sync.
+ * <p>
+ * The history is read newest first, one page at a time, until the activity recorded as the user's
+ * {@link Watermark} is reached. Only the activities before it are passed on, so a sync costs a request per page of
+ * new rides instead of the whole history. The first sync of a user reads their whole history.
+ * <pre>{@code
+ * HistorySync sync = new HistorySync(new FileWatermarkStore(Paths.get("watermarks.properties")));
+ * int added = sync.sync(service, userUuid, activity -> warehouse.insert(activity));
+ * }</pre>
+ * The watermark only moves once every new activity was passed on, so a sync that fails passes the same activities
+ * on again the next time.
+ */
+public class HistorySync {
+
+    private final WatermarkStore store;
+    private final int pageSize;
+
+    /**
+     * Creates a sync that reads pages of {@link UserActivityHistory#MAXIMUM_PAGE_SIZE} activities.
+     *
+     * @param store keeps the watermarks between syncs.
+     */
+    public HistorySync(@Nonnull WatermarkStore store) {
+        this(store, UserActivityHistory.MAXIMUM_PAGE_SIZE);
+    }
+
+    /**
+     * @param store keeps the watermarks between syncs.
+     * @param pageSize the number of activities per request, which should be about the number of new activities
+     * expected per sync.
+     */
+    public HistorySync(@Nonnull WatermarkStore store, int pageSize) {
+        checkState(pageSize > 0 && pageSize <= UserActivityHistory.MAXIMUM_PAGE_SIZE,
+                "Page size must be between 1 and " + UserActivityHistory.MAXIMUM_PAGE_SIZE + ".");
+        this.store = checkNotNull(store, "Store must not be null.");
+        this.pageSize = pageSize;
+    }
+
+    /**
+     * Passes the user's new activities on, newest first, then moves their watermark to the newest one.
+     *
+     * @param service the service of the user, authorized with the {@code history} scope.
+     * @param userKey identifies the user in the {@link WatermarkStore}.
+     * @param consumer receives each new activity.
+     * @return the number of new activities.
+     * @throws IOException if the watermark could not be read or written.
+     * @throws HistoryException if a page could not be fetched.
+     */
+    public int sync(@Nonnull RidesService service,
+                    @Nonnull String userKey,
+                    @Nonnull Consumer<? super UserActivity> consumer) throws IOException {
+        checkNotNull(service, "Service must not be null.");
+        checkNotNull(userKey, "User key must not be null.");
+        checkNotNull(consumer, "Consumer must not be null.");
+
+        Watermark watermark = store.get(userKey);
+        Watermark newest = null;
+        int count = 0;
+
+        // Pages are fetched one at a time, as the sync usually stops within the first one.
+        try (PrefetchingIterator iterator = new PrefetchingIterator(service, pageSize, 0, new Semaphore(1), 0,
+                Integer.MAX_VALUE, null)) {
+            while (iterator.hasNext()) {
+                UserActivity activity = iterator.next();
+                if (watermark != null && watermark.covers(activity)) {
+                    break;
+                }
+                if (newest == null && activity.getRideId() != null) {
+                    newest = new Watermark(activity.getRequestTime(), activity.getRideId());
+                }
+                consumer.accept(activity);
+                count++;
+            }
+        }
+
+        if (newest != null) {
+            store.put(userKey, newest);
+        }
+        return count;
+    }
+}
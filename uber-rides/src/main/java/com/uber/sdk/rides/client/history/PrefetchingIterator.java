@@ -0,0 +1,239 @@
+/*
+ * Copyright (c) 2016 Uber Technologies, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.uber.sdk.rides.client.history;
+
+import com.uber.sdk.rides.client.error.ErrorParser;
+import com.uber.sdk.rides.client.model.UserActivity;
+import com.uber.sdk.rides.client.model.UserActivityPage;
+import com.uber.sdk.rides.client.services.RidesService;
+
+import java.io.Closeable;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.annotation.Nullable;
+
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+
+/**
+ * Iterates over a range of a user's history page by page, keeping up to a number of the following pages in flight.
+ * <p>
+ * The first page tells how many activities there are, which bounds the pages requested after it. At most the
+ * current page and {@code prefetchDepth} pages are held at once, however long the history is. Each request holds a
+ * permit of a semaphore shared by every iterator of the same history; pages are only prefetched while permits are
+ * free.
+ */
+final class PrefetchingIterator implements Iterator<UserActivity>, Closeable {
+
+    private final RidesService service;
+    private final int pageSize;
+    private final int prefetchDepth;
+    private final Semaphore permits;
+    private final int end;
+    private final ArrayDeque<PendingPage> pending = new ArrayDeque<>();
+    private Iterator<UserActivity> current = Collections.emptyIterator();
+    private int nextOffset;
+    private int count = -1;
+    private boolean closed;
+
+    /**
+     * @param start the offset of the first page.
+     * @param end the offset the range ends at, or {@link Integer#MAX_VALUE} to read to the end of the history.
+     * @param firstPage the page at {@code start} if it was already fetched, otherwise {@code null}.
+     */
+    PrefetchingIterator(RidesService service,
+                        int pageSize,
+                        int prefetchDepth,
+                        Semaphore permits,
+                        int start,
+                        int end,
+                        @Nullable UserActivityPage firstPage) {
+        this.service = service;
+        this.pageSize = pageSize;
+        this.prefetchDepth = prefetchDepth;
+        this.permits = permits;
+        this.end = end;
+        this.nextOffset = start;
+        if (firstPage != null) {
+            nextOffset += pageSize;
+            onPage(firstPage);
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (!current.hasNext()) {
+            if (closed) {
+                return false;
+            }
+            if (pending.isEmpty()) {
+                if (count >= 0 && nextOffset >= Math.min(count, end)) {
+                    close();
+                    return false;
+                }
+                acquire();
+                request();
+            }
+
+            if (!onPage(await(pending.poll()))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public UserActivity next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return current.next();
+    }
+
+    /**
+     * Cancels the pages still in flight.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        current = Collections.emptyIterator();
+        PendingPage page;
+        while ((page = pending.poll()) != null) {
+            page.call.cancel();
+            page.release();
+        }
+    }
+
+    /**
+     * @return {@code false} if the page is empty, which ends the iteration.
+     */
+    private boolean onPage(UserActivityPage page) {
+        if (count < 0) {
+            count = page.getCount();
+        }
+        List<UserActivity> activities = page.getUserActivities();
+        if (activities == null || activities.isEmpty()) {
+            // The history is shorter than planned, for instance because rides were deleted meanwhile.
+            close();
+            return false;
+        }
+        while (pending.size() < prefetchDepth && nextOffset < Math.min(count, end) && permits.tryAcquire()) {
+            request();
+        }
+        current = activities.iterator();
+        return true;
+    }
+
+    private void acquire() {
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            close();
+            throw new HistoryException("Interrupted while waiting to fetch history at offset " + nextOffset + ".",
+                    null, e);
+        }
+    }
+
+    /**
+     * Requests the next page with a permit that was already acquired.
+     */
+    private void request() {
+        final int offset = nextOffset;
+        nextOffset += pageSize;
+
+        final PendingPage page;
+        try {
+            page = new PendingPage(service.getUserActivity(offset, pageSize), offset);
+        } catch (RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+        pending.add(page);
+        page.call.enqueue(new Callback<UserActivityPage>() {
+            @Override
+            public void onResponse(Call<UserActivityPage> call, Response<UserActivityPage> response) {
+                page.release();
+                if (response.isSuccessful() && response.body() != null) {
+                    page.future.complete(response.body());
+                } else {
+                    page.future.completeExceptionally(new HistoryException(
+                            "Unable to fetch history at offset " + offset + ".",
+                            ErrorParser.parseError(response), null));
+                }
+            }
+
+            @Override
+            public void onFailure(Call<UserActivityPage> call, Throwable t) {
+                page.release();
+                page.future.completeExceptionally(
+                        new HistoryException("Unable to fetch history at offset " + offset + ".", null, t));
+            }
+        });
+    }
+
+    private UserActivityPage await(PendingPage page) {
+        try {
+            return page.future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            close();
+            throw new HistoryException("Interrupted while fetching history at offset " + page.offset + ".",
+                    null, e);
+        } catch (ExecutionException e) {
+            close();
+            throw (HistoryException) e.getCause();
+        }
+    }
+
+    private final class PendingPage {
+
+        final Call<UserActivityPage> call;
+        final int offset;
+        final CompletableFuture<UserActivityPage> future = new CompletableFuture<>();
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        PendingPage(Call<UserActivityPage> call, int offset) {
+            this.call = call;
+            this.offset = offset;
+        }
+
+        /**
+         * Returns the page's permit, once, whether the request completed or was cancelled.
+         */
+        void release() {
+            if (released.compareAndSet(false, true)) {
+                permits.release();
+            }
+        }
+    }
+}
@@ -0,0 +1,333 @@
+/*
+ * Copyright (c) 2016 Uber Technologies, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.uber.sdk.rides.client.history;
+
+import com.uber.sdk.rides.client.error.ErrorParser;
+import com.uber.sdk.rides.client.model.RideReceipt;
+import com.uber.sdk.rides.client.model.UserActivity;
+import com.uber.sdk.rides.client.services.RidesService;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+
+import static com.uber.sdk.core.client.utils.Preconditions.checkNotNull;
+import static com.uber.sdk.core.client.utils.Preconditions.checkState;
+
+/**
+ * Joins user activities with the receipts of their rides, fetching the receipts concurrently while the activities are
+ * read.
+ * <p>
+ * Receipts are requested for completed rides not already in the {@link ReceiptStore}, with at most
+ * {@code maximumConcurrentRequests} in flight. Records are emitted in the order of the activities, and at most
+ * {@code window} activities are read ahead of the record being emitted, so a slow receipt or a slow sink holds back
+ * the reading of the history rather than filling a queue.
+ * <pre>{@code
+ * ReceiptPipeline pipeline = ReceiptPipeline.with(service).setReceiptStore(store).build();
+ * try (HistoryExporter exporter = HistoryExporter.to(out).setIncludeReceipts(true).build()) {
+ *     pipeline.run(UserActivityHistory.with(service).build(),
+ *             record -> exporter.write(record.getActivity(), record.getReceipt()));
+ * }
+ * }</pre>
+ */
+public class ReceiptPipeline {
+
+    /**
+     * The status of the rides whose receipts are fetched.
+     */
+    public static final String COMPLETED = "completed";
+
+    private final RidesService service;
+    private final ReceiptStore store;
+    private final int window;
+    private final int maximumConcurrentRequests;
+
+    ReceiptPipeline(@Nonnull RidesService service,
+                    @Nullable ReceiptStore store,
+                    int window,
+                    int maximumConcurrentRequests) {
+        this.service = service;
+        this.store = store;
+        this.window = window;
+        this.maximumConcurrentRequests = maximumConcurrentRequests;
+    }
+
+    /**
+     * @param service the service used to fetch the receipts.
+     * @return a builder for a {@link ReceiptPipeline}.
+     */
+    @Nonnull
+    public static Builder with(@Nonnull RidesService service) {
+        return new Builder(checkNotNull(service, "Service must not be null."));
+    }
+
+    /**
+     * Emits a record for every activity, in order, on the calling thread.
+     *
+     * @param activities the activities, such as a {@link UserActivityHistory}.
+     * @param sink receives the records.
+     * @return the number of receipts fetched from the API.
+     * @throws IOException if the receipt store or the sink fails.
+     * @throws HistoryException if the history or a receipt could not be fetched.
+     */
+    public int run(@Nonnull Iterable<? extends UserActivity> activities, @Nonnull Sink sink) throws IOException {
+        checkNotNull(activities, "Activities must not be null.");
+        checkNotNull(sink, "Sink must not be null.");
+        Run run = new Run();
+        Iterator<? extends UserActivity> iterator = activities.iterator();
+        try {
+            while (true) {
+                while (run.pending.size() < window && iterator.hasNext()) {
+                    run.start(iterator.next());
+                }
+                PendingRecord head = run.pending.poll();
+                if (head == null) {
+                    return run.fetched;
+                }
+                RideReceipt receipt = run.await(head);
+                if (head.call != null && receipt != null && store != null) {
+                    store.put(head.activity.getRideId(), receipt);
+                }
+                sink.accept(new Record(head.activity, receipt));
+            }
+        } finally {
+            run.cancel();
+            // Stops the prefetching of a history that is left unread.
+            if (iterator instanceof Closeable) {
+                ((Closeable) iterator).close();
+            }
+        }
+    }
+
+    /**
+     * Receives the records of a {@link ReceiptPipeline}.
+     */
+    public interface Sink {
+
+        /**
+         * @param record the next record.
+         */
+        void accept(@Nonnull Record record) throws IOException;
+    }
+
+    /**
+     * An activity joined with the receipt of its ride.
+     */
+    public static final class Record {
+
+        private final UserActivity activity;
+        private final RideReceipt receipt;
+
+        Record(@Nonnull UserActivity activity, @Nullable RideReceipt receipt) {
+            this.activity = activity;
+            this.receipt = receipt;
+        }
+
+        /**
+         * Gets the activity.
+         */
+        @Nonnull
+        public UserActivity getActivity() {
+            return activity;
+        }
+
+        /**
+         * Gets the receipt, which is {@code null} unless the ride was completed.
+         */
+        @Nullable
+        public RideReceipt getReceipt() {
+            return receipt;
+        }
+    }
+
+    /**
+     * The records of one {@link #run(Iterable, Sink)} that are read but not emitted yet.
+     */
+    private final class Run {
+
+        final Queue<PendingRecord> pending = new ArrayDeque<>();
+        final Semaphore permits = new Semaphore(maximumConcurrentRequests);
+        int fetched;
+
+        void start(UserActivity activity) throws IOException {
+            PendingRecord record = new PendingRecord(activity);
+            pending.add(record);
+            if (!COMPLETED.equals(activity.getStatus()) || activity.getRideId() == null) {
+                record.future.complete(null);
+                return;
+            }
+            RideReceipt held = store != null ? store.get(activity.getRideId()) : null;
+            if (held != null) {
+                record.future.complete(held);
+                return;
+            }
+            fetch(record);
+        }
+
+        private void fetch(final PendingRecord record) {
+            final String rideId = record.activity.getRideId();
+            try {
+                permits.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new HistoryException("Interrupted while waiting to fetch the receipt of " + rideId + ".",
+                        null, e);
+            }
+            try {
+                record.call = service.getRideReceipt(rideId);
+            } catch (RuntimeException e) {
+                permits.release();
+                throw e;
+            }
+            record.permits = permits;
+            fetched++;
+            record.call.enqueue(new Callback<RideReceipt>() {
+                @Override
+                public void onResponse(Call<RideReceipt> call, Response<RideReceipt> response) {
+                    record.release();
+                    if (response.isSuccessful() && response.body() != null) {
+                        record.future.complete(response.body());
+                    } else {
+                        record.future.completeExceptionally(new HistoryException(
+                                "Unable to fetch the receipt of " + rideId + ".",
+                                ErrorParser.parseError(response), null));
+                    }
+                }
+
+                @Override
+                public void onFailure(Call<RideReceipt> call, Throwable t) {
+                    record.release();
+                    record.future.completeExceptionally(
+                            new HistoryException("Unable to fetch the receipt of " + rideId + ".", null, t));
+                }
+            });
+        }
+
+        @Nullable
+        RideReceipt await(PendingRecord record) {
+            try {
+                return record.future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new HistoryException("Interrupted while fetching the receipt of "
+                        + record.activity.getRideId() + ".", null, e);
+            } catch (ExecutionException e) {
+                throw (HistoryException) e.getCause();
+            }
+        }
+
+        /**
+         * Cancels the receipts still in flight when a run ends early.
+         */
+        void cancel() {
+            for (PendingRecord record : pending) {
+                if (record.call != null) {
+                    record.call.cancel();
+                    record.release();
+                }
+            }
+            pending.clear();
+        }
+    }
+
+    private static final class PendingRecord {
+
+        final UserActivity activity;
+        final CompletableFuture<RideReceipt> future = new CompletableFuture<>();
+        private final AtomicBoolean released = new AtomicBoolean();
+        Call<RideReceipt> call;
+        Semaphore permits;
+
+        PendingRecord(UserActivity activity) {
+            this.activity = activity;
+        }
+
+        /**
+         * Returns the record's permit, once, whether the request completed or was cancelled.
+         */
+        void release() {
+            if (permits != null && released.compareAndSet(false, true)) {
+                permits.release();
+            }
+        }
+    }
+
+    /**
+     * Builder for {@link ReceiptPipeline}.
+     */
+    public static class Builder {
+
+        private final RidesService service;
+        private ReceiptStore store;
+        private int window = 32;
+        private int maximumConcurrentRequests = 4;
+
+        Builder(@Nonnull RidesService service) {
+            this.service = service;
+        }
+
+        /**
+         * Sets where receipts are looked up before fetching them, and kept once fetched. Optional, and by default
+         * every receipt is fetched.
+         */
+        public Builder setReceiptStore(@Nullable ReceiptStore store) {
+            this.store = store;
+            return this;
+        }
+
+        /**
+         * Sets the largest number of activities read ahead of the record being emitted. Optional and defaults to 32.
+         */
+        public Builder setWindow(int window) {
+            checkState(window > 0, "Window must be positive.");
+            this.window = window;
+            return this;
+        }
+
+        /**
+         * Sets the largest number of receipt requests in flight at once. Optional and defaults to 4.
+         */
+        public Builder setMaximumConcurrentRequests(int maximumConcurrentRequests) {
+            checkState(maximumConcurrentRequests > 0, "Maximum concurrent requests must be positive.");
+            this.maximumConcurrentRequests = maximumConcurrentRequests;
+            return this;
+        }
+
+        public ReceiptPipeline build() {
+            return new ReceiptPipeline(service, store, window, maximumConcurrentRequests);
+        }
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright (c) 2016 Uber Technologies, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.uber.sdk.rides.client.history;
+
+import com.uber.sdk.rides.client.model.UserActivity;
+import com.uber.sdk.rides.client.services.RidesService;
+
+import java.util.Iterator;
+import java.util.concurrent.Semaphore;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import javax.annotation.Nonnull;
+
+import static com.uber.sdk.core.client.utils.Preconditions.checkNotNull;
+import static com.uber.sdk.core.client.utils.Preconditions.checkState;
+
+/**
+ * The full history of a user, fetched with {@link RidesService#getUserActivity(Integer, Integer)} as it is iterated.
+ * <p>
+ * While the caller works through a page, the following pages are already being fetched, so reading a long history
+ * takes about as long as its slowest pages rather than the sum of all of them. Only the current page and the
+ * prefetched ones are held in memory.
+ * <pre>{@code
+ * UserActivityHistory history = UserActivityHistory.with(service).setPrefetchDepth(4).build();
+ * for (UserActivity activity : history) {
+ *     ...
+ * }
+ * }</pre>
+ * {@link #stream()} can also be made parallel, in which case the history is split into offset ranges once the
+ * first page tells its length, and the ranges are fetched concurrently. However it is read, a history never has more
+ * than {@code maximumConcurrentRequests} requests in flight.
+ * <pre>{@code
+ * Map<String, Long> ridesByCity = history.stream()
+ *         .parallel()
+ *         .collect(groupingBy(activity -> activity.getStartCity().getDisplayName(), counting()));
+ * }</pre>
+ * Each iteration fetches the history again. Failures are thrown from the iterator as {@link HistoryException}.
+ */
+public class UserActivityHistory implements Iterable<UserActivity> {
+
+    /**
+     * The largest page the API returns.
+     */
+    public static final int MAXIMUM_PAGE_SIZE = 50;
+
+    private final RidesService service;
+    private final int pageSize;
+    private final int prefetchDepth;
+    private final Semaphore permits;
+
+    UserActivityHistory(@Nonnull RidesService service, int pageSize, int prefetchDepth, int maximumConcurrentRequests) {
+        this.service = service;
+        this.pageSize = pageSize;
+        this.prefetchDepth = prefetchDepth;
+        this.permits = new Semaphore(maximumConcurrentRequests);
+    }
+
+    /**
+     * @param service the service used to fetch the history.
+     * @return a builder for a {@link UserActivityHistory}.
+     */
+    @Nonnull
+    public static Builder with(@Nonnull RidesService service) {
+        return new Builder(checkNotNull(service, "Service must not be null."));
+    }
+
+    /**
+     * @return an iterator over the history, newest first.
+     */
+    @Override
+    public Iterator<UserActivity> iterator() {
+        return new PrefetchingIterator(service, pageSize, prefetchDepth, permits, 0, Integer.MAX_VALUE, null);
+    }
+
+    /**
+     * @return a sequential stream of the history, newest first, which may be made parallel and cancels the pages in
+     * flight once closed.
+     */
+    @Nonnull
+    public Stream<UserActivity> stream() {
+        UserActivitySpliterator spliterator = new UserActivitySpliterator(service, pageSize, prefetchDepth, permits);
+        return StreamSupport.stream(spliterator, false).onClose(spliterator::close);
+    }
+
+    /**
+     * Builder for {@link UserActivityHistory}.
+     */
+    public static class Builder {
+
+        private final RidesService service;
+        private int pageSize = MAXIMUM_PAGE_SIZE;
+        private int prefetchDepth = 2;
+        private int maximumConcurrentRequests = 4;
+
+        Builder(@Nonnull RidesService service) {
+            this.service = service;
+        }
+
+        /**
+         * Sets the number of activities per request. Optional and defaults to {@link #MAXIMUM_PAGE_SIZE}.
+         */
+        public Builder setPageSize(int pageSize) {
+            checkState(pageSize > 0 && pageSize <= MAXIMUM_PAGE_SIZE,
+                    "Page size must be between 1 and " + MAXIMUM_PAGE_SIZE + ".");
+            this.pageSize = pageSize;
+            return this;
+        }
+
+        /**
+         * Sets the number of pages fetched ahead of the one being read. Optional and defaults to 2.
+         */
+        public Builder setPrefetchDepth(int prefetchDepth) {
+            checkState(prefetchDepth >= 0, "Prefetch depth must not be negative.");
+            this.prefetchDepth = prefetchDepth;
+            return this;
+        }
+
+        /**
+         * Sets the largest number of requests in flight at once, across every iteration and stream of the history.
+         * Optional and defaults to 4.
+         */
+        public Builder setMaximumConcurrentRequests(int maximumConcurrentRequests) {
+            checkState(maximumConcurrentRequests > 0, "Maximum concurrent requests must be positive.");
+            this.maximumConcurrentRequests = maximumConcurrentRequests;
+            return this;
+        }
+
+        public UserActivityHistory build() {
+            return new UserActivityHistory(service, pageSize, prefetchDepth, maximumConcurrentRequests);
+        }
+    }
+}
@@ -0,0 +1,179 @@
+/*
+ * Copyright (c) 2016 Uber Technologies, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.uber.sdk.rides.client.history;
+
+import com.uber.sdk.rides.client.error.ErrorParser;
+import com.uber.sdk.rides.client.model.UserActivity;
+import com.uber.sdk.rides.client.model.UserActivityPage;
+import com.uber.sdk.rides.client.services.RidesService;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Queue;
+import java.util.Spliterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
+
+import javax.annotation.Nullable;
+
+import retrofit2.Response;
+
+/**
+ * Splits a user's history by offset range, so that a parallel stream fetches the pages of each range independently.
+ * <p>
+ * The first split fetches the first page, whose count tells how far the history goes; from then on ranges are halved
+ * along page boundaries until they are a single page. Each range is read with a {@link PrefetchingIterator}, and all
+ * of them share the history's semaphore, which caps the number of requests in flight.
+ */
+final class UserActivitySpliterator implements Spliterator<UserActivity>, Closeable {
+
+    private final RidesService service;
+    private final int pageSize;
+    private final int prefetchDepth;
+    private final Semaphore permits;
+    private final Queue<PrefetchingIterator> iterators;
+    private int start;
+    private int end;
+    @Nullable
+    private UserActivityPage firstPage;
+    @Nullable
+    private PrefetchingIterator iterator;
+
+    UserActivitySpliterator(RidesService service, int pageSize, int prefetchDepth, Semaphore permits) {
+        this(service, pageSize, prefetchDepth, permits, new ConcurrentLinkedQueue<PrefetchingIterator>(), 0,
+                Integer.MAX_VALUE, null);
+    }
+
+    private UserActivitySpliterator(RidesService service,
+                                    int pageSize,
+                                    int prefetchDepth,
+                                    Semaphore permits,
+                                    Queue<PrefetchingIterator> iterators,
+                                    int start,
+                                    int end,
+                                    @Nullable UserActivityPage firstPage) {
+        this.service = service;
+        this.pageSize = pageSize;
+        this.prefetchDepth = prefetchDepth;
+        this.permits = permits;
+        this.iterators = iterators;
+        this.start = start;
+        this.end = end;
+        this.firstPage = firstPage;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super UserActivity> action) {
+        PrefetchingIterator iterator = iterator();
+        if (!iterator.hasNext()) {
+            return false;
+        }
+        action.accept(iterator.next());
+        return true;
+    }
+
+    @Override
+    public void forEachRemaining(Consumer<? super UserActivity> action) {
+        PrefetchingIterator iterator = iterator();
+        while (iterator.hasNext()) {
+            action.accept(iterator.next());
+        }
+    }
+
+    @Override
+    @Nullable
+    public Spliterator<UserActivity> trySplit() {
+        if (iterator != null) {
+            return null;
+        }
+        if (end == Integer.MAX_VALUE) {
+            firstPage = fetchFirstPage();
+            end = Math.max(firstPage.getCount(), start);
+        }
+
+        int pages = (end - start + pageSize - 1) / pageSize;
+        if (pages < 2) {
+            return null;
+        }
+        int middle = start + pages / 2 * pageSize;
+        UserActivitySpliterator prefix = new UserActivitySpliterator(service, pageSize, prefetchDepth, permits,
+                iterators, start, middle, firstPage);
+        start = middle;
+        firstPage = null;
+        return prefix;
+    }
+
+    @Override
+    public long estimateSize() {
+        return end == Integer.MAX_VALUE ? Long.MAX_VALUE : end - start;
+    }
+
+    @Override
+    public int characteristics() {
+        // Not SIZED, as the history may change while it is read.
+        return ORDERED | NONNULL;
+    }
+
+    /**
+     * Cancels the pages still in flight in every range split from the same history.
+     */
+    @Override
+    public void close() {
+        PrefetchingIterator each;
+        while ((each = iterators.poll()) != null) {
+            each.close();
+        }
+    }
+
+    private PrefetchingIterator iterator() {
+        if (iterator == null) {
+            iterator = new PrefetchingIterator(service, pageSize, prefetchDepth, permits, start, end, firstPage);
+            firstPage = null;
+            iterators.add(iterator);
+        }
+        return iterator;
+    }
+
+    private UserActivityPage fetchFirstPage() {
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new HistoryException("Interrupted while waiting to fetch history at offset " + start + ".",
+                    null, e);
+        }
+        try {
+            Response<UserActivityPage> response = service.getUserActivity(start, pageSize).execute();
+            if (!response.isSuccessful() || response.body() == null) {
+                throw new HistoryException("Unable to fetch history at offset " + start + ".",
+                        ErrorParser.parseError(response), null);
+            }
+            return response.body();
+        } catch (IOException e) {
+            throw new HistoryException("Unable to fetch history at offset " + start + ".", null, e);
+        } finally {
+            permits.release();
+        }
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2016 Uber Technologies, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.uber.sdk.rides.client.history;
+
+import com.uber.sdk.rides.client.model.UserActivity;
+
+import javax.annotation.Nonnull;
+
+import static com.uber.sdk.core.client.utils.Preconditions.checkNotNull;
+
+/**
+ * The newest activity of a user's history seen by the last {@link HistorySync}.
+ */
+public final class Watermark {
+
+    private final long requestTime;
+    private final String rideId;
+
+    /**
+     * @param requestTime the request time of the activity, in seconds since the epoch.
+     * @param rideId the ride ID of the activity.
+     */
+    public Watermark(long requestTime, @Nonnull String rideId) {
+        this.requestTime = requestTime;
+        this.rideId = checkNotNull(rideId, "Ride id must not be null.");
+    }
+
+    /**
+     * Gets the request time of the activity, in seconds since the epoch.
+     */
+    public long getRequestTime() {
+        return requestTime;
+    }
+
+    /**
+     * Gets the ride ID of the activity.
+     */
+    @Nonnull
+    public String getRideId() {
+        return rideId;
+    }
+
+    /**
+     * @return whether the activity is the watermark or older, in which case it was already seen.
+     */
+    boolean covers(@Nonnull UserActivity activity) {
+        return activity.getRequestTime() < requestTime || rideId.equals(activity.getRideId());
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        Watermark watermark = (Watermark) o;
+        return requestTime == watermark.requestTime && rideId.equals(watermark.rideId);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * (int) (requestTime ^ (requestTime >>> 32)) + rideId.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return "Watermark{requestTime=" + requestTime + ", rideId=" + rideId + '}';
+    }
+}
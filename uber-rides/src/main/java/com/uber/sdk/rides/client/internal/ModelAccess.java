@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2016 Uber Technologies, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.uber.sdk.rides.client.internal;
+
+import com.uber.sdk.rides.client.model.Ride;
+
+import javax.annotation.Nonnull;
+
+import static com.uber.sdk.core.client.utils.Preconditions.checkNotNull;
+import static com.uber.sdk.core.client.utils.Preconditions.checkState;
+
+/**
+ * Gives the other packages of the SDK access to package-private parts of the models, which are not part of the public
+ * API. The model package sets the implementation when {@link Ride} is initialized.
+ */
+public abstract class ModelAccess {
+
+    /**
+     * The nested objects of a ride that lazy decoding defers.
+     */
+    public enum NestedObject {
+        DRIVER,
+        VEHICLE,
+        PICKUP,
+        DESTINATION
+    }
+
+    private static volatile ModelAccess instance;
+
+    /**
+     * Sets the implementation, which can only be done once.
+     *
+     * @param access the implementation.
+     */
+    public static void set(@Nonnull ModelAccess access) {
+        checkNotNull(access, "Must supply a ModelAccess.");
+        synchronized (ModelAccess.class) {
+            checkState(instance == null, "Model access was already set.");
+            instance = access;
+        }
+    }
+
+    /**
+     * Gets the implementation, initializing {@link Ride} first if needed.
+     */
+    @Nonnull
+    public static ModelAccess get() {
+        ModelAccess access = instance;
+        if (access == null) {
+            try {
+                Class.forName(Ride.class.getName(), true, Ride.class.getClassLoader());
+            } catch (ClassNotFoundException e) {
+                throw new AssertionError(e);
+            }
+            access = instance;
+        }
+        return access;
+    }
+
+    /**
+     * Tells whether a nested object of two rides is known to be identical without decoding it, which is only when both
+     * rides were decoded lazily, neither object was decoded yet and their JSON is byte for byte the same.
+     *
+     * @param ride a ride.
+     * @param other the other ride.
+     * @param nestedObject the nested object to compare.
+     * @return {@code false} if it cannot be told without decoding, which does not mean the objects differ.
+     */
+    public abstract boolean hasSameJson(@Nonnull Ride ride, @Nonnull Ride other, @Nonnull NestedObject nestedObject);
+}
@@ -0,0 +1,204 @@
+/*
+ * Copyright (c) 2016 Uber Technologies, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.uber.sdk.rides.client.model;
+
+import com.squareup.moshi.JsonAdapter;
+import com.squareup.moshi.JsonReader;
+import com.squareup.moshi.JsonWriter;
+import com.squareup.moshi.Moshi;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import okio.Buffer;
+
+import static com.uber.sdk.core.client.utils.Preconditions.checkNotNull;
+
+/**
+ * Decodes {@link Ride}s and {@link RideEstimate}s without their nested objects, which are decoded the first time
+ * their getter is called. Polling a ride for its status and location then does not decode its driver, vehicle,
+ * pickup or destination, unless their getters are called, and a {@code RideTracker} listener comparing two
+ * snapshots only decodes the nested objects whose JSON changed.
+ * <p>
+ * The nested objects are kept as ranges of the response's JSON, so a model holds the whole response until every
+ * nested object has been read or the model is discarded. The other members are copied as they are read and decoded by
+ * the model's adapter from the {@link Moshi}.
+ */
+public final class LazyModelDecoder {
+
+    private static final String[] RIDE_NESTED_OBJECTS = { "driver", "vehicle", "pickup", "destination" };
+    private static final String[] RIDE_ESTIMATE_NESTED_OBJECTS = { "fare", "estimate", "trip" };
+
+    private final JsonAdapter<Ride> rideAdapter;
+    private final JsonAdapter<?>[] rideNestedAdapters;
+    private final JsonAdapter<RideEstimate> rideEstimateAdapter;
+    private final JsonAdapter<?>[] rideEstimateNestedAdapters;
+
+    /**
+     * Creates a {@link LazyModelDecoder}.
+     *
+     * @param moshi the {@link Moshi} with the adapters for the fields and nested objects.
+     */
+    @Nonnull
+    public static LazyModelDecoder create(@Nonnull Moshi moshi) {
+        return new LazyModelDecoder(checkNotNull(moshi, "Must supply a Moshi."));
+    }
+
+    private LazyModelDecoder(@Nonnull Moshi moshi) {
+        rideAdapter = moshi.adapter(Ride.class);
+        rideNestedAdapters = new JsonAdapter<?>[] {
+                moshi.adapter(Driver.class), moshi.adapter(Vehicle.class),
+                moshi.adapter(Location.class), moshi.adapter(Location.class) };
+        rideEstimateAdapter = moshi.adapter(RideEstimate.class);
+        rideEstimateNestedAdapters = new JsonAdapter<?>[] {
+                moshi.adapter(RideEstimate.Fare.class), moshi.adapter(RideEstimate.Estimate.class),
+                moshi.adapter(RideEstimate.Trip.class) };
+    }
+
+    /**
+     * Decodes a {@link Ride}.
+     *
+     * @param json the JSON of the ride, which must not be modified afterwards.
+     * @return the {@link Ride}, or {@code null} if the JSON is {@code null}.
+     * @throws IOException if the JSON is not a valid ride.
+     */
+    @Nullable
+    @SuppressWarnings("unchecked")
+    public Ride decodeRide(@Nonnull byte[] json) throws IOException {
+        LazyValue<?>[] nestedObjects = new LazyValue<?>[RIDE_NESTED_OBJECTS.length];
+        Ride ride = decode(json, rideAdapter, RIDE_NESTED_OBJECTS, rideNestedAdapters, nestedObjects);
+        if (ride != null) {
+            ride.lazyDriver = (LazyValue<Driver>) nestedObjects[0];
+            ride.lazyVehicle = (LazyValue<Vehicle>) nestedObjects[1];
+            ride.lazyPickup = (LazyValue<Location>) nestedObjects[2];
+            ride.lazyDestination = (LazyValue<Location>) nestedObjects[3];
+        }
+        return ride;
+    }
+
+    /**
+     * Decodes a {@link RideEstimate}.
+     *
+     * @param json the JSON of the ride estimate, which must not be modified afterwards.
+     * @return the {@link RideEstimate}, or {@code null} if the JSON is {@code null}.
+     * @throws IOException if the JSON is not a valid ride estimate.
+     */
+    @Nullable
+    @SuppressWarnings("unchecked")
+    public RideEstimate decodeRideEstimate(@Nonnull byte[] json) throws IOException {
+        LazyValue<?>[] nestedObjects = new LazyValue<?>[RIDE_ESTIMATE_NESTED_OBJECTS.length];
+        RideEstimate rideEstimate = decode(json, rideEstimateAdapter, RIDE_ESTIMATE_NESTED_OBJECTS,
+                rideEstimateNestedAdapters, nestedObjects);
+        if (rideEstimate != null) {
+            rideEstimate.lazyFare = (LazyValue<RideEstimate.Fare>) nestedObjects[0];
+            rideEstimate.lazyEstimate = (LazyValue<RideEstimate.Estimate>) nestedObjects[1];
+            rideEstimate.lazyTrip = (LazyValue<RideEstimate.Trip>) nestedObjects[2];
+        }
+        return rideEstimate;
+    }
+
+    /**
+     * Reads the members named in {@code names} into {@code nestedObjects}, at the same index, and decodes the model
+     * from the other members.
+     */
+    @Nullable
+    private static <T> T decode(byte[] json, JsonAdapter<T> adapter, String[] names, JsonAdapter<?>[] adapters,
+            LazyValue<?>[] nestedObjects) throws IOException {
+        LazyValue.Source source = new LazyValue.Source(json);
+        JsonReader reader = source.newReader();
+        if (reader.peek() == JsonReader.Token.NULL) {
+            return reader.nextNull();
+        }
+
+        Buffer members = new Buffer();
+        JsonWriter writer = JsonWriter.of(members);
+        writer.setLenient(reader.isLenient());
+        reader.beginObject();
+        writer.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            int index = indexOf(names, name);
+            if (index >= 0) {
+                nestedObjects[index] = source.read(reader, adapters[index]);
+            } else {
+                writer.name(name);
+                copy(reader, writer);
+            }
+        }
+        reader.endObject();
+        writer.endObject();
+
+        JsonReader membersReader = JsonReader.of(members);
+        membersReader.setLenient(reader.isLenient());
+        return adapter.fromJson(membersReader);
+    }
+
+    private static int indexOf(String[] names, String name) {
+        for (int i = 0; i < names.length; i++) {
+            if (names[i].equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static void copy(JsonReader reader, JsonWriter writer) throws IOException {
+        switch (reader.peek()) {
+            case BEGIN_ARRAY:
+                reader.beginArray();
+                writer.beginArray();
+                while (reader.hasNext()) {
+                    copy(reader, writer);
+                }
+                reader.endArray();
+                writer.endArray();
+                break;
+            case BEGIN_OBJECT:
+                reader.beginObject();
+                writer.beginObject();
+                while (reader.hasNext()) {
+                    writer.name(reader.nextName());
+                    copy(reader, writer);
+                }
+                reader.endObject();
+                writer.endObject();
+                break;
+            case STRING:
+                writer.value(reader.nextString());
+                break;
+            case NUMBER:
+                writer.value(new BigDecimal(reader.nextString()));
+                break;
+            case BOOLEAN:
+                writer.value(reader.nextBoolean());
+                break;
+            default:
+                reader.nextNull();
+                writer.nullValue();
+                break;
+        }
+    }
+}
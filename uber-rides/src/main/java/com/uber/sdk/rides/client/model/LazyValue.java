@@ -0,0 +1,183 @@
+/*
+ * Copyright (c) 2016 Uber Technologies, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.uber.sdk.rides.client.model;
+
+import com.squareup.moshi.JsonAdapter;
+import com.squareup.moshi.JsonDataException;
+import com.squareup.moshi.JsonReader;
+
+import java.io.IOException;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import okio.Buffer;
+import okio.BufferedSource;
+import okio.Okio;
+import okio.Timeout;
+
+/**
+ * A nested object of a model that is decoded the first time it is needed, from the raw JSON kept for it by
+ * {@link LazyModelDecoder}.
+ *
+ * @param <T> the type of the nested object.
+ */
+final class LazyValue<T> {
+
+    @Nullable
+    private JsonAdapter<T> adapter;
+    @Nullable
+    private byte[] json;
+    private final int offset;
+    private final int length;
+    private final boolean lenient;
+    @Nullable
+    private T value;
+
+    private LazyValue(@Nullable JsonAdapter<T> adapter, @Nullable byte[] json, int offset, int length, boolean lenient,
+            @Nullable T value) {
+        this.adapter = adapter;
+        this.json = json;
+        this.offset = offset;
+        this.length = length;
+        this.lenient = lenient;
+        this.value = value;
+    }
+
+    /**
+     * Gets the nested object, decoding it on the first call.
+     *
+     * @throws JsonDataException if the raw JSON is not a valid object of its type.
+     */
+    @Nullable
+    synchronized T get() {
+        if (adapter != null) {
+            JsonReader reader = JsonReader.of(new Buffer().write(json, offset, length));
+            reader.setLenient(lenient);
+            try {
+                value = adapter.fromJson(reader);
+            } catch (IOException e) {
+                throw new JsonDataException(e);
+            }
+            adapter = null;
+            json = null;
+        }
+        return value;
+    }
+
+    /**
+     * Tells whether two nested objects are known to be identical without decoding them, which is when neither was
+     * decoded yet and their JSON is byte for byte the same.
+     *
+     * @return {@code false} if either was decoded, which does not mean they differ.
+     */
+    static boolean isSameJson(@Nullable LazyValue<?> first, @Nullable LazyValue<?> second) {
+        if (first == null || second == null || first.length != second.length) {
+            return false;
+        }
+        byte[] firstJson = first.json();
+        byte[] secondJson = second.json();
+        if (firstJson == null || secondJson == null) {
+            return false;
+        }
+        for (int i = 0; i < first.length; i++) {
+            if (firstJson[first.offset + i] != secondJson[second.offset + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Nullable
+    private synchronized byte[] json() {
+        return json;
+    }
+
+    /**
+     * The JSON of a response being decoded, which the nested objects read from it are kept in.
+     */
+    static final class Source {
+
+        private final byte[] json;
+        private final BufferedSource source;
+        private int read;
+
+        Source(@Nonnull byte[] json) {
+            this.json = json;
+            // Hands the JSON to the reader a segment at a time, rather than copying all of it into a buffer.
+            this.source = Okio.buffer(new okio.Source() {
+                @Override
+                public long read(Buffer sink, long byteCount) {
+                    if (read == Source.this.json.length) {
+                        return -1;
+                    }
+                    int count = (int) Math.min(byteCount, Source.this.json.length - read);
+                    sink.write(Source.this.json, read, count);
+                    read += count;
+                    return count;
+                }
+
+                @Override
+                public Timeout timeout() {
+                    return Timeout.NONE;
+                }
+
+                @Override
+                public void close() {
+                }
+            });
+        }
+
+        /**
+         * The reader of the response, which must be used to read all of it.
+         */
+        @Nonnull
+        JsonReader newReader() {
+            return JsonReader.of(source);
+        }
+
+        /**
+         * Reads the next value, keeping its JSON to decode later if it is an object. Any other value, and every value
+         * of a reader that fails on unknown names, is decoded right away, since skipping it could not check it.
+         */
+        @Nonnull
+        <T> LazyValue<T> read(@Nonnull JsonReader reader, @Nonnull JsonAdapter<T> adapter) throws IOException {
+            if (reader.failOnUnknown() || reader.peek() != JsonReader.Token.BEGIN_OBJECT) {
+                return new LazyValue<>(null, null, 0, 0, false, adapter.fromJson(reader));
+            }
+
+            // The reader has consumed the opening brace, and consumes the closing one last when skipping.
+            int start = position() - 1;
+            reader.skipValue();
+            int end = position();
+            if (json[start] != '{' || json[end - 1] != '}') {
+                throw new IllegalStateException("Could not find the object at " + reader.getPath() + ".");
+            }
+            return new LazyValue<>(adapter, json, start, end - start, reader.isLenient(), null);
+        }
+
+        private int position() {
+            return read - (int) source.buffer().size();
+        }
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) 2016 Uber Technologies, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.uber.sdk.rides.client.model;
+
+import com.squareup.moshi.JsonAdapter;
+import com.squareup.moshi.JsonReader;
+import com.squareup.moshi.JsonWriter;
+import com.squareup.moshi.Moshi;
+import com.uber.sdk.core.client.internal.JsonRegistry;
+import com.uber.sdk.core.client.utils.StringCanonicalizer;
+
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Gets the {@link Moshi} that the rides module decodes and encodes its models with. Models are read by Moshi's
+ * reflective adapters, which the shared {@link Moshi} of {@link JsonRegistry} builds once per process and reuses for
+ * every service, parser and cache.
+ */
+public final class ModelAdapters {
+
+    /**
+     * Wraps the adapters of {@link Ride} and {@link RideEstimate} so that models read by a {@link LazyModelDecoder}
+     * are encoded with the nested objects they have not decoded yet.
+     */
+    public static final JsonAdapter.Factory FACTORY = new JsonAdapter.Factory() {
+        @Override
+        public JsonAdapter<?> create(Type type, Set<? extends Annotation> annotations, Moshi moshi) {
+            if (!annotations.isEmpty()) {
+                return null;
+            }
+            if (type == Ride.class) {
+                return new NestedObjectsAdapter<>(moshi.<Ride>nextAdapter(this, type, annotations),
+                        Ride::decodeNestedObjects);
+            }
+            if (type == RideEstimate.class) {
+                return new NestedObjectsAdapter<>(moshi.<RideEstimate>nextAdapter(this, type, annotations),
+                        RideEstimate::decodeNestedObjects);
+            }
+            return null;
+        }
+    };
+
+    private ModelAdapters() {}
+
+    /**
+     * Gets the {@link Moshi} shared through {@link JsonRegistry}, registering {@link #FACTORY} with it first.
+     */
+    @Nonnull
+    public static Moshi moshi() {
+        JsonRegistry.register(FACTORY);
+        return JsonRegistry.getMoshi();
+    }
+
+    /**
+     * Creates a {@link Moshi} with the adapters of {@link #moshi()} that canonicalizes every string it decodes. Its
+     * adapters are built for it alone, so it should be created once per converter and reused.
+     *
+     * @param canonicalizer the {@link StringCanonicalizer} of the decoded strings.
+     */
+    @Nonnull
+    public static Moshi moshi(@Nonnull StringCanonicalizer canonicalizer) {
+        JsonRegistry.register(FACTORY);
+        return JsonRegistry.newBuilder().add(String.class, canonicalizer.adapter()).build();
+    }
+
+    /**
+     * Decodes the nested objects of a model before Moshi's adapter encodes its fields.
+     */
+    private static final class NestedObjectsAdapter<T> extends JsonAdapter<T> {
+
+        private final JsonAdapter<T> delegate;
+        private final Consumer<T> decodeNestedObjects;
+
+        NestedObjectsAdapter(JsonAdapter<T> delegate, Consumer<T> decodeNestedObjects) {
+            this.delegate = delegate;
+            this.decodeNestedObjects = decodeNestedObjects;
+        }
+
+        @Override
+        public T fromJson(JsonReader reader) throws IOException {
+            return delegate.fromJson(reader);
+        }
+
+        @Override
+        public void toJson(JsonWriter writer, T value) throws IOException {
+            if (value != null) {
+                decodeNestedObjects.accept(value);
+            }
+            delegate.toJson(writer, value);
+        }
+
+        @Override
+        public String toString() {
+            return delegate + ".withNestedObjects()";
+        }
+    }
+}
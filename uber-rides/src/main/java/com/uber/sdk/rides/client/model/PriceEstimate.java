@@ -49,6 +49,43 @@ public class PriceEstimate {
     @Nullable
     private Float distance;
 
+    /**
+     * Used when decoding from JSON.
+     */
+    private PriceEstimate() {}
+
+    /**
+     * Constructor.
+     * @param productId Unique identifier representing a specific product.
+     * @param currencyCode ISO 4217 currency code.
+     * @param displayName Display name of product.
+     * @param estimate Formatted string of estimate in local currency of the start location.
+     * @param lowEstimate Lower bound of the estimated price.
+     * @param highEstimate Upper bound of the estimated price.
+     * @param surgeMultiplier Expected surge multiplier.
+     * @param duration Expected activity duration (in seconds).
+     * @param distance Expected activity distance (in miles).
+     */
+    public PriceEstimate(String productId,
+                         @Nullable String currencyCode,
+                         String displayName,
+                         String estimate,
+                         @Nullable BigDecimal lowEstimate,
+                         @Nullable BigDecimal highEstimate,
+                         @Nullable Float surgeMultiplier,
+                         @Nullable Integer duration,
+                         @Nullable Float distance) {
+        this.product_id = productId;
+        this.currency_code = currencyCode;
+        this.display_name = displayName;
+        this.estimate = estimate;
+        this.low_estimate = lowEstimate;
+        this.high_estimate = highEstimate;
+        this.surge_multiplier = surgeMultiplier;
+        this.duration = duration;
+        this.distance = distance;
+    }
+
     /**
      * Unique identifier representing a specific product for a given latitude &amp; longitude. For
      * example, uberX in San Francisco will have a different product_id than uberX in Los Angeles.
@@ -31,6 +31,19 @@ public class PriceEstimatesResponse {
 
     private List<PriceEstimate> prices;
 
+    /**
+     * Used when decoding from JSON.
+     */
+    private PriceEstimatesResponse() {}
+
+    /**
+     * Constructor.
+     * @param prices The price estimates.
+     */
+    public PriceEstimatesResponse(List<PriceEstimate> prices) {
+        this.prices = prices;
+    }
+
     /**
      * The price estimates.
      */
@@ -23,9 +23,14 @@
 package com.uber.sdk.rides.client.model;
 
 import com.squareup.moshi.Json;
+import com.uber.sdk.rides.client.internal.ModelAccess;
+import com.uber.sdk.rides.client.internal.ModelAccess.NestedObject;
 
+import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
+import static com.uber.sdk.core.client.utils.Preconditions.checkNotNull;
+
 /**
  * An ongoing or completed ride. See
  * <a href="https://developer.uber.com/v1/endpoints/#request-details">Requests</a>
@@ -33,6 +38,15 @@ import javax.annotation.Nullable;
  */
 public class Ride {
 
+    static {
+        ModelAccess.set(new ModelAccess() {
+            @Override
+            public boolean hasSameJson(@Nonnull Ride ride, @Nonnull Ride other, @Nonnull NestedObject nestedObject) {
+                return ride.hasSameJson(other, nestedObject);
+            }
+        });
+    }
+
     private String request_id;
     private Status status;
     @Nullable
@@ -49,6 +63,14 @@ public class Ride {
     private Location pickup;
     @Nullable
     private Location destination;
+    @Nullable
+    transient LazyValue<Driver> lazyDriver;
+    @Nullable
+    transient LazyValue<Vehicle> lazyVehicle;
+    @Nullable
+    transient LazyValue<Location> lazyPickup;
+    @Nullable
+    transient LazyValue<Location> lazyDestination;
 
     /**
      * The unique ID of the ride.
@@ -69,7 +91,7 @@ public class Ride {
      */
     @Nullable
     public Driver getDriver() {
-        return driver;
+        return lazyDriver != null ? lazyDriver.get() : driver;
     }
 
     /**
@@ -85,7 +107,7 @@ public class Ride {
      */
     @Nullable
     public Vehicle getVehicle() {
-        return vehicle;
+        return lazyVehicle != null ? lazyVehicle.get() : vehicle;
     }
 
     /**
@@ -113,12 +135,51 @@ public class Ride {
 
     @Nullable
     public Location getPickup() {
-        return pickup;
+        return lazyPickup != null ? lazyPickup.get() : pickup;
     }
 
     @Nullable
     public Location getDestination() {
-        return destination;
+        return lazyDestination != null ? lazyDestination.get() : destination;
+    }
+
+    /**
+     * Decodes the nested objects kept by a {@link LazyModelDecoder} into their fields, for Moshi's adapter to encode.
+     */
+    void decodeNestedObjects() {
+        driver = getDriver();
+        vehicle = getVehicle();
+        pickup = getPickup();
+        destination = getDestination();
+    }
+
+    /**
+     * Tells whether a nested object of this ride and of another ride is known to be identical without decoding it,
+     * which is only when both rides were decoded lazily, neither object was decoded yet and their JSON is byte for
+     * byte the same.
+     *
+     * @param other the other ride.
+     * @param nestedObject the nested object to compare.
+     * @return {@code false} if it cannot be told without decoding, which does not mean the objects differ.
+     */
+    boolean hasSameJson(@Nonnull Ride other, @Nonnull NestedObject nestedObject) {
+        checkNotNull(other, "Must supply a ride.");
+        return LazyValue.isSameJson(lazyValue(checkNotNull(nestedObject, "Must supply a nested object.")),
+                other.lazyValue(nestedObject));
+    }
+
+    @Nullable
+    private LazyValue<?> lazyValue(@Nonnull NestedObject nestedObject) {
+        switch (nestedObject) {
+            case DRIVER:
+                return lazyDriver;
+            case VEHICLE:
+                return lazyVehicle;
+            case PICKUP:
+                return lazyPickup;
+            default:
+                return lazyDestination;
+        }
     }
 
     /**
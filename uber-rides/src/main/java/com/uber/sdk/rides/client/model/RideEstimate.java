@@ -41,6 +41,12 @@ public class RideEstimate {
     private Trip trip;
     @Nullable
     private Integer pickup_estimate;
+    @Nullable
+    transient LazyValue<Fare> lazyFare;
+    @Nullable
+    transient LazyValue<Estimate> lazyEstimate;
+    @Nullable
+    transient LazyValue<Trip> lazyTrip;
 
     /**
      * Details of the fare for a product that uses up front pricing.
@@ -231,7 +237,7 @@ public class RideEstimate {
      */
     @Nullable
     public Fare getFare() {
-        return fare;
+        return lazyFare != null ? lazyFare.get() : fare;
     }
 
     /**
@@ -239,7 +245,7 @@ public class RideEstimate {
      */
     @Nullable
     public Estimate getEstimate() {
-        return estimate;
+        return lazyEstimate != null ? lazyEstimate.get() : estimate;
     }
 
     /**
@@ -247,7 +253,7 @@ public class RideEstimate {
      */
     @Nullable
     public Trip getTrip() {
-        return trip;
+        return lazyTrip != null ? lazyTrip.get() : trip;
     }
 
     /**
@@ -257,4 +263,13 @@ public class RideEstimate {
     public Integer getPickupEstimate() {
         return pickup_estimate;
     }
+
+    /**
+     * Decodes the nested objects kept by a {@link LazyModelDecoder} into their fields, for Moshi's adapter to encode.
+     */
+    void decodeNestedObjects() {
+        fare = getFare();
+        estimate = getEstimate();
+        trip = getTrip();
+    }
 }
\ No newline at end of file
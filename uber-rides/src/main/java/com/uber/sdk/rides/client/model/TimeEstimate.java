@@ -36,6 +36,23 @@ public class TimeEstimate {
     @Nullable
     private Integer estimate;
 
+    /**
+     * Used when decoding from JSON.
+     */
+    private TimeEstimate() {}
+
+    /**
+     * Constructor.
+     * @param productId Unique identifier representing a specific product.
+     * @param displayName Display name of product.
+     * @param estimate ETA for the product (in seconds).
+     */
+    public TimeEstimate(String productId, String displayName, @Nullable Integer estimate) {
+        this.product_id = productId;
+        this.display_name = displayName;
+        this.estimate = estimate;
+    }
+
     /**
      * Unique identifier representing a specific product for a given latitude &amp; longitude. For
      * example, uberX in San Francisco will have a different product_id than uberX in Los Angeles.
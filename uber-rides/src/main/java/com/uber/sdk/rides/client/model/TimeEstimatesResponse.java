@@ -31,6 +31,19 @@ public class TimeEstimatesResponse {
 
     private List<TimeEstimate> times;
 
+    /**
+     * Used when decoding from JSON.
+     */
+    private TimeEstimatesResponse() {}
+
+    /**
+     * Constructor.
+     * @param times The time estimates.
+     */
+    public TimeEstimatesResponse(List<TimeEstimate> times) {
+        this.times = times;
+    }
+
     /**
      * The time estimates.
      */
@@ -0,0 +1,167 @@
+/*
+ * Copyright (c) 2016 Uber Technologies, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.uber.sdk.rides.client.services;
+
+import com.squareup.moshi.JsonAdapter;
+import com.squareup.moshi.JsonReader;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import okhttp3.ResponseBody;
+
+import static com.uber.sdk.core.client.utils.Preconditions.checkNotNull;
+import static com.uber.sdk.core.client.utils.Preconditions.checkState;
+
+/**
+ * The elements of a list response from {@link RidesStreamingService}, decoded one at a time while the response body
+ * is read. Only the current element is held in memory, and reading can stop before the end of the list. The paging
+ * fields {@code count}, {@code offset} and {@code limit} are kept as they are read, and other fields of the response
+ * are skipped.
+ * <p>
+ * A stream can be read once and holds the connection open until it is closed, which
+ * {@link #forEach(Visitor)} does when it returns.
+ *
+ * @param <T> the type of the elements.
+ */
+public final class ElementStream<T> implements Closeable {
+
+    /**
+     * Receives the elements of an {@link ElementStream} in the order of the response.
+     */
+    public interface Visitor<T> {
+
+        /**
+         * Called with each element as soon as it is decoded.
+         *
+         * @param element the element.
+         * @return {@code true} to read the next element, or {@code false} to stop reading.
+         */
+        boolean visit(@Nonnull T element);
+    }
+
+    private final ResponseBody body;
+    private final String name;
+    private final JsonAdapter<T> adapter;
+    private boolean read;
+    @Nullable private Integer count;
+    @Nullable private Integer offset;
+    @Nullable private Integer limit;
+
+    ElementStream(@Nonnull ResponseBody body, @Nonnull String name, @Nonnull JsonAdapter<T> adapter) {
+        this.body = body;
+        this.name = name;
+        this.adapter = adapter;
+    }
+
+    /**
+     * Decodes the elements of the list and passes each to the visitor, until the list ends or the visitor stops.
+     * The stream is closed when this returns, whether or not the list was read to the end. If the list is read to
+     * the end, the paging fields after it are read too.
+     *
+     * @param visitor the {@link Visitor} of the elements.
+     * @return the number of elements visited.
+     * @throws IOException if the response body could not be read or is not the expected JSON.
+     */
+    public int forEach(@Nonnull Visitor<? super T> visitor) throws IOException {
+        checkNotNull(visitor, "Must supply a Visitor.");
+        checkState(!read, "The elements have already been read.");
+        read = true;
+
+        try {
+            int visited = 0;
+            JsonReader reader = JsonReader.of(body.source());
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String field = reader.nextName();
+                JsonReader.Token token = reader.peek();
+                if (field.equals(name) && token == JsonReader.Token.BEGIN_ARRAY) {
+                    reader.beginArray();
+                    while (reader.hasNext()) {
+                        T element = adapter.fromJson(reader);
+                        if (element == null) {
+                            continue;
+                        }
+                        visited++;
+                        if (!visitor.visit(element)) {
+                            return visited;
+                        }
+                    }
+                    reader.endArray();
+                } else if (token == JsonReader.Token.NUMBER && field.equals("count")) {
+                    count = reader.nextInt();
+                } else if (token == JsonReader.Token.NUMBER && field.equals("offset")) {
+                    offset = reader.nextInt();
+                } else if (token == JsonReader.Token.NUMBER && field.equals("limit")) {
+                    limit = reader.nextInt();
+                } else {
+                    reader.skipValue();
+                }
+            }
+            return visited;
+        } finally {
+            close();
+        }
+    }
+
+    /**
+     * Gets the total number of items the server has for a paged list, such as the user's activity history.
+     *
+     * @return the count, or {@code null} if the response has none or it comes after a list that was not read to the
+     * end.
+     */
+    @Nullable
+    public Integer getCount() {
+        return count;
+    }
+
+    /**
+     * Gets the position of the first element of a paged list within all the items the server has.
+     *
+     * @return the offset, or {@code null} if the response has none or it comes after a list that was not read to the
+     * end.
+     */
+    @Nullable
+    public Integer getOffset() {
+        return offset;
+    }
+
+    /**
+     * Gets the number of elements the server was asked for in a paged list.
+     *
+     * @return the limit, or {@code null} if the response has none or it comes after a list that was not read to the
+     * end.
+     */
+    @Nullable
+    public Integer getLimit() {
+        return limit;
+    }
+
+    @Override
+    public void close() {
+        body.close();
+    }
+}
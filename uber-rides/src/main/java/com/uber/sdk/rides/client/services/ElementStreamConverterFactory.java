@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2016 Uber Technologies, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.uber.sdk.rides.client.services;
+
+import com.squareup.moshi.JsonAdapter;
+import com.squareup.moshi.Moshi;
+import com.uber.sdk.rides.client.model.PriceEstimate;
+import com.uber.sdk.rides.client.model.Product;
+import com.uber.sdk.rides.client.model.TimeEstimate;
+import com.uber.sdk.rides.client.model.UserActivity;
+
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.annotation.Nonnull;
+
+import okhttp3.ResponseBody;
+import retrofit2.Converter;
+import retrofit2.Retrofit;
+
+import static com.uber.sdk.core.client.utils.Preconditions.checkNotNull;
+
+/**
+ * Converts response bodies to {@link ElementStream}s, decoding the elements with the adapters of a {@link Moshi}.
+ * It must be added to the {@link Retrofit.Builder} before the converter factory for other responses.
+ */
+public final class ElementStreamConverterFactory extends Converter.Factory {
+
+    private static final Map<Type, String> LIST_NAMES = new HashMap<>();
+
+    static {
+        LIST_NAMES.put(PriceEstimate.class, "prices");
+        LIST_NAMES.put(Product.class, "products");
+        LIST_NAMES.put(TimeEstimate.class, "times");
+        LIST_NAMES.put(UserActivity.class, "history");
+    }
+
+    private final Moshi moshi;
+
+    /**
+     * Creates an {@link ElementStreamConverterFactory}.
+     *
+     * @param moshi the {@link Moshi} with the adapters for the elements.
+     */
+    @Nonnull
+    public static ElementStreamConverterFactory create(@Nonnull Moshi moshi) {
+        return new ElementStreamConverterFactory(checkNotNull(moshi, "Must supply a Moshi."));
+    }
+
+    private ElementStreamConverterFactory(@Nonnull Moshi moshi) {
+        this.moshi = moshi;
+    }
+
+    @Override
+    public Converter<ResponseBody, ?> responseBodyConverter(Type type, Annotation[] annotations, Retrofit retrofit) {
+        if (!(type instanceof ParameterizedType) || ((ParameterizedType) type).getRawType() != ElementStream.class) {
+            return null;
+        }
+
+        Type elementType = ((ParameterizedType) type).getActualTypeArguments()[0];
+        String name = LIST_NAMES.get(elementType);
+        if (name == null) {
+            throw new IllegalArgumentException("Cannot stream elements of type " + elementType + ".");
+        }
+        return new ElementStreamConverter<>(name, moshi.adapter(elementType));
+    }
+
+    private static final class ElementStreamConverter<T> implements Converter<ResponseBody, ElementStream<T>> {
+
+        private final String name;
+        private final JsonAdapter<T> adapter;
+
+        ElementStreamConverter(@Nonnull String name, @Nonnull JsonAdapter<T> adapter) {
+            this.name = name;
+            this.adapter = adapter;
+        }
+
+        @Override
+        public ElementStream<T> convert(ResponseBody value) throws IOException {
+            return new ElementStream<>(value, name, adapter);
+        }
+    }
+}
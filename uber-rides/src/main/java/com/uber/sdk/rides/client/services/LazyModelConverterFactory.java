@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2016 Uber Technologies, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.uber.sdk.rides.client.services;
+
+import com.squareup.moshi.Moshi;
+import com.uber.sdk.rides.client.model.LazyModelDecoder;
+import com.uber.sdk.rides.client.model.Ride;
+import com.uber.sdk.rides.client.model.RideEstimate;
+
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+
+import javax.annotation.Nonnull;
+
+import okhttp3.ResponseBody;
+import retrofit2.Converter;
+import retrofit2.Retrofit;
+
+import static com.uber.sdk.core.client.utils.Preconditions.checkNotNull;
+
+/**
+ * Converts response bodies to {@link Ride}s and {@link RideEstimate}s with a {@link LazyModelDecoder}, so their
+ * nested objects are only decoded when read. It must be added to the {@link Retrofit.Builder} before the converter
+ * factory for other responses.
+ * <p>
+ * Each response is read into a byte array of its own, which the model keeps until all of its nested objects were
+ * decoded. A model held for long without reading them, such as the last snapshot of each tracked ride, therefore
+ * keeps its whole response, which for rides and ride estimates is typically under a kilobyte.
+ */
+public final class LazyModelConverterFactory extends Converter.Factory {
+
+    private final LazyModelDecoder decoder;
+
+    /**
+     * Creates a {@link LazyModelConverterFactory}.
+     *
+     * @param moshi the {@link Moshi} with the adapters for the fields and nested objects.
+     */
+    @Nonnull
+    public static LazyModelConverterFactory create(@Nonnull Moshi moshi) {
+        return new LazyModelConverterFactory(LazyModelDecoder.create(moshi));
+    }
+
+    private LazyModelConverterFactory(@Nonnull LazyModelDecoder decoder) {
+        this.decoder = checkNotNull(decoder, "Must supply a LazyModelDecoder.");
+    }
+
+    @Override
+    public Converter<ResponseBody, ?> responseBodyConverter(Type type, Annotation[] annotations, Retrofit retrofit) {
+        if (type == Ride.class) {
+            return new Converter<ResponseBody, Ride>() {
+                @Override
+                public Ride convert(ResponseBody value) throws IOException {
+                    return decoder.decodeRide(value.bytes());
+                }
+            };
+        }
+        if (type == RideEstimate.class) {
+            return new Converter<ResponseBody, RideEstimate>() {
+                @Override
+                public RideEstimate convert(ResponseBody value) throws IOException {
+                    return decoder.decodeRideEstimate(value.bytes());
+                }
+            };
+        }
+        return null;
+    }
+}
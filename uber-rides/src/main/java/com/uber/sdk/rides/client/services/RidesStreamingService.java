@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2016 Uber Technologies, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.uber.sdk.rides.client.services;
+
+import com.uber.sdk.rides.client.model.PriceEstimate;
+import com.uber.sdk.rides.client.model.Product;
+import com.uber.sdk.rides.client.model.TimeEstimate;
+import com.uber.sdk.rides.client.model.UserActivity;
+
+import javax.annotation.Nullable;
+
+import retrofit2.Call;
+import retrofit2.http.GET;
+import retrofit2.http.Query;
+import retrofit2.http.Streaming;
+
+/**
+ * The list endpoints of {@link RidesService}, with each list returned as an {@link ElementStream} that decodes the
+ * elements as they are read instead of all at once.
+ */
+public interface RidesStreamingService {
+
+    /**
+     * Gets a limited amount of data about a user's lifetime activity.
+     *
+     * @param offset Offset the list of returned results by this amount. Default is zero.
+     * @param limit Number of items to retrieve. Default is 5, maximum is 50.
+     *
+     * @return the request {@link Call}
+     */
+    @Streaming
+    @GET("/v1.2/history")
+    Call<ElementStream<UserActivity>> getUserActivity(@Nullable @Query("offset") Integer offset,
+                                                      @Nullable @Query("limit") Integer limit);
+
+    /**
+     * Gets an estimated price range for each product offered at a given location.
+     *
+     * @param startLatitude Latitude component of start location.
+     * @param startLongitude Longitude component of start location.
+     * @param endLatitude Latitude component of end location.
+     * @param endLongitude Longitude component of end location.
+     *
+     * @return the request {@link Call}
+     */
+    @Streaming
+    @GET("/v1.2/estimates/price")
+    Call<ElementStream<PriceEstimate>> getPriceEstimates(@Query("start_latitude") float startLatitude,
+                                                         @Query("start_longitude") float startLongitude,
+                                                         @Query("end_latitude") float endLatitude,
+                                                         @Query("end_longitude") float endLongitude);
+
+    /**
+     * Gets ETAs for all products offered at a given location, with the responses expressed as
+     * integers in seconds.
+     *
+     * @param startLatitude Latitude component of start location.
+     * @param startLongitude Longitude component of start location.
+     * @param productId Unique identifier representing a specific product for a given latitude &amp;
+     *                  longitude.
+     *
+     * @return the request {@link Call}
+     */
+    @Streaming
+    @GET("/v1.2/estimates/time")
+    Call<ElementStream<TimeEstimate>> getPickupTimeEstimate(@Query("start_latitude") float startLatitude,
+                                                            @Query("start_longitude") float startLongitude,
+                                                            @Nullable @Query("product_id") String productId);
+
+    /**
+     * Gets information about the products offered at a given location.
+     *
+     * @param latitude Latitude component of location.
+     * @param longitude Longitude component of location.
+     *
+     * @return the request {@link Call}
+     */
+    @Streaming
+    @GET("/v1.2/products")
+    Call<ElementStream<Product>> getProducts(@Query("latitude") float latitude,
+                                             @Query("longitude") float longitude);
+}
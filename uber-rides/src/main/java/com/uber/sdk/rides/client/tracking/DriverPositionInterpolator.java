@@ -0,0 +1,389 @@
+/*
+ * Copyright (c) 2016 Uber Technologies, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.uber.sdk.rides.client.tracking;
+
+import com.uber.sdk.rides.client.model.Location;
+import com.uber.sdk.rides.client.model.Ride;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import static com.uber.sdk.core.client.utils.Preconditions.checkNotNull;
+import static com.uber.sdk.core.client.utils.Preconditions.checkState;
+
+/**
+ * Estimates where a vehicle is between polls by dead reckoning, so that a map can move it smoothly without polling
+ * every second.
+ * <p>
+ * Each poll of a ride is a fix of the vehicle's location. From consecutive fixes the interpolator estimates the
+ * vehicle's speed, and {@link #getPosition(String)} projects it from the last fix along its bearing. When a new fix
+ * arrives, the projection restarts from it and the gap between the projected and the actual location is closed over
+ * a short correction time instead of jumping.
+ * <p>
+ * The interpolator is also a {@link PollingPolicy} that wraps another one. While the projections keep landing close
+ * to the next fix, each poll delay of the wrapped policy is stretched a little more, up to a maximum factor; as soon
+ * as a projection or the smoothed error misses by more than the threshold, polling returns to the wrapped policy's
+ * pace.
+ * <pre>{@code
+ * DriverPositionInterpolator interpolator = DriverPositionInterpolator
+ *         .with(new StatusPollingPolicy.Builder().build())
+ *         .build();
+ * RideTracker tracker = RideTracker.with(service).setPollingPolicy(interpolator).build();
+ * }</pre>
+ */
+public class DriverPositionInterpolator implements PollingPolicy {
+
+    /**
+     * The estimated position of a vehicle.
+     */
+    public static final class Position {
+
+        private final double latitude;
+        private final double longitude;
+        private final double bearing;
+        private final double speed;
+        private final double error;
+
+        Position(double latitude, double longitude, double bearing, double speed, double error) {
+            this.latitude = latitude;
+            this.longitude = longitude;
+            this.bearing = bearing;
+            this.speed = speed;
+            this.error = error;
+        }
+
+        /**
+         * Gets the estimated latitude.
+         */
+        public double getLatitude() {
+            return latitude;
+        }
+
+        /**
+         * Gets the estimated longitude.
+         */
+        public double getLongitude() {
+            return longitude;
+        }
+
+        /**
+         * Gets the heading of the vehicle in degrees clockwise from north, or {@link Double#NaN} if not known yet.
+         */
+        public double getBearing() {
+            return bearing;
+        }
+
+        /**
+         * Gets the estimated speed of the vehicle in meters per second.
+         */
+        public double getSpeedMetersPerSecond() {
+            return speed;
+        }
+
+        /**
+         * Gets the smoothed distance in meters between past projections and the fixes that followed them, or
+         * {@link Double#NaN} if there were not enough fixes yet.
+         */
+        public double getErrorMeters() {
+            return error;
+        }
+    }
+
+    private final PollingPolicy delegate;
+    private final double errorThresholdMeters;
+    private final double maximumStretch;
+    private final double smoothing;
+    private final long maximumProjectionNanos;
+    private final long correctionNanos;
+    private final LongSupplier clock;
+    private final ConcurrentMap<String, Track> tracks = new ConcurrentHashMap<>();
+
+    DriverPositionInterpolator(@Nonnull PollingPolicy delegate,
+                               double errorThresholdMeters,
+                               double maximumStretch,
+                               double smoothing,
+                               long maximumProjectionNanos,
+                               long correctionNanos,
+                               @Nonnull LongSupplier clock) {
+        this.delegate = delegate;
+        this.errorThresholdMeters = errorThresholdMeters;
+        this.maximumStretch = maximumStretch;
+        this.smoothing = smoothing;
+        this.maximumProjectionNanos = maximumProjectionNanos;
+        this.correctionNanos = correctionNanos;
+        this.clock = clock;
+    }
+
+    /**
+     * @param delegate the policy whose delays are stretched while projections are accurate.
+     * @return a builder for a {@link DriverPositionInterpolator}.
+     */
+    @Nonnull
+    public static Builder with(@Nonnull PollingPolicy delegate) {
+        return new Builder(checkNotNull(delegate, "Delegate must not be null."));
+    }
+
+    /**
+     * Records the ride's location as a new fix, then stretches the delay of the wrapped policy according to how
+     * accurate the projections have been.
+     */
+    @Override
+    public long nextPollDelayMillis(@Nonnull Ride ride) {
+        long delay = delegate.nextPollDelayMillis(ride);
+        String rideId = ride.getRideId();
+        if (rideId == null) {
+            return delay;
+        }
+        if (delay < 0) {
+            tracks.remove(rideId);
+            return delay;
+        }
+
+        Location location = ride.getLocation();
+        if (location == null) {
+            return delay;
+        }
+        Track track = onFix(tracks.get(rideId), location, clock.getAsLong());
+        tracks.put(rideId, track);
+        return (long) (delay * track.stretch);
+    }
+
+    /**
+     * Returns the delay of the wrapped policy, since a failed poll brings no fix.
+     */
+    @Override
+    public long retryDelayMillis(@Nonnull String rideId, int consecutiveFailures) {
+        long delay = delegate.retryDelayMillis(rideId, consecutiveFailures);
+        if (delay < 0) {
+            tracks.remove(rideId);
+        }
+        return delay;
+    }
+
+    /**
+     * @param rideId the identifier of the ride.
+     * @return the estimated current position of the ride's vehicle, or {@code null} if it has not been seen yet.
+     */
+    @Nullable
+    public Position getPosition(@Nonnull String rideId) {
+        Track track = tracks.get(rideId);
+        if (track == null) {
+            return null;
+        }
+        double[] position = project(track, clock.getAsLong());
+        return new Position(position[0], position[1], track.bearing, track.speed, track.error);
+    }
+
+    /**
+     * Forgets a ride, for instance after it was untracked. Rides that a policy stopped are forgotten automatically.
+     *
+     * @param rideId the identifier of the ride.
+     */
+    public void forget(@Nonnull String rideId) {
+        tracks.remove(rideId);
+    }
+
+    private Track onFix(@Nullable Track previous, Location location, long nowNanos) {
+        double latitude = location.getLatitude();
+        double longitude = location.getLongitude();
+        Integer reportedBearing = location.getBearing();
+
+        if (previous == null) {
+            double bearing = reportedBearing != null ? reportedBearing : Double.NaN;
+            return new Track(latitude, longitude, bearing, 0, nowNanos, 0, 0, Double.NaN, 1, 1);
+        }
+
+        double seconds = Math.max(nowNanos - previous.fixNanos, 1) / 1e9;
+        double moved = Geodesy.distanceMeters(previous.latitude, previous.longitude, latitude, longitude);
+        double observedSpeed = moved / seconds;
+        double speed = previous.fixes == 1 ? observedSpeed : smooth(observedSpeed, previous.speed);
+
+        double bearing;
+        if (reportedBearing != null) {
+            bearing = reportedBearing;
+        } else if (moved >= 1) {
+            bearing = Geodesy.bearingDegrees(previous.latitude, previous.longitude, latitude, longitude);
+        } else {
+            bearing = previous.bearing;
+        }
+
+        // Projections are only judged once a speed was known to make them.
+        double[] projected = project(previous, nowNanos);
+        double error = previous.error;
+        double stretch = 1;
+        if (previous.fixes >= 2) {
+            double miss = Geodesy.distanceMeters(projected[0], projected[1], latitude, longitude);
+            error = Double.isNaN(error) ? miss : smooth(miss, error);
+            if (miss <= errorThresholdMeters && error <= errorThresholdMeters) {
+                stretch = Math.min(previous.stretch + 1, maximumStretch);
+            }
+        }
+
+        return new Track(latitude, longitude, bearing, speed, nowNanos,
+                projected[0] - latitude, projected[1] - longitude, error, stretch, previous.fixes + 1);
+    }
+
+    private double[] project(Track track, long nowNanos) {
+        long elapsed = Math.max(nowNanos - track.fixNanos, 0);
+
+        double[] position;
+        if (track.speed > 0 && !Double.isNaN(track.bearing)) {
+            double distance = track.speed * Math.min(elapsed, maximumProjectionNanos) / 1e9;
+            position = Geodesy.destination(track.latitude, track.longitude, track.bearing, distance);
+        } else {
+            position = new double[] { track.latitude, track.longitude };
+        }
+
+        if (elapsed < correctionNanos) {
+            double remaining = 1 - (double) elapsed / correctionNanos;
+            position[0] += track.offsetLatitude * remaining;
+            position[1] += track.offsetLongitude * remaining;
+        }
+        return position;
+    }
+
+    private double smooth(double sample, double average) {
+        return smoothing * sample + (1 - smoothing) * average;
+    }
+
+    /**
+     * What is known of a vehicle after its latest fix. Replaced rather than updated so it can be read at any time.
+     */
+    private static final class Track {
+
+        final double latitude;
+        final double longitude;
+        final double bearing;
+        final double speed;
+        final long fixNanos;
+        final double offsetLatitude;
+        final double offsetLongitude;
+        final double error;
+        final double stretch;
+        final int fixes;
+
+        Track(double latitude,
+              double longitude,
+              double bearing,
+              double speed,
+              long fixNanos,
+              double offsetLatitude,
+              double offsetLongitude,
+              double error,
+              double stretch,
+              int fixes) {
+            this.latitude = latitude;
+            this.longitude = longitude;
+            this.bearing = bearing;
+            this.speed = speed;
+            this.fixNanos = fixNanos;
+            this.offsetLatitude = offsetLatitude;
+            this.offsetLongitude = offsetLongitude;
+            this.error = error;
+            this.stretch = stretch;
+            this.fixes = fixes;
+        }
+    }
+
+    /**
+     * Builder for {@link DriverPositionInterpolator}.
+     */
+    public static class Builder {
+
+        private final PollingPolicy delegate;
+        private double errorThresholdMeters = 25;
+        private double maximumStretch = 4;
+        private double smoothing = 0.3;
+        private long maximumProjectionNanos = TimeUnit.SECONDS.toNanos(20);
+        private long correctionNanos = TimeUnit.SECONDS.toNanos(1);
+        private LongSupplier clock = System::nanoTime;
+
+        Builder(@Nonnull PollingPolicy delegate) {
+            this.delegate = delegate;
+        }
+
+        /**
+         * Sets how far off projections may be, on average, for polling to slow down. Optional and defaults to 25
+         * meters.
+         */
+        public Builder setErrorThreshold(double meters) {
+            checkState(meters > 0, "Error threshold must be positive.");
+            this.errorThresholdMeters = meters;
+            return this;
+        }
+
+        /**
+         * Sets the largest factor by which poll delays are stretched. Optional and defaults to 4.
+         */
+        public Builder setMaximumStretch(double factor) {
+            checkState(factor >= 1, "Maximum stretch must be at least 1.");
+            this.maximumStretch = factor;
+            return this;
+        }
+
+        /**
+         * Sets the weight of the latest fix in the smoothed speed and error, between 0 and 1. Optional and defaults
+         * to 0.3.
+         */
+        public Builder setSmoothing(double smoothing) {
+            checkState(smoothing > 0 && smoothing <= 1, "Smoothing must be more than 0 and at most 1.");
+            this.smoothing = smoothing;
+            return this;
+        }
+
+        /**
+         * Sets how long after a fix a vehicle keeps being projected forward, after which it is shown where the
+         * projection stopped until the next fix. Optional and defaults to 20 seconds.
+         */
+        public Builder setMaximumProjection(long duration, @Nonnull TimeUnit unit) {
+            checkState(duration >= 0, "Maximum projection must not be negative.");
+            this.maximumProjectionNanos = unit.toNanos(duration);
+            return this;
+        }
+
+        /**
+         * Sets how long it takes to move from the projected position to the one continued from a new fix. Optional
+         * and defaults to 1 second.
+         */
+        public Builder setCorrection(long duration, @Nonnull TimeUnit unit) {
+            checkState(duration >= 0, "Correction must not be negative.");
+            this.correctionNanos = unit.toNanos(duration);
+            return this;
+        }
+
+        Builder setClock(@Nonnull LongSupplier clock) {
+            this.clock = clock;
+            return this;
+        }
+
+        public DriverPositionInterpolator build() {
+            return new DriverPositionInterpolator(delegate, errorThresholdMeters, maximumStretch, smoothing,
+                    maximumProjectionNanos, correctionNanos, clock);
+        }
+    }
+}
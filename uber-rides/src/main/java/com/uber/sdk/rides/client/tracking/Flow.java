@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2016 Uber Technologies, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.uber.sdk.rides.client.tracking;
+
+/**
+ * Reactive Streams interfaces with the same contract as {@code java.util.concurrent.Flow}, which is not available on
+ * Java 8. Adapting them to the JDK's or another Reactive Streams implementation only takes delegating each method.
+ */
+public final class Flow {
+
+    private Flow() {}
+
+    /**
+     * A source of items that are delivered to each {@link Subscriber} only as fast as it requests them.
+     *
+     * @param <T> the type of the items.
+     */
+    public interface Publisher<T> {
+
+        /**
+         * Adds a subscriber, which is then passed its {@link Subscription} through
+         * {@link Subscriber#onSubscribe(Subscription)}.
+         *
+         * @param subscriber the subscriber.
+         */
+        void subscribe(Subscriber<? super T> subscriber);
+    }
+
+    /**
+     * Receives items from a {@link Publisher}. Methods are called one at a time, never concurrently.
+     *
+     * @param <T> the type of the items.
+     */
+    public interface Subscriber<T> {
+
+        /**
+         * Called before any other method. No items are sent until {@link Subscription#request(long)} is called.
+         */
+        void onSubscribe(Subscription subscription);
+
+        /**
+         * Called with the next item, at most as many times as requested.
+         */
+        void onNext(T item);
+
+        /**
+         * Called once the publisher failed or the subscription was ended because of an error. Nothing is sent after.
+         */
+        void onError(Throwable throwable);
+
+        /**
+         * Called once the publisher has no more items. Nothing is sent after.
+         */
+        void onComplete();
+    }
+
+    /**
+     * Links a {@link Publisher} and a {@link Subscriber}.
+     */
+    public interface Subscription {
+
+        /**
+         * Adds to the number of items the subscriber is ready to receive.
+         *
+         * @param n the number of items, which must be positive.
+         */
+        void request(long n);
+
+        /**
+         * Stops sending items, possibly after a few that were already being delivered.
+         */
+        void cancel();
+    }
+}
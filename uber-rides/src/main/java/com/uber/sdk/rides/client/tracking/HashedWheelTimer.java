@@ -0,0 +1,253 @@
+/*
+ * Copyright (c) 2016 Uber Technologies, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.uber.sdk.rides.client.tracking;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.Nonnull;
+
+import static com.uber.sdk.core.client.utils.Preconditions.checkState;
+
+/**
+ * Runs tasks after a delay, for very large numbers of tasks, by hashing them into the buckets of a wheel that a
+ * single thread advances one bucket per tick. Scheduling and cancelling are O(1) and the thread only looks at the
+ * tasks of the current bucket, at the cost of running tasks up to one tick late.
+ * <p>
+ * Tasks run on the timer thread and must hand any real work off to another thread.
+ */
+final class HashedWheelTimer {
+
+    private static final int RUNNING = 0;
+    private static final int STOPPED = 1;
+
+    private final long tickNanos;
+    private final Bucket[] wheel;
+    private final int mask;
+    private final Queue<Timeout> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger state = new AtomicInteger(RUNNING);
+    private final AtomicInteger scheduled = new AtomicInteger();
+    private final Thread worker;
+    private final long startTime;
+
+    /**
+     * @param tick the time between two buckets, which is also the timer's precision.
+     * @param unit the unit of {@code tick}.
+     * @param wheelSize the number of buckets, rounded up to a power of two.
+     * @param threadFactory creates the timer thread.
+     */
+    HashedWheelTimer(long tick, @Nonnull TimeUnit unit, int wheelSize, @Nonnull ThreadFactory threadFactory) {
+        checkState(tick > 0, "Tick must be positive.");
+        checkState(wheelSize > 0 && wheelSize <= 1 << 30, "Wheel size must be between 1 and 2^30.");
+
+        int size = 1;
+        while (size < wheelSize) {
+            size <<= 1;
+        }
+        this.wheel = new Bucket[size];
+        for (int i = 0; i < size; i++) {
+            wheel[i] = new Bucket();
+        }
+        this.mask = size - 1;
+        this.tickNanos = unit.toNanos(tick);
+        this.startTime = System.nanoTime();
+        this.worker = threadFactory.newThread(new Worker());
+        worker.start();
+    }
+
+    /**
+     * Schedules a task.
+     *
+     * @param task the task to run.
+     * @param delay the delay before running it.
+     * @param unit the unit of {@code delay}.
+     * @return a handle to cancel the task.
+     */
+    @Nonnull
+    Timeout schedule(@Nonnull Runnable task, long delay, @Nonnull TimeUnit unit) {
+        checkState(state.get() == RUNNING, "Timer was stopped.");
+
+        Timeout timeout = new Timeout(this, task, System.nanoTime() + Math.max(unit.toNanos(delay), 0));
+        scheduled.incrementAndGet();
+        pending.add(timeout);
+        return timeout;
+    }
+
+    /**
+     * @return the number of tasks that are scheduled and have neither run nor been cancelled.
+     */
+    int scheduledCount() {
+        return scheduled.get();
+    }
+
+    /**
+     * Stops the timer thread. Tasks that have not run yet never will.
+     */
+    void stop() {
+        if (state.compareAndSet(RUNNING, STOPPED)) {
+            worker.interrupt();
+        }
+    }
+
+    private final class Worker implements Runnable {
+
+        private long tick;
+
+        @Override
+        public void run() {
+            while (state.get() == RUNNING) {
+                long deadline = tickNanos * (tick + 1);
+                long sleepNanos = startTime + deadline - System.nanoTime();
+                if (sleepNanos > 0) {
+                    try {
+                        TimeUnit.NANOSECONDS.sleep(sleepNanos);
+                    } catch (InterruptedException e) {
+                        continue;
+                    }
+                }
+
+                transferPending();
+                wheel[(int) (tick & mask)].expire();
+                tick++;
+            }
+        }
+
+        private void transferPending() {
+            Timeout timeout;
+            while ((timeout = pending.poll()) != null) {
+                if (timeout.state.get() != Timeout.WAITING) {
+                    continue;
+                }
+
+                long ticks = (timeout.deadline - startTime) / tickNanos;
+                timeout.remainingRounds = Math.max(ticks - tick, 0) / wheel.length;
+                wheel[(int) (Math.max(ticks, tick) & mask)].add(timeout);
+            }
+        }
+    }
+
+    /**
+     * A task scheduled on the timer.
+     */
+    static final class Timeout {
+
+        static final int WAITING = 0;
+        static final int CANCELLED = 1;
+        static final int EXPIRED = 2;
+
+        private final HashedWheelTimer timer;
+        private final Runnable task;
+        private final long deadline;
+        private final AtomicInteger state = new AtomicInteger(WAITING);
+
+        // Guarded by the timer thread.
+        long remainingRounds;
+        Timeout previous;
+        Timeout next;
+
+        Timeout(HashedWheelTimer timer, Runnable task, long deadline) {
+            this.timer = timer;
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        /**
+         * Cancels the task if it has not run yet. Cancelled tasks are dropped from the wheel when the timer reaches
+         * their bucket.
+         *
+         * @return whether the task was cancelled.
+         */
+        boolean cancel() {
+            if (state.compareAndSet(WAITING, CANCELLED)) {
+                timer.scheduled.decrementAndGet();
+                return true;
+            }
+            return false;
+        }
+
+        void expire() {
+            if (state.compareAndSet(WAITING, EXPIRED)) {
+                timer.scheduled.decrementAndGet();
+                task.run();
+            }
+        }
+    }
+
+    /**
+     * The tasks hashed to one slot of the wheel, as a doubly linked list.
+     */
+    private static final class Bucket {
+
+        private Timeout head;
+        private Timeout tail;
+
+        void add(Timeout timeout) {
+            timeout.previous = tail;
+            timeout.next = null;
+            if (tail == null) {
+                head = timeout;
+            } else {
+                tail.next = timeout;
+            }
+            tail = timeout;
+        }
+
+        void expire() {
+            Timeout timeout = head;
+            while (timeout != null) {
+                Timeout next = timeout.next;
+                if (timeout.state.get() != Timeout.WAITING) {
+                    remove(timeout);
+                } else if (timeout.remainingRounds <= 0) {
+                    remove(timeout);
+                    try {
+                        timeout.expire();
+                    } catch (RuntimeException ignored) {
+                        // A failing task must not stop the timer.
+                    }
+                } else {
+                    timeout.remainingRounds--;
+                }
+                timeout = next;
+            }
+        }
+
+        private void remove(Timeout timeout) {
+            if (timeout.previous == null) {
+                head = timeout.next;
+            } else {
+                timeout.previous.next = timeout.next;
+            }
+            if (timeout.next == null) {
+                tail = timeout.previous;
+            } else {
+                timeout.next.previous = timeout.previous;
+            }
+            timeout.previous = null;
+            timeout.next = null;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright (c) 2016 Uber Technologies, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.uber.sdk.rides.client.tracking;
+
+import com.uber.sdk.rides.client.model.Ride;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Decides how often a {@link RideTracker} polls each ride.
+ */
+public interface PollingPolicy {
+
+    /**
+     * Returned to stop tracking a ride.
+     */
+    long STOP = -1;
+
+    /**
+     * @param ride the ride as returned by the last poll.
+     * @return the delay in milliseconds before polling the ride again, or {@link #STOP}.
+     */
+    long nextPollDelayMillis(@Nonnull Ride ride);
+
+    /**
+     * @param rideId the identifier of the ride that failed to poll.
+     * @param consecutiveFailures the number of polls of the ride that failed in a row, at least 1.
+     * @return the delay in milliseconds before polling the ride again, or {@link #STOP}.
+     */
+    long retryDelayMillis(@Nonnull String rideId, int consecutiveFailures);
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) 2016 Uber Technologies, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.uber.sdk.rides.client.tracking;
+
+import com.uber.sdk.rides.client.internal.ModelAccess;
+import com.uber.sdk.rides.client.internal.ModelAccess.NestedObject;
+import com.uber.sdk.rides.client.model.Driver;
+import com.uber.sdk.rides.client.model.Location;
+import com.uber.sdk.rides.client.model.Ride;
+import com.uber.sdk.rides.client.model.Vehicle;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * Compares consecutive snapshots of a ride into {@link RideEvent}s.
+ * <p>
+ * Nested objects whose JSON did not change between lazily decoded snapshots are not decoded to be compared, so that
+ * polling only decodes those that changed, and those the listeners read.
+ */
+final class RideDiffer {
+
+    private final ModelAccess modelAccess = ModelAccess.get();
+    private final double minimumDistanceMeters;
+
+    /**
+     * @param minimumDistanceMeters how far the vehicle must move before a {@link RideEvent.Type#LOCATION_CHANGED}.
+     */
+    RideDiffer(double minimumDistanceMeters) {
+        this.minimumDistanceMeters = minimumDistanceMeters;
+    }
+
+    /**
+     * @param previous the last snapshot of the ride, or {@code null} if there was none.
+     * @param reportedLocation the vehicle location of the last {@link RideEvent.Type#LOCATION_CHANGED}, which
+     * movement is measured from so that slow drift is eventually reported.
+     * @param current the new snapshot of the ride.
+     * @return the changes, in the order of {@link RideEvent.Type}.
+     */
+    @Nonnull
+    List<RideEvent> diff(@Nullable Ride previous, @Nullable Location reportedLocation, @Nonnull Ride current) {
+        List<RideEvent> events = new ArrayList<>(2);
+
+        if (previous == null || previous.getStatus() != current.getStatus()) {
+            events.add(new RideEvent(RideEvent.Type.STATUS_CHANGED, previous, current));
+        }
+
+        if (previous == null || !modelAccess.hasSameJson(current, previous, NestedObject.DRIVER)) {
+            Driver previousDriver = previous != null ? previous.getDriver() : null;
+            if (previousDriver == null) {
+                if (current.getDriver() != null) {
+                    events.add(new RideEvent(RideEvent.Type.DRIVER_ASSIGNED, previous, current));
+                }
+            } else if (!isSameDriver(previousDriver, current.getDriver())) {
+                events.add(new RideEvent(RideEvent.Type.DRIVER_CHANGED, previous, current));
+            }
+        }
+
+        if (previous != null
+                && !modelAccess.hasSameJson(current, previous, NestedObject.VEHICLE)
+                && !isSameVehicle(previous.getVehicle(), current.getVehicle())) {
+            events.add(new RideEvent(RideEvent.Type.VEHICLE_CHANGED, previous, current));
+        }
+
+        Location location = current.getLocation();
+        if (location != null
+                && (reportedLocation == null || distanceMeters(reportedLocation, location) >= minimumDistanceMeters)) {
+            events.add(new RideEvent(RideEvent.Type.LOCATION_CHANGED, previous, current));
+        }
+
+        if (previous != null
+                && (!modelAccess.hasSameJson(current, previous, NestedObject.PICKUP)
+                && !Objects.equals(eta(previous.getPickup()), eta(current.getPickup()))
+                || !modelAccess.hasSameJson(current, previous, NestedObject.DESTINATION)
+                && !Objects.equals(eta(previous.getDestination()), eta(current.getDestination())))) {
+            events.add(new RideEvent(RideEvent.Type.ETA_CHANGED, previous, current));
+        }
+
+        if (previous != null && !Objects.equals(previous.getSurgeMultiplier(), current.getSurgeMultiplier())) {
+            events.add(new RideEvent(RideEvent.Type.SURGE_CHANGED, previous, current));
+        }
+
+        return events;
+    }
+
+    /**
+     * @return the great-circle distance between two locations, in meters.
+     */
+    static double distanceMeters(@Nonnull Location from, @Nonnull Location to) {
+        return Geodesy.distanceMeters(from.getLatitude(), from.getLongitude(), to.getLatitude(), to.getLongitude());
+    }
+
+    private static boolean isSameDriver(@Nonnull Driver previous, @Nullable Driver current) {
+        return current != null
+                && Objects.equals(previous.getName(), current.getName())
+                && Objects.equals(previous.getPhoneNumber(), current.getPhoneNumber());
+    }
+
+    private static boolean isSameVehicle(@Nullable Vehicle previous, @Nullable Vehicle current) {
+        if (previous == null || current == null) {
+            return previous == current;
+        }
+        return Objects.equals(previous.getLicensePlate(), current.getLicensePlate())
+                && Objects.equals(previous.getMake(), current.getMake())
+                && Objects.equals(previous.getModel(), current.getModel());
+    }
+
+    @Nullable
+    private static Integer eta(@Nullable Location location) {
+        return location != null ? location.getEta() : null;
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2016 Uber Technologies, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.uber.sdk.rides.client.tracking;
+
+import com.uber.sdk.rides.client.model.Ride;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * A change between two consecutive snapshots of a ride, as published by {@link RideEventPublisher}.
+ */
+public final class RideEvent {
+
+    /**
+     * What changed in the ride.
+     */
+    public enum Type {
+        /**
+         * The status of the ride changed, or the ride was seen for the first time.
+         */
+        STATUS_CHANGED,
+        /**
+         * A driver was assigned to a ride that had none.
+         */
+        DRIVER_ASSIGNED,
+        /**
+         * The ride was reassigned to another driver, or no longer has one.
+         */
+        DRIVER_CHANGED,
+        /**
+         * The vehicle of the ride changed.
+         */
+        VEHICLE_CHANGED,
+        /**
+         * The vehicle moved farther than the publisher's minimum distance since the last location that was published.
+         */
+        LOCATION_CHANGED,
+        /**
+         * The ETA to the pickup or destination changed.
+         */
+        ETA_CHANGED,
+        /**
+         * The surge multiplier changed.
+         */
+        SURGE_CHANGED
+    }
+
+    private final Type type;
+    private final Ride previous;
+    private final Ride ride;
+
+    RideEvent(@Nonnull Type type, @Nullable Ride previous, @Nonnull Ride ride) {
+        this.type = type;
+        this.previous = previous;
+        this.ride = ride;
+    }
+
+    /**
+     * Gets what changed in the ride.
+     */
+    @Nonnull
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * Gets the identifier of the ride.
+     */
+    @Nonnull
+    public String getRideId() {
+        return ride.getRideId();
+    }
+
+    /**
+     * Gets the snapshot the ride was compared to, or {@code null} if the ride was seen for the first time.
+     */
+    @Nullable
+    public Ride getPrevious() {
+        return previous;
+    }
+
+    /**
+     * Gets the snapshot in which the change was seen.
+     */
+    @Nonnull
+    public Ride getRide() {
+        return ride;
+    }
+
+    @Override
+    public String toString() {
+        return "RideEvent{type=" + type + ", rideId=" + ride.getRideId() + '}';
+    }
+}
@@ -0,0 +1,349 @@
+/*
+ * Copyright (c) 2016 Uber Technologies, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.uber.sdk.rides.client.tracking;
+
+import com.uber.sdk.rides.client.error.ApiError;
+import com.uber.sdk.rides.client.model.Location;
+import com.uber.sdk.rides.client.model.Ride;
+
+import java.io.Closeable;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import static com.uber.sdk.core.client.utils.Preconditions.checkNotNull;
+import static com.uber.sdk.core.client.utils.Preconditions.checkState;
+
+/**
+ * Turns the ride snapshots seen by a {@link RideTracker} into a stream of {@link RideEvent}s that only describe
+ * what changed, so that subscribers do not have to compare every poll themselves.
+ * <pre>{@code
+ * RideEventPublisher publisher = new RideEventPublisher(50);
+ * publisher.subscribe(subscriber);
+ * tracker.track(rideId, publisher);
+ * ...
+ * tracker.untrack(rideId);
+ * publisher.forget(rideId);
+ * }</pre>
+ * Each subscriber is sent events on the publisher's executor, one at a time and only as many as it requested. Events
+ * that were not requested yet are buffered per subscriber; a subscriber that falls further behind than the buffer
+ * capacity is sent {@link Flow.Subscriber#onError(Throwable)} and unsubscribed, so that a slow subscriber never holds
+ * up polling or the other subscribers.
+ */
+public class RideEventPublisher implements Flow.Publisher<RideEvent>, RideTracker.Listener, Closeable {
+
+    private final RideDiffer differ;
+    private final Executor executor;
+    private final int bufferCapacity;
+    private final ConcurrentMap<String, RideState> rides = new ConcurrentHashMap<>();
+    private final List<EventSubscription> subscriptions = new CopyOnWriteArrayList<>();
+    private volatile boolean closed;
+
+    /**
+     * Creates a publisher that sends events on the common fork-join pool and buffers up to 256 events per
+     * subscriber.
+     *
+     * @param minimumDistanceMeters how far a vehicle must move before a {@link RideEvent.Type#LOCATION_CHANGED}.
+     */
+    public RideEventPublisher(double minimumDistanceMeters) {
+        this(minimumDistanceMeters, ForkJoinPool.commonPool(), 256);
+    }
+
+    /**
+     * @param minimumDistanceMeters how far a vehicle must move before a {@link RideEvent.Type#LOCATION_CHANGED}.
+     * @param executor runs the delivery of events to subscribers.
+     * @param bufferCapacity the number of events that may wait for each subscriber to request them.
+     */
+    public RideEventPublisher(double minimumDistanceMeters, @Nonnull Executor executor, int bufferCapacity) {
+        checkState(minimumDistanceMeters >= 0, "Minimum distance must not be negative.");
+        checkState(bufferCapacity > 0, "Buffer capacity must be positive.");
+        this.differ = new RideDiffer(minimumDistanceMeters);
+        this.executor = checkNotNull(executor, "Executor must not be null.");
+        this.bufferCapacity = bufferCapacity;
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super RideEvent> subscriber) {
+        checkNotNull(subscriber, "Subscriber must not be null.");
+
+        EventSubscription subscription = new EventSubscription(subscriber);
+        subscriptions.add(subscription);
+        if (closed) {
+            subscriptions.remove(subscription);
+            subscription.complete();
+        } else {
+            subscription.signal();
+        }
+    }
+
+    /**
+     * Compares the ride to its previous snapshot and publishes what changed.
+     *
+     * @param ride the new snapshot of the ride.
+     */
+    @Override
+    public void onRideUpdated(@Nonnull Ride ride) {
+        if (ride.getRideId() == null || closed) {
+            return;
+        }
+
+        RideState state = rides.get(ride.getRideId());
+        if (state == null) {
+            RideState created = new RideState();
+            state = rides.putIfAbsent(ride.getRideId(), created);
+            if (state == null) {
+                state = created;
+            }
+        }
+
+        synchronized (state) {
+            List<RideEvent> events = differ.diff(state.ride, state.reportedLocation, ride);
+            state.ride = ride;
+            for (RideEvent event : events) {
+                if (event.getType() == RideEvent.Type.LOCATION_CHANGED) {
+                    state.reportedLocation = ride.getLocation();
+                }
+                for (EventSubscription subscription : subscriptions) {
+                    subscription.offer(event);
+                }
+            }
+        }
+    }
+
+    /**
+     * Does nothing, as failed polls do not change the ride.
+     */
+    @Override
+    public void onPollFailed(@Nonnull String rideId, @Nullable ApiError apiError, @Nullable Throwable throwable) {
+    }
+
+    /**
+     * Forgets the last snapshot of the ride.
+     */
+    @Override
+    public void onTrackingStopped(@Nonnull String rideId, @Nullable Ride ride) {
+        rides.remove(rideId);
+    }
+
+    /**
+     * Forgets the last snapshot of a ride, for instance after it was untracked. Rides that a policy stopped are
+     * forgotten automatically.
+     *
+     * @param rideId the identifier of the ride.
+     */
+    public void forget(@Nonnull String rideId) {
+        rides.remove(rideId);
+    }
+
+    /**
+     * @return the number of subscribers that were neither cancelled nor failed.
+     */
+    public int getSubscriberCount() {
+        return subscriptions.size();
+    }
+
+    /**
+     * Stops publishing. Subscribers are sent {@link Flow.Subscriber#onComplete()} once they have received the events
+     * already buffered for them.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        for (EventSubscription subscription : subscriptions) {
+            subscriptions.remove(subscription);
+            subscription.complete();
+        }
+        rides.clear();
+    }
+
+    /**
+     * The snapshot that the next update of a ride is compared to.
+     */
+    private static final class RideState {
+
+        Ride ride;
+        Location reportedLocation;
+    }
+
+    /**
+     * Delivers events to one subscriber. Any thread may add events, demand or termination and then
+     * {@link #signal()}; delivery is done by a single task at a time on the executor, which keeps running while it
+     * is signalled again.
+     */
+    private final class EventSubscription implements Flow.Subscription, Runnable {
+
+        private final Flow.Subscriber<? super RideEvent> subscriber;
+        private final Queue<RideEvent> buffer = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger buffered = new AtomicInteger();
+        private final AtomicLong demand = new AtomicLong();
+        private final AtomicInteger signals = new AtomicInteger();
+        private final AtomicReference<Throwable> error = new AtomicReference<>();
+        private volatile boolean completed;
+        private volatile boolean cancelled;
+
+        // Only accessed by the delivery task.
+        private boolean subscribed;
+        private boolean terminated;
+
+        EventSubscription(Flow.Subscriber<? super RideEvent> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        void offer(RideEvent event) {
+            if (cancelled || completed || error.get() != null) {
+                return;
+            }
+            if (buffered.incrementAndGet() > bufferCapacity) {
+                buffered.decrementAndGet();
+                fail(new IllegalStateException("Subscriber fell more than " + bufferCapacity + " events behind."));
+                return;
+            }
+            buffer.offer(event);
+            signal();
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                fail(new IllegalArgumentException("Requested number of events must be positive."));
+                return;
+            }
+            long current;
+            long updated;
+            do {
+                current = demand.get();
+                updated = current + n < 0 ? Long.MAX_VALUE : current + n;
+            } while (!demand.compareAndSet(current, updated));
+            signal();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            subscriptions.remove(this);
+            signal();
+        }
+
+        void fail(Throwable throwable) {
+            if (error.compareAndSet(null, throwable)) {
+                subscriptions.remove(this);
+                signal();
+            }
+        }
+
+        void complete() {
+            completed = true;
+            signal();
+        }
+
+        void signal() {
+            if (signals.getAndIncrement() == 0) {
+                try {
+                    executor.execute(this);
+                } catch (RejectedExecutionException e) {
+                    // Events can no longer be delivered.
+                    cancelled = true;
+                    subscriptions.remove(this);
+                    buffer.clear();
+                }
+            }
+        }
+
+        @Override
+        public void run() {
+            int missed = 1;
+            do {
+                if (!subscribed) {
+                    subscribed = true;
+                    try {
+                        subscriber.onSubscribe(this);
+                    } catch (RuntimeException e) {
+                        cancel();
+                    }
+                }
+                deliver();
+                missed = signals.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        private void deliver() {
+            if (terminated || cancelled) {
+                buffer.clear();
+                return;
+            }
+
+            Throwable throwable = error.get();
+            if (throwable != null) {
+                terminate();
+                try {
+                    subscriber.onError(throwable);
+                } catch (RuntimeException ignored) {
+                    // The subscription is over either way.
+                }
+                return;
+            }
+
+            while (demand.get() > 0 && !cancelled && error.get() == null) {
+                RideEvent event = buffer.poll();
+                if (event == null) {
+                    break;
+                }
+                buffered.decrementAndGet();
+                if (demand.get() != Long.MAX_VALUE) {
+                    demand.decrementAndGet();
+                }
+                try {
+                    subscriber.onNext(event);
+                } catch (RuntimeException e) {
+                    cancel();
+                }
+            }
+
+            if (completed && buffer.isEmpty() && !cancelled && error.get() == null) {
+                terminate();
+                try {
+                    subscriber.onComplete();
+                } catch (RuntimeException ignored) {
+                    // The subscription is over either way.
+                }
+            }
+        }
+
+        private void terminate() {
+            terminated = true;
+            buffer.clear();
+        }
+    }
+}
@@ -0,0 +1,432 @@
+/*
+ * Copyright (c) 2016 Uber Technologies, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.uber.sdk.rides.client.tracking;
+
+import com.uber.sdk.rides.client.error.ApiError;
+import com.uber.sdk.rides.client.error.ErrorParser;
+import com.uber.sdk.rides.client.model.Ride;
+import com.uber.sdk.rides.client.services.RidesService;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import retrofit2.Response;
+
+import static com.uber.sdk.core.client.utils.Preconditions.checkNotNull;
+import static com.uber.sdk.core.client.utils.Preconditions.checkState;
+
+/**
+ * Follows large numbers of active rides by polling {@link RidesService#getRideDetails(String)}.
+ * <p>
+ * Polls are scheduled on a hashed timing wheel rather than one sleeping thread per ride, and run on a bounded pool
+ * of threads. How often a ride is polled is decided by a {@link PollingPolicy}, by default a
+ * {@link StatusPollingPolicy} that polls rides faster while a driver is on the way and stops once they end. Every
+ * delay is jittered so that rides tracked at the same time do not keep polling in lockstep.
+ * <pre>{@code
+ * RideTracker tracker = RideTracker.with(service).build();
+ * tracker.track(rideId, listener);
+ * }</pre>
+ * {@link #getPollLagMillis()} tells how late polls start compared to when they were due, which grows when the pool
+ * cannot keep up with the number of tracked rides.
+ */
+public class RideTracker implements Closeable {
+
+    /**
+     * Notified of the progress of a tracked ride, on a poll thread.
+     */
+    public interface Listener {
+
+        /**
+         * Called after each successful poll.
+         *
+         * @param ride the ride as returned by the API.
+         */
+        void onRideUpdated(@Nonnull Ride ride);
+
+        /**
+         * Called after each failed poll.
+         *
+         * @param rideId the identifier of the ride.
+         * @param apiError the error returned by the API, or {@code null} if the request failed.
+         * @param throwable the cause of the failure if the request failed, otherwise {@code null}.
+         */
+        void onPollFailed(@Nonnull String rideId, @Nullable ApiError apiError, @Nullable Throwable throwable);
+
+        /**
+         * Called once the policy stops tracking the ride. Not called after {@link #untrack(String)}.
+         *
+         * @param rideId the identifier of the ride.
+         * @param ride the ride as returned by the last successful poll, or {@code null} if there was none.
+         */
+        void onTrackingStopped(@Nonnull String rideId, @Nullable Ride ride);
+    }
+
+    private final RidesService service;
+    private final PollingPolicy policy;
+    private final double jitter;
+    private final long initialDelayMillis;
+    private final long tickMillis;
+    private final HashedWheelTimer timer;
+    private final ThreadPoolExecutor executor;
+    private final ConcurrentMap<String, TrackedRide> rides = new ConcurrentHashMap<>();
+    private final AtomicLong pollLagMillis = new AtomicLong();
+    private final AtomicLong maxPollLagMillis = new AtomicLong();
+
+    RideTracker(@Nonnull RidesService service,
+                @Nonnull PollingPolicy policy,
+                int pollThreads,
+                int maxQueuedPolls,
+                double jitter,
+                long initialDelayMillis,
+                long tickMillis,
+                int wheelSize) {
+        this.service = service;
+        this.policy = policy;
+        this.jitter = jitter;
+        this.initialDelayMillis = initialDelayMillis;
+        this.tickMillis = tickMillis;
+        this.timer = new HashedWheelTimer(tickMillis, TimeUnit.MILLISECONDS, wheelSize,
+                new TrackerThreadFactory("UberRideTrackerTimer"));
+        this.executor = new ThreadPoolExecutor(pollThreads, pollThreads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<Runnable>(maxQueuedPolls), new TrackerThreadFactory("UberRideTrackerPoll"));
+    }
+
+    /**
+     * @param service the service used to poll rides.
+     * @return a builder for a {@link RideTracker}.
+     */
+    @Nonnull
+    public static Builder with(@Nonnull RidesService service) {
+        return new Builder(checkNotNull(service, "Service must not be null."));
+    }
+
+    /**
+     * Starts tracking a ride. The first poll happens within the initial delay.
+     *
+     * @param rideId the identifier of the ride.
+     * @param listener notified of the progress of the ride.
+     * @return {@code false} if the ride was already tracked, in which case its listener is kept.
+     */
+    public boolean track(@Nonnull String rideId, @Nonnull Listener listener) {
+        checkNotNull(rideId, "Ride id must not be null.");
+        checkNotNull(listener, "Listener must not be null.");
+
+        TrackedRide ride = new TrackedRide(rideId, listener);
+        if (rides.putIfAbsent(rideId, ride) != null) {
+            return false;
+        }
+        schedule(ride, (long) (ThreadLocalRandom.current().nextDouble() * initialDelayMillis));
+        return true;
+    }
+
+    /**
+     * Stops tracking a ride. A poll that is already running completes, but its listener is not called again.
+     *
+     * @param rideId the identifier of the ride.
+     * @return whether the ride was tracked.
+     */
+    public boolean untrack(@Nonnull String rideId) {
+        TrackedRide ride = rides.remove(rideId);
+        if (ride == null) {
+            return false;
+        }
+        ride.stop();
+        return true;
+    }
+
+    /**
+     * @return the number of rides being tracked.
+     */
+    public int getTrackedRideCount() {
+        return rides.size();
+    }
+
+    /**
+     * @return how late the most recent poll started compared to when it was due, in milliseconds.
+     */
+    public long getPollLagMillis() {
+        return pollLagMillis.get();
+    }
+
+    /**
+     * @return how late the latest poll so far started compared to when it was due, in milliseconds.
+     */
+    public long getMaxPollLagMillis() {
+        return maxPollLagMillis.get();
+    }
+
+    /**
+     * Stops tracking every ride and releases the tracker's threads.
+     */
+    @Override
+    public void close() {
+        timer.stop();
+        executor.shutdownNow();
+        for (TrackedRide ride : rides.values()) {
+            ride.stop();
+        }
+        rides.clear();
+    }
+
+    private void schedule(TrackedRide ride, long delayMillis) {
+        schedule(ride, delayMillis, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delayMillis));
+    }
+
+    /**
+     * @param dueNanos when the poll was due, which stays the same when a poll is postponed so it counts as lag.
+     */
+    private void schedule(final TrackedRide ride, long delayMillis, final long dueNanos) {
+        if (ride.stopped) {
+            return;
+        }
+
+        try {
+            ride.timeout = timer.schedule(() -> dispatch(ride, dueNanos), delayMillis, TimeUnit.MILLISECONDS);
+        } catch (IllegalStateException e) {
+            // Closed.
+            return;
+        }
+        if (ride.stopped) {
+            ride.timeout.cancel();
+        }
+    }
+
+    private void dispatch(final TrackedRide ride, final long dueNanos) {
+        try {
+            executor.execute(() -> poll(ride, dueNanos));
+        } catch (RejectedExecutionException e) {
+            // The pool is saturated, so try again on the next tick.
+            if (!executor.isShutdown()) {
+                schedule(ride, tickMillis, dueNanos);
+            }
+        }
+    }
+
+    private void poll(TrackedRide ride, long dueNanos) {
+        if (ride.stopped) {
+            return;
+        }
+
+        long lag = Math.max(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - dueNanos), 0);
+        pollLagMillis.set(lag);
+        long max;
+        while (lag > (max = maxPollLagMillis.get()) && !maxPollLagMillis.compareAndSet(max, lag)) {
+            // Retry until the maximum is at least this lag.
+        }
+
+        long delay;
+        try {
+            Response<Ride> response = service.getRideDetails(ride.rideId).execute();
+            if (response.isSuccessful() && response.body() != null) {
+                ride.lastRide = response.body();
+                ride.failures = 0;
+                notifyUpdated(ride, response.body());
+                delay = policy.nextPollDelayMillis(response.body());
+            } else {
+                notifyFailed(ride, ErrorParser.parseError(response), null);
+                delay = policy.retryDelayMillis(ride.rideId, ++ride.failures);
+            }
+        } catch (IOException | RuntimeException e) {
+            notifyFailed(ride, null, e);
+            delay = policy.retryDelayMillis(ride.rideId, ++ride.failures);
+        }
+
+        if (delay < 0) {
+            if (rides.remove(ride.rideId, ride)) {
+                ride.stop();
+                try {
+                    ride.listener.onTrackingStopped(ride.rideId, ride.lastRide);
+                } catch (RuntimeException ignored) {
+                    // Listener failures must not affect other rides.
+                }
+            }
+            return;
+        }
+        schedule(ride, jitter(delay));
+    }
+
+    private void notifyUpdated(TrackedRide ride, Ride update) {
+        if (ride.stopped) {
+            return;
+        }
+        try {
+            ride.listener.onRideUpdated(update);
+        } catch (RuntimeException ignored) {
+            // Listener failures must not stop tracking.
+        }
+    }
+
+    private void notifyFailed(TrackedRide ride, @Nullable ApiError apiError, @Nullable Throwable throwable) {
+        if (ride.stopped) {
+            return;
+        }
+        try {
+            ride.listener.onPollFailed(ride.rideId, apiError, throwable);
+        } catch (RuntimeException ignored) {
+            // Listener failures must not stop tracking.
+        }
+    }
+
+    private long jitter(long delayMillis) {
+        if (jitter == 0) {
+            return delayMillis;
+        }
+        double factor = 1 + (ThreadLocalRandom.current().nextDouble() * 2 - 1) * jitter;
+        return (long) (delayMillis * factor);
+    }
+
+    /**
+     * The tracking state of one ride. Only one poll of a ride is scheduled or running at a time.
+     */
+    private static final class TrackedRide {
+
+        final String rideId;
+        final Listener listener;
+        volatile boolean stopped;
+        volatile HashedWheelTimer.Timeout timeout;
+        volatile Ride lastRide;
+        volatile int failures;
+
+        TrackedRide(String rideId, Listener listener) {
+            this.rideId = rideId;
+            this.listener = listener;
+        }
+
+        void stop() {
+            stopped = true;
+            HashedWheelTimer.Timeout current = timeout;
+            if (current != null) {
+                current.cancel();
+            }
+        }
+    }
+
+    private static final class TrackerThreadFactory implements ThreadFactory {
+
+        private final String name;
+        private final AtomicInteger count = new AtomicInteger();
+
+        TrackerThreadFactory(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public Thread newThread(@Nonnull Runnable runnable) {
+            Thread thread = new Thread(runnable, name + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+
+    /**
+     * Builder for {@link RideTracker}.
+     */
+    public static class Builder {
+
+        private final RidesService service;
+        private PollingPolicy policy;
+        private int pollThreads = 16;
+        private int maxQueuedPolls = 10000;
+        private double jitter = 0.1;
+        private long initialDelayMillis = TimeUnit.SECONDS.toMillis(1);
+        private long tickMillis = 100;
+        private int wheelSize = 512;
+
+        Builder(@Nonnull RidesService service) {
+            this.service = service;
+        }
+
+        /**
+         * Sets the {@link PollingPolicy}. Optional and defaults to a {@link StatusPollingPolicy}.
+         */
+        public Builder setPollingPolicy(@Nonnull PollingPolicy policy) {
+            this.policy = checkNotNull(policy, "Policy must not be null.");
+            return this;
+        }
+
+        /**
+         * Sets the number of threads that run polls, which bounds the number of concurrent requests, and the
+         * number of due polls that may wait for a thread. Optional and defaults to 16 threads and 10000 polls.
+         */
+        public Builder setPollThreads(int pollThreads, int maxQueuedPolls) {
+            checkState(pollThreads > 0, "Poll threads must be positive.");
+            checkState(maxQueuedPolls > 0, "Max queued polls must be positive.");
+            this.pollThreads = pollThreads;
+            this.maxQueuedPolls = maxQueuedPolls;
+            return this;
+        }
+
+        /**
+         * Sets the fraction by which each delay is randomly lengthened or shortened. Optional and defaults to 0.1.
+         */
+        public Builder setJitter(double jitter) {
+            checkState(jitter >= 0 && jitter < 1, "Jitter must be at least 0 and less than 1.");
+            this.jitter = jitter;
+            return this;
+        }
+
+        /**
+         * Sets the longest delay before the first poll of a ride, which is spread randomly to avoid bursts when
+         * many rides start being tracked at once. Optional and defaults to 1 second.
+         */
+        public Builder setInitialDelay(long initialDelay, @Nonnull TimeUnit unit) {
+            checkState(initialDelay >= 0, "Initial delay must not be negative.");
+            this.initialDelayMillis = unit.toMillis(initialDelay);
+            return this;
+        }
+
+        /**
+         * Sets the precision of the timing wheel and its number of buckets. Optional and defaults to 100 ms and
+         * 512 buckets.
+         */
+        Builder setWheel(long tick, @Nonnull TimeUnit unit, int wheelSize) {
+            this.tickMillis = Math.max(unit.toMillis(tick), 1);
+            this.wheelSize = wheelSize;
+            return this;
+        }
+
+        public RideTracker build() {
+            return new RideTracker(service,
+                    policy != null ? policy : new StatusPollingPolicy.Builder().build(),
+                    pollThreads,
+                    maxQueuedPolls,
+                    jitter,
+                    initialDelayMillis,
+                    tickMillis,
+                    wheelSize);
+        }
+    }
+}
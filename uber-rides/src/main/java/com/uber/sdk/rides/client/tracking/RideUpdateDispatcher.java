@@ -0,0 +1,258 @@
+/*
+ * Copyright (c) 2016 Uber Technologies, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.uber.sdk.rides.client.tracking;
+
+import com.uber.sdk.core.ringbuffer.RingBuffer;
+import com.uber.sdk.core.ringbuffer.WaitStrategy;
+import com.uber.sdk.rides.client.error.ApiError;
+import com.uber.sdk.rides.client.model.Ride;
+
+import java.io.Closeable;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import static com.uber.sdk.core.client.utils.Preconditions.checkNotNull;
+
+/**
+ * Fans the updates of a {@link RideTracker} out to many listeners through a {@link RingBuffer}, so that each listener
+ * runs on its own thread and a slow listener neither blocks polling nor the other listeners.
+ * <p>
+ * Polls publish their updates without locks, each claiming a slot with a compare-and-set. Once the slowest listener
+ * falls a full buffer behind, polls wait for it, so that listeners see every update, status changes included.
+ * {@link Builder#setDropWhenFull(boolean)} rather drops ride updates and poll failures, counted by
+ * {@link #getDroppedCount()}, for listeners that only care about the latest state; the end of tracking still waits
+ * for a free slot, so that listeners always see it.
+ * <pre>{@code
+ * RideUpdateDispatcher dispatcher = new RideUpdateDispatcher.Builder()
+ *         .addListener("map", mapListener)
+ *         .addListener("notifications", notificationListener)
+ *         .build();
+ * tracker.track(rideId, dispatcher);
+ * }</pre>
+ * {@link #getLag(String)} tells how many updates a listener has yet to handle.
+ */
+public class RideUpdateDispatcher implements RideTracker.Listener, Closeable {
+
+    private final RingBuffer<Update> ring;
+    private final int listenerCount;
+    private final boolean dropWhenFull;
+    private final AtomicLong droppedCount = new AtomicLong();
+
+    RideUpdateDispatcher(@Nonnull RingBuffer<Update> ring, int listenerCount, boolean dropWhenFull) {
+        this.ring = ring;
+        this.listenerCount = listenerCount;
+        this.dropWhenFull = dropWhenFull;
+        ring.start();
+    }
+
+    @Override
+    public void onRideUpdated(@Nonnull Ride ride) {
+        publish(Update.UPDATED, ride.getRideId(), ride, null, null);
+    }
+
+    @Override
+    public void onPollFailed(@Nonnull String rideId, @Nullable ApiError apiError, @Nullable Throwable throwable) {
+        publish(Update.FAILED, rideId, null, apiError, throwable);
+    }
+
+    @Override
+    public void onTrackingStopped(@Nonnull String rideId, @Nullable Ride ride) {
+        publish(Update.STOPPED, rideId, ride, null, null);
+    }
+
+    /**
+     * @param name the name of a listener.
+     * @return the number of updates the listener has yet to handle.
+     */
+    public long getLag(@Nonnull String name) {
+        return ring.getLag(name);
+    }
+
+    /**
+     * @return the number of updates each listener has yet to handle, by listener name.
+     */
+    @Nonnull
+    public Map<String, Long> getLags() {
+        return ring.getLags();
+    }
+
+    /**
+     * @return the number of ride updates and poll failures dropped because the slowest listener was a full buffer
+     * behind, always 0 unless {@link Builder#setDropWhenFull(boolean)} was set.
+     */
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    /**
+     * Stops dispatching, once the listeners have handled the updates already dispatched.
+     */
+    @Override
+    public void close() {
+        ring.close();
+    }
+
+    private void publish(int kind, String rideId, Ride ride, ApiError apiError, Throwable throwable) {
+        long sequence;
+        try {
+            if (dropWhenFull && kind != Update.STOPPED) {
+                sequence = ring.tryNext();
+                if (sequence < 0) {
+                    droppedCount.incrementAndGet();
+                    return;
+                }
+            } else {
+                sequence = ring.next();
+            }
+        } catch (IllegalStateException e) {
+            // Closed.
+            return;
+        }
+
+        Update update = ring.get(sequence);
+        update.kind = kind;
+        update.rideId = rideId;
+        update.ride = ride;
+        update.apiError = apiError;
+        update.throwable = throwable;
+        update.pendingListeners.set(listenerCount);
+        ring.publish(sequence);
+    }
+
+    /**
+     * A slot of the ring buffer, reused for every call of the listener methods.
+     */
+    static final class Update {
+
+        static final int UPDATED = 0;
+        static final int FAILED = 1;
+        static final int STOPPED = 2;
+
+        final AtomicInteger pendingListeners = new AtomicInteger();
+        int kind;
+        String rideId;
+        Ride ride;
+        ApiError apiError;
+        Throwable throwable;
+
+        /**
+         * Called by each listener once done with the update, so that the last one lets go of the ride and errors
+         * instead of keeping them until the slot is reused.
+         */
+        void release() {
+            if (pendingListeners.decrementAndGet() == 0) {
+                rideId = null;
+                ride = null;
+                apiError = null;
+                throwable = null;
+            }
+        }
+    }
+
+    /**
+     * Calls a listener with the updates of the ring buffer.
+     */
+    private static final class ListenerHandler implements RingBuffer.EventHandler<Update> {
+
+        private final RideTracker.Listener listener;
+
+        ListenerHandler(RideTracker.Listener listener) {
+            this.listener = listener;
+        }
+
+        @Override
+        public void onEvent(@Nonnull Update update, long sequence, boolean endOfBatch) {
+            try {
+                switch (update.kind) {
+                    case Update.UPDATED:
+                        listener.onRideUpdated(update.ride);
+                        break;
+                    case Update.FAILED:
+                        listener.onPollFailed(update.rideId, update.apiError, update.throwable);
+                        break;
+                    default:
+                        listener.onTrackingStopped(update.rideId, update.ride);
+                        break;
+                }
+            } finally {
+                update.release();
+            }
+        }
+    }
+
+    /**
+     * Builder for {@link RideUpdateDispatcher}.
+     */
+    public static class Builder {
+
+        private final RingBuffer.Builder<Update> ring = RingBuffer.with(Update::new).setMultiProducer(true);
+        private int listenerCount;
+        private boolean dropWhenFull;
+
+        /**
+         * Adds a listener, which is called with every update on a thread of its own.
+         *
+         * @param name the name of the listener, which its lag is reported under.
+         * @param listener the listener.
+         */
+        public Builder addListener(@Nonnull String name, @Nonnull RideTracker.Listener listener) {
+            ring.addHandler(name, new ListenerHandler(checkNotNull(listener, "Listener must not be null.")));
+            listenerCount++;
+            return this;
+        }
+
+        /**
+         * Sets the number of updates that may wait for the slowest listener before polls wait for it, a power of two.
+         * Optional and defaults to 1024.
+         */
+        public Builder setBufferSize(int bufferSize) {
+            ring.setBufferSize(bufferSize);
+            return this;
+        }
+
+        /**
+         * Sets how listener threads wait for updates. Optional and defaults to {@link WaitStrategy#blocking()}.
+         */
+        public Builder setWaitStrategy(@Nonnull WaitStrategy waitStrategy) {
+            ring.setWaitStrategy(waitStrategy);
+            return this;
+        }
+
+        /**
+         * Sets whether ride updates and poll failures are dropped, rather than waited for, once the slowest listener
+         * is a full buffer behind. Optional and defaults to false.
+         */
+        public Builder setDropWhenFull(boolean dropWhenFull) {
+            this.dropWhenFull = dropWhenFull;
+            return this;
+        }
+
+        public RideUpdateDispatcher build() {
+            return new RideUpdateDispatcher(ring.build(), listenerCount, dropWhenFull);
+        }
+    }
+}
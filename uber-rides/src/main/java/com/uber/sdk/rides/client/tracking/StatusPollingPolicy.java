@@ -0,0 +1,168 @@
+/*
+ * Copyright (c) 2016 Uber Technologies, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.uber.sdk.rides.client.tracking;
+
+import com.uber.sdk.rides.client.model.Ride;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nonnull;
+
+import static com.uber.sdk.core.client.utils.Preconditions.checkNotNull;
+import static com.uber.sdk.core.client.utils.Preconditions.checkState;
+
+/**
+ * A {@link PollingPolicy} with a fixed interval per {@link Ride.Status}. By default rides are polled every 2 seconds
+ * while {@link Ride.Status#PROCESSING processing} or {@link Ride.Status#ARRIVING arriving}, every 5 seconds once
+ * {@link Ride.Status#ACCEPTED accepted} and every 15 seconds while {@link Ride.Status#IN_PROGRESS in progress}.
+ * Tracking stops once a ride is completed, canceled or finds no drivers.
+ * <p>
+ * Failed polls are retried with exponential backoff, starting at the fastest interval, until
+ * {@code maximumFailures} polls failed in a row.
+ */
+public class StatusPollingPolicy implements PollingPolicy {
+
+    private final Map<Ride.Status, Long> intervals;
+    private final long unknownStatusIntervalMillis;
+    private final long minimumRetryDelayMillis;
+    private final long maximumRetryDelayMillis;
+    private final int maximumFailures;
+
+    StatusPollingPolicy(@Nonnull Map<Ride.Status, Long> intervals,
+                        long unknownStatusIntervalMillis,
+                        long maximumRetryDelayMillis,
+                        int maximumFailures) {
+        this.intervals = intervals;
+        this.unknownStatusIntervalMillis = unknownStatusIntervalMillis;
+        this.maximumRetryDelayMillis = maximumRetryDelayMillis;
+        this.maximumFailures = maximumFailures;
+
+        long fastest = unknownStatusIntervalMillis;
+        for (long interval : intervals.values()) {
+            if (interval > 0) {
+                fastest = Math.min(fastest, interval);
+            }
+        }
+        this.minimumRetryDelayMillis = fastest;
+    }
+
+    @Override
+    public long nextPollDelayMillis(@Nonnull Ride ride) {
+        Ride.Status status = ride.getStatus();
+        if (status == null) {
+            return unknownStatusIntervalMillis;
+        }
+        Long interval = intervals.get(status);
+        return interval != null ? interval : STOP;
+    }
+
+    @Override
+    public long retryDelayMillis(@Nonnull String rideId, int consecutiveFailures) {
+        if (consecutiveFailures > maximumFailures) {
+            return STOP;
+        }
+        int shift = Math.min(consecutiveFailures - 1, 30);
+        return Math.min(minimumRetryDelayMillis << shift, maximumRetryDelayMillis);
+    }
+
+    /**
+     * Builder for {@link StatusPollingPolicy}.
+     */
+    public static class Builder {
+
+        private final Map<Ride.Status, Long> intervals = new EnumMap<>(Ride.Status.class);
+        private long unknownStatusIntervalMillis = TimeUnit.SECONDS.toMillis(5);
+        private long maximumRetryDelayMillis = TimeUnit.MINUTES.toMillis(1);
+        private int maximumFailures = 10;
+
+        public Builder() {
+            intervals.put(Ride.Status.PROCESSING, TimeUnit.SECONDS.toMillis(2));
+            intervals.put(Ride.Status.ACCEPTED, TimeUnit.SECONDS.toMillis(5));
+            intervals.put(Ride.Status.ARRIVING, TimeUnit.SECONDS.toMillis(2));
+            intervals.put(Ride.Status.IN_PROGRESS, TimeUnit.SECONDS.toMillis(15));
+        }
+
+        /**
+         * Sets how often rides with a status are polled.
+         *
+         * @param status the status of the ride.
+         * @param interval the time between polls.
+         * @param unit the unit of {@code interval}.
+         * @return this builder.
+         */
+        public Builder setInterval(@Nonnull Ride.Status status, long interval, @Nonnull TimeUnit unit) {
+            checkState(interval > 0, "Interval must be positive.");
+            intervals.put(checkNotNull(status, "Status must not be null."), unit.toMillis(interval));
+            return this;
+        }
+
+        /**
+         * Stops tracking rides once they reach a status.
+         *
+         * @param status the status to stop at.
+         * @return this builder.
+         */
+        public Builder setStopped(@Nonnull Ride.Status status) {
+            intervals.remove(checkNotNull(status, "Status must not be null."));
+            return this;
+        }
+
+        /**
+         * Sets how often rides are polled while the API does not return their status.
+         *
+         * @param interval the time between polls.
+         * @param unit the unit of {@code interval}.
+         * @return this builder.
+         */
+        public Builder setUnknownStatusInterval(long interval, @Nonnull TimeUnit unit) {
+            checkState(interval > 0, "Interval must be positive.");
+            this.unknownStatusIntervalMillis = unit.toMillis(interval);
+            return this;
+        }
+
+        /**
+         * Sets how failed polls are retried.
+         *
+         * @param maximumDelay the longest delay between retries.
+         * @param unit the unit of {@code maximumDelay}.
+         * @param maximumFailures the number of polls that may fail in a row before tracking stops.
+         * @return this builder.
+         */
+        public Builder setRetries(long maximumDelay, @Nonnull TimeUnit unit, int maximumFailures) {
+            checkState(maximumDelay > 0, "Maximum delay must be positive.");
+            checkState(maximumFailures >= 0, "Maximum failures must not be negative.");
+            this.maximumRetryDelayMillis = unit.toMillis(maximumDelay);
+            this.maximumFailures = maximumFailures;
+            return this;
+        }
+
+        public StatusPollingPolicy build() {
+            return new StatusPollingPolicy(new EnumMap<>(intervals),
+                    unknownStatusIntervalMillis,
+                    maximumRetryDelayMillis,
+                    maximumFailures);
+        }
+    }
+}
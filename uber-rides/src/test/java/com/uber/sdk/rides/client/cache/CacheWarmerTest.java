@@ -0,0 +1,183 @@
+/*
+ * Copyright (c) 2016 Uber Technologies, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.uber.sdk.rides.client.cache;
+
+import com.uber.sdk.rides.client.model.Location;
+import com.uber.sdk.rides.client.model.ProductsResponse;
+import com.uber.sdk.rides.client.model.TimeEstimatesResponse;
+import com.uber.sdk.rides.client.services.RidesService;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.MediaType;
+import okhttp3.ResponseBody;
+import retrofit2.Call;
+import retrofit2.Response;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.offset;
+import static org.mockito.Matchers.anyFloat;
+import static org.mockito.Matchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class CacheWarmerTest {
+
+    @Mock
+    RidesService service;
+
+    ProductCache productCache;
+    EstimateCache estimateCache;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        productCache = new ProductCache(service, 1, TimeUnit.MINUTES);
+        estimateCache = new EstimateCache(service, 1, TimeUnit.MINUTES);
+    }
+
+    @Test
+    public void readManifest_shouldParseCoordinatesAndGeohashes() throws IOException {
+        List<Location> locations = CacheWarmer.readManifest(new StringReader(
+                "# Hot locations\n"
+                        + "37.7753, -122.418\n"
+                        + "\n"
+                        + "9q8yyk8yt\n"));
+
+        assertThat(locations).hasSize(2);
+        assertThat(locations.get(0).getLatitude()).isEqualTo(37.7753f);
+        assertThat(locations.get(0).getLongitude()).isEqualTo(-122.418f);
+        assertThat(locations.get(1).getLatitude()).isEqualTo(37.7749f, offset(0.001f));
+        assertThat(locations.get(1).getLongitude()).isEqualTo(-122.4194f, offset(0.001f));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void readManifest_whenInvalidLine_shouldThrow() throws IOException {
+        CacheWarmer.readManifest(new StringReader("37.7753,abc\n"));
+    }
+
+    @Test
+    public void warmUp_shouldFillCachesAndReportProgress() throws Exception {
+        Call<ProductsResponse> productsCall = successCall(mock(ProductsResponse.class));
+        Call<TimeEstimatesResponse> timesCall = successCall(mock(TimeEstimatesResponse.class));
+        when(service.getProducts(anyFloat(), anyFloat())).thenReturn(productsCall);
+        when(service.getPickupTimeEstimate(anyFloat(), anyFloat(), (String) isNull())).thenReturn(timesCall);
+        final List<Integer> progress = Collections.synchronizedList(new ArrayList<Integer>());
+
+        CacheWarmer warmer = new CacheWarmer(productCache, estimateCache, 2, 1000);
+        CacheWarmer.Result result = warmer.warmUp(
+                Arrays.asList(new Location(1f, 1f), new Location(2f, 2f), new Location(3f, 3f)),
+                new CacheWarmer.Listener() {
+                    @Override
+                    public void onProgress(int completed, int failed, int total) {
+                        progress.add(completed);
+                    }
+                }).get(5, TimeUnit.SECONDS);
+
+        assertThat(result.getTotal()).isEqualTo(3);
+        assertThat(result.getFailed()).isEqualTo(0);
+        assertThat(progress).containsOnly(1, 2, 3);
+
+        productCache.getProducts(2f, 2f);
+        estimateCache.getPickupTimeEstimate(2f, 2f, null);
+        verify(service, times(3)).getProducts(anyFloat(), anyFloat());
+        verify(service, times(3)).getPickupTimeEstimate(anyFloat(), anyFloat(), (String) isNull());
+    }
+
+    @Test
+    public void warmUp_whenRequestsFail_shouldCountFailures() throws Exception {
+        Call<ProductsResponse> productsCall = successCall(mock(ProductsResponse.class));
+        Call<TimeEstimatesResponse> failedCall = mockCall();
+        when(failedCall.execute()).thenReturn(Response.<TimeEstimatesResponse>error(500,
+                ResponseBody.create(MediaType.parse("application/json"), "{}")));
+        when(service.getProducts(anyFloat(), anyFloat())).thenReturn(productsCall);
+        when(service.getPickupTimeEstimate(anyFloat(), anyFloat(), (String) isNull())).thenReturn(failedCall);
+
+        CacheWarmer warmer = new CacheWarmer(productCache, estimateCache, 1, 1000);
+        CacheWarmer.Result result = warmer.warmUp(Arrays.asList(new Location(1f, 1f), new Location(2f, 2f)), null)
+                .get(5, TimeUnit.SECONDS);
+
+        assertThat(result.getFailed()).isEqualTo(2);
+    }
+
+    @Test
+    public void warmUp_shouldNotExceedRequestRate() throws Exception {
+        Call<ProductsResponse> productsCall = successCall(mock(ProductsResponse.class));
+        Call<TimeEstimatesResponse> timesCall = successCall(mock(TimeEstimatesResponse.class));
+        when(service.getProducts(anyFloat(), anyFloat())).thenReturn(productsCall);
+        when(service.getPickupTimeEstimate(anyFloat(), anyFloat(), (String) isNull())).thenReturn(timesCall);
+
+        long start = System.nanoTime();
+        new CacheWarmer(productCache, estimateCache, 4, 20)
+                .warmUp(Arrays.asList(new Location(1f, 1f), new Location(2f, 2f), new Location(3f, 3f)), null)
+                .get(5, TimeUnit.SECONDS);
+
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isGreaterThanOrEqualTo(250);
+    }
+
+    @Test
+    public void warmUp_whenCached_shouldNotSpendRequestRate() throws Exception {
+        Call<ProductsResponse> productsCall = successCall(mock(ProductsResponse.class));
+        Call<TimeEstimatesResponse> timesCall = successCall(mock(TimeEstimatesResponse.class));
+        when(service.getProducts(anyFloat(), anyFloat())).thenReturn(productsCall);
+        when(service.getPickupTimeEstimate(anyFloat(), anyFloat(), (String) isNull())).thenReturn(timesCall);
+        List<Location> locations = Arrays.asList(new Location(1f, 1f), new Location(2f, 2f), new Location(3f, 3f));
+        for (Location location : locations) {
+            productCache.getProducts(location.getLatitude(), location.getLongitude());
+            estimateCache.getPickupTimeEstimate(location.getLatitude(), location.getLongitude(), null);
+        }
+
+        long start = System.nanoTime();
+        CacheWarmer.Result result = new CacheWarmer(productCache, estimateCache, 1, 1)
+                .warmUp(locations, null)
+                .get(5, TimeUnit.SECONDS);
+
+        assertThat(result.getFailed()).isEqualTo(0);
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isLessThan(1000);
+        verify(service, times(3)).getProducts(anyFloat(), anyFloat());
+    }
+
+    private static <T> Call<T> successCall(T body) throws IOException {
+        Call<T> call = mockCall();
+        when(call.execute()).thenReturn(Response.success(body));
+        return call;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> Call<T> mockCall() {
+        return mock(Call.class);
+    }
+}
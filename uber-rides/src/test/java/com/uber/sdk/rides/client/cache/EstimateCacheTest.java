@@ -0,0 +1,148 @@
+/*
+ * Copyright (c) 2016 Uber Technologies, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.uber.sdk.rides.client.cache;
+
+import com.uber.sdk.rides.client.model.PriceEstimate;
+import com.uber.sdk.rides.client.model.PriceEstimatesResponse;
+import com.uber.sdk.rides.client.model.TimeEstimate;
+import com.uber.sdk.rides.client.model.TimeEstimatesResponse;
+import com.uber.sdk.rides.client.services.RidesService;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import retrofit2.Call;
+import retrofit2.Response;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class EstimateCacheTest {
+
+    private static final float LATITUDE = 37.7753f;
+    private static final float LONGITUDE = -122.418f;
+    private static final String PRODUCT_ID = "a1111c8c-c720-46c3-8534-2fcdd730040d";
+
+    @Mock
+    RidesService service;
+
+    EstimateCache cache;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        cache = new EstimateCache(service,
+                new OffHeapCache<>(EstimateCodecs.PRICE_ESTIMATES, 64 * 1024, 2),
+                new OffHeapCache<>(EstimateCodecs.TIME_ESTIMATES, 64 * 1024, 2),
+                1, TimeUnit.MINUTES);
+    }
+
+    @Test
+    public void getPriceEstimates_shouldFetchOnceAndDecodeExactValues() throws Exception {
+        PriceEstimate price = new PriceEstimate(PRODUCT_ID, "USD", "uberX", "$7-10",
+                new BigDecimal("7.15"), new BigDecimal("10"), 1.5f, 1080, null);
+        PriceEstimate unpriced = new PriceEstimate(PRODUCT_ID, null, "TAXI", "Metered",
+                null, new BigDecimal("123456789012345678901234567890.5"), null, null, 5.4f);
+        Call<PriceEstimatesResponse> call = successCall(new PriceEstimatesResponse(Arrays.asList(price, unpriced)));
+        when(service.getPriceEstimates(LATITUDE, LONGITUDE, LATITUDE, LONGITUDE)).thenReturn(call);
+
+        cache.getPriceEstimates(LATITUDE, LONGITUDE, LATITUDE, LONGITUDE);
+        PriceEstimatesResponse cached = cache.getPriceEstimates(LATITUDE, LONGITUDE, LATITUDE, LONGITUDE).body();
+
+        verify(service, times(1)).getPriceEstimates(LATITUDE, LONGITUDE, LATITUDE, LONGITUDE);
+        assertThat(cached.getPrices()).hasSize(2);
+
+        PriceEstimate first = cached.getPrices().get(0);
+        assertThat(first.getProductId()).isEqualTo(PRODUCT_ID);
+        assertThat(first.getCurrencyCode()).isEqualTo("USD");
+        assertThat(first.getDisplayName()).isEqualTo("uberX");
+        assertThat(first.getEstimate()).isEqualTo("$7-10");
+        assertThat(first.getLowEstimate()).isEqualTo(new BigDecimal("7.15"));
+        assertThat(first.getHighEstimate()).isEqualTo(new BigDecimal("10"));
+        assertThat(first.getSurgeMultiplier()).isEqualTo(1.5f);
+        assertThat(first.getDuration()).isEqualTo(1080);
+        assertThat(first.getDistance()).isNull();
+
+        PriceEstimate second = cached.getPrices().get(1);
+        assertThat(second.getCurrencyCode()).isNull();
+        assertThat(second.getLowEstimate()).isNull();
+        assertThat(second.getHighEstimate()).isEqualTo(new BigDecimal("123456789012345678901234567890.5"));
+        assertThat(second.getSurgeMultiplier()).isNull();
+        assertThat(second.getDuration()).isNull();
+        assertThat(second.getDistance()).isEqualTo(5.4f);
+    }
+
+    @Test
+    public void getPickupTimeEstimate_shouldCachePerProduct() throws Exception {
+        TimeEstimate time = new TimeEstimate(PRODUCT_ID, "uberX", 240);
+        Call<TimeEstimatesResponse> productCall = successCall(new TimeEstimatesResponse(Arrays.asList(time)));
+        Call<TimeEstimatesResponse> allCall = successCall(
+                new TimeEstimatesResponse(Arrays.asList(time, new TimeEstimate("other", "TAXI", null))));
+        when(service.getPickupTimeEstimate(LATITUDE, LONGITUDE, PRODUCT_ID)).thenReturn(productCall);
+        when(service.getPickupTimeEstimate(LATITUDE, LONGITUDE, null)).thenReturn(allCall);
+
+        cache.getPickupTimeEstimate(LATITUDE, LONGITUDE, PRODUCT_ID);
+        cache.getPickupTimeEstimate(LATITUDE, LONGITUDE, null);
+        TimeEstimatesResponse product = cache.getPickupTimeEstimate(LATITUDE, LONGITUDE, PRODUCT_ID).body();
+        TimeEstimatesResponse all = cache.getPickupTimeEstimate(LATITUDE, LONGITUDE, null).body();
+
+        verify(service, times(1)).getPickupTimeEstimate(LATITUDE, LONGITUDE, PRODUCT_ID);
+        verify(service, times(1)).getPickupTimeEstimate(LATITUDE, LONGITUDE, null);
+        assertThat(product.getTimes()).hasSize(1);
+        assertThat(product.getTimes().get(0).getEstimate()).isEqualTo(240);
+        assertThat(all.getTimes()).hasSize(2);
+        assertThat(all.getTimes().get(1).getDisplayName()).isEqualTo("TAXI");
+        assertThat(all.getTimes().get(1).getEstimate()).isNull();
+    }
+
+    @Test
+    public void getPickupTimeEstimate_whenHeapCache_shouldReturnSameInstance() throws Exception {
+        EstimateCache heapCache = new EstimateCache(service, 1, TimeUnit.MINUTES);
+        TimeEstimatesResponse response = new TimeEstimatesResponse(
+                Arrays.asList(new TimeEstimate(PRODUCT_ID, "uberX", 240)));
+        Call<TimeEstimatesResponse> call = successCall(response);
+        when(service.getPickupTimeEstimate(LATITUDE, LONGITUDE, null)).thenReturn(call);
+
+        heapCache.getPickupTimeEstimate(LATITUDE, LONGITUDE, null);
+        TimeEstimatesResponse cached = heapCache.getPickupTimeEstimate(LATITUDE, LONGITUDE, null).body();
+
+        verify(service, times(1)).getPickupTimeEstimate(LATITUDE, LONGITUDE, null);
+        assertThat(cached).isSameAs(response);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> Call<T> successCall(T body) throws Exception {
+        Call<T> call = mock(Call.class);
+        when(call.execute()).thenReturn(Response.success(body));
+        return call;
+    }
+}
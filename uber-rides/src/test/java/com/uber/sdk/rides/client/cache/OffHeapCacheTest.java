@@ -0,0 +1,252 @@
+/*
+ * Copyright (c) 2016 Uber Technologies, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.uber.sdk.rides.client.cache;
+
+import com.uber.sdk.core.cache.Codec;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.Nonnull;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class OffHeapCacheTest {
+
+    private static final Codec<String> STRING_CODEC = new Codec<String>() {
+        @Override
+        public void encode(@Nonnull String value, @Nonnull ByteBuffer target) {
+            target.put(value.getBytes(StandardCharsets.UTF_8));
+        }
+
+        @Nonnull
+        @Override
+        public String decode(@Nonnull ByteBuffer source) {
+            byte[] bytes = new byte[source.remaining()];
+            source.get(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    };
+
+    private OffHeapCache<String> cache;
+
+    @Before
+    public void setUp() {
+        cache = new OffHeapCache<>(STRING_CODEC, 4096, 4);
+    }
+
+    @Test
+    public void getIfPresent_whenAbsent_shouldReturnNull() {
+        assertThat(cache.getIfPresent("missing")).isNull();
+    }
+
+    @Test
+    public void put_thenGet_shouldDecodeValue() {
+        cache.put("key", "value", 1, TimeUnit.MINUTES);
+
+        assertThat(cache.getIfPresent("key")).isEqualTo("value");
+        assertThat(cache.size()).isEqualTo(1);
+    }
+
+    @Test
+    public void put_whenKeyExists_shouldReplaceValue() {
+        cache.put("key", "first", 1, TimeUnit.MINUTES);
+        cache.put("key", "second", 1, TimeUnit.MINUTES);
+
+        assertThat(cache.getIfPresent("key")).isEqualTo("second");
+        assertThat(cache.size()).isEqualTo(1);
+    }
+
+    @Test
+    public void getIfPresent_whenExpired_shouldReturnNull() {
+        cache.put("key", "value", 0, TimeUnit.MILLISECONDS);
+
+        assertThat(cache.getIfPresent("key")).isNull();
+    }
+
+    @Test
+    public void containsKey_shouldNotRecordStatsOrExpiredEntries() {
+        cache.put("key", "value", 1, TimeUnit.MINUTES);
+        cache.put("expired", "value", 0, TimeUnit.MILLISECONDS);
+
+        assertThat(cache.containsKey("key")).isTrue();
+        assertThat(cache.containsKey("expired")).isFalse();
+        assertThat(cache.containsKey("missing")).isFalse();
+        assertThat(cache.stats().getHitCount()).isEqualTo(0);
+        assertThat(cache.stats().getMissCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void put_whenValueLargerThanSlab_shouldNotCache() {
+        cache.put("key", "value", 1, TimeUnit.MINUTES);
+        char[] large = new char[8192];
+        Arrays.fill(large, 'x');
+
+        cache.put("key", new String(large), 1, TimeUnit.MINUTES);
+
+        assertThat(cache.getIfPresent("key")).isNull();
+        assertThat(cache.size()).isEqualTo(0);
+    }
+
+    @Test
+    public void invalidate_shouldDropOnlyThatKey() {
+        cache.put("first", "1", 1, TimeUnit.MINUTES);
+        cache.put("second", "2", 1, TimeUnit.MINUTES);
+
+        cache.invalidate("first");
+
+        assertThat(cache.getIfPresent("first")).isNull();
+        assertThat(cache.getIfPresent("second")).isEqualTo("2");
+    }
+
+    @Test
+    public void put_whenSlabsAreFull_shouldEvictOldestSlab() {
+        for (int i = 0; i < 1000; i++) {
+            cache.put("key" + i, "value" + i, 1, TimeUnit.MINUTES);
+        }
+
+        assertThat(cache.getIfPresent("key0")).isNull();
+        assertThat(cache.getIfPresent("key999")).isEqualTo("value999");
+        assertThat(cache.size()).isLessThan(1000);
+        for (int i = 0; i < 1000; i++) {
+            String value = cache.getIfPresent("key" + i);
+            assertThat(value == null || value.equals("value" + i)).isTrue();
+        }
+    }
+
+    @Test
+    public void put_whenManyEntries_shouldGrowIndex() {
+        cache = new OffHeapCache<>(STRING_CODEC, 1024 * 1024, 2);
+        for (int i = 0; i < 5000; i++) {
+            cache.put("key" + i, "value" + i, 1, TimeUnit.MINUTES);
+        }
+        for (int i = 0; i < 5000; i += 2) {
+            cache.invalidate("key" + i);
+        }
+
+        assertThat(cache.size()).isEqualTo(2500);
+        for (int i = 1; i < 5000; i += 2) {
+            assertThat(cache.getIfPresent("key" + i)).isEqualTo("value" + i);
+        }
+    }
+
+    @Test
+    public void invalidateAll_shouldRemoveEverything() {
+        cache.put("key", "value", 1, TimeUnit.MINUTES);
+
+        cache.invalidateAll();
+
+        assertThat(cache.getIfPresent("key")).isNull();
+        assertThat(cache.size()).isEqualTo(0);
+    }
+
+    @Test
+    public void get_whenAbsent_shouldLoadAndCacheWithoutExpiry() throws Exception {
+        assertThat(cache.get("key", key -> key + "!")).isEqualTo("key!");
+        assertThat(cache.get("key", key -> "unused")).isEqualTo("key!");
+
+        assertThat(cache.stats().getLoadSuccessCount()).isEqualTo(1);
+        assertThat(cache.stats().getHitCount()).isEqualTo(1);
+        assertThat(cache.stats().getMissCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void get_whenLoadedWithTtl_shouldCacheWithThatTtl() throws Exception {
+        assertThat(cache.get("key", key -> "value", 1, TimeUnit.MINUTES)).isEqualTo("value");
+
+        long[] expiresAt = new long[1];
+        cache.forEachEntry((key, value, expiresAtMillis) -> expiresAt[0] = expiresAtMillis);
+        assertThat(cache.size()).isEqualTo(1);
+        assertThat(expiresAt[0] - System.currentTimeMillis())
+                .isGreaterThan(TimeUnit.SECONDS.toMillis(50))
+                .isLessThanOrEqualTo(TimeUnit.MINUTES.toMillis(1));
+    }
+
+    @Test
+    public void get_whenConcurrentMisses_shouldShareSingleLoad() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger loads = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<String> first = executor.submit(() -> cache.get("key", key -> {
+                loads.incrementAndGet();
+                loading.countDown();
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    throw new IOException(e);
+                }
+                return "value";
+            }));
+            loading.await(5, TimeUnit.SECONDS);
+            Future<String> second = executor.submit(() -> cache.get("key", key -> {
+                loads.incrementAndGet();
+                return "other";
+            }));
+            Thread.sleep(50);
+            release.countDown();
+
+            assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo("value");
+            assertThat(second.get(5, TimeUnit.SECONDS)).isEqualTo("value");
+            assertThat(loads.get()).isEqualTo(1);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void stats_whenSlabRecycled_shouldRecordEvictions() {
+        for (int i = 0; i < 1000; i++) {
+            cache.put("key" + i, "value" + i);
+        }
+
+        assertThat(cache.stats().getEvictionCount()).isEqualTo(1000 - cache.size());
+        assertThat(cache.stats().getEvictionWeight()).isGreaterThan(0);
+    }
+
+    @Test
+    public void forEachEntry_shouldVisitUnexpiredEntries() {
+        final Map<String, String> visited = new HashMap<>();
+        cache.put("forever", "1");
+        cache.put("expiring", "2", 1, TimeUnit.MINUTES);
+        cache.put("expired", "3", -1, TimeUnit.MINUTES);
+
+        cache.forEachEntry((key, value, expiresAtMillis) -> visited.put(key, value));
+
+        assertThat(visited).hasSize(2).containsEntry("forever", "1").containsEntry("expiring", "2");
+    }
+}
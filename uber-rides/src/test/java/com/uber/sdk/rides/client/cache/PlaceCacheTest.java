@@ -0,0 +1,276 @@
+/*
+ * Copyright (c) 2016 Uber Technologies, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.uber.sdk.rides.client.cache;
+
+import com.squareup.moshi.Moshi;
+import com.uber.sdk.core.auth.AccessToken;
+import com.uber.sdk.core.auth.AccessTokenStorage;
+import com.uber.sdk.core.cache.CacheSnapshotter;
+import com.uber.sdk.rides.client.model.Place;
+import com.uber.sdk.rides.client.model.PlaceParameters;
+import com.uber.sdk.rides.client.services.RidesService;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.io.File;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import okhttp3.MediaType;
+import okhttp3.ResponseBody;
+import retrofit2.Call;
+import retrofit2.Response;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class PlaceCacheTest {
+
+    private static final String HOME = Place.Places.HOME.toString();
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Mock
+    RidesService service;
+
+    @Mock
+    AccessTokenStorage tokenStorage;
+
+    @Mock
+    Place oldPlace;
+
+    @Mock
+    Place newPlace;
+
+    PlaceParameters parameters;
+    PlaceCache cache;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        when(tokenStorage.getAccessToken()).thenReturn(createToken("first"));
+        parameters = new PlaceParameters.Builder().setAddress("685 Market St").build();
+        cache = new PlaceCache(service, tokenStorage);
+    }
+
+    @Test
+    public void getPlace_whenCached_shouldNotCallService() throws Exception {
+        Call<Place> call = successCall(oldPlace);
+        when(service.getPlace(HOME)).thenReturn(call);
+
+        cache.getPlace(HOME);
+
+        assertThat(cache.getPlace(HOME).body()).isSameAs(oldPlace);
+        verify(service, times(1)).getPlace(HOME);
+    }
+
+    @Test
+    public void setPlace_whenSuccessful_shouldWriteThrough() throws Exception {
+        Call<Place> setCall = successCall(newPlace);
+        when(service.setPlace(HOME, parameters)).thenReturn(setCall);
+
+        cache.setPlace(HOME, parameters);
+
+        assertThat(cache.getPlace(HOME).body()).isSameAs(newPlace);
+        verify(service, times(0)).getPlace(HOME);
+    }
+
+    @Test
+    public void setPlace_whenNotSuccessful_shouldDropCachedPlace() throws Exception {
+        Call<Place> getCall = successCall(oldPlace);
+        Call<Place> setCall = errorCall(500);
+        when(service.getPlace(HOME)).thenReturn(getCall);
+        when(service.setPlace(HOME, parameters)).thenReturn(setCall);
+        cache.getPlace(HOME);
+
+        cache.setPlace(HOME, parameters);
+        cache.getPlace(HOME);
+
+        verify(service, times(2)).getPlace(HOME);
+    }
+
+    @Test
+    public void getPlace_whenWriteCompletesDuringFetch_shouldKeepWrittenPlace() throws Exception {
+        Call<Place> setCall = successCall(newPlace);
+        when(service.setPlace(HOME, parameters)).thenReturn(setCall);
+        Call<Place> getCall = mockCall();
+        when(getCall.execute()).thenAnswer(new Answer<Response<Place>>() {
+            @Override
+            public Response<Place> answer(InvocationOnMock invocation) throws Throwable {
+                cache.setPlace(HOME, parameters);
+                return Response.success(oldPlace);
+            }
+        });
+        when(service.getPlace(HOME)).thenReturn(getCall);
+
+        assertThat(cache.getPlace(HOME).body()).isSameAs(oldPlace);
+
+        assertThat(cache.getPlace(HOME).body()).isSameAs(newPlace);
+        verify(service, times(1)).getPlace(HOME);
+    }
+
+    @Test
+    public void setPlace_whenConcurrent_shouldSerializeWritesWithoutBlockingReads() throws Exception {
+        final CountDownLatch writing = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicInteger inFlight = new AtomicInteger();
+        final AtomicInteger maxInFlight = new AtomicInteger();
+        Call<Place> getCall = successCall(oldPlace);
+        when(service.getPlace(HOME)).thenReturn(getCall);
+        Call<Place> setCall = mockCall();
+        when(setCall.execute()).thenAnswer(new Answer<Response<Place>>() {
+            @Override
+            public Response<Place> answer(InvocationOnMock invocation) throws Throwable {
+                maxInFlight.set(Math.max(maxInFlight.get(), inFlight.incrementAndGet()));
+                writing.countDown();
+                release.await(5, TimeUnit.SECONDS);
+                inFlight.decrementAndGet();
+                return Response.success(newPlace);
+            }
+        });
+        when(service.setPlace(eq(HOME), any(PlaceParameters.class))).thenReturn(setCall);
+        cache.getPlace(HOME);
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<Response<Place>> first = executor.submit(() -> cache.setPlace(HOME, parameters));
+            Future<Response<Place>> second = executor.submit(() -> cache.setPlace(HOME, parameters));
+            writing.await(5, TimeUnit.SECONDS);
+
+            assertThat(cache.getPlace(HOME).body()).isSameAs(oldPlace);
+
+            release.countDown();
+            first.get(5, TimeUnit.SECONDS);
+            second.get(5, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(maxInFlight.get()).isEqualTo(1);
+        assertThat(cache.getPlace(HOME).body()).isSameAs(newPlace);
+    }
+
+    @Test
+    public void onAccessTokenChanged_shouldDropPlacesOfPreviousToken() throws Exception {
+        AccessToken firstToken = tokenStorage.getAccessToken();
+        Call<Place> call = successCall(oldPlace);
+        when(service.getPlace(HOME)).thenReturn(call);
+        cache.getPlace(HOME);
+
+        cache.onAccessTokenChanged(firstToken, createToken("second"));
+        cache.getPlace(HOME);
+
+        verify(service, times(2)).getPlace(HOME);
+        assertThat(cache.size()).isEqualTo(1);
+    }
+
+    @Test
+    public void getPlace_whenOverMaximumSize_shouldEvictLeastRecentlyUsed() throws Exception {
+        cache = new PlaceCache(service, tokenStorage, 1);
+        AccessToken firstToken = tokenStorage.getAccessToken();
+        Call<Place> firstCall = successCall(oldPlace);
+        Call<Place> secondCall = successCall(newPlace);
+        Call<Place> thirdCall = successCall(oldPlace);
+        when(service.getPlace(HOME)).thenReturn(firstCall, secondCall, thirdCall);
+
+        cache.getPlace(HOME);
+        when(tokenStorage.getAccessToken()).thenReturn(createToken("second"));
+        cache.getPlace(HOME);
+        assertThat(cache.size()).isEqualTo(1);
+
+        when(tokenStorage.getAccessToken()).thenReturn(firstToken);
+        cache.getPlace(HOME);
+        verify(service, times(3)).getPlace(HOME);
+    }
+
+    @Test
+    public void getPlace_whenUnauthorized_shouldNotCache() throws Exception {
+        Call<Place> call = errorCall(401);
+        when(service.getPlace(HOME)).thenReturn(call);
+
+        assertThat(cache.getPlace(HOME).code()).isEqualTo(401);
+        cache.getPlace(HOME);
+
+        verify(service, times(2)).getPlace(HOME);
+    }
+
+    @Test
+    public void registerSnapshots_shouldRestorePlacesByIdentity() throws Exception {
+        Place place = new Moshi.Builder().build().adapter(Place.class).fromJson("{\"address\":\"685 Market St\"}");
+        Call<Place> call = successCall(place);
+        when(service.getPlace(HOME)).thenReturn(call);
+        cache.getPlace(HOME);
+        File file = folder.newFile();
+        CacheSnapshotter snapshotter = new CacheSnapshotter(file);
+        cache.registerSnapshots(snapshotter);
+        snapshotter.snapshot();
+
+        PlaceCache restored = new PlaceCache(service, tokenStorage);
+        CacheSnapshotter restoring = new CacheSnapshotter(file);
+        restored.registerSnapshots(restoring);
+
+        assertThat(restoring.restore()).isEqualTo(1);
+        assertThat(restored.getPlace(HOME).body().getAddress()).isEqualTo("685 Market St");
+        verify(service, times(1)).getPlace(HOME);
+    }
+
+    private static AccessToken createToken(String token) {
+        return new AccessToken(2592000, "places", token, "refresh", "Bearer");
+    }
+
+    private static <T> Call<T> successCall(T body) throws Exception {
+        Call<T> call = mockCall();
+        when(call.execute()).thenReturn(Response.success(body));
+        return call;
+    }
+
+    private static <T> Call<T> errorCall(int code) throws Exception {
+        Call<T> call = mockCall();
+        Response<T> response = Response.error(code,
+                ResponseBody.create(MediaType.parse("application/json"), "{}"));
+        when(call.execute()).thenReturn(response);
+        return call;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> Call<T> mockCall() {
+        return mock(Call.class);
+    }
+}
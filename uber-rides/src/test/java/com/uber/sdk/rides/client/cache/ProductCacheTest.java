@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2016 Uber Technologies, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.uber.sdk.rides.client.cache;
+
+import com.uber.sdk.rides.client.model.ProductsResponse;
+import com.uber.sdk.rides.client.services.RidesService;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.MediaType;
+import okhttp3.ResponseBody;
+import retrofit2.Call;
+import retrofit2.Response;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ProductCacheTest {
+
+    @Mock
+    RidesService service;
+
+    @Mock
+    ProductsResponse products;
+
+    @Mock
+    Call<ProductsResponse> call;
+
+    ProductCache cache;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        cache = new ProductCache(service, 1, TimeUnit.MINUTES);
+        when(service.getProducts(1f, 2f)).thenReturn(call);
+    }
+
+    @Test
+    public void getProducts_whenCached_shouldNotCallService() throws Exception {
+        when(call.execute()).thenReturn(Response.success(products));
+
+        cache.getProducts(1f, 2f);
+        Response<ProductsResponse> response = cache.getProducts(1f, 2f);
+
+        assertThat(response.body()).isSameAs(products);
+        verify(service, times(1)).getProducts(1f, 2f);
+    }
+
+    @Test
+    public void getProducts_whenConcurrentMisses_shouldCallServiceOnce() throws Exception {
+        CountDownLatch fetching = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(call.execute()).thenAnswer(invocation -> {
+            fetching.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return Response.success(products);
+        });
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+
+        Future<Response<ProductsResponse>> first = executor.submit(() -> cache.getProducts(1f, 2f));
+        fetching.await(5, TimeUnit.SECONDS);
+        Future<Response<ProductsResponse>> second = executor.submit(() -> cache.getProducts(1f, 2f));
+        Thread.sleep(100);
+        release.countDown();
+
+        assertThat(first.get(5, TimeUnit.SECONDS).body()).isSameAs(products);
+        assertThat(second.get(5, TimeUnit.SECONDS).body()).isSameAs(products);
+        verify(service, times(1)).getProducts(1f, 2f);
+        executor.shutdown();
+    }
+
+    @Test
+    public void getProducts_whenNotSuccessful_shouldNotCache() throws Exception {
+        Response<ProductsResponse> error = Response.error(500,
+                ResponseBody.create(MediaType.parse("application/json"), "{}"));
+        when(call.execute()).thenReturn(error);
+
+        assertThat(cache.getProducts(1f, 2f)).isSameAs(error);
+        cache.getProducts(1f, 2f);
+
+        verify(service, times(2)).getProducts(1f, 2f);
+    }
+}
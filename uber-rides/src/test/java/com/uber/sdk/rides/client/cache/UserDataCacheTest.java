@@ -0,0 +1,189 @@
+/*
+ * Copyright (c) 2016 Uber Technologies, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.uber.sdk.rides.client.cache;
+
+import com.uber.sdk.core.auth.AccessToken;
+import com.uber.sdk.core.auth.AccessTokenStorage;
+import com.uber.sdk.rides.client.model.PaymentMethodsResponse;
+import com.uber.sdk.rides.client.model.UserProfile;
+import com.uber.sdk.rides.client.services.RidesService;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import okhttp3.MediaType;
+import okhttp3.ResponseBody;
+import retrofit2.Call;
+import retrofit2.Response;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class UserDataCacheTest {
+
+    @Mock
+    RidesService service;
+
+    @Mock
+    AccessTokenStorage tokenStorage;
+
+    @Mock
+    UserProfile profile;
+
+    @Mock
+    PaymentMethodsResponse paymentMethods;
+
+    AccessToken firstToken;
+    AccessToken secondToken;
+    UserDataCache cache;
+
+    @Before
+    public void setUp() throws Exception {
+        MockitoAnnotations.initMocks(this);
+        firstToken = createToken("first");
+        secondToken = createToken("second");
+        when(tokenStorage.getAccessToken()).thenReturn(firstToken);
+        cache = new UserDataCache(service, tokenStorage);
+    }
+
+    @Test
+    public void getUserProfile_whenCached_shouldNotCallService() throws Exception {
+        Call<UserProfile> call = successCall(profile);
+        when(service.getUserProfile()).thenReturn(call);
+
+        assertThat(cache.getUserProfile().body()).isSameAs(profile);
+        assertThat(cache.getUserProfile().body()).isSameAs(profile);
+
+        verify(service, times(1)).getUserProfile();
+    }
+
+    @Test
+    public void getPaymentMethods_whenCached_shouldNotCallService() throws Exception {
+        Call<PaymentMethodsResponse> call = successCall(paymentMethods);
+        when(service.getPaymentMethods()).thenReturn(call);
+
+        assertThat(cache.getPaymentMethods().body()).isSameAs(paymentMethods);
+        assertThat(cache.getPaymentMethods().body()).isSameAs(paymentMethods);
+
+        verify(service, times(1)).getPaymentMethods();
+    }
+
+    @Test
+    public void getUserProfile_whenIdentityChanges_shouldFetchPerIdentity() throws Exception {
+        Call<UserProfile> firstCall = successCall(profile);
+        Call<UserProfile> secondCall = successCall(mock(UserProfile.class));
+        when(service.getUserProfile()).thenReturn(firstCall, secondCall);
+
+        cache.getUserProfile();
+        when(tokenStorage.getAccessToken()).thenReturn(secondToken);
+        cache.getUserProfile();
+
+        verify(service, times(2)).getUserProfile();
+        assertThat(cache.size()).isEqualTo(2);
+    }
+
+    @Test
+    public void onAccessTokenChanged_shouldDropPreviousIdentity() throws Exception {
+        Call<UserProfile> firstCall = successCall(profile);
+        Call<UserProfile> secondCall = successCall(profile);
+        when(service.getUserProfile()).thenReturn(firstCall, secondCall);
+
+        cache.getUserProfile();
+        cache.onAccessTokenChanged(firstToken, null);
+        assertThat(cache.size()).isEqualTo(0);
+
+        cache.getUserProfile();
+        verify(service, times(2)).getUserProfile();
+    }
+
+    @Test
+    public void getUserProfile_whenUnauthorized_shouldNotCacheAndDropIdentity() throws Exception {
+        Call<UserProfile> unauthorized = errorCall(401);
+        Call<UserProfile> success = successCall(profile);
+        when(service.getUserProfile()).thenReturn(unauthorized, success);
+
+        Response<UserProfile> response = cache.getUserProfile();
+        assertThat(response.code()).isEqualTo(401);
+        assertThat(cache.size()).isEqualTo(0);
+
+        assertThat(cache.getUserProfile().body()).isSameAs(profile);
+        verify(service, times(2)).getUserProfile();
+    }
+
+    @Test
+    public void getUserProfile_whenOverMaximumSize_shouldEvictLeastRecentlyUsed() throws Exception {
+        cache = new UserDataCache(service, tokenStorage, 1);
+        Call<UserProfile> firstCall = successCall(profile);
+        Call<UserProfile> secondCall = successCall(profile);
+        Call<UserProfile> thirdCall = successCall(profile);
+        when(service.getUserProfile()).thenReturn(firstCall, secondCall, thirdCall);
+
+        cache.getUserProfile();
+        when(tokenStorage.getAccessToken()).thenReturn(secondToken);
+        cache.getUserProfile();
+        assertThat(cache.size()).isEqualTo(1);
+
+        when(tokenStorage.getAccessToken()).thenReturn(firstToken);
+        cache.getUserProfile();
+        verify(service, times(3)).getUserProfile();
+    }
+
+    @Test
+    public void getUserProfile_whenNoToken_shouldNotCache() throws Exception {
+        when(tokenStorage.getAccessToken()).thenReturn(null);
+        Call<UserProfile> firstCall = successCall(profile);
+        Call<UserProfile> secondCall = successCall(profile);
+        when(service.getUserProfile()).thenReturn(firstCall, secondCall);
+
+        cache.getUserProfile();
+        cache.getUserProfile();
+
+        verify(service, times(2)).getUserProfile();
+        assertThat(cache.size()).isEqualTo(0);
+    }
+
+    private static AccessToken createToken(String token) {
+        return new AccessToken(2592000, "profile", token, "refresh", "Bearer");
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> Call<T> successCall(T body) throws Exception {
+        Call<T> call = mock(Call.class);
+        when(call.execute()).thenReturn(Response.success(body));
+        return call;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> Call<T> errorCall(int code) throws Exception {
+        Call<T> call = mock(Call.class);
+        Response<T> response = Response.error(code,
+                ResponseBody.create(MediaType.parse("application/json"), "{}"));
+        when(call.execute()).thenReturn(response);
+        return call;
+    }
+}
@@ -78,6 +78,39 @@ public class ErrorParserTest {
         assertError(apiError.getClientErrors(), null, 416, "Unknown Error");
     }
 
+    @Test
+    public void parseError_whenEmptyObject_shouldReturnEmptyOldError() {
+        ApiError apiError = ErrorParser.parseError("{}", 500, "Internal Server Error");
+
+        assertThat(apiError.getMeta()).isNull();
+        assertError(apiError.getClientErrors(), null, 500, null);
+    }
+
+    @Test
+    public void parseError_whenOldAndNewFieldsMixed_shouldReturnUnknownError() {
+        String body = "{\"message\":\"Not found\",\"errors\":[{\"status\":404,\"code\":\"not_found\"}]}";
+        ApiError apiError = ErrorParser.parseError(body, 404, "Not Found");
+
+        assertThat(apiError.getMeta()).isNull();
+        assertError(apiError.getClientErrors(), null, 404, "Unknown Error");
+    }
+
+    @Test
+    public void parseError_whenUnknownNestedField_shouldReturnUnknownError() {
+        String body = "{\"meta\":{\"retry_after\":30},\"errors\":[{\"status\":429,\"code\":\"rate_limited\"}]}";
+        ApiError apiError = ErrorParser.parseError(body, 429, "Too Many Requests");
+
+        assertThat(apiError.getMeta()).isNull();
+        assertError(apiError.getClientErrors(), null, 429, "Unknown Error");
+    }
+
+    @Test
+    public void parseError_whenMalformedBody_shouldReturnUnknownError() {
+        ApiError apiError = ErrorParser.parseError("<html>Bad Gateway</html>", 502, "Bad Gateway");
+
+        assertError(apiError.getClientErrors(), null, 502, "Unknown Error");
+    }
+
     private void assertError(List<ClientError> clientErrors, String code, int status, String title) {
         assertThat(clientErrors).hasSize(1);
         ClientError clientError =  clientErrors.get(0);
@@ -0,0 +1,212 @@
+/*
+ * Copyright (c) 2016 Uber Technologies, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.uber.sdk.rides.client.history;
+
+import com.uber.sdk.rides.client.history.ActivityAggregator.Dimension;
+import com.uber.sdk.rides.client.model.UserActivity;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static com.uber.sdk.rides.client.history.ActivityColumnStoreTest.activity;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ActivityAggregatorTest {
+
+    private static final long JANUARY_2016 = 1452470400;
+    private static final long FEBRUARY_2016 = 1455148800;
+
+    @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void aggregate_whenGroupedByCity_shouldTotalEachCity() {
+        ActivityAggregator aggregator = new ActivityAggregator.Builder().setDimensions(Dimension.CITY).build();
+
+        ActivityAggregation aggregation = aggregator.aggregate(Arrays.asList(
+                activity("ride0", "completed", 2f, JANUARY_2016, 10f, "USD", "San Francisco"),
+                activity("ride1", "completed", 3f, JANUARY_2016, null, "USD", "San Francisco"),
+                activity("ride2", "completed", 5f, JANUARY_2016, 20f, "EUR", "Paris")));
+
+        assertThat(aggregation.getRideCount()).isEqualTo(3);
+        assertThat(aggregation.getGroups()).hasSize(2);
+        ActivityAggregation.Group sanFrancisco = group(aggregation, "San Francisco");
+        assertThat(sanFrancisco.getRideCount()).isEqualTo(2);
+        assertThat(sanFrancisco.getDistance()).isEqualTo(5d);
+        assertThat(sanFrancisco.getFare()).isEqualTo(10d);
+        assertThat(sanFrancisco.getFareCount()).isEqualTo(1);
+        assertThat(sanFrancisco.getProductId()).isNull();
+        assertThat(sanFrancisco.getMonth()).isNull();
+        assertThat(group(aggregation, "Paris").getFare()).isEqualTo(20d);
+    }
+
+    @Test
+    public void aggregate_whenGroupedByMonthAndProduct_shouldSplitByMonth() {
+        ActivityAggregator aggregator = new ActivityAggregator.Builder()
+                .setDimensions(Dimension.MONTH, Dimension.PRODUCT)
+                .build();
+
+        ActivityAggregation aggregation = aggregator.aggregate(Arrays.asList(
+                activity("ride0", "completed", 2f, FEBRUARY_2016, 10f, "USD", "San Francisco"),
+                activity("ride1", "completed", 3f, JANUARY_2016, 10f, "USD", "San Francisco"),
+                activity("ride2", "completed", 5f, JANUARY_2016, 10f, "USD", "Paris")));
+
+        assertThat(aggregation.getGroups()).hasSize(2);
+        for (ActivityAggregation.Group group : aggregation.getGroups()) {
+            assertThat(group.getProductId()).isEqualTo("uberX");
+            assertThat(group.getCity()).isNull();
+            if (group.getMonth().equals(YearMonth.of(2016, 1))) {
+                assertThat(group.getRideCount()).isEqualTo(2);
+                assertThat(group.getDistance()).isEqualTo(8d);
+            } else {
+                assertThat(group.getMonth()).isEqualTo(YearMonth.of(2016, 2));
+                assertThat(group.getRideCount()).isEqualTo(1);
+            }
+        }
+    }
+
+    @Test
+    public void aggregate_whenStatusSet_shouldSkipOtherRides() {
+        ActivityAggregator aggregator = new ActivityAggregator.Builder().setStatus("completed").build();
+
+        ActivityAggregation aggregation = aggregator.aggregate(Arrays.asList(
+                activity("ride0", "completed", 2f, JANUARY_2016, 10f, "USD", "San Francisco"),
+                activity("ride1", "rider_canceled", 3f, JANUARY_2016, 5f, "USD", "San Francisco")));
+
+        assertThat(aggregation.getGroups()).hasSize(1);
+        assertThat(aggregation.getGroups().get(0).getRideCount()).isEqualTo(1);
+        assertThat(aggregation.getGroups().get(0).getFare()).isEqualTo(10d);
+    }
+
+    @Test
+    public void toAggregation_whenParallel_shouldMatchSequential() {
+        List<UserActivity> activities = activities(2000);
+        ActivityAggregator aggregator = new ActivityAggregator.Builder()
+                .setDimensions(Dimension.CITY, Dimension.CURRENCY)
+                .build();
+
+        ActivityAggregation parallel = activities.parallelStream().collect(aggregator.toAggregation());
+        ActivityAggregation sequential = aggregator.aggregate(activities);
+
+        assertThat(parallel.getRideCount()).isEqualTo(2000);
+        assertThat(parallel.getGroups()).hasSize(sequential.getGroups().size());
+        for (String city : new String[] { "San Francisco", "Paris", "London" }) {
+            assertThat(group(parallel, city).getRideCount()).isEqualTo(group(sequential, city).getRideCount());
+            assertThat(group(parallel, city).getDistance()).isEqualTo(group(sequential, city).getDistance());
+        }
+    }
+
+    @Test
+    public void toAggregation_whenHistoryStreamIsParallel_shouldCountEveryRide() {
+        FakeHistoryService fake = new FakeHistoryService(1000).withLatency(1);
+        UserActivityHistory history = UserActivityHistory.with(fake.service).build();
+        ActivityAggregator aggregator = new ActivityAggregator.Builder().setDimensions(Dimension.MONTH).build();
+
+        ActivityAggregation aggregation;
+        try (Stream<UserActivity> activities = history.stream()) {
+            aggregation = activities.parallel().collect(aggregator.toAggregation());
+        }
+
+        assertThat(aggregation.getRideCount()).isEqualTo(1000);
+        assertThat(aggregation.getGroups()).hasSize(1);
+        assertThat(aggregation.getGroups().get(0).getMonth()).isEqualTo(YearMonth.of(1970, 1));
+    }
+
+    @Test
+    public void aggregate_whenColumnStore_shouldMatchActivities() throws IOException {
+        List<UserActivity> activities = activities(500);
+        Path directory = folder.getRoot().toPath().resolve("history");
+        try (ActivityColumnWriter writer = ActivityColumnWriter.open(directory)) {
+            for (UserActivity activity : activities) {
+                writer.add(activity);
+            }
+        }
+        ActivityAggregator aggregator = new ActivityAggregator.Builder()
+                .setDimensions(Dimension.CITY, Dimension.MONTH)
+                .setStatus("completed")
+                .build();
+
+        ActivityAggregation expected = aggregator.aggregate(activities);
+        ActivityAggregation actual;
+        try (ActivityColumnStore store = ActivityColumnStore.open(directory)) {
+            actual = aggregator.aggregate(store);
+        }
+
+        assertThat(actual.getRideCount()).isEqualTo(expected.getRideCount()).isLessThan(500);
+        assertThat(actual.getGroups()).hasSize(expected.getGroups().size());
+        for (ActivityAggregation.Group group : expected.getGroups()) {
+            ActivityAggregation.Group match = null;
+            for (ActivityAggregation.Group candidate : actual.getGroups()) {
+                if (candidate.getCity().equals(group.getCity()) && candidate.getMonth().equals(group.getMonth())) {
+                    match = candidate;
+                }
+            }
+            assertThat(match).isNotNull();
+            assertThat(match.getRideCount()).isEqualTo(group.getRideCount());
+            assertThat(match.getDistance()).isEqualTo(group.getDistance());
+            assertThat(match.getFare()).isEqualTo(group.getFare());
+        }
+    }
+
+    @Test
+    public void aggregate_whenStoreHasNoRideWithStatus_shouldBeEmpty() throws IOException {
+        Path directory = folder.getRoot().toPath().resolve("history");
+        try (ActivityColumnWriter writer = ActivityColumnWriter.open(directory)) {
+            writer.add(activity("ride0", "completed", 2f, JANUARY_2016, 10f, "USD", "San Francisco"));
+        }
+        ActivityAggregator aggregator = new ActivityAggregator.Builder().setStatus("driver_canceled").build();
+
+        try (ActivityColumnStore store = ActivityColumnStore.open(directory)) {
+            assertThat(aggregator.aggregate(store).getGroups()).isEmpty();
+        }
+    }
+
+    private static List<UserActivity> activities(int count) {
+        String[] cities = { "San Francisco", "Paris", "London" };
+        String[] currencies = { "USD", "EUR", "GBP" };
+        List<UserActivity> activities = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            activities.add(activity("ride" + i, i % 7 == 0 ? "rider_canceled" : "completed", i % 13,
+                    JANUARY_2016 + i * 3600L, i % 5 == 0 ? null : (float) (i % 31), currencies[i % 3],
+                    cities[i % 3]));
+        }
+        return activities;
+    }
+
+    private static ActivityAggregation.Group group(ActivityAggregation aggregation, String city) {
+        for (ActivityAggregation.Group group : aggregation.getGroups()) {
+            if (city.equals(group.getCity())) {
+                return group;
+            }
+        }
+        throw new AssertionError("No group for " + city);
+    }
+}
@@ -0,0 +1,188 @@
+/*
+ * Copyright (c) 2016 Uber Technologies, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.uber.sdk.rides.client.history;
+
+import com.uber.sdk.rides.client.model.UserActivity;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ActivityColumnStoreTest {
+
+    @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void open_whenWritten_shouldReadEveryColumn() throws IOException {
+        Path directory = folder.getRoot().toPath().resolve("history");
+        try (ActivityColumnWriter writer = ActivityColumnWriter.open(directory)) {
+            writer.add(activity("ride0", "completed", 3.5f, 1000, 12.25f, "USD", "San Francisco"));
+            writer.add(activity("ride1", "rider_canceled", 0f, 2000, null, null, null));
+        }
+
+        try (ActivityColumnStore store = ActivityColumnStore.open(directory)) {
+            assertThat(store.size()).isEqualTo(2);
+            assertThat(store.rideId().get(0)).isEqualTo("ride0");
+            assertThat(store.rideId().get(1)).isEqualTo("ride1");
+            assertThat(store.requestTime().get(1)).isEqualTo(2000);
+            assertThat(store.startTime().get(0)).isEqualTo(1010);
+            assertThat(store.endTime().get(0)).isEqualTo(1600);
+            assertThat(store.distance().get(0)).isEqualTo(3.5f);
+            assertThat(store.fare().get(0)).isEqualTo(12.25f);
+            assertThat(store.fare().get(1)).isNaN();
+            assertThat(store.status().get(1)).isEqualTo("rider_canceled");
+            assertThat(store.productId().get(0)).isEqualTo("uberX");
+            assertThat(store.currencyCode().get(0)).isEqualTo("USD");
+            assertThat(store.currencyCode().getCode(1)).isEqualTo(ActivityColumnStore.NO_VALUE);
+            assertThat(store.currencyCode().get(1)).isNull();
+            assertThat(store.city().get(0)).isEqualTo("San Francisco");
+            assertThat(store.city().get(1)).isNull();
+        }
+    }
+
+    @Test
+    public void dictionaryColumn_shouldStoreEachValueOnce() throws IOException {
+        Path directory = folder.getRoot().toPath().resolve("history");
+        try (ActivityColumnWriter writer = ActivityColumnWriter.open(directory)) {
+            for (int i = 0; i < 100; i++) {
+                writer.add(activity("ride" + i, i % 10 == 0 ? "rider_canceled" : "completed", i, i, 10f, "USD",
+                        "San Francisco"));
+            }
+        }
+
+        try (ActivityColumnStore store = ActivityColumnStore.open(directory)) {
+            ActivityColumnStore.DictionaryColumn status = store.status();
+            assertThat(status.getDictionary()).containsExactly("rider_canceled", "completed");
+            int canceled = status.encode("rider_canceled");
+            int count = 0;
+            for (int row = 0; row < status.size(); row++) {
+                if (status.getCode(row) == canceled) {
+                    count++;
+                }
+            }
+            assertThat(count).isEqualTo(10);
+            assertThat(status.encode("driver_canceled")).isEqualTo(ActivityColumnStore.NO_VALUE);
+            assertThat(store.city().getDictionary()).containsExactly("San Francisco");
+        }
+    }
+
+    @Test
+    public void open_whenWriterReopened_shouldAppendAndExtendDictionaries() throws IOException {
+        Path directory = folder.getRoot().toPath().resolve("history");
+        try (ActivityColumnWriter writer = ActivityColumnWriter.open(directory)) {
+            writer.add(activity("ride0", "completed", 1f, 1000, 5f, "USD", "San Francisco"));
+        }
+        try (ActivityColumnWriter writer = ActivityColumnWriter.open(directory)) {
+            assertThat(writer.size()).isEqualTo(1);
+            writer.add(activity("ride1", "completed", 2f, 2000, 6f, "EUR", "Paris"));
+        }
+
+        try (ActivityColumnStore store = ActivityColumnStore.open(directory)) {
+            assertThat(store.size()).isEqualTo(2);
+            assertThat(store.rideId().get(1)).isEqualTo("ride1");
+            assertThat(store.distance().get(1)).isEqualTo(2f);
+            assertThat(store.currencyCode().get(0)).isEqualTo("USD");
+            assertThat(store.currencyCode().get(1)).isEqualTo("EUR");
+            assertThat(store.city().getDictionary()).containsExactly("San Francisco", "Paris");
+            assertThat(store.status().getCode(0)).isEqualTo(store.status().getCode(1));
+        }
+    }
+
+    @Test
+    public void open_whenRowsNotCommitted_shouldNotSeeThem() throws IOException {
+        Path directory = folder.getRoot().toPath().resolve("history");
+        ActivityColumnWriter writer = ActivityColumnWriter.open(directory);
+        writer.add(activity("ride0", "completed", 1f, 1000, 5f, "USD", "San Francisco"));
+        writer.commit();
+        writer.add(activity("ride1", "completed", 2f, 2000, 6f, "EUR", "Paris"));
+
+        try (ActivityColumnStore store = ActivityColumnStore.open(directory)) {
+            assertThat(store.size()).isEqualTo(1);
+        }
+
+        // A new writer drops the rows the abandoned one never committed.
+        try (ActivityColumnWriter reopened = ActivityColumnWriter.open(directory)) {
+            assertThat(reopened.size()).isEqualTo(1);
+            reopened.add(activity("ride2", "completed", 3f, 3000, 7f, "USD", "San Francisco"));
+        }
+        try (ActivityColumnStore store = ActivityColumnStore.open(directory)) {
+            assertThat(store.size()).isEqualTo(2);
+            assertThat(store.rideId().get(1)).isEqualTo("ride2");
+            assertThat(store.distance().get(1)).isEqualTo(3f);
+            assertThat(store.city().get(1)).isEqualTo("San Francisco");
+        }
+        writer.close();
+    }
+
+    @Test
+    public void open_whenDirectoryIsEmpty_shouldBeEmpty() throws IOException {
+        try (ActivityColumnStore store = ActivityColumnStore.open(folder.getRoot().toPath())) {
+            assertThat(store.size()).isZero();
+            assertThat(store.status().getDictionary()).isEmpty();
+        }
+    }
+
+    @Test
+    public void writer_whenSyncConsumer_shouldStoreHistory() throws IOException {
+        FakeHistoryService fake = new FakeHistoryService(120);
+        Path directory = folder.getRoot().toPath().resolve("history");
+        FileWatermarkStore watermarks = new FileWatermarkStore(folder.getRoot().toPath().resolve("watermarks"));
+
+        try (ActivityColumnWriter writer = ActivityColumnWriter.open(directory)) {
+            new HistorySync(watermarks).sync(fake.service, "user", writer);
+        }
+
+        try (ActivityColumnStore store = ActivityColumnStore.open(directory)) {
+            assertThat(store.size()).isEqualTo(120);
+            assertThat(store.rideId().get(119)).isEqualTo("ride119");
+            assertThat(store.requestTime().get(0)).isEqualTo(120000);
+        }
+    }
+
+    static UserActivity activity(String rideId, String status, float distance, long requestTime, Float fare,
+                                 String currencyCode, String cityName) {
+        UserActivity activity = mock(UserActivity.class);
+        when(activity.getRideId()).thenReturn(rideId);
+        when(activity.getStatus()).thenReturn(status);
+        when(activity.getDistance()).thenReturn(distance);
+        when(activity.getRequestTime()).thenReturn(requestTime);
+        when(activity.getStartTime()).thenReturn(requestTime + 10);
+        when(activity.getEndTime()).thenReturn(requestTime + 600);
+        when(activity.getFare()).thenReturn(fare);
+        when(activity.getCurrencyCode()).thenReturn(currencyCode);
+        when(activity.getProductId()).thenReturn("uberX");
+        if (cityName != null) {
+            UserActivity.City city = mock(UserActivity.City.class);
+            when(city.getDisplayName()).thenReturn(cityName);
+            when(activity.getStartCity()).thenReturn(city);
+        }
+        return activity;
+    }
+}
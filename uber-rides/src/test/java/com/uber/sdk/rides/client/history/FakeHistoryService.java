@@ -0,0 +1,159 @@
+/*
+ * Copyright (c) 2016 Uber Technologies, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.uber.sdk.rides.client.history;
+
+import com.uber.sdk.rides.client.model.UserActivity;
+import com.uber.sdk.rides.client.model.UserActivityPage;
+import com.uber.sdk.rides.client.services.RidesService;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import okhttp3.MediaType;
+import okhttp3.ResponseBody;
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * A {@link RidesService} that serves a history of generated activities, answering each page request right away or
+ * once the test completes it.
+ */
+class FakeHistoryService {
+
+    final RidesService service = mock(RidesService.class);
+    final List<Integer> requestedOffsets = new CopyOnWriteArrayList<>();
+    final Map<Integer, Callback<UserActivityPage>> pendingCallbacks = new ConcurrentHashMap<>();
+    final List<Integer> cancelledOffsets = new CopyOnWriteArrayList<>();
+    private final List<UserActivity> activities = new ArrayList<>();
+    final AtomicInteger maximumInFlight = new AtomicInteger();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile boolean manual;
+    private volatile long latencyMillis;
+    private volatile Integer failingOffset;
+
+    FakeHistoryService(int count) {
+        for (int i = 0; i < count; i++) {
+            activities.add(activity("ride" + i, 1000L * (count - i)));
+        }
+        when(service.getUserActivity(anyInt(), anyInt())).thenAnswer(invocation -> {
+            Integer offset = (Integer) invocation.getArguments()[0];
+            Integer limit = (Integer) invocation.getArguments()[1];
+            return call(offset, limit);
+        });
+    }
+
+    FakeHistoryService manual() {
+        manual = true;
+        return this;
+    }
+
+    /**
+     * Answers each request after a delay, on a thread of its own for enqueued calls.
+     */
+    FakeHistoryService withLatency(long millis) {
+        latencyMillis = millis;
+        return this;
+    }
+
+    FakeHistoryService failAt(int offset) {
+        failingOffset = offset;
+        return this;
+    }
+
+    void complete(int offset, int limit) {
+        pendingCallbacks.remove(offset).onResponse(null, Response.success(page(offset, limit)));
+    }
+
+    @SuppressWarnings("unchecked")
+    private Call<UserActivityPage> call(final int offset, final int limit) throws IOException {
+        requestedOffsets.add(offset);
+        Call<UserActivityPage> call = mock(Call.class);
+        when(call.execute()).thenAnswer(invocation -> respondAfterLatency(offset, limit));
+        doAnswer(invocation -> {
+            Callback<UserActivityPage> callback = (Callback<UserActivityPage>) invocation.getArguments()[0];
+            if (manual) {
+                pendingCallbacks.put(offset, callback);
+            } else if (latencyMillis > 0) {
+                new Thread(() -> callback.onResponse(null, respondAfterLatency(offset, limit))).start();
+            } else {
+                callback.onResponse(null, respond(offset, limit));
+            }
+            return null;
+        }).when(call).enqueue(any(Callback.class));
+        doAnswer(invocation -> cancelledOffsets.add(offset)).when(call).cancel();
+        return call;
+    }
+
+    private Response<UserActivityPage> respondAfterLatency(int offset, int limit) {
+        int current = inFlight.incrementAndGet();
+        maximumInFlight.accumulateAndGet(current, Math::max);
+        try {
+            Thread.sleep(latencyMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            inFlight.decrementAndGet();
+        }
+        return respond(offset, limit);
+    }
+
+    private Response<UserActivityPage> respond(int offset, int limit) {
+        if (failingOffset != null && failingOffset == offset) {
+            return Response.error(500, ResponseBody.create(MediaType.parse("application/json"),
+                    "{\"message\":\"Internal error\",\"code\":\"internal_server_error\"}"));
+        }
+        return Response.success(page(offset, limit));
+    }
+
+    private UserActivityPage page(int offset, int limit) {
+        List<UserActivity> history = offset < activities.size()
+                ? new ArrayList<>(activities.subList(offset, Math.min(offset + limit, activities.size())))
+                : Collections.<UserActivity>emptyList();
+        UserActivityPage page = mock(UserActivityPage.class);
+        when(page.getOffset()).thenReturn(offset);
+        when(page.getLimit()).thenReturn(limit);
+        when(page.getCount()).thenReturn(activities.size());
+        when(page.getUserActivities()).thenReturn(history);
+        return page;
+    }
+
+    static UserActivity activity(String rideId, long requestTime) {
+        UserActivity activity = mock(UserActivity.class);
+        when(activity.getRideId()).thenReturn(rideId);
+        when(activity.getRequestTime()).thenReturn(requestTime);
+        return activity;
+    }
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright (c) 2016 Uber Technologies, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.uber.sdk.rides.client.history;
+
+import com.squareup.moshi.JsonAdapter;
+import com.squareup.moshi.Moshi;
+import com.squareup.moshi.Types;
+import com.uber.sdk.rides.client.model.RideReceipt;
+import com.uber.sdk.rides.client.model.UserActivity;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static com.uber.sdk.rides.client.history.ActivityColumnStoreTest.activity;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class HistoryExporterTest {
+
+    private static final JsonAdapter<Map<String, Object>> JSON = new Moshi.Builder().build()
+            .adapter(Types.newParameterizedType(Map.class, String.class, Object.class));
+
+    @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void write_whenCsv_shouldWriteHeaderAndQuoteValues() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        try (HistoryExporter exporter = HistoryExporter.to(out).build()) {
+            exporter.write(activity("ride0", "completed", 3.5f, 1000, 12.25f, "USD", "San Francisco"));
+            exporter.write(activity("ride1", "rider_canceled", 0f, 2000, null, null, "Washington, \"D.C.\""));
+        }
+
+        String[] lines = out.toString("UTF-8").split("\n");
+        assertThat(lines).containsExactly(
+                "request_id,status,distance,request_time,start_time,end_time,product_id,start_city_display_name,"
+                        + "start_city_latitude,start_city_longitude,fare,currency_code",
+                "ride0,completed,3.5,1000,1010,1600,uberX,San Francisco,0.0,0.0,12.25,USD",
+                "ride1,rider_canceled,0.0,2000,2010,2600,uberX,\"Washington, \"\"D.C.\"\"\",0.0,0.0,,");
+    }
+
+    @Test
+    public void close_whenNothingWritten_shouldWriteCsvHeader() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        HistoryExporter.to(out).setIncludeReceipts(true).build().close();
+
+        assertThat(out.toString("UTF-8")).startsWith("request_id,").contains(",receipt_subtotal,").endsWith("\n");
+    }
+
+    @Test
+    public void write_whenJsonLines_shouldWriteOneObjectPerLine() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        UserActivity activity = activity("ride0", "completed", 3.5f, 1000, 12.25f, "USD", "Quote \" and \\ and \n");
+
+        try (HistoryExporter exporter = HistoryExporter.to(out).setFormat(HistoryExporter.Format.JSON_LINES).build()) {
+            exporter.write(activity);
+            exporter.write(activity("ride1", "rider_canceled", 0f, 2000, null, null, null));
+        }
+
+        String[] lines = out.toString("UTF-8").split("\n");
+        assertThat(lines).hasSize(2);
+        Map<String, Object> first = JSON.fromJson(lines[0]);
+        assertThat(first.get("request_id")).isEqualTo("ride0");
+        assertThat(first.get("request_time")).isEqualTo(1000d);
+        assertThat(first.get("fare")).isEqualTo(12.25d);
+        assertThat(((Map<?, ?>) first.get("start_city")).get("display_name")).isEqualTo("Quote \" and \\ and \n");
+        assertThat(first).doesNotContainKey("receipt");
+        Map<String, Object> second = JSON.fromJson(lines[1]);
+        assertThat(second.get("fare")).isNull();
+        assertThat(second.get("start_city")).isNull();
+    }
+
+    @Test
+    public void write_whenReceiptsIncluded_shouldJoinReceipt() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        RideReceipt receipt = mock(RideReceipt.class);
+        when(receipt.getTotalCharged()).thenReturn("$5.92");
+        when(receipt.getDistanceLabel()).thenReturn("miles");
+        RideReceipt.Charge charge = mock(RideReceipt.Charge.class);
+        when(charge.getName()).thenReturn("Booking Fee");
+        when(charge.getAmount()).thenReturn(1.35f);
+        when(receipt.getChargeAdjustments()).thenReturn(Collections.singletonList(charge));
+
+        try (HistoryExporter exporter = HistoryExporter.to(out)
+                .setFormat(HistoryExporter.Format.JSON_LINES)
+                .setIncludeReceipts(true)
+                .build()) {
+            exporter.write(activity("ride0", "completed", 3.5f, 1000, 12.25f, "USD", "San Francisco"), receipt);
+            exporter.write(activity("ride1", "rider_canceled", 0f, 2000, null, null, null));
+        }
+
+        String[] lines = out.toString("UTF-8").split("\n");
+        Map<?, ?> joined = (Map<?, ?>) JSON.fromJson(lines[0]).get("receipt");
+        assertThat(joined.get("total_charged")).isEqualTo("$5.92");
+        assertThat(joined.get("distance_label")).isEqualTo("miles");
+        List<?> charges = (List<?>) joined.get("charge_adjustments");
+        assertThat(((Map<?, ?>) charges.get(0)).get("name")).isEqualTo("Booking Fee");
+        assertThat(JSON.fromJson(lines[1]).get("receipt")).isNull();
+    }
+
+    @Test
+    public void write_whenReceiptsNotIncluded_shouldFail() throws IOException {
+        try (HistoryExporter exporter = HistoryExporter.to(new ByteArrayOutputStream()).build()) {
+            exporter.write(activity("ride0", "completed", 3.5f, 1000, 12.25f, "USD", null), mock(RideReceipt.class));
+            fail("Expected an IllegalStateException.");
+        } catch (IllegalStateException expected) {
+            assertThat(expected).hasMessage("Exporter was built without receipts.");
+        }
+    }
+
+    @Test
+    public void export_whenHistoryToFileChannel_shouldStreamEveryPage() throws IOException {
+        FakeHistoryService fake = new FakeHistoryService(1000);
+        Path file = folder.getRoot().toPath().resolve("history.csv");
+        long count;
+
+        try (HistoryExporter exporter = HistoryExporter.to(FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE)).setBufferSize(1024).build()) {
+            count = exporter.export(UserActivityHistory.with(fake.service).build());
+        }
+
+        List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        assertThat(count).isEqualTo(1000);
+        assertThat(lines).hasSize(1001);
+        assertThat(lines.get(1)).startsWith("ride0,");
+        assertThat(lines.get(1000)).startsWith("ride999,");
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2016 Uber Technologies, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.uber.sdk.rides.client.history;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+public class HistorySyncTest {
+
+    @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void sync_whenFirstSync_shouldReadWholeHistoryAndSetWatermark() throws IOException {
+        FakeHistoryService fake = new FakeHistoryService(120);
+        FileWatermarkStore store = new FileWatermarkStore(folder.getRoot().toPath().resolve("watermarks"));
+        List<String> rideIds = new ArrayList<>();
+
+        int count = new HistorySync(store).sync(fake.service, "user", activity -> rideIds.add(activity.getRideId()));
+
+        assertThat(count).isEqualTo(120);
+        assertThat(rideIds.get(0)).isEqualTo("ride0");
+        assertThat(store.get("user")).isEqualTo(new Watermark(120000, "ride0"));
+    }
+
+    @Test
+    public void sync_whenWatermarkIsSet_shouldStopAtIt() throws IOException {
+        FakeHistoryService fake = new FakeHistoryService(500);
+        FileWatermarkStore store = new FileWatermarkStore(folder.getRoot().toPath().resolve("watermarks"));
+        // ride3 and older were synced before.
+        store.put("user", new Watermark(497000, "ride3"));
+        List<String> rideIds = new ArrayList<>();
+
+        int count = new HistorySync(store, 10).sync(fake.service, "user",
+                activity -> rideIds.add(activity.getRideId()));
+
+        assertThat(count).isEqualTo(3);
+        assertThat(rideIds).containsExactly("ride0", "ride1", "ride2");
+        assertThat(fake.requestedOffsets).containsExactly(0);
+        assertThat(store.get("user")).isEqualTo(new Watermark(500000, "ride0"));
+    }
+
+    @Test
+    public void sync_whenNothingIsNew_shouldKeepWatermark() throws IOException {
+        FakeHistoryService fake = new FakeHistoryService(50);
+        FileWatermarkStore store = new FileWatermarkStore(folder.getRoot().toPath().resolve("watermarks"));
+        store.put("user", new Watermark(50000, "ride0"));
+
+        int count = new HistorySync(store).sync(fake.service, "user", activity -> fail("No activity is new."));
+
+        assertThat(count).isZero();
+        assertThat(store.get("user")).isEqualTo(new Watermark(50000, "ride0"));
+    }
+
+    @Test
+    public void sync_whenPageFails_shouldNotMoveWatermark() throws IOException {
+        FakeHistoryService fake = new FakeHistoryService(120).failAt(50);
+        FileWatermarkStore store = new FileWatermarkStore(folder.getRoot().toPath().resolve("watermarks"));
+
+        try {
+            new HistorySync(store).sync(fake.service, "user", activity -> { });
+            fail("Expected a HistoryException.");
+        } catch (HistoryException expected) {
+            // Expected.
+        }
+
+        assertThat(store.get("user")).isNull();
+    }
+
+    @Test
+    public void fileWatermarkStore_shouldPersistAcrossInstances() throws IOException {
+        Path file = folder.getRoot().toPath().resolve("nested/watermarks.properties");
+        new FileWatermarkStore(file).put("user:1", new Watermark(42, "ride"));
+        new FileWatermarkStore(file).put("user:2", new Watermark(43, "other"));
+
+        FileWatermarkStore reopened = new FileWatermarkStore(file);
+        assertThat(reopened.get("user:1")).isEqualTo(new Watermark(42, "ride"));
+        assertThat(reopened.get("user:2")).isEqualTo(new Watermark(43, "other"));
+        assertThat(reopened.get("user:3")).isNull();
+    }
+
+    @Test
+    public void covers_shouldMatchWatermarkAndOlderActivities() {
+        Watermark watermark = new Watermark(100, "ride");
+
+        assertThat(watermark.covers(FakeHistoryService.activity("ride", 100))).isTrue();
+        assertThat(watermark.covers(FakeHistoryService.activity("older", 99))).isTrue();
+        assertThat(watermark.covers(FakeHistoryService.activity("sameTime", 100))).isFalse();
+        assertThat(watermark.covers(FakeHistoryService.activity("newer", 101))).isFalse();
+    }
+}
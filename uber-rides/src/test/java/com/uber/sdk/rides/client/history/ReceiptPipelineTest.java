@@ -0,0 +1,277 @@
+/*
+ * Copyright (c) 2016 Uber Technologies, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.uber.sdk.rides.client.history;
+
+import com.uber.sdk.rides.client.model.RideReceipt;
+import com.uber.sdk.rides.client.model.UserActivity;
+import com.uber.sdk.rides.client.services.RidesService;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import okhttp3.MediaType;
+import okhttp3.ResponseBody;
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+
+import static com.uber.sdk.rides.client.history.ActivityColumnStoreTest.activity;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ReceiptPipelineTest {
+
+    private final RidesService service = mock(RidesService.class);
+    private final List<String> requested = new CopyOnWriteArrayList<>();
+    private final List<String> cancelled = new CopyOnWriteArrayList<>();
+    private final Map<String, Callback<RideReceipt>> pending = new ConcurrentHashMap<>();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maximumInFlight = new AtomicInteger();
+    private final Random random = new Random(42);
+    private volatile boolean manual;
+    private volatile String failingRideId;
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        when(service.getRideReceipt(anyString())).thenAnswer(invocation -> {
+            final String rideId = (String) invocation.getArguments()[0];
+            requested.add(rideId);
+            Call<RideReceipt> call = mock(Call.class);
+            doAnswer(enqueue -> {
+                Callback<RideReceipt> callback = (Callback<RideReceipt>) enqueue.getArguments()[0];
+                maximumInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                if (manual) {
+                    pending.put(rideId, callback);
+                    return null;
+                }
+                final long latency = random.nextInt(5);
+                new Thread(() -> {
+                    try {
+                        Thread.sleep(latency);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    inFlight.decrementAndGet();
+                    callback.onResponse(null, respond(rideId));
+                }).start();
+                return null;
+            }).when(call).enqueue(any(Callback.class));
+            doAnswer(cancel -> cancelled.add(rideId)).when(call).cancel();
+            return call;
+        });
+    }
+
+    @Test
+    public void run_shouldEmitRecordsInOrderWithReceiptsOfCompletedRides() throws IOException {
+        List<UserActivity> activities = activities(100);
+        List<ReceiptPipeline.Record> records = new ArrayList<>();
+
+        int fetched = ReceiptPipeline.with(service)
+                .setMaximumConcurrentRequests(3)
+                .build()
+                .run(activities, records::add);
+
+        assertThat(records).hasSize(100);
+        for (int i = 0; i < 100; i++) {
+            ReceiptPipeline.Record record = records.get(i);
+            assertThat(record.getActivity()).isSameAs(activities.get(i));
+            if (i % 4 == 0) {
+                assertThat(record.getReceipt()).isNull();
+            } else {
+                assertThat(record.getReceipt().getRideId()).isEqualTo("ride" + i);
+            }
+        }
+        assertThat(fetched).isEqualTo(75);
+        assertThat(maximumInFlight.get()).isBetween(1, 3);
+    }
+
+    @Test
+    public void run_whenReceiptHeldLocally_shouldNotFetchItAndShouldKeepFetchedOnes() throws IOException {
+        final Map<String, RideReceipt> held = new HashMap<>();
+        held.put("ride1", receipt("ride1"));
+        ReceiptStore store = new ReceiptStore() {
+            @Override
+            public RideReceipt get(String rideId) {
+                return held.get(rideId);
+            }
+
+            @Override
+            public void put(String rideId, RideReceipt receipt) {
+                held.put(rideId, receipt);
+            }
+        };
+        List<ReceiptPipeline.Record> records = new ArrayList<>();
+
+        int fetched = ReceiptPipeline.with(service).setReceiptStore(store).build().run(activities(4), records::add);
+
+        assertThat(fetched).isEqualTo(2);
+        assertThat(requested).containsOnly("ride2", "ride3");
+        assertThat(records.get(1).getReceipt()).isSameAs(held.get("ride1"));
+        assertThat(held).containsOnlyKeys("ride1", "ride2", "ride3");
+    }
+
+    @Test
+    public void run_whenReceiptStageFallsBehind_shouldStopReadingAtWindow() throws Exception {
+        manual = true;
+        final AtomicInteger read = new AtomicInteger();
+        final List<UserActivity> activities = activities(20);
+        Iterable<UserActivity> counting = () -> new Iterator<UserActivity>() {
+            @Override
+            public boolean hasNext() {
+                return read.get() < activities.size();
+            }
+
+            @Override
+            public UserActivity next() {
+                return activities.get(read.getAndIncrement());
+            }
+        };
+        final List<ReceiptPipeline.Record> records = new CopyOnWriteArrayList<>();
+        ReceiptPipeline pipeline = ReceiptPipeline.with(service)
+                .setWindow(5)
+                .setMaximumConcurrentRequests(10)
+                .build();
+
+        Thread runner = new Thread(() -> {
+            try {
+                pipeline.run(counting, records::add);
+            } catch (IOException e) {
+                throw new AssertionError(e);
+            }
+        });
+        runner.start();
+        awaitPending("ride1", "ride2", "ride3", "ride5");
+
+        // The canceled ride0 was emitted, and five more activities were read behind it.
+        assertThat(read.get()).isEqualTo(6);
+        assertThat(records).hasSize(1);
+
+        // Completing later receipts first must neither let their records overtake ride1 nor read any further.
+        complete("ride3");
+        complete("ride2");
+        awaitPending();
+        assertThat(records).hasSize(1);
+        assertThat(read.get()).isEqualTo(6);
+
+        manual = false;
+        complete("ride1");
+        complete("ride5");
+        runner.join(TimeUnit.SECONDS.toMillis(5));
+
+        assertThat(runner.isAlive()).isFalse();
+        assertThat(records).hasSize(20);
+        for (int i = 0; i < 20; i++) {
+            assertThat(records.get(i).getActivity().getRideId()).isEqualTo("ride" + i);
+        }
+    }
+
+    @Test
+    public void run_whenReceiptFails_shouldThrowAndCancelRemainingRequests() throws IOException {
+        manual = true;
+        failingRideId = "ride1";
+        ReceiptPipeline pipeline = ReceiptPipeline.with(service).setWindow(4).build();
+        List<ReceiptPipeline.Record> records = new ArrayList<>();
+        new Thread(() -> {
+            awaitPending("ride1", "ride2", "ride3");
+            complete("ride1");
+        }).start();
+
+        try {
+            pipeline.run(activities(10), records::add);
+            fail("Expected a HistoryException.");
+        } catch (HistoryException e) {
+            assertThat(e.getApiError()).isNotNull();
+            assertThat(e.getApiError().getClientErrors().get(0).getCode()).isEqualTo("not_found");
+        }
+
+        assertThat(records).hasSize(1);
+        assertThat(cancelled).containsOnly("ride2", "ride3");
+    }
+
+    private void awaitPending(String... rideIds) {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!pending.keySet().containsAll(Arrays.asList(rideIds))) {
+            if (System.currentTimeMillis() > deadline) {
+                throw new AssertionError("Receipts never requested: " + pending.keySet());
+            }
+            Thread.yield();
+        }
+        try {
+            // Gives the pipeline time to read past the window, if it wrongly would.
+            Thread.sleep(20);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void complete(String rideId) {
+        inFlight.decrementAndGet();
+        pending.remove(rideId).onResponse(null, respond(rideId));
+    }
+
+    private Response<RideReceipt> respond(String rideId) {
+        if (rideId.equals(failingRideId)) {
+            return Response.error(404, ResponseBody.create(MediaType.parse("application/json"),
+                    "{\"errors\":[{\"status\":404,\"code\":\"not_found\",\"title\":\"Receipt not found.\"}]}"));
+        }
+        return Response.success(receipt(rideId));
+    }
+
+    private static RideReceipt receipt(String rideId) {
+        RideReceipt receipt = mock(RideReceipt.class);
+        when(receipt.getRideId()).thenReturn(rideId);
+        return receipt;
+    }
+
+    /**
+     * @return activities whose every fourth ride, starting with the first, was canceled.
+     */
+    private static List<UserActivity> activities(int count) {
+        List<UserActivity> activities = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            activities.add(activity("ride" + i, i % 4 == 0 ? "rider_canceled" : ReceiptPipeline.COMPLETED, 1f,
+                    1000L * (count - i), 5f, "USD", "San Francisco"));
+        }
+        return Collections.unmodifiableList(activities);
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright (c) 2016 Uber Technologies, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.uber.sdk.rides.client.history;
+
+import com.uber.sdk.rides.client.model.UserActivity;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+public class UserActivityHistoryTest {
+
+    @Test
+    public void iterator_shouldReturnWholeHistoryInOrder() {
+        FakeHistoryService fake = new FakeHistoryService(120);
+        UserActivityHistory history = UserActivityHistory.with(fake.service).build();
+
+        List<String> rideIds = new ArrayList<>();
+        for (UserActivity activity : history) {
+            rideIds.add(activity.getRideId());
+        }
+
+        assertThat(rideIds).hasSize(120);
+        assertThat(rideIds.get(0)).isEqualTo("ride0");
+        assertThat(rideIds.get(119)).isEqualTo("ride119");
+        assertThat(fake.requestedOffsets).containsExactly(0, 50, 100);
+    }
+
+    @Test
+    public void iterator_shouldPrefetchUpToDepthWhileCurrentPageIsRead() {
+        FakeHistoryService fake = new FakeHistoryService(100).manual();
+        UserActivityHistory history = UserActivityHistory.with(fake.service)
+                .setPageSize(10)
+                .setPrefetchDepth(3)
+                .build();
+        Iterator<UserActivity> iterator = history.iterator();
+
+        Thread completer = new Thread(() -> {
+            waitForRequests(fake, 1);
+            fake.complete(0, 10);
+        });
+        completer.start();
+        assertThat(iterator.next().getRideId()).isEqualTo("ride0");
+
+        // Page 0 is being read, pages 1 to 3 are in flight and nothing more.
+        assertThat(fake.requestedOffsets).containsExactly(0, 10, 20, 30);
+        for (int i = 1; i < 10; i++) {
+            iterator.next();
+        }
+        fake.complete(10, 10);
+        assertThat(iterator.next().getRideId()).isEqualTo("ride10");
+        assertThat(fake.requestedOffsets).containsExactly(0, 10, 20, 30, 40);
+    }
+
+    @Test
+    public void iterator_whenPrefetchDepthIsZero_shouldFetchPagesOneAtATime() {
+        FakeHistoryService fake = new FakeHistoryService(25);
+        Iterator<UserActivity> iterator = UserActivityHistory.with(fake.service)
+                .setPageSize(10)
+                .setPrefetchDepth(0)
+                .build()
+                .iterator();
+
+        iterator.next();
+        assertThat(fake.requestedOffsets).containsExactly(0);
+
+        int read = 1;
+        while (iterator.hasNext()) {
+            iterator.next();
+            read++;
+        }
+        assertThat(read).isEqualTo(25);
+        assertThat(fake.requestedOffsets).containsExactly(0, 10, 20);
+    }
+
+    @Test
+    public void iterator_whenHistoryIsEmpty_shouldHaveNoElements() {
+        FakeHistoryService fake = new FakeHistoryService(0);
+
+        assertThat(UserActivityHistory.with(fake.service).build().iterator().hasNext()).isFalse();
+        assertThat(fake.requestedOffsets).containsExactly(0);
+    }
+
+    @Test
+    public void iterator_whenPageFails_shouldThrowHistoryException() {
+        FakeHistoryService fake = new FakeHistoryService(120).failAt(50);
+        Iterator<UserActivity> iterator = UserActivityHistory.with(fake.service).build().iterator();
+
+        for (int i = 0; i < 50; i++) {
+            iterator.next();
+        }
+        try {
+            iterator.next();
+            fail("Expected a HistoryException.");
+        } catch (HistoryException e) {
+            assertThat(e.getApiError()).isNotNull();
+            assertThat(e.getApiError().getClientErrors().get(0).getCode()).isEqualTo("internal_server_error");
+        }
+        assertThat(fake.cancelledOffsets).containsExactly(100);
+    }
+
+    @Test
+    public void stream_whenClosedEarly_shouldCancelPrefetchedPages() {
+        FakeHistoryService fake = new FakeHistoryService(500);
+        UserActivityHistory history = UserActivityHistory.with(fake.service).build();
+
+        List<String> rideIds;
+        try (Stream<UserActivity> stream = history.stream()) {
+            rideIds = stream.limit(10).map(UserActivity::getRideId).collect(Collectors.toList());
+        }
+
+        assertThat(rideIds).hasSize(10);
+        assertThat(fake.requestedOffsets).containsExactly(0, 50, 100);
+        assertThat(fake.cancelledOffsets).containsExactly(50, 100);
+    }
+
+    private static void waitForRequests(FakeHistoryService fake, int count) {
+        while (fake.pendingCallbacks.size() < count) {
+            Thread.yield();
+        }
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2016 Uber Technologies, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.uber.sdk.rides.client.history;
+
+import com.uber.sdk.rides.client.model.UserActivity;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Spliterator;
+import java.util.concurrent.Semaphore;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class UserActivitySpliteratorTest {
+
+    @Test
+    public void trySplit_shouldSplitAlongPageBoundariesOnceCountIsKnown() {
+        FakeHistoryService fake = new FakeHistoryService(95);
+        UserActivitySpliterator spliterator = new UserActivitySpliterator(fake.service, 10, 0, new Semaphore(4));
+        assertThat(spliterator.estimateSize()).isEqualTo(Long.MAX_VALUE);
+
+        Spliterator<UserActivity> prefix = spliterator.trySplit();
+
+        assertThat(prefix.estimateSize()).isEqualTo(50);
+        assertThat(spliterator.estimateSize()).isEqualTo(45);
+        assertThat(prefix.trySplit().estimateSize()).isEqualTo(20);
+        assertThat(fake.requestedOffsets).containsExactly(0);
+    }
+
+    @Test
+    public void trySplit_whenSinglePage_shouldNotSplit() {
+        FakeHistoryService fake = new FakeHistoryService(8);
+        UserActivitySpliterator spliterator = new UserActivitySpliterator(fake.service, 10, 0, new Semaphore(4));
+
+        assertThat(spliterator.trySplit()).isNull();
+        spliterator.forEachRemaining(activity -> { });
+        assertThat(fake.requestedOffsets).containsExactly(0);
+    }
+
+    @Test
+    public void parallelStream_shouldReadWholeHistoryInOrderReusingFirstPage() {
+        FakeHistoryService fake = new FakeHistoryService(1000);
+        UserActivityHistory history = UserActivityHistory.with(fake.service).build();
+
+        List<String> rideIds;
+        try (Stream<UserActivity> stream = history.stream().parallel()) {
+            rideIds = stream.map(UserActivity::getRideId).collect(Collectors.toList());
+        }
+
+        assertThat(rideIds).hasSize(1000);
+        for (int i = 0; i < 1000; i++) {
+            assertThat(rideIds.get(i)).isEqualTo("ride" + i);
+        }
+        assertThat(fake.requestedOffsets).hasSize(20).doesNotHaveDuplicates();
+    }
+
+    @Test
+    public void parallelStream_shouldNotExceedMaximumConcurrentRequests() {
+        FakeHistoryService fake = new FakeHistoryService(2000).withLatency(5);
+        UserActivityHistory history = UserActivityHistory.with(fake.service)
+                .setMaximumConcurrentRequests(3)
+                .build();
+
+        long count;
+        try (Stream<UserActivity> stream = history.stream().parallel()) {
+            count = stream.count();
+        }
+
+        assertThat(count).isEqualTo(2000);
+        assertThat(fake.maximumInFlight.get()).isLessThanOrEqualTo(3);
+    }
+}
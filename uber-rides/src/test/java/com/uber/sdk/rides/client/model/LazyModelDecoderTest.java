@@ -0,0 +1,123 @@
+package com.uber.sdk.rides.client.model;
+
+import com.squareup.moshi.JsonAdapter;
+import com.squareup.moshi.JsonDataException;
+import com.squareup.moshi.Moshi;
+import com.uber.sdk.core.client.internal.BigDecimalAdapter;
+import com.uber.sdk.rides.client.internal.ModelAccess.NestedObject;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Scanner;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class LazyModelDecoderTest {
+
+    private static final Moshi MOSHI = new Moshi.Builder()
+            .add(new BigDecimalAdapter())
+            .add(ModelAdapters.FACTORY)
+            .build();
+    private static final String RIDE = "{\"request_id\":\"a1111c8c\",\"status\":\"accepted\",\"shared\":false,"
+            + "\"driver\":{\"name\":\"Bob\",\"rating\":4.9,\"picture_url\":\"https://example.com/{bob}.jpeg\"},"
+            + "\"vehicle\":{\"make\":\"Bugatti\",\"model\":\"Veyron\",\"license_plate\":\"I<3\\\"Uber}\"},"
+            + "\"location\":{\"latitude\":37.3382129093,\"longitude\":-121.8863287568,\"bearing\":328},"
+            + "\"pickup\":{\"latitude\":37.3303463,\"longitude\":-121.8890484,\"eta\":5},"
+            + "\"destination\":null}";
+
+    private final LazyModelDecoder decoder = LazyModelDecoder.create(MOSHI);
+
+    @Test
+    public void decodeRide_shouldDecodeNestedObjectsOnlyWhenRead() throws IOException {
+        Ride ride = decoder.decodeRide(bytes(RIDE));
+
+        assertThat(ride.getRideId()).isEqualTo("a1111c8c");
+        assertThat(ride.getStatus()).isEqualTo(Ride.Status.ACCEPTED);
+        assertThat(ride.getLocation().getBearing()).isEqualTo(328);
+        assertThat(ride.lazyDriver).isNotNull();
+        assertThat(ride.lazyVehicle).isNotNull();
+
+        assertThat(ride.getDriver().getName()).isEqualTo("Bob");
+        assertThat(ride.getDriver().getPictureUrl()).isEqualTo("https://example.com/{bob}.jpeg");
+        assertThat(ride.getVehicle().getLicensePlate()).isEqualTo("I<3\"Uber}");
+        assertThat(ride.getPickup().getEta()).isEqualTo(5);
+        assertThat(ride.getDestination()).isNull();
+        assertThat(ride.getDriver()).isSameAs(ride.getDriver());
+    }
+
+    @Test
+    public void decodeRide_shouldMatchEagerDecoding() throws IOException {
+        JsonAdapter<Ride> adapter = MOSHI.adapter(Ride.class);
+        String json = resource("__files/requests_current.json");
+
+        Ride ride = decoder.decodeRide(bytes(json));
+
+        assertThat(adapter.toJson(ride)).isEqualTo(adapter.toJson(adapter.fromJson(json)));
+    }
+
+    @Test
+    public void decodeRideEstimate_shouldMatchEagerDecoding() throws IOException {
+        JsonAdapter<RideEstimate> adapter = MOSHI.adapter(RideEstimate.class);
+        String json = resource("__files/v1.2_request_estimate_UberPool.json");
+
+        RideEstimate rideEstimate = decoder.decodeRideEstimate(bytes(json));
+
+        assertThat(rideEstimate.lazyFare).isNotNull();
+        assertThat(rideEstimate.getFare().getValue()).isEqualTo(new BigDecimal("9.99"));
+        assertThat(rideEstimate.getEstimate()).isNull();
+        assertThat(rideEstimate.getPickupEstimate()).isEqualTo(4);
+        assertThat(adapter.toJson(rideEstimate)).isEqualTo(adapter.toJson(adapter.fromJson(json)));
+    }
+
+    @Test
+    public void decodeRide_whenNull_shouldReturnNull() throws IOException {
+        assertThat(decoder.decodeRide(bytes("null"))).isNull();
+    }
+
+    @Test
+    public void hasSameJson_whenNotDecodedYet_shouldCompareJson() throws IOException {
+        Ride ride = decoder.decodeRide(bytes(RIDE));
+        Ride same = decoder.decodeRide(bytes(RIDE));
+        Ride moved = decoder.decodeRide(bytes(RIDE.replace("\"eta\":5", "\"eta\":4")));
+
+        assertThat(ride.hasSameJson(same, NestedObject.DRIVER)).isTrue();
+        assertThat(ride.hasSameJson(same, NestedObject.PICKUP)).isTrue();
+        assertThat(ride.hasSameJson(moved, NestedObject.VEHICLE)).isTrue();
+        assertThat(ride.hasSameJson(moved, NestedObject.PICKUP)).isFalse();
+        assertThat(ride.hasSameJson(same, NestedObject.DESTINATION)).isFalse();
+    }
+
+    @Test
+    public void hasSameJson_whenDecoded_shouldReturnFalse() throws IOException {
+        Ride ride = decoder.decodeRide(bytes(RIDE));
+        Ride same = decoder.decodeRide(bytes(RIDE));
+
+        same.getDriver();
+
+        assertThat(ride.hasSameJson(same, NestedObject.DRIVER)).isFalse();
+        assertThat(ride.hasSameJson(MOSHI.adapter(Ride.class).fromJson(RIDE), NestedObject.VEHICLE)).isFalse();
+    }
+
+    @Test(expected = JsonDataException.class)
+    public void getDriver_whenDriverInvalid_shouldThrowException() throws IOException {
+        Ride ride = decoder.decodeRide(bytes("{\"status\":\"accepted\",\"driver\":{\"rating\":\"five\"}}"));
+
+        assertThat(ride.getStatus()).isEqualTo(Ride.Status.ACCEPTED);
+        ride.getDriver();
+    }
+
+    private static byte[] bytes(String json) {
+        return json.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String resource(String name) throws IOException {
+        try (InputStream in = LazyModelDecoderTest.class.getClassLoader().getResourceAsStream(name);
+             Scanner scanner = new Scanner(in, StandardCharsets.UTF_8.name())) {
+            return scanner.useDelimiter("\\A").next();
+        }
+    }
+}
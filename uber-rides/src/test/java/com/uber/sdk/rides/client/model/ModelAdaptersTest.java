@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2016 Uber Technologies, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.uber.sdk.rides.client.model;
+
+import com.squareup.moshi.JsonAdapter;
+import com.squareup.moshi.Moshi;
+import com.uber.sdk.core.client.utils.StringCanonicalizer;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Scanner;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ModelAdaptersTest {
+
+    @Test
+    public void moshi_shouldShareOneInstance() {
+        assertThat(ModelAdapters.moshi()).isSameAs(ModelAdapters.moshi());
+        assertThat(ModelAdapters.moshi().adapter(Ride.class)).isSameAs(ModelAdapters.moshi().adapter(Ride.class));
+    }
+
+    @Test
+    public void moshi_whenStringCanonicalizer_shouldShareRepeatedStrings() throws IOException {
+        Moshi moshi = ModelAdapters.moshi(new StringCanonicalizer(64));
+        String json = "{\"prices\":[{\"product_id\":\"a1111c8c\",\"currency_code\":\"USD\"},"
+                + "{\"product_id\":\"a1111c8c\",\"currency_code\":\"USD\"}]}";
+
+        List<PriceEstimate> prices = moshi.adapter(PriceEstimatesResponse.class).fromJson(json).getPrices();
+
+        assertThat(prices.get(1).getProductId()).isSameAs(prices.get(0).getProductId());
+        assertThat(prices.get(1).getCurrencyCode()).isSameAs(prices.get(0).getCurrencyCode());
+    }
+
+    @Test
+    public void toJson_whenDecodedLazily_shouldEncodeNestedObjects() throws IOException {
+        Moshi moshi = ModelAdapters.moshi();
+        LazyModelDecoder decoder = LazyModelDecoder.create(moshi);
+        String rideJson = resource("__files/requests_current.json");
+        String rideEstimateJson = resource("__files/v1.2_request_estimate_UberPool.json");
+        JsonAdapter<Ride> rideAdapter = moshi.adapter(Ride.class);
+        JsonAdapter<RideEstimate> rideEstimateAdapter = moshi.adapter(RideEstimate.class);
+
+        Ride ride = decoder.decodeRide(rideJson.getBytes(StandardCharsets.UTF_8));
+        RideEstimate rideEstimate = decoder.decodeRideEstimate(rideEstimateJson.getBytes(StandardCharsets.UTF_8));
+
+        assertThat(rideAdapter.toJson(ride)).contains("\"pickup\":")
+                .isEqualTo(rideAdapter.toJson(rideAdapter.fromJson(rideJson)));
+        assertThat(rideEstimateAdapter.toJson(rideEstimate)).contains("\"fare\":")
+                .isEqualTo(rideEstimateAdapter.toJson(rideEstimateAdapter.fromJson(rideEstimateJson)));
+    }
+
+    private static String resource(String name) throws IOException {
+        try (InputStream in = ModelAdaptersTest.class.getClassLoader().getResourceAsStream(name);
+             Scanner scanner = new Scanner(in, StandardCharsets.UTF_8.name())) {
+            return scanner.useDelimiter("\\A").next();
+        }
+    }
+}
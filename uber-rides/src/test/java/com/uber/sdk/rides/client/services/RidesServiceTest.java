@@ -147,10 +147,8 @@ public class RidesServiceTest extends WireMockTest {
 
         assertThat(rideEstimate.getEstimate().getFareId()).isEqualTo(FARE_ID);
         assertThat(rideEstimate.getPickupEstimate()).isEqualTo(4);
-        assertThat(rideEstimate.getEstimate().getHighEstimate()).isEqualTo(
-                new BigDecimal(Float.valueOf(5f).toString()));
-        assertThat(rideEstimate.getEstimate().getLowEstimate()).isEqualTo(
-                new BigDecimal(Float.valueOf(4f).toString()));
+        assertThat(rideEstimate.getEstimate().getHighEstimate()).isEqualTo(new BigDecimal("5"));
+        assertThat(rideEstimate.getEstimate().getLowEstimate()).isEqualTo(new BigDecimal("4"));
         assertThat(rideEstimate.getEstimate().getDisplay()).isEqualTo("$4.87");
 
         assertThat(rideEstimate.getTrip()).isNotNull();
@@ -168,10 +166,8 @@ public class RidesServiceTest extends WireMockTest {
         final RideEstimate rideEstimate = service.estimateRide(
                 createRideRequestV1Estimate()).execute().body();
         assertThat(rideEstimate.getEstimate().getFareId()).isNull();
-        assertThat(rideEstimate.getEstimate().getHighEstimate()).isEqualTo(
-                new BigDecimal(Float.valueOf(10f).toString()));
-        assertThat(rideEstimate.getEstimate().getLowEstimate()).isEqualTo(
-                new BigDecimal(Float.valueOf(7f).toString()));
+        assertThat(rideEstimate.getEstimate().getHighEstimate()).isEqualTo(new BigDecimal("10"));
+        assertThat(rideEstimate.getEstimate().getLowEstimate()).isEqualTo(new BigDecimal("7"));
         assertThat(rideEstimate.getEstimate().getDisplay()).isEqualTo("$7-10");
 
         assertThat(rideEstimate.getTrip()).isNotNull();
@@ -0,0 +1,215 @@
+package com.uber.sdk.rides.client.services;
+
+import com.squareup.moshi.Moshi;
+import com.uber.sdk.core.client.internal.BigDecimalAdapter;
+import com.uber.sdk.rides.WireMockTest;
+import com.uber.sdk.rides.client.model.ModelAdapters;
+import com.uber.sdk.rides.client.model.PriceEstimate;
+import com.uber.sdk.rides.client.model.Product;
+import com.uber.sdk.rides.client.model.TimeEstimate;
+import com.uber.sdk.rides.client.model.UserActivity;
+import okhttp3.OkHttpClient;
+import org.junit.Before;
+import org.junit.Test;
+import retrofit2.Call;
+import retrofit2.Response;
+import retrofit2.Retrofit;
+import retrofit2.converter.moshi.MoshiConverterFactory;
+import retrofit2.http.GET;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RidesStreamingServiceTest extends WireMockTest {
+
+    private static final String PRICES = "{\"prices\":["
+            + "{\"product_id\":\"26546650-e557-4a7b-86e7-6a3942445247\",\"currency_code\":\"USD\","
+            + "\"display_name\":\"POOL\",\"estimate\":\"$7\",\"low_estimate\":7.15,\"high_estimate\":7.15},"
+            + "{\"product_id\":\"a1111c8c-c720-46c3-8534-2fcdd730040d\",\"currency_code\":\"USD\","
+            + "\"display_name\":\"uberX\",\"estimate\":\"$8-10\",\"low_estimate\":8,\"high_estimate\":10}]}";
+    private static final String TIMES = "{\"times\":["
+            + "{\"product_id\":\"26546650-e557-4a7b-86e7-6a3942445247\",\"display_name\":\"POOL\",\"estimate\":120},"
+            + null + ","
+            + "{\"product_id\":\"a1111c8c-c720-46c3-8534-2fcdd730040d\",\"display_name\":\"uberX\",\"estimate\":300}]}";
+    private static final String HISTORY = "{\"count\":2,\"history\":["
+            + "{\"status\":\"completed\",\"request_id\":\"37d57a99-2647-4114-9dd2-c43bccf4c30b\"},"
+            + "{\"status\":\"completed\",\"request_id\":\"a0ad7c7c-1f5b-4e0c-a1f3-4c1b5fb6fe51\"}],"
+            + "\"limit\":2,\"offset\":0}";
+
+    private RidesStreamingService service;
+    private Retrofit retrofit;
+
+    @Before
+    public void setUp() throws Exception {
+        Moshi moshi = new Moshi.Builder().add(new BigDecimalAdapter()).add(ModelAdapters.FACTORY).build();
+
+        retrofit = new Retrofit.Builder()
+                .addConverterFactory(ElementStreamConverterFactory.create(moshi))
+                .addConverterFactory(MoshiConverterFactory.create(moshi))
+                .client(new OkHttpClient())
+                .baseUrl("http://localhost:" + wireMockRule.port())
+                .build();
+        service = retrofit.create(RidesStreamingService.class);
+    }
+
+    @Test
+    public void getProducts_whenVisitedToEnd_shouldVisitEveryProduct() throws Exception {
+        stubFor(get(urlPathEqualTo("/v1.2/products"))
+                .willReturn(aResponse().withBodyFile("products.json")));
+
+        final List<String> displayNames = new ArrayList<>();
+        int count = service.getProducts(37.7753f, -122.418f).execute().body()
+                .forEach(new ElementStream.Visitor<Product>() {
+                    @Override
+                    public boolean visit(Product product) {
+                        displayNames.add(product.getDisplayName());
+                        return true;
+                    }
+                });
+
+        assertThat(count).isEqualTo(9);
+        assertThat(displayNames).hasSize(9).startsWith("uberPOOL", "uberX");
+    }
+
+    @Test
+    public void getPriceEstimates_whenVisitorStops_shouldStopReading() throws Exception {
+        stubFor(get(urlPathEqualTo("/v1.2/estimates/price"))
+                .willReturn(aResponse().withBody(PRICES)));
+
+        final List<PriceEstimate> prices = new ArrayList<>();
+        int count = service.getPriceEstimates(37.7753f, -122.418f, 37.787654f, -122.40276f).execute().body()
+                .forEach(new ElementStream.Visitor<PriceEstimate>() {
+                    @Override
+                    public boolean visit(PriceEstimate price) {
+                        prices.add(price);
+                        return false;
+                    }
+                });
+
+        assertThat(count).isEqualTo(1);
+        assertThat(prices).hasSize(1);
+        assertThat(prices.get(0).getDisplayName()).isEqualTo("POOL");
+        assertThat(prices.get(0).getLowEstimate()).isEqualTo(new BigDecimal("7.15"));
+    }
+
+    @Test
+    public void getPickupTimeEstimate_whenNullElement_shouldSkipIt() throws Exception {
+        stubFor(get(urlPathEqualTo("/v1.2/estimates/time"))
+                .willReturn(aResponse().withBody(TIMES)));
+
+        final List<Integer> estimates = new ArrayList<>();
+        int count = service.getPickupTimeEstimate(37.7753f, -122.418f, null).execute().body()
+                .forEach(new ElementStream.Visitor<TimeEstimate>() {
+                    @Override
+                    public boolean visit(TimeEstimate time) {
+                        estimates.add(time.getEstimate());
+                        return true;
+                    }
+                });
+
+        assertThat(count).isEqualTo(2);
+        assertThat(estimates).containsExactly(120, 300);
+    }
+
+    @Test
+    public void getUserActivity_whenOtherFieldsAroundList_shouldSkipThem() throws Exception {
+        stubFor(get(urlPathEqualTo("/v1.2/history"))
+                .willReturn(aResponse().withBody(HISTORY)));
+
+        final List<String> rideIds = new ArrayList<>();
+        ElementStream<UserActivity> history = service.getUserActivity(0, 2).execute().body();
+        int count = history.forEach(new ElementStream.Visitor<UserActivity>() {
+            @Override
+            public boolean visit(UserActivity activity) {
+                rideIds.add(activity.getRideId());
+                return true;
+            }
+        });
+
+        assertThat(count).isEqualTo(2);
+        assertThat(rideIds).containsExactly("37d57a99-2647-4114-9dd2-c43bccf4c30b",
+                "a0ad7c7c-1f5b-4e0c-a1f3-4c1b5fb6fe51");
+        assertThat(history.getCount()).isEqualTo(2);
+        assertThat(history.getOffset()).isEqualTo(0);
+        assertThat(history.getLimit()).isEqualTo(2);
+    }
+
+    @Test
+    public void getUserActivity_whenVisitorStops_shouldOnlyKeepPagingFieldsBeforeList() throws Exception {
+        stubFor(get(urlPathEqualTo("/v1.2/history"))
+                .willReturn(aResponse().withBody(HISTORY)));
+
+        ElementStream<UserActivity> history = service.getUserActivity(0, 2).execute().body();
+        int count = history.forEach(new ElementStream.Visitor<UserActivity>() {
+            @Override
+            public boolean visit(UserActivity activity) {
+                return false;
+            }
+        });
+
+        assertThat(count).isEqualTo(1);
+        assertThat(history.getCount()).isEqualTo(2);
+        assertThat(history.getOffset()).isNull();
+        assertThat(history.getLimit()).isNull();
+    }
+
+    @Test
+    public void getUserActivity_whenNoList_shouldVisitNothing() throws Exception {
+        stubFor(get(urlPathEqualTo("/v1.2/history"))
+                .willReturn(aResponse().withBody("{\"count\":0,\"history\":null}")));
+
+        int count = service.getUserActivity(null, null).execute().body()
+                .forEach(new ElementStream.Visitor<UserActivity>() {
+                    @Override
+                    public boolean visit(UserActivity activity) {
+                        throw new AssertionError();
+                    }
+                });
+
+        assertThat(count).isEqualTo(0);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void forEach_whenAlreadyRead_shouldThrowException() throws Exception {
+        stubFor(get(urlPathEqualTo("/v1.2/estimates/price"))
+                .willReturn(aResponse().withBody(PRICES)));
+
+        ElementStream<PriceEstimate> prices = service.getPriceEstimates(37.7753f, -122.418f, 37.787654f, -122.40276f)
+                .execute().body();
+        ElementStream.Visitor<PriceEstimate> visitor = new ElementStream.Visitor<PriceEstimate>() {
+            @Override
+            public boolean visit(PriceEstimate price) {
+                return true;
+            }
+        };
+        prices.forEach(visitor);
+        prices.forEach(visitor);
+    }
+
+    @Test
+    public void getPriceEstimates_whenError_shouldNotConvertBody() throws Exception {
+        stubFor(get(urlPathEqualTo("/v1.2/estimates/price"))
+                .willReturn(aResponse().withStatus(401).withBody("{\"message\":\"Invalid OAuth 2.0 credentials.\"}")));
+
+        Response<ElementStream<PriceEstimate>> response =
+                service.getPriceEstimates(37.7753f, -122.418f, 37.787654f, -122.40276f).execute();
+
+        assertThat(response.isSuccessful()).isFalse();
+        assertThat(response.body()).isNull();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void create_whenElementsCannotBeStreamed_shouldThrowException() {
+        retrofit.create(UnsupportedService.class).getStrings();
+    }
+
+    interface UnsupportedService {
+
+        @GET("/v1.2/strings")
+        Call<ElementStream<String>> getStrings();
+    }
+}
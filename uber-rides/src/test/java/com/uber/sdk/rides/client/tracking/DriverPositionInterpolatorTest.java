@@ -0,0 +1,150 @@
+/*
+ * Copyright (c) 2016 Uber Technologies, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.uber.sdk.rides.client.tracking;
+
+import com.uber.sdk.rides.client.model.Location;
+import com.uber.sdk.rides.client.model.Ride;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class DriverPositionInterpolatorTest {
+
+    private static final double START_LATITUDE = 37.775;
+    private static final double START_LONGITUDE = -122.418;
+
+    @Mock PollingPolicy delegate;
+
+    private final AtomicLong nanos = new AtomicLong();
+    private DriverPositionInterpolator interpolator;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        when(delegate.nextPollDelayMillis(any(Ride.class))).thenReturn(2000L);
+        interpolator = DriverPositionInterpolator.with(delegate)
+                .setCorrection(0, TimeUnit.SECONDS)
+                .setClock(nanos::get)
+                .build();
+    }
+
+    @Test
+    public void nextPollDelayMillis_whenProjectionsAreAccurate_shouldStretchDelay() {
+        assertThat(fixAfter(0, 0)).isEqualTo(2000);
+        assertThat(fixAfter(2, 20)).isEqualTo(2000);
+        assertThat(fixAfter(2, 40)).isEqualTo(4000);
+        assertThat(fixAfter(4, 80)).isEqualTo(6000);
+        assertThat(fixAfter(6, 140)).isEqualTo(8000);
+        assertThat(fixAfter(8, 220)).isEqualTo(8000);
+    }
+
+    @Test
+    public void nextPollDelayMillis_whenProjectionMisses_shouldReturnToDelegatePace() {
+        fixAfter(0, 0);
+        fixAfter(2, 20);
+        assertThat(fixAfter(2, 40)).isEqualTo(4000);
+
+        // The vehicle stopped, so the projection overshoots by 40 meters.
+        assertThat(fixAfter(4, 40)).isEqualTo(2000);
+        assertThat(interpolator.getPosition("ride").getErrorMeters()).isGreaterThan(10);
+    }
+
+    @Test
+    public void nextPollDelayMillis_whenDelegateStops_shouldForgetRide() {
+        fixAfter(0, 0);
+        when(delegate.nextPollDelayMillis(any(Ride.class))).thenReturn(PollingPolicy.STOP);
+
+        assertThat(fixAfter(2, 20)).isEqualTo(PollingPolicy.STOP);
+        assertThat(interpolator.getPosition("ride")).isNull();
+    }
+
+    @Test
+    public void getPosition_shouldProjectAlongBearingAtEstimatedSpeed() {
+        fixAfter(0, 0);
+        fixAfter(2, 20);
+
+        nanos.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        DriverPositionInterpolator.Position position = interpolator.getPosition("ride");
+
+        assertThat(position.getSpeedMetersPerSecond()).isCloseTo(10, within(0.1));
+        assertThat(position.getBearing()).isEqualTo(0);
+        assertThat(metersNorth(position.getLatitude())).isCloseTo(30, within(0.5));
+        assertThat(position.getLongitude()).isCloseTo(START_LONGITUDE, within(1e-4));
+    }
+
+    @Test
+    public void getPosition_whenFixArrives_shouldMoveSmoothlyToCorrectedProjection() {
+        interpolator = DriverPositionInterpolator.with(delegate)
+                .setCorrection(1, TimeUnit.SECONDS)
+                .setClock(nanos::get)
+                .build();
+        fixAfter(0, 0);
+        fixAfter(2, 20);
+        nanos.addAndGet(TimeUnit.SECONDS.toNanos(2));
+        double projected = metersNorth(interpolator.getPosition("ride").getLatitude());
+
+        // The fix is 10 meters behind the projection.
+        fixAfter(0, 30);
+
+        assertThat(metersNorth(interpolator.getPosition("ride").getLatitude())).isCloseTo(projected, within(0.5));
+        nanos.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        assertThat(metersNorth(interpolator.getPosition("ride").getLatitude())).isCloseTo(40, within(2d));
+    }
+
+    @Test
+    public void getPosition_whenUnknownRide_shouldReturnNull() {
+        assertThat(interpolator.getPosition("unknown")).isNull();
+    }
+
+    /**
+     * Advances the clock, then records a fix of a vehicle heading north from the start.
+     */
+    private long fixAfter(long seconds, double metersNorth) {
+        nanos.addAndGet(TimeUnit.SECONDS.toNanos(seconds));
+        double[] point = Geodesy.destination(START_LATITUDE, START_LONGITUDE, 0, metersNorth);
+        Location location = mock(Location.class);
+        when(location.getLatitude()).thenReturn((float) point[0]);
+        when(location.getLongitude()).thenReturn((float) START_LONGITUDE);
+        when(location.getBearing()).thenReturn(0);
+        Ride ride = mock(Ride.class);
+        when(ride.getRideId()).thenReturn("ride");
+        when(ride.getLocation()).thenReturn(location);
+        return interpolator.nextPollDelayMillis(ride);
+    }
+
+    private static double metersNorth(double latitude) {
+        return Geodesy.distanceMeters(START_LATITUDE, START_LONGITUDE, latitude, START_LONGITUDE)
+                * Math.signum(latitude - START_LATITUDE);
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2016 Uber Technologies, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.uber.sdk.rides.client.tracking;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class HashedWheelTimerTest {
+
+    HashedWheelTimer timer;
+
+    @Before
+    public void setUp() {
+        timer = new HashedWheelTimer(10, TimeUnit.MILLISECONDS, 8, Executors.defaultThreadFactory());
+    }
+
+    @After
+    public void tearDown() {
+        timer.stop();
+    }
+
+    @Test
+    public void schedule_shouldRunTaskNoEarlierThanDelay() throws InterruptedException {
+        final CountDownLatch ran = new CountDownLatch(1);
+        final AtomicLong ranAt = new AtomicLong();
+        long start = System.nanoTime();
+
+        timer.schedule(() -> {
+            ranAt.set(System.nanoTime());
+            ran.countDown();
+        }, 200, TimeUnit.MILLISECONDS);
+
+        assertThat(ran.await(2, TimeUnit.SECONDS)).isTrue();
+        assertThat(TimeUnit.NANOSECONDS.toMillis(ranAt.get() - start)).isGreaterThanOrEqualTo(200);
+    }
+
+    @Test
+    public void schedule_whenManyTasksSpanningRounds_shouldRunAll() throws InterruptedException {
+        final CountDownLatch ran = new CountDownLatch(10000);
+        for (int i = 0; i < 10000; i++) {
+            timer.schedule(ran::countDown, i % 300, TimeUnit.MILLISECONDS);
+        }
+
+        assertThat(ran.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(timer.scheduledCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void cancel_shouldPreventTaskFromRunning() throws InterruptedException {
+        final AtomicBoolean ran = new AtomicBoolean();
+        HashedWheelTimer.Timeout timeout = timer.schedule(() -> ran.set(true), 50, TimeUnit.MILLISECONDS);
+
+        assertThat(timeout.cancel()).isTrue();
+        assertThat(timer.scheduledCount()).isEqualTo(0);
+        Thread.sleep(150);
+
+        assertThat(ran.get()).isFalse();
+        assertThat(timeout.cancel()).isFalse();
+    }
+}
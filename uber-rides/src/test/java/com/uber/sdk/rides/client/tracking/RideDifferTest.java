@@ -0,0 +1,141 @@
+/*
+ * Copyright (c) 2016 Uber Technologies, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.uber.sdk.rides.client.tracking;
+
+import com.uber.sdk.rides.client.internal.ModelAccess;
+import com.uber.sdk.rides.client.internal.ModelAccess.NestedObject;
+import com.uber.sdk.rides.client.model.Driver;
+import com.uber.sdk.rides.client.model.LazyModelDecoder;
+import com.uber.sdk.rides.client.model.Location;
+import com.uber.sdk.rides.client.model.ModelAdapters;
+import com.uber.sdk.rides.client.model.Ride;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class RideDifferTest {
+
+    private final RideDiffer differ = new RideDiffer(50);
+
+    @Test
+    public void diff_whenFirstSnapshot_shouldReportStatusDriverAndLocation() {
+        Ride ride = ride(Ride.Status.ACCEPTED, driver("Bob"), new Location(37.775f, -122.418f), 5);
+
+        assertThat(types(differ.diff(null, null, ride))).containsExactly(
+                RideEvent.Type.STATUS_CHANGED, RideEvent.Type.DRIVER_ASSIGNED, RideEvent.Type.LOCATION_CHANGED);
+    }
+
+    @Test
+    public void diff_whenNothingChanged_shouldReportNothing() {
+        Location location = new Location(37.775f, -122.418f);
+        Driver driver = driver("Bob");
+        Ride previous = ride(Ride.Status.ACCEPTED, driver, location, 5);
+        Ride current = ride(Ride.Status.ACCEPTED, driver("Bob"), new Location(37.775f, -122.418f), 5);
+
+        assertThat(differ.diff(previous, location, current)).isEmpty();
+    }
+
+    @Test
+    public void diff_whenLazyNestedObjectsUnchanged_shouldNotDecodeThem() throws IOException {
+        LazyModelDecoder decoder = LazyModelDecoder.create(ModelAdapters.moshi());
+        String json = "{\"request_id\":\"ride\",\"status\":\"accepted\",\"driver\":{\"name\":\"Bob\"},"
+                + "\"vehicle\":{\"make\":\"Bugatti\"},\"pickup\":{\"latitude\":37.77,\"longitude\":-122.41,"
+                + "\"eta\":5},\"destination\":{\"latitude\":37.49,\"longitude\":-122.41,\"eta\":%d}}";
+        Ride previous = decoder.decodeRide(String.format(json, 20).getBytes(StandardCharsets.UTF_8));
+        Ride current = decoder.decodeRide(String.format(json, 19).getBytes(StandardCharsets.UTF_8));
+
+        assertThat(types(differ.diff(previous, null, current))).containsExactly(RideEvent.Type.ETA_CHANGED);
+        assertThat(ModelAccess.get().hasSameJson(current, previous, NestedObject.DRIVER)).isTrue();
+        assertThat(ModelAccess.get().hasSameJson(current, previous, NestedObject.VEHICLE)).isTrue();
+        assertThat(ModelAccess.get().hasSameJson(current, previous, NestedObject.PICKUP)).isTrue();
+    }
+
+    @Test
+    public void diff_whenChanged_shouldReportEachChange() {
+        Location location = new Location(37.775f, -122.418f);
+        Ride previous = ride(Ride.Status.ACCEPTED, driver("Bob"), location, 5);
+        Ride current = ride(Ride.Status.ARRIVING, driver("Alice"), new Location(37.776f, -122.418f), 2);
+
+        List<RideEvent> events = differ.diff(previous, location, current);
+
+        assertThat(types(events)).containsExactly(RideEvent.Type.STATUS_CHANGED, RideEvent.Type.DRIVER_CHANGED,
+                RideEvent.Type.LOCATION_CHANGED, RideEvent.Type.ETA_CHANGED);
+        assertThat(events.get(0).getPrevious()).isSameAs(previous);
+        assertThat(events.get(0).getRide()).isSameAs(current);
+    }
+
+    @Test
+    public void diff_whenMovedLessThanMinimumDistance_shouldMeasureFromReportedLocation() {
+        Location reported = new Location(37.7750f, -122.418f);
+        Ride first = ride(Ride.Status.ACCEPTED, null, reported, null);
+        Ride second = ride(Ride.Status.ACCEPTED, null, new Location(37.7753f, -122.418f), null);
+        Ride third = ride(Ride.Status.ACCEPTED, null, new Location(37.7756f, -122.418f), null);
+
+        assertThat(differ.diff(first, reported, second)).isEmpty();
+        assertThat(types(differ.diff(second, reported, third))).containsExactly(RideEvent.Type.LOCATION_CHANGED);
+    }
+
+    @Test
+    public void distanceMeters_shouldReturnGreatCircleDistance() {
+        double distance = RideDiffer.distanceMeters(new Location(0, 0), new Location(0, 1));
+
+        assertThat(distance).isCloseTo(111195, within(10d));
+    }
+
+    static Ride ride(Ride.Status status, Driver driver, Location location, Integer pickupEta) {
+        Ride ride = mock(Ride.class);
+        when(ride.getRideId()).thenReturn("ride");
+        when(ride.getStatus()).thenReturn(status);
+        when(ride.getDriver()).thenReturn(driver);
+        when(ride.getLocation()).thenReturn(location);
+        if (pickupEta != null) {
+            Location pickup = mock(Location.class);
+            when(pickup.getEta()).thenReturn(pickupEta);
+            when(ride.getPickup()).thenReturn(pickup);
+        }
+        return ride;
+    }
+
+    private static Driver driver(String name) {
+        Driver driver = mock(Driver.class);
+        when(driver.getName()).thenReturn(name);
+        return driver;
+    }
+
+    private static List<RideEvent.Type> types(List<RideEvent> events) {
+        List<RideEvent.Type> types = new ArrayList<>();
+        for (RideEvent event : events) {
+            types.add(event.getType());
+        }
+        return types;
+    }
+}
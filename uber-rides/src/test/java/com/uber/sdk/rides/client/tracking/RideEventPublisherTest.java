@@ -0,0 +1,187 @@
+/*
+ * Copyright (c) 2016 Uber Technologies, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.uber.sdk.rides.client.tracking;
+
+import com.uber.sdk.rides.client.model.Location;
+import com.uber.sdk.rides.client.model.Ride;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static com.uber.sdk.rides.client.tracking.RideDifferTest.ride;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RideEventPublisherTest {
+
+    private static final Executor DIRECT = Runnable::run;
+
+    private final RideEventPublisher publisher = new RideEventPublisher(50, DIRECT, 2);
+
+    @Test
+    public void onRideUpdated_shouldOnlySendRequestedEvents() {
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        publisher.subscribe(subscriber);
+
+        publisher.onRideUpdated(ride(Ride.Status.PROCESSING, null, null, null));
+        publisher.onRideUpdated(ride(Ride.Status.PROCESSING, null, null, null));
+        publisher.onRideUpdated(ride(Ride.Status.ACCEPTED, null, null, null));
+        assertThat(subscriber.events).isEmpty();
+
+        subscriber.subscription.request(1);
+        assertThat(subscriber.events).hasSize(1);
+        assertThat(subscriber.events.get(0).getType()).isEqualTo(RideEvent.Type.STATUS_CHANGED);
+        assertThat(subscriber.events.get(0).getPrevious()).isNull();
+
+        subscriber.subscription.request(5);
+        assertThat(subscriber.events).hasSize(2);
+        assertThat(subscriber.events.get(1).getRide().getStatus()).isEqualTo(Ride.Status.ACCEPTED);
+    }
+
+    @Test
+    public void onRideUpdated_whenLocationDrifts_shouldReportOnceMinimumDistanceIsReached() {
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        publisher.subscribe(subscriber);
+        subscriber.subscription.request(Long.MAX_VALUE);
+
+        publisher.onRideUpdated(ride(Ride.Status.ACCEPTED, null, new Location(37.7750f, -122.418f), null));
+        publisher.onRideUpdated(ride(Ride.Status.ACCEPTED, null, new Location(37.7753f, -122.418f), null));
+        publisher.onRideUpdated(ride(Ride.Status.ACCEPTED, null, new Location(37.7756f, -122.418f), null));
+
+        assertThat(subscriber.events).hasSize(3);
+        assertThat(subscriber.events.get(2).getType()).isEqualTo(RideEvent.Type.LOCATION_CHANGED);
+        assertThat(subscriber.events.get(2).getRide().getLocation().getLatitude()).isEqualTo(37.7756f);
+    }
+
+    @Test
+    public void onRideUpdated_whenBufferOverflows_shouldFailSubscriber() {
+        RecordingSubscriber slow = new RecordingSubscriber();
+        RecordingSubscriber fast = new RecordingSubscriber();
+        publisher.subscribe(slow);
+        publisher.subscribe(fast);
+        fast.subscription.request(Long.MAX_VALUE);
+
+        publisher.onRideUpdated(ride(Ride.Status.PROCESSING, null, null, null));
+        publisher.onRideUpdated(ride(Ride.Status.ACCEPTED, null, null, null));
+        publisher.onRideUpdated(ride(Ride.Status.ARRIVING, null, null, null));
+
+        assertThat(slow.error).isInstanceOf(IllegalStateException.class);
+        assertThat(slow.events).isEmpty();
+        assertThat(fast.events).hasSize(3);
+        assertThat(fast.error).isNull();
+        assertThat(publisher.getSubscriberCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void forget_shouldCompareNextUpdateToNothing() {
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        publisher.subscribe(subscriber);
+        subscriber.subscription.request(Long.MAX_VALUE);
+        publisher.onRideUpdated(ride(Ride.Status.ACCEPTED, null, null, null));
+
+        publisher.forget("ride");
+        publisher.onRideUpdated(ride(Ride.Status.ACCEPTED, null, null, null));
+
+        assertThat(subscriber.events).hasSize(2);
+        assertThat(subscriber.events.get(1).getType()).isEqualTo(RideEvent.Type.STATUS_CHANGED);
+        assertThat(subscriber.events.get(1).getPrevious()).isNull();
+    }
+
+    @Test
+    public void request_whenNotPositive_shouldFailSubscriber() {
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        publisher.subscribe(subscriber);
+
+        subscriber.subscription.request(0);
+
+        assertThat(subscriber.error).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void cancel_shouldStopSendingEvents() {
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        publisher.subscribe(subscriber);
+        subscriber.subscription.request(Long.MAX_VALUE);
+
+        subscriber.subscription.cancel();
+        publisher.onRideUpdated(ride(Ride.Status.PROCESSING, null, null, null));
+
+        assertThat(subscriber.events).isEmpty();
+        assertThat(publisher.getSubscriberCount()).isZero();
+    }
+
+    @Test
+    public void close_shouldCompleteAfterBufferedEvents() {
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        publisher.subscribe(subscriber);
+        publisher.onRideUpdated(ride(Ride.Status.PROCESSING, null, null, null));
+
+        publisher.close();
+        assertThat(subscriber.completed).isFalse();
+
+        subscriber.subscription.request(1);
+        assertThat(subscriber.events).hasSize(1);
+        assertThat(subscriber.completed).isTrue();
+    }
+
+    @Test
+    public void subscribe_whenClosed_shouldComplete() {
+        publisher.close();
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+
+        publisher.subscribe(subscriber);
+
+        assertThat(subscriber.subscription).isNotNull();
+        assertThat(subscriber.completed).isTrue();
+    }
+
+    private static class RecordingSubscriber implements Flow.Subscriber<RideEvent> {
+
+        final List<RideEvent> events = new ArrayList<>();
+        Flow.Subscription subscription;
+        Throwable error;
+        boolean completed;
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+        }
+
+        @Override
+        public void onNext(RideEvent item) {
+            events.add(item);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            error = throwable;
+        }
+
+        @Override
+        public void onComplete() {
+            completed = true;
+        }
+    }
+}
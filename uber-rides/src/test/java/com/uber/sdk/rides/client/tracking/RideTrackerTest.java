@@ -0,0 +1,191 @@
+/*
+ * Copyright (c) 2016 Uber Technologies, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.uber.sdk.rides.client.tracking;
+
+import com.uber.sdk.rides.client.error.ApiError;
+import com.uber.sdk.rides.client.model.Ride;
+import com.uber.sdk.rides.client.services.RidesService;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import retrofit2.Call;
+import retrofit2.Response;
+
+import static com.uber.sdk.rides.client.tracking.StatusPollingPolicyTest.ride;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class RideTrackerTest {
+
+    @Mock
+    RidesService service;
+
+    RideTracker tracker;
+    RecordingListener listener;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        StatusPollingPolicy policy = new StatusPollingPolicy.Builder()
+                .setInterval(Ride.Status.PROCESSING, 20, TimeUnit.MILLISECONDS)
+                .setInterval(Ride.Status.ARRIVING, 20, TimeUnit.MILLISECONDS)
+                .setRetries(20, TimeUnit.MILLISECONDS, 2)
+                .build();
+        tracker = RideTracker.with(service)
+                .setPollingPolicy(policy)
+                .setInitialDelay(0, TimeUnit.MILLISECONDS)
+                .setWheel(5, TimeUnit.MILLISECONDS, 64)
+                .build();
+        listener = new RecordingListener();
+    }
+
+    @After
+    public void tearDown() {
+        tracker.close();
+    }
+
+    @Test
+    public void track_shouldPollUntilTerminalStatus() throws Exception {
+        Call<Ride> processing = successCall(ride(Ride.Status.PROCESSING));
+        Call<Ride> arriving = successCall(ride(Ride.Status.ARRIVING));
+        Call<Ride> completed = successCall(ride(Ride.Status.COMPLETED));
+        when(service.getRideDetails("ride")).thenReturn(processing, arriving, completed);
+
+        assertThat(tracker.track("ride", listener)).isTrue();
+        assertThat(tracker.getTrackedRideCount()).isEqualTo(1);
+
+        assertThat(listener.stopped.await(2, TimeUnit.SECONDS)).isTrue();
+        assertThat(listener.statuses).containsExactly(
+                Ride.Status.PROCESSING, Ride.Status.ARRIVING, Ride.Status.COMPLETED);
+        assertThat(listener.lastRide.getStatus()).isEqualTo(Ride.Status.COMPLETED);
+        assertThat(tracker.getTrackedRideCount()).isEqualTo(0);
+        assertThat(tracker.getMaxPollLagMillis()).isGreaterThanOrEqualTo(0);
+    }
+
+    @Test
+    public void track_whenAlreadyTracked_shouldReturnFalse() throws Exception {
+        Call<Ride> processing = successCall(ride(Ride.Status.PROCESSING));
+        when(service.getRideDetails("ride")).thenReturn(processing);
+
+        tracker.track("ride", listener);
+
+        assertThat(tracker.track("ride", new RecordingListener())).isFalse();
+        assertThat(tracker.getTrackedRideCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void track_whenPollsKeepFailing_shouldStopAfterRetries() throws Exception {
+        Call<Ride> failing = mockCall();
+        when(failing.execute()).thenThrow(new IOException("Network down"));
+        when(service.getRideDetails("ride")).thenReturn(failing);
+
+        tracker.track("ride", listener);
+
+        assertThat(listener.stopped.await(2, TimeUnit.SECONDS)).isTrue();
+        assertThat(listener.failures.get()).isEqualTo(3);
+        assertThat(listener.lastRide).isNull();
+    }
+
+    @Test
+    public void untrack_shouldStopPolling() throws Exception {
+        Call<Ride> processing = successCall(ride(Ride.Status.PROCESSING));
+        when(service.getRideDetails("ride")).thenReturn(processing);
+        tracker.track("ride", listener);
+        Thread.sleep(100);
+
+        assertThat(tracker.untrack("ride")).isTrue();
+        int updates = listener.statuses.size();
+        Thread.sleep(100);
+
+        assertThat(listener.statuses.size()).isLessThanOrEqualTo(updates + 1);
+        assertThat(tracker.getTrackedRideCount()).isEqualTo(0);
+        assertThat(listener.stopped.getCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void track_whenManyRides_shouldPollEach() throws Exception {
+        when(service.getRideDetails(anyString())).thenAnswer(invocation -> successCall(ride(Ride.Status.COMPLETED)));
+        RecordingListener[] listeners = new RecordingListener[2000];
+
+        for (int i = 0; i < listeners.length; i++) {
+            listeners[i] = new RecordingListener();
+            tracker.track("ride" + i, listeners[i]);
+        }
+
+        for (RecordingListener each : listeners) {
+            assertThat(each.stopped.await(5, TimeUnit.SECONDS)).isTrue();
+        }
+        assertThat(tracker.getTrackedRideCount()).isEqualTo(0);
+    }
+
+    private static Call<Ride> successCall(Ride ride) throws IOException {
+        Call<Ride> call = mockCall();
+        when(call.execute()).thenReturn(Response.success(ride));
+        return call;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Call<Ride> mockCall() {
+        return mock(Call.class);
+    }
+
+    private static class RecordingListener implements RideTracker.Listener {
+
+        final List<Ride.Status> statuses = new CopyOnWriteArrayList<>();
+        final AtomicInteger failures = new AtomicInteger();
+        final CountDownLatch stopped = new CountDownLatch(1);
+        volatile Ride lastRide;
+
+        @Override
+        public void onRideUpdated(@Nonnull Ride ride) {
+            statuses.add(ride.getStatus());
+        }
+
+        @Override
+        public void onPollFailed(@Nonnull String rideId, @Nullable ApiError apiError, @Nullable Throwable throwable) {
+            failures.incrementAndGet();
+        }
+
+        @Override
+        public void onTrackingStopped(@Nonnull String rideId, @Nullable Ride ride) {
+            lastRide = ride;
+            stopped.countDown();
+        }
+    }
+}
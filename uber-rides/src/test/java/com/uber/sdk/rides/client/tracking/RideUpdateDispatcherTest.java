@@ -0,0 +1,241 @@
+/*
+ * Copyright (c) 2016 Uber Technologies, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.uber.sdk.rides.client.tracking;
+
+import com.uber.sdk.core.ringbuffer.RingBuffer;
+import com.uber.sdk.rides.client.error.ApiError;
+import com.uber.sdk.rides.client.model.Ride;
+
+import org.junit.Test;
+import org.mockito.InOrder;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static com.uber.sdk.rides.client.tracking.StatusPollingPolicyTest.ride;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.isNull;
+import static org.mockito.Matchers.same;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+
+public class RideUpdateDispatcherTest {
+
+    @Test
+    public void onRideUpdated_shouldCallEveryListenerInOrder() {
+        RideTracker.Listener first = mock(RideTracker.Listener.class);
+        RideTracker.Listener second = mock(RideTracker.Listener.class);
+        RideUpdateDispatcher dispatcher = new RideUpdateDispatcher.Builder()
+                .addListener("first", first)
+                .addListener("second", second)
+                .build();
+        Ride processing = ride(Ride.Status.PROCESSING);
+        Ride completed = ride(Ride.Status.COMPLETED);
+        IOException failure = new IOException();
+
+        dispatcher.onRideUpdated(processing);
+        dispatcher.onPollFailed("ride", null, failure);
+        dispatcher.onTrackingStopped("ride", completed);
+        dispatcher.close();
+
+        for (RideTracker.Listener listener : new RideTracker.Listener[] { first, second }) {
+            InOrder inOrder = inOrder(listener);
+            inOrder.verify(listener).onRideUpdated(same(processing));
+            inOrder.verify(listener).onPollFailed(same("ride"), (ApiError) isNull(), same(failure));
+            inOrder.verify(listener).onTrackingStopped(same("ride"), same(completed));
+        }
+    }
+
+    @Test
+    public void getLag_shouldReportUpdatesNotHandledYet() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        RideTracker.Listener slow = mock(RideTracker.Listener.class);
+        doAnswer(invocation -> release.await(5, TimeUnit.SECONDS)).when(slow).onRideUpdated(any(Ride.class));
+        RideUpdateDispatcher dispatcher = new RideUpdateDispatcher.Builder()
+                .setBufferSize(16)
+                .addListener("slow", slow)
+                .build();
+
+        for (int i = 0; i < 3; i++) {
+            dispatcher.onRideUpdated(ride(Ride.Status.ACCEPTED));
+        }
+
+        assertThat(dispatcher.getLag("slow")).isEqualTo(3);
+        release.countDown();
+        dispatcher.close();
+        assertThat(dispatcher.getLags()).containsEntry("slow", 0L);
+    }
+
+    @Test
+    public void onRideUpdated_whenBufferIsFull_shouldWaitForSlowestListener() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        RideTracker.Listener slow = mock(RideTracker.Listener.class);
+        doAnswer(invocation -> release.await(5, TimeUnit.SECONDS)).when(slow).onRideUpdated(any(Ride.class));
+        RideUpdateDispatcher dispatcher = new RideUpdateDispatcher.Builder()
+                .setBufferSize(2)
+                .addListener("slow", slow)
+                .build();
+        dispatcher.onRideUpdated(ride(Ride.Status.ACCEPTED));
+        dispatcher.onRideUpdated(ride(Ride.Status.ARRIVING));
+        Ride inProgress = ride(Ride.Status.IN_PROGRESS);
+
+        AtomicBoolean updated = new AtomicBoolean();
+        Thread poller = new Thread(() -> {
+            dispatcher.onRideUpdated(inProgress);
+            updated.set(true);
+        });
+        poller.start();
+        Thread.sleep(100);
+        assertThat(updated.get()).isFalse();
+
+        release.countDown();
+        poller.join(5000);
+        assertThat(updated.get()).isTrue();
+        dispatcher.close();
+        verify(slow, times(3)).onRideUpdated(any(Ride.class));
+        verify(slow).onRideUpdated(same(inProgress));
+        assertThat(dispatcher.getDroppedCount()).isZero();
+    }
+
+    @Test
+    public void onRideUpdated_whenSeveralPollsPublish_shouldCallListenerWithEveryUpdate() throws InterruptedException {
+        RideTracker.Listener listener = mock(RideTracker.Listener.class);
+        RideUpdateDispatcher dispatcher = new RideUpdateDispatcher.Builder()
+                .setBufferSize(4)
+                .addListener("listener", listener)
+                .build();
+        Ride ride = ride(Ride.Status.ACCEPTED);
+
+        Thread[] pollers = new Thread[4];
+        for (int i = 0; i < pollers.length; i++) {
+            pollers[i] = new Thread(() -> {
+                for (int j = 0; j < 1000; j++) {
+                    dispatcher.onRideUpdated(ride);
+                }
+            });
+            pollers[i].start();
+        }
+        for (Thread poller : pollers) {
+            poller.join(5000);
+        }
+        dispatcher.close();
+
+        verify(listener, times(4000)).onRideUpdated(same(ride));
+    }
+
+    @Test
+    public void onRideUpdated_whenBufferIsFullAndDropping_shouldDropUpdate() {
+        CountDownLatch release = new CountDownLatch(1);
+        RideTracker.Listener slow = mock(RideTracker.Listener.class);
+        doAnswer(invocation -> release.await(5, TimeUnit.SECONDS)).when(slow).onRideUpdated(any(Ride.class));
+        RideUpdateDispatcher dispatcher = new RideUpdateDispatcher.Builder()
+                .setBufferSize(2)
+                .setDropWhenFull(true)
+                .addListener("slow", slow)
+                .build();
+
+        for (int i = 0; i < 5; i++) {
+            dispatcher.onRideUpdated(ride(Ride.Status.ACCEPTED));
+        }
+
+        assertThat(dispatcher.getDroppedCount()).isEqualTo(3);
+        release.countDown();
+        dispatcher.close();
+        verify(slow, times(2)).onRideUpdated(any(Ride.class));
+    }
+
+    @Test
+    public void onTrackingStopped_whenBufferIsFullAndDropping_shouldWaitForSlowestListener()
+            throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        RideTracker.Listener slow = mock(RideTracker.Listener.class);
+        doAnswer(invocation -> release.await(5, TimeUnit.SECONDS)).when(slow).onRideUpdated(any(Ride.class));
+        RideUpdateDispatcher dispatcher = new RideUpdateDispatcher.Builder()
+                .setBufferSize(2)
+                .setDropWhenFull(true)
+                .addListener("slow", slow)
+                .build();
+        dispatcher.onRideUpdated(ride(Ride.Status.ACCEPTED));
+        dispatcher.onRideUpdated(ride(Ride.Status.ARRIVING));
+        Ride completed = ride(Ride.Status.COMPLETED);
+
+        AtomicBoolean stopped = new AtomicBoolean();
+        Thread poller = new Thread(() -> {
+            dispatcher.onTrackingStopped("ride", completed);
+            stopped.set(true);
+        });
+        poller.start();
+        Thread.sleep(100);
+        assertThat(stopped.get()).isFalse();
+        // Other polls are not blocked meanwhile.
+        dispatcher.onRideUpdated(ride(Ride.Status.IN_PROGRESS));
+        assertThat(dispatcher.getDroppedCount()).isEqualTo(1);
+
+        release.countDown();
+        poller.join(5000);
+        assertThat(stopped.get()).isTrue();
+        dispatcher.close();
+        verify(slow).onTrackingStopped(same("ride"), same(completed));
+        assertThat(dispatcher.getDroppedCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void onEvent_whenEveryListenerHandledUpdate_shouldReleaseRideAndErrors() {
+        RingBuffer<RideUpdateDispatcher.Update> ring = RingBuffer.with(RideUpdateDispatcher.Update::new)
+                .setBufferSize(2)
+                .addHandler("first", (update, sequence, endOfBatch) -> update.release())
+                .addHandler("second", (update, sequence, endOfBatch) -> update.release())
+                .build();
+        RideUpdateDispatcher dispatcher = new RideUpdateDispatcher(ring, 2, false);
+
+        dispatcher.onRideUpdated(ride(Ride.Status.ACCEPTED));
+        dispatcher.onPollFailed("ride", null, new IOException());
+        dispatcher.close();
+
+        for (long sequence = 0; sequence < 2; sequence++) {
+            RideUpdateDispatcher.Update update = ring.get(sequence);
+            assertThat(update.rideId).isNull();
+            assertThat(update.ride).isNull();
+            assertThat(update.apiError).isNull();
+            assertThat(update.throwable).isNull();
+        }
+    }
+
+    @Test
+    public void onRideUpdated_whenClosed_shouldIgnoreUpdate() {
+        RideTracker.Listener listener = mock(RideTracker.Listener.class);
+        RideUpdateDispatcher dispatcher = new RideUpdateDispatcher.Builder().addListener("listener", listener).build();
+        dispatcher.close();
+
+        dispatcher.onRideUpdated(ride(Ride.Status.ACCEPTED));
+
+        verifyZeroInteractions(listener);
+    }
+}
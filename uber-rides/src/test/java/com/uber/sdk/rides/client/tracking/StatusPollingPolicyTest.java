@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2016 Uber Technologies, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.uber.sdk.rides.client.tracking;
+
+import com.uber.sdk.rides.client.model.Ride;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class StatusPollingPolicyTest {
+
+    @Test
+    public void nextPollDelayMillis_shouldAdaptToStatus() {
+        StatusPollingPolicy policy = new StatusPollingPolicy.Builder().build();
+
+        assertThat(policy.nextPollDelayMillis(ride(Ride.Status.PROCESSING))).isEqualTo(2000);
+        assertThat(policy.nextPollDelayMillis(ride(Ride.Status.ARRIVING))).isEqualTo(2000);
+        assertThat(policy.nextPollDelayMillis(ride(Ride.Status.IN_PROGRESS))).isEqualTo(15000);
+        assertThat(policy.nextPollDelayMillis(ride(null))).isEqualTo(5000);
+    }
+
+    @Test
+    public void nextPollDelayMillis_whenTerminal_shouldStop() {
+        StatusPollingPolicy policy = new StatusPollingPolicy.Builder().build();
+
+        assertThat(policy.nextPollDelayMillis(ride(Ride.Status.COMPLETED))).isEqualTo(PollingPolicy.STOP);
+        assertThat(policy.nextPollDelayMillis(ride(Ride.Status.RIDER_CANCELED))).isEqualTo(PollingPolicy.STOP);
+        assertThat(policy.nextPollDelayMillis(ride(Ride.Status.DRIVER_CANCELED))).isEqualTo(PollingPolicy.STOP);
+        assertThat(policy.nextPollDelayMillis(ride(Ride.Status.NO_DRIVERS_AVAILABLE)))
+                .isEqualTo(PollingPolicy.STOP);
+    }
+
+    @Test
+    public void retryDelayMillis_shouldBackOffAndStopAfterMaximumFailures() {
+        StatusPollingPolicy policy = new StatusPollingPolicy.Builder()
+                .setInterval(Ride.Status.ARRIVING, 1, TimeUnit.SECONDS)
+                .setRetries(5, TimeUnit.SECONDS, 4)
+                .build();
+
+        assertThat(policy.retryDelayMillis("ride", 1)).isEqualTo(1000);
+        assertThat(policy.retryDelayMillis("ride", 2)).isEqualTo(2000);
+        assertThat(policy.retryDelayMillis("ride", 3)).isEqualTo(4000);
+        assertThat(policy.retryDelayMillis("ride", 4)).isEqualTo(5000);
+        assertThat(policy.retryDelayMillis("ride", 5)).isEqualTo(PollingPolicy.STOP);
+    }
+
+    static Ride ride(Ride.Status status) {
+        Ride ride = mock(Ride.class);
+        when(ride.getRideId()).thenReturn("ride");
+        when(ride.getStatus()).thenReturn(status);
+        return ride;
+    }
+}